@@ -73,5 +73,46 @@ public interface ColumnProjector {
   Object getValue(Tuple tuple, PDataType type, ImmutableBytesWritable ptr, Class jdbcType)
     throws SQLException;
 
+  /**
+   * Evaluate the column into ptr without converting its value
+   * @param tuple the row containing the column
+   * @param ptr   used to retrieve the value, which is left empty if the value is null
+   * @return false if the value of the column is null
+   */
+  boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+
+  /**
+   * Get the value of the column as a long without boxing it. Fixed width values are decoded
+   * directly from their bytes.
+   * @param tuple the row containing the column
+   * @param ptr   used to retrieve the value, which is left empty if the value is null
+   * @return the value of the column, or 0 if it is null
+   */
+  long getLong(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+
+  /**
+   * Get the value of the column as an int without boxing it.
+   * @see #getLong(Tuple, ImmutableBytesWritable)
+   */
+  int getInt(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+
+  /**
+   * Get the value of the column as a short without boxing it.
+   * @see #getLong(Tuple, ImmutableBytesWritable)
+   */
+  short getShort(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+
+  /**
+   * Get the value of the column as a float without boxing it.
+   * @see #getLong(Tuple, ImmutableBytesWritable)
+   */
+  float getFloat(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+
+  /**
+   * Get the value of the column as a double without boxing it.
+   * @see #getLong(Tuple, ImmutableBytesWritable)
+   */
+  double getDouble(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException;
+
   boolean isCaseSensitive();
 }
@@ -22,6 +22,23 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDate;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTime;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDate;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTime;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
+import org.apache.phoenix.util.ByteUtil;
 
 /**
  * Projector for getting value from a select statement for an expression
@@ -33,6 +50,11 @@ public class ExpressionProjector implements ColumnProjector {
   private final String tableName;
   private final boolean isCaseSensitive;
   private final String label;
+  // Whether the values of the expression can be decoded by the codec of its type into the
+  // primitive numbers, as the toObject methods of the numeric types do. Dates and times can only
+  // be decoded into longs.
+  private final boolean isFixedWidthNumber;
+  private final boolean isFixedWidthDateTime;
 
   public ExpressionProjector(String name, String label, String tableName, Expression expression,
     boolean isCaseSensitive) {
@@ -41,6 +63,13 @@ public class ExpressionProjector implements ColumnProjector {
     this.expression = expression;
     this.tableName = tableName;
     this.isCaseSensitive = isCaseSensitive;
+    PDataType type = expression.getDataType();
+    this.isFixedWidthNumber = type != null && PDataType.equalsAny(type, PLong.INSTANCE,
+      PUnsignedLong.INSTANCE, PInteger.INSTANCE, PUnsignedInt.INSTANCE, PSmallint.INSTANCE,
+      PUnsignedSmallint.INSTANCE, PTinyint.INSTANCE, PUnsignedTinyint.INSTANCE, PFloat.INSTANCE,
+      PUnsignedFloat.INSTANCE, PDouble.INSTANCE, PUnsignedDouble.INSTANCE);
+    this.isFixedWidthDateTime = type != null && PDataType.equalsAny(type, PDate.INSTANCE,
+      PUnsignedDate.INSTANCE, PTime.INSTANCE, PUnsignedTime.INSTANCE);
   }
 
   @Override
@@ -109,6 +138,108 @@ public class ExpressionProjector implements ColumnProjector {
     }
   }
 
+  @Override
+  public final boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+    try {
+      if (!expression.evaluate(tuple, ptr)) {
+        ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+        return false;
+      }
+      return ptr.getLength() != 0;
+    } catch (RuntimeException e) {
+      throw unwrapSQLException(e);
+    }
+  }
+
+  private Object toObject(PDataType type, ImmutableBytesWritable ptr) {
+    return type.toObject(ptr, expression.getDataType(), expression.getSortOrder(),
+      expression.getMaxLength(), expression.getScale());
+  }
+
+  private static SQLException unwrapSQLException(RuntimeException e) {
+    // FIXME: Expression.evaluate does not throw SQLException
+    // so this will unwrap throws from that.
+    if (e.getCause() instanceof SQLException) {
+      return (SQLException) e.getCause();
+    }
+    throw e;
+  }
+
+  @Override
+  public final long getLong(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+    try {
+      if (!evaluate(tuple, ptr)) {
+        return 0;
+      }
+      if (isFixedWidthNumber || isFixedWidthDateTime) {
+        return expression.getDataType().getCodec().decodeLong(ptr, expression.getSortOrder());
+      }
+      return (Long) toObject(PLong.INSTANCE, ptr);
+    } catch (RuntimeException e) {
+      throw unwrapSQLException(e);
+    }
+  }
+
+  @Override
+  public final int getInt(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+    try {
+      if (!evaluate(tuple, ptr)) {
+        return 0;
+      }
+      if (isFixedWidthNumber) {
+        return expression.getDataType().getCodec().decodeInt(ptr, expression.getSortOrder());
+      }
+      return (Integer) toObject(PInteger.INSTANCE, ptr);
+    } catch (RuntimeException e) {
+      throw unwrapSQLException(e);
+    }
+  }
+
+  @Override
+  public final short getShort(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+    try {
+      if (!evaluate(tuple, ptr)) {
+        return 0;
+      }
+      if (isFixedWidthNumber) {
+        return expression.getDataType().getCodec().decodeShort(ptr, expression.getSortOrder());
+      }
+      return (Short) toObject(PSmallint.INSTANCE, ptr);
+    } catch (RuntimeException e) {
+      throw unwrapSQLException(e);
+    }
+  }
+
+  @Override
+  public final float getFloat(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+    try {
+      if (!evaluate(tuple, ptr)) {
+        return 0;
+      }
+      if (isFixedWidthNumber) {
+        return expression.getDataType().getCodec().decodeFloat(ptr, expression.getSortOrder());
+      }
+      return (Float) toObject(PFloat.INSTANCE, ptr);
+    } catch (RuntimeException e) {
+      throw unwrapSQLException(e);
+    }
+  }
+
+  @Override
+  public final double getDouble(Tuple tuple, ImmutableBytesWritable ptr) throws SQLException {
+    try {
+      if (!evaluate(tuple, ptr)) {
+        return 0;
+      }
+      if (isFixedWidthNumber) {
+        return expression.getDataType().getCodec().decodeDouble(ptr, expression.getSortOrder());
+      }
+      return (Double) toObject(PDouble.INSTANCE, ptr);
+    } catch (RuntimeException e) {
+      throw unwrapSQLException(e);
+    }
+  }
+
   @Override
   public boolean isCaseSensitive() {
     return isCaseSensitive;
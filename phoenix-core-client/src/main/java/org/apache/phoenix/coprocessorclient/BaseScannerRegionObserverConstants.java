@@ -66,6 +66,10 @@ public class BaseScannerRegionObserverConstants {
   public static final String ESTIMATED_DISTINCT_VALUES = "_EstDistinctValues";
   public static final String NON_AGGREGATE_QUERY = "_NonAggregateQuery";
   public static final String TOPN = "_TopN";
+  // Set by the first pass of a two phase top-N to return the sort keys of the top rows only
+  public static final String TOPN_SORT_KEYS_ONLY = "_TopNSortKeysOnly";
+  // Set by the second pass of a two phase top-N to the range of sort keys of the rows to return
+  public static final String TOPN_SORT_KEY_RANGE = "_TopNSortKeyRange";
   public static final String UNGROUPED_AGG = "_UngroupedAgg";
   public static final String DELETE_AGG = "_DeleteAgg";
   public static final String SINGLE_ROW_DELETE = "_SingleRowDelete";
@@ -132,6 +136,8 @@ public class BaseScannerRegionObserverConstants {
   public static final String TX_SCN = "_TxScn";
   public static final String TTL = "_TTL";
   public static final String IS_STRICT_TTL = "_IS_STRICT_TTL";
+  // Set on the mutations of the tables with a Phoenix level TTL that is not conditional
+  public static final String HAS_LITERAL_TTL = "_HAS_LITERAL_TTL";
   public static final String SCAN_ACTUAL_START_ROW = "_ScanActualStartRow";
   public static final String REPLAY_WRITES = "_IGNORE_NEWER_MUTATIONS";
   public final static String SCAN_OFFSET = "_RowOffset";
@@ -149,6 +155,8 @@ public class BaseScannerRegionObserverConstants {
   public static final String EMPTY_COLUMN_FAMILY_NAME = "_EmptyCFName";
   public static final String EMPTY_COLUMN_QUALIFIER_NAME = "_EmptyCQName";
   public static final String INDEX_ROW_KEY = "_IndexRowKey";
+  // Rebuild the index rows of the scanned data rows for the read repair of a batch of index rows
+  public static final String INDEX_ROWS_READ_REPAIR = "_IndexRowsReadRepair";
   public static final String READ_REPAIR_TRANSFORMING_TABLE = "_ReadRepairTransformingTable";
   public static final String CDC_DATA_TABLE_DEF = "_CdcDataTableDef";
 
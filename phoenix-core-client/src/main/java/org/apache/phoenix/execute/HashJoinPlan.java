@@ -34,7 +34,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.hadoop.hbase.CompareOperator;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
@@ -44,6 +47,7 @@ import org.apache.phoenix.compile.FromCompiler;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.RowProjector;
 import org.apache.phoenix.compile.ScanRanges;
+import org.apache.phoenix.compile.SequenceValueExpression;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.compile.WhereCompiler;
 import org.apache.phoenix.coprocessorclient.HashJoinCacheNotFoundException;
@@ -52,20 +56,31 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.visitor.AvgRowWidthVisitor;
 import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
 import org.apache.phoenix.execute.visitor.RowCountVisitor;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.CorrelateVariableFieldAccessExpression;
 import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.InListExpression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.ProjectedColumnExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
 import org.apache.phoenix.expression.RowValueConstructorExpression;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.expression.visitor.StatelessTraverseAllExpressionVisitor;
+import org.apache.phoenix.filter.HashJoinRowKeyFilter;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.iterate.*;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.job.JobManager.JobCallable;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.join.HashJoinRuntimeFilter;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
+import org.apache.phoenix.parse.JoinTableNode.JoinType;
 import org.apache.phoenix.parse.ParseNode;
 import org.apache.phoenix.parse.SQLParser;
 import org.apache.phoenix.parse.SelectStatement;
@@ -73,16 +88,21 @@ import org.apache.phoenix.query.ConnectionQueryServices;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PArrayDataType;
 import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PVarbinary;
+import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ClientUtil;
 import org.apache.phoenix.util.CostUtil;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.SQLCloseables;
+import org.apache.phoenix.util.ScanUtil;
+import org.apache.phoenix.util.SchemaUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -106,6 +126,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
   private HashCacheClient hashClient;
   private AtomicLong firstJobEndTime;
   private List<Expression> keyRangeExpressions;
+  private List<HashJoinRowKeyFilter> rowKeyFilters;
   private Long estimatedRows;
   private Long estimatedBytes;
   private Long estimateInfoTs;
@@ -183,6 +204,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
         : new HashCacheClient(delegate.getContext().getConnection());
       firstJobEndTime = new AtomicLong(0);
       keyRangeExpressions = new CopyOnWriteArrayList<Expression>();
+      rowKeyFilters = new CopyOnWriteArrayList<HashJoinRowKeyFilter>();
     }
 
     for (int i = 0; i < count; i++) {
@@ -259,6 +281,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
     }
 
     if (joinInfo != null) {
+      setRowKeyFilters(scan, rowKeyFilters);
       HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
     }
 
@@ -300,6 +323,33 @@ public class HashJoinPlan extends DelegateQueryPlan {
     return peeking;
   }
 
+  /**
+   * Replaces the row key filters of a previous execution of the plan on the scan with the ones
+   * built from the hash caches of this execution
+   */
+  private static void setRowKeyFilters(Scan scan, List<HashJoinRowKeyFilter> rowKeyFilters) {
+    Filter filter = scan.getFilter();
+    if (filter instanceof HashJoinRowKeyFilter) {
+      scan.setFilter(null);
+    } else if (filter instanceof FilterList) {
+      FilterList filterList = (FilterList) filter;
+      List<Filter> otherFilters = Lists.newArrayListWithExpectedSize(filterList.size());
+      for (Filter childFilter : filterList.getFilters()) {
+        if (!(childFilter instanceof HashJoinRowKeyFilter)) {
+          otherFilters.add(childFilter);
+        }
+      }
+      if (otherFilters.size() < filterList.size()) {
+        scan.setFilter(otherFilters.isEmpty()
+          ? null
+          : new FilterList(filterList.getOperator(), otherFilters));
+      }
+    }
+    for (HashJoinRowKeyFilter rowKeyFilter : rowKeyFilters) {
+      ScanUtil.andFilterAtEnd(scan, rowKeyFilter);
+    }
+  }
+
   private Expression createKeyRangeExpression(Expression lhsExpression, Expression rhsExpression,
     List<Expression> rhsValues, ImmutableBytesWritable ptr, boolean rowKeyOrderOptimizable)
     throws SQLException {
@@ -559,7 +609,15 @@ public class HashJoinPlan extends DelegateQueryPlan {
         keyRangeRhsValues = Lists.<Expression> newArrayList();
       }
       ServerCache cache = null;
+      parent.joinInfo.getRuntimeFilters()[index] = null;
       if (hashExpressions != null) {
+        HashJoinRuntimeFilter.Builder runtimeFilterBuilder = null;
+        if (hasRuntimeFilter(parent)) {
+          runtimeFilterBuilder = new HashJoinRuntimeFilter.Builder(
+            parent.getContext().getConnection().getQueryServices().getProps().getInt(
+              QueryServices.HASH_JOIN_RUNTIME_FILTER_MAX_BYTES_ATTRIB,
+              QueryServicesOptions.DEFAULT_HASH_JOIN_RUNTIME_FILTER_MAX_BYTES));
+        }
         ResultIterator iterator = plan.iterator();
         try {
           final byte[] cacheId;
@@ -584,7 +642,11 @@ public class HashJoinPlan extends DelegateQueryPlan {
             LOGGER.debug("Making RPC to add cache " + Hex.encodeHexString(cacheId));
             cache = parent.hashClient.addHashCache(ranges, cacheId, iterator,
               plan.getEstimatedSize(), hashExpressions, singleValueOnly, usePersistentCache,
-              parent.delegate.getTableRef().getTable(), keyRangeRhsExpression, keyRangeRhsValues);
+              parent.delegate.getTableRef().getTable(), keyRangeRhsExpression, keyRangeRhsValues,
+              runtimeFilterBuilder);
+            if (runtimeFilterBuilder != null) {
+              setRuntimeFilter(parent, runtimeFilterBuilder.build());
+            }
             long endTime = EnvironmentEdgeManager.currentTimeMillis();
             boolean isSet = parent.firstJobEndTime.compareAndSet(0, endTime);
             if (
@@ -648,11 +710,134 @@ public class HashJoinPlan extends DelegateQueryPlan {
 
     @Override
     public List<String> getPostSteps(HashJoinPlan parent) throws SQLException {
-      if (keyRangeLhsExpression == null) return Collections.<String> emptyList();
+      List<String> steps = Lists.newArrayList();
+      if (keyRangeLhsExpression != null) {
+        steps.add("    DYNAMIC SERVER FILTER BY " + keyRangeLhsExpression.toString() + " IN ("
+          + keyRangeRhsExpression.toString() + ")");
+      }
+      if (hasRuntimeFilter(parent)) {
+        steps.add("    DYNAMIC SERVER FILTER BY "
+          + parent.joinInfo.getJoinExpressions()[index].toString()
+          + " IN BLOOM FILTER AND MIN/MAX OF TABLE " + index);
+      }
+      return steps;
+    }
+
+    /**
+     * Applies the runtime filter of the join to the probe side. When the join keys are evaluated
+     * on the row key alone, the filter is pushed into the scan, so that the rows it rejects are
+     * neither read nor projected, and the min and max keys of a single row key column join key
+     * also become a key range of the scan. Otherwise the filter is applied before the hash cache
+     * lookup.
+     */
+    private void setRuntimeFilter(HashJoinPlan parent, HashJoinRuntimeFilter runtimeFilter)
+      throws SQLException {
+      List<Expression> joinExpressions = parent.joinInfo.getJoinExpressions()[index];
+      if (!isRowKeyOnly(joinExpressions)) {
+        parent.joinInfo.getRuntimeFilters()[index] = runtimeFilter;
+        return;
+      }
+      PTable table = parent.delegate.getTableRef().getTable();
+      byte[] essentialCF = table.getType() == PTableType.VIEW
+        ? ByteUtil.EMPTY_BYTE_ARRAY
+        : SchemaUtil.getEmptyColumnFamily(table);
+      parent.rowKeyFilters
+        .add(new HashJoinRowKeyFilter(joinExpressions, runtimeFilter, essentialCF));
+      // The IN list of the build side keys, when there is one, is already narrower
+      if (keyRangeLhsExpression == null && joinExpressions.size() == 1) {
+        Expression keyRange = createMinMaxKeyRangeExpression(joinExpressions.get(0),
+          runtimeFilter, plan.getContext().getTempPtr(), table.rowKeyOrderOptimizable());
+        if (keyRange != null) {
+          parent.keyRangeExpressions.add(keyRange);
+        }
+      }
+    }
+
+    private static boolean isRowKeyOnly(List<Expression> expressions) {
+      final List<Expression> otherColumns = Lists.newArrayList();
+      StatelessTraverseAllExpressionVisitor<Void> visitor =
+        new StatelessTraverseAllExpressionVisitor<Void>() {
+          @Override
+          public Void visit(KeyValueColumnExpression node) {
+            otherColumns.add(node);
+            return null;
+          }
+
+          @Override
+          public Void visit(SingleCellColumnExpression node) {
+            otherColumns.add(node);
+            return null;
+          }
+
+          @Override
+          public Void visit(ProjectedColumnExpression node) {
+            otherColumns.add(node);
+            return null;
+          }
+
+          @Override
+          public Void visit(CorrelateVariableFieldAccessExpression node) {
+            otherColumns.add(node);
+            return null;
+          }
 
-      String step = "    DYNAMIC SERVER FILTER BY " + keyRangeLhsExpression.toString() + " IN ("
-        + keyRangeRhsExpression.toString() + ")";
-      return Collections.<String> singletonList(step);
+          @Override
+          public Void visit(SequenceValueExpression node) {
+            otherColumns.add(node);
+            return null;
+          }
+        };
+      for (Expression expression : expressions) {
+        expression.accept(visitor);
+      }
+      return otherColumns.isEmpty();
+    }
+
+    /**
+     * Creates the expression that bounds a row key column by the min and max build side keys, or
+     * null if the bytes of the key do not order as the values of the column
+     */
+    private static Expression createMinMaxKeyRangeExpression(Expression lhsExpression,
+      HashJoinRuntimeFilter runtimeFilter, ImmutableBytesWritable ptr,
+      boolean rowKeyOrderOptimizable) throws SQLException {
+      byte[] minKey = runtimeFilter.getMinKey();
+      if (minKey == null) {
+        return LiteralExpression.newConstant(false, PBoolean.INSTANCE, Determinism.ALWAYS);
+      }
+      PDataType type = lhsExpression.getDataType();
+      if (
+        !(lhsExpression instanceof RowKeyColumnExpression)
+          || lhsExpression.getSortOrder() != SortOrder.ASC || type.isArrayType()
+          || minKey.length == 0
+      ) {
+        return null;
+      }
+      Expression min = LiteralExpression.newConstant(type.toObject(minKey), type);
+      Expression max =
+        LiteralExpression.newConstant(type.toObject(runtimeFilter.getMaxKey()), type);
+      return AndExpression.create(Lists.newArrayList(
+        ComparisonExpression.create(CompareOperator.GREATER_OR_EQUAL,
+          Lists.newArrayList(lhsExpression, min), ptr, rowKeyOrderOptimizable),
+        ComparisonExpression.create(CompareOperator.LESS_OR_EQUAL,
+          Lists.newArrayList(lhsExpression, max), ptr, rowKeyOrderOptimizable)));
+    }
+
+    /**
+     * Whether the probe side rows are filtered by the build side join keys before the hash cache
+     * lookup. Only joins that drop unmatched probe rows can use it, and a persistent cache may
+     * already be on the servers without its keys being read by the client.
+     */
+    private boolean hasRuntimeFilter(HashJoinPlan parent) {
+      if (hashExpressions == null || usePersistentCache) {
+        return false;
+      }
+      JoinType type = parent.joinInfo.getJoinTypes()[index];
+      if (type != JoinType.Inner && type != JoinType.Semi) {
+        return false;
+      }
+      return parent.getContext().getConnection().getQueryServices().getProps().getBoolean(
+        QueryServices.HASH_JOIN_RUNTIME_FILTER_ENABLED_ATTRIB,
+        QueryServicesOptions.DEFAULT_HASH_JOIN_RUNTIME_FILTER_ENABLED);
     }
 
     @Override
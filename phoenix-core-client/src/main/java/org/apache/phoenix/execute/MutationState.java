@@ -31,11 +31,13 @@ import static org.apache.phoenix.monitoring.MetricType.NUM_METADATA_LOOKUP_FAILU
 import static org.apache.phoenix.monitoring.MetricType.UPSERT_AGGREGATE_FAILURE_SQL_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.UPSERT_AGGREGATE_SUCCESS_SQL_COUNTER;
 import static org.apache.phoenix.query.QueryServices.INDEX_REGION_OBSERVER_ENABLED_ALL_TABLES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.MUTATE_PARALLEL_COMMIT_ENABLED_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.PRESERVE_MUTATIONS_ON_LIMIT_EXCEEDED_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.SERVER_SIDE_IMMUTABLE_INDEXES_ENABLED_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.SOURCE_OPERATION_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.WILDCARD_QUERY_DYNAMIC_COLS_ATTRIB;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_INDEX_REGION_OBSERVER_ENABLED_ALL_TABLES;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_MUTATE_PARALLEL_COMMIT_ENABLED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_PRESERVE_MUTATIONS_ON_LIMIT_EXCEEDED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_SERVER_SIDE_IMMUTABLE_INDEXES_ENABLED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_WILDCARD_QUERY_DYNAMIC_COLS_ATTRIB;
@@ -55,6 +57,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 import org.apache.hadoop.hbase.Cell;
@@ -191,6 +198,7 @@ public class MutationState implements SQLCloseable {
   private final boolean indexRegionObserverEnabledAllTables;
   private final boolean serverSideImmutableIndexes;
   private final boolean preserveOnLimitExceeded;
+  private final boolean parallelCommit;
 
   /**
    * Return result back to client. To be used when client needs to read the whole row or some
@@ -274,6 +282,8 @@ public class MutationState implements SQLCloseable {
         DEFAULT_SERVER_SIDE_IMMUTABLE_INDEXES_ENABLED);
     this.preserveOnLimitExceeded = this.connection.getQueryServices().getProps().getBoolean(
       PRESERVE_MUTATIONS_ON_LIMIT_EXCEEDED_ATTRIB, DEFAULT_PRESERVE_MUTATIONS_ON_LIMIT_EXCEEDED);
+    this.parallelCommit = this.connection.getQueryServices().getProps()
+      .getBoolean(MUTATE_PARALLEL_COMMIT_ENABLED_ATTRIB, DEFAULT_MUTATE_PARALLEL_COMMIT_ENABLED);
   }
 
   public MutationState(TableRef table, MultiRowMutationState mutations, long sizeOffset,
@@ -1469,16 +1479,15 @@ public class MutationState implements SQLCloseable {
         verifiedOrDeletedIndexMutations);
 
       // Phase 1: Send index mutations with the empty column value = "unverified"
-      sendMutations(unverifiedIndexMutations.entrySet().iterator(), span, indexMetaDataPtr, false);
+      sendMutations(unverifiedIndexMutations, span, indexMetaDataPtr, false);
 
       // Phase 2: Send data table and other indexes
-      sendMutations(physicalTableMutationMap.entrySet().iterator(), span, indexMetaDataPtr, false);
+      sendMutations(physicalTableMutationMap, span, indexMetaDataPtr, false);
 
       // Phase 3: Send put index mutations with the empty column value = "verified" and/or delete
       // index mutations
       try {
-        sendMutations(verifiedOrDeletedIndexMutations.entrySet().iterator(), span, indexMetaDataPtr,
-          true);
+        sendMutations(verifiedOrDeletedIndexMutations, span, indexMetaDataPtr, true);
       } catch (SQLException ex) {
         LOGGER.warn(
           "Ignoring exception that happened during setting index verified value to verified=TRUE ",
@@ -1487,136 +1496,243 @@ public class MutationState implements SQLCloseable {
     }
   }
 
-  private void sendMutations(Iterator<Entry<TableInfo, List<Mutation>>> mutationsIterator,
-    Span span, ImmutableBytesWritable indexMetaDataPtr, boolean isVerifiedPhase)
-    throws SQLException {
-    while (mutationsIterator.hasNext()) {
-      Entry<TableInfo, List<Mutation>> pair = mutationsIterator.next();
-      TableInfo tableInfo = pair.getKey();
-      byte[] htableName = tableInfo.getHTableName().getBytes();
-      String htableNameStr = tableInfo.getHTableName().getString();
-      List<Mutation> mutationList = pair.getValue();
-      List<List<Mutation>> mutationBatchList =
-        getMutationBatchList(batchSize, batchSizeBytes, mutationList);
-      int totalBatchCount = mutationBatchList.size();
-
-      // create a span per target table
-      // TODO maybe we can be smarter about the table name to string here?
-      Span child =
-        Tracing.child(span, "Writing mutation batch for table: " + Bytes.toString(htableName));
-
-      int retryCount = 0;
-      boolean shouldRetry = false;
-      long numMutations = 0;
-      long mutationSizeBytes = 0;
-      long mutationCommitTime = 0;
-      long numFailedMutations = 0;
-      long numFailedPhase3Mutations = 0;
-
-      long startTime = EnvironmentEdgeManager.currentTimeMillis();
-      MutationBytes totalMutationBytesObject = null;
-      boolean shouldRetryIndexedMutation = false;
-      IndexWriteException iwe = null;
-      do {
-        TableRef origTableRef = tableInfo.getOrigTableRef();
-        PTable table = origTableRef.getTable();
-        table.getIndexMaintainers(indexMetaDataPtr, connection);
-        final ServerCache cache = tableInfo.isDataTable()
-          ? IndexMetaDataCacheClient.setMetaDataOnMutations(connection, table, mutationList,
-            indexMetaDataPtr)
-          : null;
-        // no-op if table doesn't have Conditional TTL
-        ScanUtil.annotateMutationWithConditionalTTL(connection, tableInfo.getPTable(),
-          mutationList);
-        // If we haven't retried yet, retry for this case only, as it's possible that
-        // a split will occur after we send the index metadata cache to all known
-        // region servers.
-        shouldRetry = cache != null;
-        SQLException sqlE = null;
-        Table hTable = connection.getQueryServices().getTable(htableName);
-        List<Mutation> currentMutationBatch = null;
-        boolean areAllBatchesSuccessful = false;
-        Object[] resultObjects = null;
+  private void sendMutations(Map<TableInfo, List<Mutation>> mutationMap, final Span span,
+    ImmutableBytesWritable indexMetaDataPtr, final boolean isVerifiedPhase) throws SQLException {
+    if (!isParallelCommit(mutationMap)) {
+      for (Entry<TableInfo, List<Mutation>> entry : mutationMap.entrySet()) {
+        sendMutations(entry.getKey(), entry.getValue(), span, indexMetaDataPtr, isVerifiedPhase);
+      }
+      return;
+    }
+    // The tables of a phase are independent of each other, so their batches are sent
+    // concurrently. The first table is sent by this thread while the others are in flight. The
+    // tasks are leaves that never wait on the executor they run on, and a table that cannot be
+    // queued is sent by this thread as well, so the executor cannot deadlock.
+    ExecutorService executor = connection.getQueryServices().getMutationSendExecutor();
+    int[] previousUncommittedStatementIndexes;
+    synchronized (this) {
+      previousUncommittedStatementIndexes = uncommittedStatementIndexes;
+    }
+    List<Future<?>> futures = Lists.newArrayListWithExpectedSize(mutationMap.size() - 1);
+    List<Entry<TableInfo, List<Mutation>>> inline = Lists.newArrayListWithExpectedSize(1);
+    for (final Entry<TableInfo, List<Mutation>> entry : mutationMap.entrySet()) {
+      if (inline.isEmpty()) {
+        inline.add(entry);
+        continue;
+      }
+      try {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            sendMutations(entry.getKey(), entry.getValue(), span, new ImmutableBytesWritable(),
+              isVerifiedPhase);
+            return null;
+          }
+        }));
+      } catch (RejectedExecutionException e) {
+        inline.add(entry);
+      }
+    }
+    SQLException sqlE = null;
+    for (int i = 0; i < inline.size(); i++) {
+      Entry<TableInfo, List<Mutation>> entry = inline.get(i);
+      try {
+        sendMutations(entry.getKey(), entry.getValue(), span,
+          i == 0 ? indexMetaDataPtr : new ImmutableBytesWritable(), isVerifiedPhase);
+      } catch (SQLException e) {
+        if (sqlE == null) {
+          sqlE = e;
+        } else {
+          sqlE.setNextException(e);
+        }
+      }
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        SQLException interrupted =
+          new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION).setRootCause(e)
+            .build().buildException();
+        if (sqlE == null) {
+          sqlE = interrupted;
+        } else {
+          sqlE.setNextException(interrupted);
+        }
+      } catch (ExecutionException e) {
+        SQLException cause = e.getCause() instanceof SQLException
+          ? (SQLException) e.getCause()
+          : ClientUtil.parseServerException(e.getCause());
+        if (sqlE == null) {
+          sqlE = cause;
+        } else {
+          sqlE.setNextException(cause);
+        }
+      }
+    }
+    if (sqlE instanceof CommitException) {
+      // Each failed table reported the statements left while the other tables were still in
+      // flight. Now that all of them are done, only the statements of the failed tables are left.
+      CommitException commitE = (CommitException) sqlE;
+      int[] statementIndexes;
+      synchronized (this) {
+        uncommittedStatementIndexes = previousUncommittedStatementIndexes;
+        statementIndexes = getUncommittedStatementIndexes();
+      }
+      sqlE = new CommitException((Exception) commitE.getCause(), statementIndexes,
+        commitE.getServerTimestamp());
+      sqlE.setNextException(commitE.getNextException());
+    }
+    if (sqlE != null) {
+      throw sqlE;
+    }
+  }
 
-        try {
-          if (table.isTransactional()) {
-            // Track tables to which we've sent uncommitted data
-            if (tableInfo.isDataTable()) {
-              uncommittedPhysicalNames.add(table.getPhysicalName().getString());
-              phoenixTransactionContext.markDMLFence(table);
-            }
-            // Only pass true for last argument if the index is being written to on it's own (i.e.
-            // initial
-            // index population), not if it's being written to for normal maintenance due to writes
-            // to
-            // the data table. This case is different because the initial index population does not
-            // need
-            // to be done transactionally since the index is only made active after all writes have
-            // occurred successfully.
-            hTable = phoenixTransactionContext.getTransactionalTableWriter(connection, table,
-              hTable, tableInfo.isDataTable() && table.getType() == PTableType.INDEX);
+  /**
+   * Whether the tables of a commit phase are sent concurrently. Transactional tables share the
+   * transaction context, which is not thread safe, so they are always sent one at a time.
+   */
+  private boolean isParallelCommit(Map<TableInfo, List<Mutation>> mutationMap) {
+    if (!parallelCommit || mutationMap.size() <= 1) {
+      return false;
+    }
+    for (TableInfo tableInfo : mutationMap.keySet()) {
+      if (tableInfo.getOrigTableRef().getTable().isTransactional()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void sendMutations(TableInfo tableInfo, List<Mutation> mutationList, Span span,
+    ImmutableBytesWritable indexMetaDataPtr, boolean isVerifiedPhase) throws SQLException {
+    byte[] htableName = tableInfo.getHTableName().getBytes();
+    String htableNameStr = tableInfo.getHTableName().getString();
+    List<List<Mutation>> mutationBatchList =
+      getMutationBatchList(batchSize, batchSizeBytes, mutationList);
+    int totalBatchCount = mutationBatchList.size();
+
+    // create a span per target table
+    // TODO maybe we can be smarter about the table name to string here?
+    Span child =
+      Tracing.child(span, "Writing mutation batch for table: " + Bytes.toString(htableName));
+
+    int retryCount = 0;
+    boolean shouldRetry = false;
+    long numMutations = 0;
+    long mutationSizeBytes = 0;
+    long mutationCommitTime = 0;
+    long numFailedMutations = 0;
+    long numFailedPhase3Mutations = 0;
+
+    long startTime = EnvironmentEdgeManager.currentTimeMillis();
+    MutationBytes totalMutationBytesObject = null;
+    boolean shouldRetryIndexedMutation = false;
+    IndexWriteException iwe = null;
+    do {
+      TableRef origTableRef = tableInfo.getOrigTableRef();
+      PTable table = origTableRef.getTable();
+      table.getIndexMaintainers(indexMetaDataPtr, connection);
+      final ServerCache cache = tableInfo.isDataTable()
+        ? IndexMetaDataCacheClient.setMetaDataOnMutations(connection, table, mutationList,
+          indexMetaDataPtr)
+        : null;
+      // no-op if table doesn't have Conditional TTL
+      ScanUtil.annotateMutationWithConditionalTTL(connection, tableInfo.getPTable(),
+        mutationList);
+      ScanUtil.annotateMutationWithLiteralTTL(tableInfo.getPTable(), mutationList);
+      // If we haven't retried yet, retry for this case only, as it's possible that
+      // a split will occur after we send the index metadata cache to all known
+      // region servers.
+      shouldRetry = cache != null;
+      SQLException sqlE = null;
+      Table hTable = connection.getQueryServices().getTable(htableName);
+      List<Mutation> currentMutationBatch = null;
+      boolean areAllBatchesSuccessful = false;
+      Object[] resultObjects = null;
+
+      try {
+        if (table.isTransactional()) {
+          // Track tables to which we've sent uncommitted data
+          if (tableInfo.isDataTable()) {
+            uncommittedPhysicalNames.add(table.getPhysicalName().getString());
+            phoenixTransactionContext.markDMLFence(table);
           }
-          numMutations = mutationList.size();
-          GLOBAL_MUTATION_BATCH_SIZE.update(numMutations);
-          totalMutationBytesObject = calculateMutationSize(mutationList, true);
-
-          child.addTimelineAnnotation("Attempt " + retryCount);
-          Iterator<List<Mutation>> itrListMutation = mutationBatchList.iterator();
-          while (itrListMutation.hasNext()) {
-            final List<Mutation> mutationBatch = itrListMutation.next();
-            currentMutationBatch = mutationBatch;
-            if (connection.getAutoCommit() && mutationBatch.size() == 1) {
-              resultObjects = new Object[mutationBatch.size()];
-            }
-            if (shouldRetryIndexedMutation) {
-              // if there was an index write failure, retry the mutation in a loop
-              final Table finalHTable = hTable;
-              final ImmutableBytesWritable finalindexMetaDataPtr = indexMetaDataPtr;
-              final PTable finalPTable = table;
-              final Object[] finalResultObjects = resultObjects;
-              PhoenixIndexFailurePolicyHelper.doBatchWithRetries(new MutateCommand() {
-                @Override
-                public void doMutation() throws IOException {
-                  try {
-                    finalHTable.batch(mutationBatch, finalResultObjects);
-                  } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException(e);
-                  } catch (IOException e) {
-                    e = updateTableRegionCacheIfNecessary(e);
-                    throw e;
-                  }
+          // Only pass true for last argument if the index is being written to on it's own (i.e.
+          // initial
+          // index population), not if it's being written to for normal maintenance due to writes
+          // to
+          // the data table. This case is different because the initial index population does not
+          // need
+          // to be done transactionally since the index is only made active after all writes have
+          // occurred successfully.
+          hTable = phoenixTransactionContext.getTransactionalTableWriter(connection, table,
+            hTable, tableInfo.isDataTable() && table.getType() == PTableType.INDEX);
+        }
+        numMutations = mutationList.size();
+        GLOBAL_MUTATION_BATCH_SIZE.update(numMutations);
+        totalMutationBytesObject = calculateMutationSize(mutationList, true);
+
+        child.addTimelineAnnotation("Attempt " + retryCount);
+        Iterator<List<Mutation>> itrListMutation = mutationBatchList.iterator();
+        while (itrListMutation.hasNext()) {
+          final List<Mutation> mutationBatch = itrListMutation.next();
+          currentMutationBatch = mutationBatch;
+          if (connection.getAutoCommit() && mutationBatch.size() == 1) {
+            resultObjects = new Object[mutationBatch.size()];
+          }
+          if (shouldRetryIndexedMutation) {
+            // if there was an index write failure, retry the mutation in a loop
+            final Table finalHTable = hTable;
+            final ImmutableBytesWritable finalindexMetaDataPtr = indexMetaDataPtr;
+            final PTable finalPTable = table;
+            final Object[] finalResultObjects = resultObjects;
+            PhoenixIndexFailurePolicyHelper.doBatchWithRetries(new MutateCommand() {
+              @Override
+              public void doMutation() throws IOException {
+                try {
+                  finalHTable.batch(mutationBatch, finalResultObjects);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  throw new IOException(e);
+                } catch (IOException e) {
+                  e = updateTableRegionCacheIfNecessary(e);
+                  throw e;
                 }
+              }
 
-                @Override
-                public List<Mutation> getMutationList() {
-                  return mutationBatch;
-                }
+              @Override
+              public List<Mutation> getMutationList() {
+                return mutationBatch;
+              }
 
-                private IOException updateTableRegionCacheIfNecessary(IOException ioe) {
-                  SQLException sqlE = ClientUtil.parseLocalOrRemoteServerException(ioe);
-                  if (
-                    sqlE != null && sqlE.getErrorCode()
-                        == SQLExceptionCode.INDEX_METADATA_NOT_FOUND.getErrorCode()
-                  ) {
-                    try {
-                      connection.getQueryServices().clearTableRegionCache(finalHTable.getName());
-                      IndexMetaDataCacheClient.setMetaDataOnMutations(connection, finalPTable,
-                        mutationBatch, finalindexMetaDataPtr);
-                    } catch (SQLException e) {
-                      return ClientUtil
-                        .createIOException("Exception during updating index meta data cache", ioe);
-                    }
+              private IOException updateTableRegionCacheIfNecessary(IOException ioe) {
+                SQLException sqlE = ClientUtil.parseLocalOrRemoteServerException(ioe);
+                if (
+                  sqlE != null && sqlE.getErrorCode()
+                      == SQLExceptionCode.INDEX_METADATA_NOT_FOUND.getErrorCode()
+                ) {
+                  try {
+                    connection.getQueryServices().clearTableRegionCache(finalHTable.getName());
+                    IndexMetaDataCacheClient.setMetaDataOnMutations(connection, finalPTable,
+                      mutationBatch, finalindexMetaDataPtr);
+                  } catch (SQLException e) {
+                    return ClientUtil
+                      .createIOException("Exception during updating index meta data cache", ioe);
                   }
-                  return ioe;
                 }
-              }, iwe, connection, connection.getQueryServices().getProps());
-              shouldRetryIndexedMutation = false;
-            } else {
-              hTable.batch(mutationBatch, resultObjects);
-            }
+                return ioe;
+              }
+            }, iwe, connection, connection.getQueryServices().getProps());
+            shouldRetryIndexedMutation = false;
+          } else {
+            hTable.batch(mutationBatch, resultObjects);
+          }
 
-            if (resultObjects != null) {
+          if (resultObjects != null) {
+            // Updated under the lock as the tables of a phase may be sent concurrently
+            synchronized (this) {
               Result result = (Result) resultObjects[0];
               if (result != null && !result.isEmpty()) {
                 Cell cell = result.getColumnLatestCell(Bytes.toBytes(UPSERT_CF),
@@ -1635,23 +1751,27 @@ public class MutationState implements SQLCloseable {
                 numUpdatedRowsForAutoCommit = 1;
               }
             }
+          }
 
-            // remove each batch from the list once it gets applied
-            // so when failures happens for any batch we only start
-            // from that batch only instead of doing duplicate reply of already
-            // applied batches from entire list, also we can set
-            // REPLAY_ONLY_INDEX_WRITES for first batch
-            // only in case of 1121 SQLException
-            itrListMutation.remove();
+          // remove each batch from the list once it gets applied
+          // so when failures happens for any batch we only start
+          // from that batch only instead of doing duplicate reply of already
+          // applied batches from entire list, also we can set
+          // REPLAY_ONLY_INDEX_WRITES for first batch
+          // only in case of 1121 SQLException
+          itrListMutation.remove();
+          synchronized (this) {
             batchCount++;
-            if (LOGGER.isDebugEnabled()) LOGGER.debug(
-              "Sent batch of " + mutationBatch.size() + " for " + Bytes.toString(htableName));
           }
-          child.stop();
-          shouldRetry = false;
-          numFailedMutations = 0;
+          if (LOGGER.isDebugEnabled()) LOGGER.debug(
+            "Sent batch of " + mutationBatch.size() + " for " + Bytes.toString(htableName));
+        }
+        child.stop();
+        shouldRetry = false;
+        numFailedMutations = 0;
 
-          // Remove batches as we process them
+        // Remove batches as we process them
+        synchronized (this) {
           removeMutations(this.mutationsMap, origTableRef);
           if (tableInfo.isDataTable()) {
             numRows -= numMutations;
@@ -1659,83 +1779,85 @@ public class MutationState implements SQLCloseable {
             estimatedSize =
               PhoenixKeyValueUtil.getEstimatedRowMutationSizeWithBatch(this.mutationsMap);
           }
-          areAllBatchesSuccessful = true;
-        } catch (Exception e) {
-          long serverTimestamp = ClientUtil.parseServerTimestamp(e);
-          SQLException inferredE = ClientUtil.parseServerExceptionOrNull(e);
-          if (inferredE != null) {
-            if (
-              shouldRetry && retryCount == 0
-                && inferredE.getErrorCode()
-                    == SQLExceptionCode.INDEX_METADATA_NOT_FOUND.getErrorCode()
-            ) {
-              // Swallow this exception once, as it's possible that we split after sending the index
-              // metadata
-              // and one of the region servers doesn't have it. This will cause it to have it the
-              // next
-              // go around.
-              // If it fails again, we don't retry.
-              String msg =
-                "Swallowing exception and retrying after clearing meta cache on connection. "
-                  + inferredE;
-              LOGGER.warn(LogUtil.addCustomAnnotations(msg, connection));
-              connection.getQueryServices().clearTableRegionCache(TableName.valueOf(htableName));
-
-              // add a new child span as this one failed
-              child.addTimelineAnnotation(msg);
-              child.stop();
-              child = Tracing.child(span, "Failed batch, attempting retry");
-
-              continue;
-            } else
-              if (inferredE.getErrorCode() == SQLExceptionCode.INDEX_WRITE_FAILURE.getErrorCode()) {
-                iwe = PhoenixIndexFailurePolicyHelper.getIndexWriteException(inferredE);
-                if (iwe != null && !shouldRetryIndexedMutation) {
-                  // For an index write failure, the data table write succeeded,
-                  // so when we retry we need to set REPLAY_WRITES
-                  // for first batch in list only.
-                  for (Mutation m : mutationBatchList.get(0)) {
-                    if (!PhoenixIndexMetaData.isIndexRebuild(m.getAttributesMap())) {
-                      m.setAttribute(BaseScannerRegionObserverConstants.REPLAY_WRITES,
-                        BaseScannerRegionObserverConstants.REPLAY_ONLY_INDEX_WRITES);
-                    }
-                    PhoenixKeyValueUtil.setTimestamp(m, serverTimestamp);
+        }
+        areAllBatchesSuccessful = true;
+      } catch (Exception e) {
+        long serverTimestamp = ClientUtil.parseServerTimestamp(e);
+        SQLException inferredE = ClientUtil.parseServerExceptionOrNull(e);
+        if (inferredE != null) {
+          if (
+            shouldRetry && retryCount == 0
+              && inferredE.getErrorCode()
+                  == SQLExceptionCode.INDEX_METADATA_NOT_FOUND.getErrorCode()
+          ) {
+            // Swallow this exception once, as it's possible that we split after sending the index
+            // metadata
+            // and one of the region servers doesn't have it. This will cause it to have it the
+            // next
+            // go around.
+            // If it fails again, we don't retry.
+            String msg =
+              "Swallowing exception and retrying after clearing meta cache on connection. "
+                + inferredE;
+            LOGGER.warn(LogUtil.addCustomAnnotations(msg, connection));
+            connection.getQueryServices().clearTableRegionCache(TableName.valueOf(htableName));
+
+            // add a new child span as this one failed
+            child.addTimelineAnnotation(msg);
+            child.stop();
+            child = Tracing.child(span, "Failed batch, attempting retry");
+
+            continue;
+          } else
+            if (inferredE.getErrorCode() == SQLExceptionCode.INDEX_WRITE_FAILURE.getErrorCode()) {
+              iwe = PhoenixIndexFailurePolicyHelper.getIndexWriteException(inferredE);
+              if (iwe != null && !shouldRetryIndexedMutation) {
+                // For an index write failure, the data table write succeeded,
+                // so when we retry we need to set REPLAY_WRITES
+                // for first batch in list only.
+                for (Mutation m : mutationBatchList.get(0)) {
+                  if (!PhoenixIndexMetaData.isIndexRebuild(m.getAttributesMap())) {
+                    m.setAttribute(BaseScannerRegionObserverConstants.REPLAY_WRITES,
+                      BaseScannerRegionObserverConstants.REPLAY_ONLY_INDEX_WRITES);
                   }
-                  shouldRetry = true;
-                  shouldRetryIndexedMutation = true;
-                  continue;
+                  PhoenixKeyValueUtil.setTimestamp(m, serverTimestamp);
                 }
+                shouldRetry = true;
+                shouldRetryIndexedMutation = true;
+                continue;
               }
-            e = inferredE;
-          }
-          // Throw to client an exception that indicates the statements that
-          // were not committed successfully.
-          int[] uncommittedStatementIndexes = getUncommittedStatementIndexes();
-          sqlE = new CommitException(e, uncommittedStatementIndexes, serverTimestamp);
+            }
+          e = inferredE;
+        }
+        // Throw to client an exception that indicates the statements that
+        // were not committed successfully.
+        int[] uncommittedStatementIndexes = getUncommittedStatementIndexes();
+        sqlE = new CommitException(e, uncommittedStatementIndexes, serverTimestamp);
 
-          numFailedMutations = uncommittedStatementIndexes.length;
+        numFailedMutations = uncommittedStatementIndexes.length;
 
-          if (isVerifiedPhase) {
-            numFailedPhase3Mutations = numFailedMutations;
-            GLOBAL_MUTATION_INDEX_COMMIT_FAILURE_COUNT.update(numFailedPhase3Mutations);
-          }
-        } finally {
-          mutationCommitTime = EnvironmentEdgeManager.currentTimeMillis() - startTime;
-          GLOBAL_MUTATION_COMMIT_TIME.update(mutationCommitTime);
-          MutationMetric failureMutationMetrics = MutationMetric.EMPTY_METRIC;
-          long mutationQueryParsingTimeMS = this.mutationQueryParsingTimeMS;
-          if (!areAllBatchesSuccessful) {
-            failureMutationMetrics =
-              updateMutationBatchFailureMetrics(currentMutationBatch, htableNameStr,
-                numFailedMutations, table.isTransactional(), mutationQueryParsingTimeMS);
-          }
+        if (isVerifiedPhase) {
+          numFailedPhase3Mutations = numFailedMutations;
+          GLOBAL_MUTATION_INDEX_COMMIT_FAILURE_COUNT.update(numFailedPhase3Mutations);
+        }
+      } finally {
+        mutationCommitTime = EnvironmentEdgeManager.currentTimeMillis() - startTime;
+        GLOBAL_MUTATION_COMMIT_TIME.update(mutationCommitTime);
+        MutationMetric failureMutationMetrics = MutationMetric.EMPTY_METRIC;
+        long mutationQueryParsingTimeMS = this.mutationQueryParsingTimeMS;
+        if (!areAllBatchesSuccessful) {
+          failureMutationMetrics =
+            updateMutationBatchFailureMetrics(currentMutationBatch, htableNameStr,
+              numFailedMutations, table.isTransactional(), mutationQueryParsingTimeMS);
+        }
 
-          MutationMetric committedMutationsMetric =
-            getCommittedMutationsMetric(totalMutationBytesObject, mutationBatchList, numMutations,
-              numFailedMutations, numFailedPhase3Mutations, mutationCommitTime, totalBatchCount,
-              mutationQueryParsingTimeMS);
-          // Combine failure mutation metrics with committed ones for the final picture
-          committedMutationsMetric.combineMetric(failureMutationMetrics);
+        MutationMetric committedMutationsMetric =
+          getCommittedMutationsMetric(totalMutationBytesObject, mutationBatchList, numMutations,
+            numFailedMutations, numFailedPhase3Mutations, mutationCommitTime, totalBatchCount,
+            mutationQueryParsingTimeMS);
+        // Combine failure mutation metrics with committed ones for the final picture
+        committedMutationsMetric.combineMetric(failureMutationMetrics);
+        synchronized (this) {
           mutationMetricQueue.addMetricsForTable(htableNameStr, committedMutationsMetric);
 
           if (allUpsertsMutations ^ allDeletesMutations) {
@@ -1768,26 +1890,26 @@ public class MutationState implements SQLCloseable {
               allUpsertsMutations);
           }
           resetAllMutationState();
+        }
 
+        try {
+          if (cache != null) cache.close();
+        } finally {
           try {
-            if (cache != null) cache.close();
-          } finally {
-            try {
-              hTable.close();
-            } catch (IOException e) {
-              if (sqlE != null) {
-                sqlE.setNextException(ClientUtil.parseServerException(e));
-              } else {
-                sqlE = ClientUtil.parseServerException(e);
-              }
-            }
+            hTable.close();
+          } catch (IOException e) {
             if (sqlE != null) {
-              throw sqlE;
+              sqlE.setNextException(ClientUtil.parseServerException(e));
+            } else {
+              sqlE = ClientUtil.parseServerException(e);
             }
           }
+          if (sqlE != null) {
+            throw sqlE;
+          }
         }
-      } while (shouldRetry && retryCount++ < 1);
-    }
+      }
+    } while (shouldRetry && retryCount++ < 1);
   }
 
   /**
@@ -2062,7 +2184,8 @@ public class MutationState implements SQLCloseable {
     }
   }
 
-  private int[] getUncommittedStatementIndexes() {
+  // Synchronized as the tables of a phase may be sent, and removed from the mutations, concurrently
+  private synchronized int[] getUncommittedStatementIndexes() {
     for (List<MultiRowMutationState> batches : mutationsMap.values()) {
       for (MultiRowMutationState rowMutationMap : batches) {
         addUncommittedStatementIndexes(rowMutationMap.values());
@@ -24,6 +24,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.GroupByCompiler.GroupBy;
 import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
+import org.apache.phoenix.compile.MutatingParallelIteratorFactory;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.RowProjector;
 import org.apache.phoenix.compile.StatementContext;
@@ -42,6 +44,7 @@ import org.apache.phoenix.coprocessorclient.MetaDataProtocol;
 import org.apache.phoenix.execute.visitor.ByteCountVisitor;
 import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
 import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.expression.RowKeyExpression;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.iterate.BaseResultIterators;
 import org.apache.phoenix.iterate.ChunkedResultIterator;
@@ -54,10 +57,13 @@ import org.apache.phoenix.iterate.ParallelIteratorFactory;
 import org.apache.phoenix.iterate.ParallelIterators;
 import org.apache.phoenix.iterate.ParallelScanGrouper;
 import org.apache.phoenix.iterate.ResultIterator;
+import org.apache.phoenix.iterate.ResultIterators;
 import org.apache.phoenix.iterate.RoundRobinResultIterator;
 import org.apache.phoenix.iterate.SequenceResultIterator;
 import org.apache.phoenix.iterate.SerialIterators;
 import org.apache.phoenix.iterate.SpoolingResultIterator;
+import org.apache.phoenix.iterate.TwoPhaseTopNResultIterator;
+import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.HintNode;
@@ -299,6 +305,22 @@ public class ScanPlan extends BaseQueryPlan {
     boolean initFirstScanOnly =
       (orderBy == OrderBy.FWD_ROW_KEY_ORDER_BY || orderBy == OrderBy.REV_ROW_KEY_ORDER_BY)
         && isDataToScanWithinThreshold;
+    final boolean isTwoPhaseTopN = isOrdered && !isSerial && isTwoPhaseTopNPossible(scan);
+    final List<OrderByExpression> twoPhaseOrderByExpressions;
+    Scan iteratorsScan = scan;
+    if (isTwoPhaseTopN) {
+      // Break the ties between rows by row key so that the sort keys of the rows are unique
+      twoPhaseOrderByExpressions = new ArrayList<>(orderBy.getOrderByExpressions());
+      twoPhaseOrderByExpressions.add(OrderByExpression
+        .createByCheckIfExpressionSortOrderDesc(RowKeyExpression.INSTANCE, false, true));
+      iteratorsScan = ScanUtil.newScan(scan);
+      serializeScanRegionObserverIntoScan(iteratorsScan, QueryUtil.getOffsetLimit(limit, offset),
+        twoPhaseOrderByExpressions, getProjector().getEstimatedRowByteSize());
+      iteratorsScan.setAttribute(BaseScannerRegionObserverConstants.TOPN_SORT_KEYS_ONLY,
+        QueryConstants.TRUE);
+    } else {
+      twoPhaseOrderByExpressions = null;
+    }
     BaseResultIterators iterators;
     if (isOffsetOnServer) {
       iterators = new SerialIterators(this, perScanLimit, offset, parallelIteratorFactory,
@@ -308,7 +330,7 @@ public class ScanPlan extends BaseQueryPlan {
         scanGrouper, scan, caches, dataPlan);
     } else {
       iterators = new ParallelIterators(this, perScanLimit, parallelIteratorFactory, scanGrouper,
-        scan, initFirstScanOnly, caches, dataPlan);
+        iteratorsScan, initFirstScanOnly, caches, dataPlan);
     }
     estimatedRows = iterators.getEstimatedRowCount();
     estimatedSize = iterators.getEstimatedByteCount();
@@ -320,6 +342,20 @@ public class ScanPlan extends BaseQueryPlan {
       if (limit != null) {
         scanner = new LimitingResultIterator(scanner, limit);
       }
+    } else if (isTwoPhaseTopN) {
+      scanner = new TwoPhaseTopNResultIterator(iterators, limit, offset,
+        twoPhaseOrderByExpressions, new TwoPhaseTopNResultIterator.PageIteratorsFactory() {
+          @Override
+          public ResultIterators newIterators(byte[] sortKeyRange) throws SQLException {
+            Scan pageScan = ScanUtil.newScan(scan);
+            serializeScanRegionObserverIntoScan(pageScan, limit, twoPhaseOrderByExpressions,
+              getProjector().getEstimatedRowByteSize());
+            pageScan.setAttribute(BaseScannerRegionObserverConstants.TOPN_SORT_KEY_RANGE,
+              sortKeyRange);
+            return new ParallelIterators(ScanPlan.this, perScanLimit, parallelIteratorFactory,
+              scanGrouper, pageScan, false, caches, dataPlan);
+          }
+        });
     } else if (isOrdered) {
       scanner =
         new MergeSortTopNResultIterator(iterators, limit, offset, orderBy.getOrderByExpressions());
@@ -357,6 +393,21 @@ public class ScanPlan extends BaseQueryPlan {
     return scanner;
   }
 
+  /**
+   * Returns whether the rows of an ORDER BY ... LIMIT ... OFFSET query may be fetched by a two
+   * phase top-N, see {@link TwoPhaseTopNResultIterator}, which is the case for large enough offsets
+   * on tables and global indexes without joins, and not for upserts or deletes.
+   */
+  private boolean isTwoPhaseTopNPossible(Scan scan) {
+    int minOffset = context.getConnection().getQueryServices().getProps().getInt(
+      QueryServices.TWO_PHASE_TOPN_MIN_OFFSET_ATTRIB,
+      QueryServicesOptions.DEFAULT_TWO_PHASE_TOPN_MIN_OFFSET);
+    return minOffset >= 0 && limit != null && offset != null && offset >= minOffset
+      && dataPlan == null && getTableRef().getTable().getIndexType() != IndexType.LOCAL
+      && !(parallelIteratorFactory instanceof MutatingParallelIteratorFactory)
+      && HashJoinInfo.deserializeHashJoinFromScan(scan) == null;
+  }
+
   @Override
   public boolean useRoundRobinIterator() throws SQLException {
     return ScanUtil.isRoundRobinPossible(orderBy, context);
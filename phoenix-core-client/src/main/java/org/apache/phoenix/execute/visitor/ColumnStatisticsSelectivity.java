@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute.visitor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.InListExpression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.NotExpression;
+import org.apache.phoenix.expression.OrExpression;
+import org.apache.phoenix.expression.SingleCellColumnExpression;
+import org.apache.phoenix.filter.BooleanExpressionFilter;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.stats.ColumnStatistics;
+import org.apache.phoenix.schema.stats.GuidePostsInfo;
+import org.apache.phoenix.schema.stats.GuidePostsKey;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Estimates the selectivity of the filter of a scan from the histograms and distinct value counts
+ * of the columns of the scanned table, for the conditions on a column compared with a constant.
+ * The conditions on other columns or expressions are estimated with the default selectivity.
+ */
+class ColumnStatisticsSelectivity {
+  // The selectivity of the conditions without statistics, as used when there are no statistics
+  static final double DEFAULT_SELECTIVITY = 0.5;
+
+  private final StatementContext context;
+  private final byte[] physicalName;
+  private final Map<ImmutableBytesPtr, GuidePostsInfo> statsByFamily = Maps.newHashMap();
+
+  private ColumnStatisticsSelectivity(StatementContext context, PTable table) {
+    this.context = context;
+    this.physicalName = table.getPhysicalName().getBytes();
+  }
+
+  /**
+   * Returns the estimated selectivity of the filter, or null if no condition of the filter could
+   * be estimated from the statistics of columns.
+   */
+  static Double estimate(Filter filter, StatementContext context) {
+    if (
+      context == null || context.getCurrentTable() == null
+        || !context.getConnection().getQueryServices().getProps().getBoolean(
+          QueryServices.STATS_COLUMN_STATISTICS_ENABLED,
+          QueryServicesOptions.DEFAULT_STATS_COLUMN_STATISTICS_ENABLED)
+    ) {
+      return null;
+    }
+    return new ColumnStatisticsSelectivity(context, context.getCurrentTable().getTable())
+      .selectivity(filter);
+  }
+
+  private Double selectivity(Filter filter) {
+    if (filter instanceof BooleanExpressionFilter) {
+      return selectivity(((BooleanExpressionFilter) filter).getExpression());
+    }
+    if (filter instanceof FilterList) {
+      FilterList filterList = (FilterList) filter;
+      boolean isAnd = filterList.getOperator() == FilterList.Operator.MUST_PASS_ALL;
+      Double[] selectivities = new Double[filterList.getFilters().size()];
+      for (int i = 0; i < selectivities.length; i++) {
+        selectivities[i] = selectivity(filterList.getFilters().get(i));
+      }
+      return isAnd ? and(selectivities) : or(selectivities);
+    }
+    return null;
+  }
+
+  private Double selectivity(Expression expression) {
+    if (expression instanceof AndExpression || expression instanceof OrExpression) {
+      List<Expression> children = expression.getChildren();
+      Double[] selectivities = new Double[children.size()];
+      for (int i = 0; i < selectivities.length; i++) {
+        selectivities[i] = selectivity(children.get(i));
+      }
+      return expression instanceof AndExpression ? and(selectivities) : or(selectivities);
+    }
+    if (expression instanceof NotExpression) {
+      Double selectivity = selectivity(expression.getChildren().get(0));
+      return selectivity == null ? null : 1 - selectivity;
+    }
+    if (expression instanceof ComparisonExpression) {
+      return selectivity((ComparisonExpression) expression);
+    }
+    if (expression instanceof InListExpression) {
+      InListExpression inList = (InListExpression) expression;
+      ColumnStatistics stats = getColumnStatistics(inList.getChildren().get(0));
+      if (stats == null || inList.getKeyExpressions() == null) {
+        return null;
+      }
+      return Math.min(1.0, inList.getKeyExpressions().size() * stats.getEqualitySelectivity())
+        * getNonNullFraction(inList.getChildren().get(0), stats);
+    }
+    return null;
+  }
+
+  private Double selectivity(ComparisonExpression comparison) {
+    Expression column = comparison.getChildren().get(0);
+    Expression value = comparison.getChildren().get(1);
+    CompareOperator op = comparison.getFilterOp();
+    if (!(value instanceof LiteralExpression)) {
+      column = comparison.getChildren().get(1);
+      value = comparison.getChildren().get(0);
+      op = invert(op);
+    }
+    ColumnStatistics stats = getColumnStatistics(column);
+    if (stats == null || !(value instanceof LiteralExpression)) {
+      return null;
+    }
+    Double selectivity;
+    switch (op) {
+      case EQUAL:
+        selectivity = stats.getEqualitySelectivity();
+        break;
+      case NOT_EQUAL:
+        selectivity = 1 - stats.getEqualitySelectivity();
+        break;
+      case LESS:
+      case LESS_OR_EQUAL:
+      case GREATER:
+      case GREATER_OR_EQUAL:
+        // The histogram is over the serialized values, so only values serialized the same way as
+        // those of the column can be placed in it
+        if (
+          value.getSortOrder() != SortOrder.ASC || value.getDataType() == null
+            || !value.getDataType().isBytesComparableWith(column.getDataType())
+        ) {
+          return null;
+        }
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        if (!value.evaluate(null, ptr) || ptr.getLength() == 0) {
+          return null;
+        }
+        byte[] bytes = ptr.copyBytes();
+        if (op == CompareOperator.LESS || op == CompareOperator.LESS_OR_EQUAL) {
+          selectivity =
+            stats.getLessThanSelectivity(bytes, op == CompareOperator.LESS_OR_EQUAL);
+        } else {
+          selectivity =
+            stats.getLessThanSelectivity(bytes, op == CompareOperator.GREATER);
+          selectivity = selectivity == null ? null : 1 - selectivity;
+        }
+        break;
+      default:
+        return null;
+    }
+    return selectivity == null ? null : selectivity * getNonNullFraction(column, stats);
+  }
+
+  private static CompareOperator invert(CompareOperator op) {
+    switch (op) {
+      case LESS:
+        return CompareOperator.GREATER;
+      case LESS_OR_EQUAL:
+        return CompareOperator.GREATER_OR_EQUAL;
+      case GREATER:
+        return CompareOperator.LESS;
+      case GREATER_OR_EQUAL:
+        return CompareOperator.LESS_OR_EQUAL;
+      default:
+        return op;
+    }
+  }
+
+  private static Double and(Double[] selectivities) {
+    Double result = null;
+    for (Double selectivity : selectivities) {
+      if (selectivity != null) {
+        result = (result == null ? 1.0 : result) * selectivity;
+      }
+    }
+    // A condition without statistics still filters rows
+    if (result != null) {
+      for (Double selectivity : selectivities) {
+        if (selectivity == null) {
+          result *= DEFAULT_SELECTIVITY;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static Double or(Double[] selectivities) {
+    double none = 1.0;
+    for (Double selectivity : selectivities) {
+      if (selectivity == null) {
+        // A condition without statistics may select any row
+        return null;
+      }
+      none *= 1 - selectivity;
+    }
+    return 1 - none;
+  }
+
+  /**
+   * Returns the fraction of the rows of the column family that have a value for the column, as
+   * the rows without one never match a comparison.
+   */
+  private double getNonNullFraction(Expression column, ColumnStatistics stats) {
+    GuidePostsInfo gps = statsByFamily.get(
+      new ImmutableBytesPtr(((KeyValueColumnExpression) column).getColumnFamily()));
+    long rowCount = 0;
+    for (long count : gps.getRowCounts()) {
+      rowCount += count;
+    }
+    return rowCount == 0 ? 1.0 : Math.min(1.0, stats.getValueCount() / (double) rowCount);
+  }
+
+  private ColumnStatistics getColumnStatistics(Expression expression) {
+    if (
+      !(expression instanceof KeyValueColumnExpression)
+        || expression instanceof SingleCellColumnExpression
+    ) {
+      return null;
+    }
+    KeyValueColumnExpression column = (KeyValueColumnExpression) expression;
+    ImmutableBytesPtr family = new ImmutableBytesPtr(column.getColumnFamily());
+    GuidePostsInfo gps = statsByFamily.get(family);
+    if (gps == null) {
+      try {
+        gps = context.getConnection().getQueryServices()
+          .getTableStats(new GuidePostsKey(physicalName, column.getColumnFamily()));
+      } catch (SQLException e) {
+        gps = GuidePostsInfo.NO_GUIDEPOST;
+      }
+      statsByFamily.put(family, gps);
+    }
+    return gps.getColumnStatistics(column.getColumnQualifier());
+  }
+}
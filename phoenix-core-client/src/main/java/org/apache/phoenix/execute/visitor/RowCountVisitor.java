@@ -25,6 +25,7 @@ import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.phoenix.compile.GroupByCompiler;
 import org.apache.phoenix.compile.ListJarsQueryPlan;
 import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.compile.TraceQueryPlan;
 import org.apache.phoenix.execute.AggregatePlan;
 import org.apache.phoenix.execute.ClientAggregatePlan;
@@ -66,7 +67,8 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
       Long b = plan.getEstimatedRowsToScan();
       if (b != null) {
         return limit(filter(aggregate(
-          filter(b.doubleValue(), stripSkipScanFilter(plan.getContext().getScan().getFilter())),
+          filter(b.doubleValue(), stripSkipScanFilter(plan.getContext().getScan().getFilter()),
+            plan.getContext()),
           plan.getGroupBy()), plan.getHaving()), plan.getLimit());
       }
     } catch (SQLException e) {
@@ -81,7 +83,8 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
       Long b = plan.getEstimatedRowsToScan();
       if (b != null) {
         return limit(
-          filter(b.doubleValue(), stripSkipScanFilter(plan.getContext().getScan().getFilter())),
+          filter(b.doubleValue(), stripSkipScanFilter(plan.getContext().getScan().getFilter()),
+            plan.getContext()),
           plan.getLimit());
       }
     } catch (SQLException e) {
@@ -133,8 +136,8 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
         return null;
       }
 
-      Double rows =
-        filter(b.doubleValue(), stripSkipScanFilter(lhsPlan.getContext().getScan().getFilter()));
+      Double rows = filter(b.doubleValue(),
+        stripSkipScanFilter(lhsPlan.getContext().getScan().getFilter()), lhsPlan.getContext());
       JoinTableNode.JoinType[] joinTypes = plan.getJoinInfo().getJoinTypes();
       HashJoinPlan.SubPlan[] subPlans = plan.getSubPlans();
       for (int i = 0; i < joinTypes.length; i++) {
@@ -238,6 +241,18 @@ public class RowCountVisitor implements QueryPlanVisitor<Double> {
     return 0.5 * inputRows;
   }
 
+  /**
+   * Estimates the number of rows that pass the filter of a scan from the statistics of the columns
+   * of the scanned table when they are loaded, or as {@link #filter(double, Filter)} otherwise.
+   */
+  public static double filter(double inputRows, Filter filter, StatementContext context) {
+    if (filter == null) {
+      return inputRows;
+    }
+    Double selectivity = ColumnStatisticsSelectivity.estimate(filter, context);
+    return selectivity == null ? filter(inputRows, filter) : selectivity * inputRows;
+  }
+
   public static double filter(double inputRows, Expression filter) {
     if (filter == null) {
       return inputRows;
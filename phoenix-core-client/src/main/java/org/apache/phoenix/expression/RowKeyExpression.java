@@ -26,7 +26,8 @@ import org.apache.phoenix.schema.types.PVarbinary;
 public class RowKeyExpression extends BaseTerminalExpression {
   public static final RowKeyExpression INSTANCE = new RowKeyExpression();
 
-  private RowKeyExpression() {
+  // Public for deserialization, use INSTANCE otherwise
+  public RowKeyExpression() {
   }
 
   @Override
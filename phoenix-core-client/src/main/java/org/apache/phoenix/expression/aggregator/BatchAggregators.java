@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
+
+/**
+ * Batch at a time evaluation of {@link ServerAggregators}. The input of COUNT, SUM, MIN and MAX
+ * over fixed width numeric values is decoded row by row into primitive arrays, and each full batch
+ * is folded into its aggregator with a single call instead of a virtual aggregate call per row.
+ * Aggregators that cannot be folded this way are aggregated a row at a time as before. Pending
+ * values must be folded with {@link #flush()} before the aggregators are evaluated.
+ */
+public class BatchAggregators {
+
+  private enum BatchType {
+    ROW, COUNT, LONG, DOUBLE
+  }
+
+  private static final Set<PDataType> LONG_TYPES =
+    new HashSet<PDataType>(Arrays.<PDataType> asList(PLong.INSTANCE, PInteger.INSTANCE,
+      PSmallint.INSTANCE, PTinyint.INSTANCE, PUnsignedLong.INSTANCE, PUnsignedInt.INSTANCE,
+      PUnsignedSmallint.INSTANCE, PUnsignedTinyint.INSTANCE));
+  private static final Set<PDataType> DOUBLE_TYPES = new HashSet<PDataType>(Arrays.<
+    PDataType> asList(PDouble.INSTANCE, PFloat.INSTANCE, PUnsignedDouble.INSTANCE,
+      PUnsignedFloat.INSTANCE));
+
+  private final Expression[] expressions;
+  private final BatchType[] batchTypes;
+  private final long[][] longValues;
+  private final double[][] doubleValues;
+  private final int[] counts;
+  private final int batchSize;
+  private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+  private Aggregator[] rowAggregators;
+  private int numRows = 0;
+
+  private BatchAggregators(Expression[] expressions, BatchType[] batchTypes, int batchSize) {
+    this.expressions = expressions;
+    this.batchTypes = batchTypes;
+    this.batchSize = batchSize;
+    this.counts = new int[expressions.length];
+    this.longValues = new long[expressions.length][];
+    this.doubleValues = new double[expressions.length][];
+    for (int i = 0; i < batchTypes.length; i++) {
+      if (batchTypes[i] == BatchType.LONG) {
+        longValues[i] = new long[batchSize];
+      } else if (batchTypes[i] == BatchType.DOUBLE) {
+        doubleValues[i] = new double[batchSize];
+      }
+    }
+  }
+
+  /**
+   * Create the batch evaluation of the given aggregators
+   * @param aggregators the server aggregators
+   * @param batchSize   the number of rows folded at once
+   * @return the batch aggregators, or null if none of the aggregators can be folded a batch at a
+   *         time, in which case the row at a time path should be used.
+   */
+  public static BatchAggregators newBatchAggregators(ServerAggregators aggregators,
+    int batchSize) {
+    // Size tracking aggregators need to be charged for every row
+    if (batchSize <= 1 || aggregators instanceof SizeTrackingServerAggregators) {
+      return null;
+    }
+    Aggregator[] rowAggregators = aggregators.getAggregators();
+    BatchType[] batchTypes = new BatchType[rowAggregators.length];
+    boolean isBatchable = false;
+    for (int i = 0; i < rowAggregators.length; i++) {
+      batchTypes[i] = getBatchType(rowAggregators[i], aggregators.expressions[i]);
+      isBatchable |= batchTypes[i] != BatchType.ROW;
+    }
+    return isBatchable
+      ? new BatchAggregators(aggregators.expressions, batchTypes, batchSize)
+      : null;
+  }
+
+  private static BatchType getBatchType(Aggregator aggregator, Expression expression) {
+    if (aggregator instanceof CountAggregator) {
+      return BatchType.COUNT;
+    }
+    PDataType type = expression.getDataType();
+    if (aggregator instanceof NumberSumAggregator && LONG_TYPES.contains(type)) {
+      return BatchType.LONG;
+    }
+    if (aggregator instanceof DoubleSumAggregator && DOUBLE_TYPES.contains(type)) {
+      return BatchType.DOUBLE;
+    }
+    // The min or max of a batch is encoded back into the ascending byte representation
+    if (
+      aggregator instanceof MinAggregator && LONG_TYPES.contains(type)
+        && aggregator.getDataType() == type && expression.getSortOrder() == SortOrder.ASC
+    ) {
+      return BatchType.LONG;
+    }
+    return BatchType.ROW;
+  }
+
+  /**
+   * Aggregate over aggregators. Values of batched aggregators are only buffered until the batch
+   * is full or the aggregators change.
+   * @param rowAggregators the aggregators to aggregate into
+   * @param result         the single row Result from scan iteration
+   */
+  public void aggregate(Aggregator[] rowAggregators, Tuple result) {
+    if (this.rowAggregators != rowAggregators) {
+      flush();
+      this.rowAggregators = rowAggregators;
+    }
+    for (int i = 0; i < expressions.length; i++) {
+      Expression expression = expressions[i];
+      if (expression.evaluate(result, ptr) && ptr.getLength() != 0) {
+        switch (batchTypes[i]) {
+          case COUNT:
+            counts[i]++;
+            break;
+          case LONG:
+            longValues[i][counts[i]++] =
+              expression.getDataType().getCodec().decodeLong(ptr, expression.getSortOrder());
+            break;
+          case DOUBLE:
+            doubleValues[i][counts[i]++] =
+              expression.getDataType().getCodec().decodeDouble(ptr, expression.getSortOrder());
+            break;
+          default:
+            rowAggregators[i].aggregate(result, ptr);
+        }
+      }
+      expression.reset();
+    }
+    if (++numRows == batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Fold the buffered values into their aggregators
+   */
+  public void flush() {
+    if (numRows == 0) {
+      return;
+    }
+    for (int i = 0; i < batchTypes.length; i++) {
+      int count = counts[i];
+      if (count == 0) {
+        continue;
+      }
+      Aggregator aggregator = rowAggregators[i];
+      switch (batchTypes[i]) {
+        case COUNT:
+          ((CountAggregator) aggregator).aggregateBatch(count);
+          break;
+        case LONG:
+          if (aggregator instanceof NumberSumAggregator) {
+            ((NumberSumAggregator) aggregator).aggregateBatch(longValues[i], count);
+          } else {
+            ((MinAggregator) aggregator).aggregateBatch(longValues[i], count);
+          }
+          break;
+        case DOUBLE:
+          ((DoubleSumAggregator) aggregator).aggregateBatch(doubleValues[i], count);
+          break;
+        default:
+          break;
+      }
+      counts[i] = 0;
+    }
+    numRows = 0;
+  }
+}
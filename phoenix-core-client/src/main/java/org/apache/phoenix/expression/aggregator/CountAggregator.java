@@ -17,7 +17,9 @@
  */
 package org.apache.phoenix.expression.aggregator;
 
+import java.nio.ByteBuffer;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PDataType;
@@ -28,7 +30,7 @@ import org.apache.phoenix.util.SizedUtil;
  * Aggregator for COUNT aggregations
  * @since 0.1
  */
-public class CountAggregator extends BaseAggregator {
+public class CountAggregator extends BaseAggregator implements FixedWidthAggregator {
 
   private long count = 0;
   private byte[] buffer = null;
@@ -47,6 +49,14 @@ public class CountAggregator extends BaseAggregator {
     count++;
   }
 
+  /**
+   * Count a batch of rows at once
+   * @param count the number of non null values in the batch
+   */
+  public void aggregateBatch(int count) {
+    this.count += count;
+  }
+
   @Override
   public boolean isNullable() {
     return false;
@@ -74,6 +84,21 @@ public class CountAggregator extends BaseAggregator {
     super.reset();
   }
 
+  @Override
+  public int getStateSize() {
+    return Bytes.SIZEOF_LONG;
+  }
+
+  @Override
+  public void writeState(ByteBuffer buffer, int offset) {
+    buffer.putLong(offset, count);
+  }
+
+  @Override
+  public void readState(ByteBuffer buffer, int offset) {
+    count = buffer.getLong(offset);
+  }
+
   @Override
   public String toString() {
     return "COUNT [count=" + count + "]";
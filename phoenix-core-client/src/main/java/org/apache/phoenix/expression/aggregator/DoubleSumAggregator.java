@@ -17,14 +17,16 @@
  */
 package org.apache.phoenix.expression.aggregator;
 
+import java.nio.ByteBuffer;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PDouble;
 import org.apache.phoenix.util.SizedUtil;
 
-public class DoubleSumAggregator extends BaseAggregator {
+public class DoubleSumAggregator extends BaseAggregator implements FixedWidthAggregator {
 
   private double sum = 0;
   private byte[] buffer;
@@ -54,6 +56,26 @@ public class DoubleSumAggregator extends BaseAggregator {
     }
   }
 
+  /**
+   * Sum a batch of values decoded from the input data type at once
+   * @param values the decoded values
+   * @param length the number of values in the batch
+   */
+  public void aggregateBatch(double[] values, int length) {
+    if (length == 0) {
+      return;
+    }
+    // Add in row order, so that the result matches the one of the row at a time path
+    double batchSum = sum;
+    for (int i = 0; i < length; i++) {
+      batchSum += values[i];
+    }
+    sum = batchSum;
+    if (buffer == null) {
+      initBuffer();
+    }
+  }
+
   @Override
   public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
     if (buffer == null) {
@@ -72,6 +94,28 @@ public class DoubleSumAggregator extends BaseAggregator {
     return PDouble.INSTANCE;
   }
 
+  @Override
+  public int getStateSize() {
+    // The sum and whether any value was aggregated
+    return Bytes.SIZEOF_DOUBLE + Bytes.SIZEOF_BOOLEAN;
+  }
+
+  @Override
+  public void writeState(ByteBuffer stateBuffer, int offset) {
+    stateBuffer.putDouble(offset, sum);
+    stateBuffer.put(offset + Bytes.SIZEOF_DOUBLE, buffer == null ? (byte) 0 : (byte) 1);
+  }
+
+  @Override
+  public void readState(ByteBuffer stateBuffer, int offset) {
+    sum = stateBuffer.getDouble(offset);
+    if (stateBuffer.get(offset + Bytes.SIZEOF_DOUBLE) == 0) {
+      buffer = null;
+    } else if (buffer == null) {
+      initBuffer();
+    }
+  }
+
   @Override
   public String toString() {
     return "SUM [sum=" + sum + "]";
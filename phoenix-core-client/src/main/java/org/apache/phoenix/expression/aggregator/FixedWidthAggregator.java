@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Aggregator whose state has a fixed width, so that the state of many groups can be kept outside
+ * of aggregator instances and loaded into a single instance when one of the groups is aggregated.
+ */
+public interface FixedWidthAggregator extends Aggregator {
+
+  /**
+   * Get the size in bytes of the state
+   */
+  public int getStateSize();
+
+  /**
+   * Write the state at the given offset of the buffer
+   */
+  public void writeState(ByteBuffer buffer, int offset);
+
+  /**
+   * Replace the state with the one written at the given offset of the buffer
+   */
+  public void readState(ByteBuffer buffer, int offset);
+}
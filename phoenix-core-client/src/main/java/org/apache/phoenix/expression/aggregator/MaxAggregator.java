@@ -36,6 +36,20 @@ abstract public class MaxAggregator extends MinAggregator {
     return !super.keepFirst(ibw1, ibw2);
   }
 
+  @Override
+  public void aggregateBatch(long[] values, int length) {
+    if (length == 0) {
+      return;
+    }
+    long max = values[0];
+    for (int i = 1; i < length; i++) {
+      if (values[i] > max) {
+        max = values[i];
+      }
+    }
+    aggregateBatchResult(max);
+  }
+
   @Override
   public String toString() {
     return "MAX [value=" + Bytes.toStringBinary(value.get(), value.getOffset(), value.getLength())
@@ -76,6 +76,32 @@ abstract public class MinAggregator extends BaseAggregator {
     }
   }
 
+  /**
+   * Find the min of a batch of values decoded from an integral data type, and aggregate it with the
+   * current value. Only valid for ascending integral data types.
+   * @param values the decoded values
+   * @param length the number of values in the batch
+   */
+  public void aggregateBatch(long[] values, int length) {
+    if (length == 0) {
+      return;
+    }
+    long min = values[0];
+    for (int i = 1; i < length; i++) {
+      if (values[i] < min) {
+        min = values[i];
+      }
+    }
+    aggregateBatchResult(min);
+  }
+
+  protected void aggregateBatchResult(long result) {
+    // A new buffer is needed, since the value holds on to the bytes it is set to
+    byte[] b = new byte[getDataType().getByteSize()];
+    getDataType().getCodec().encodeLong(result, b, 0);
+    aggregate(null, new ImmutableBytesWritable(b));
+  }
+
   @Override
   public String toString() {
     return "MIN [value=" + Bytes.toStringBinary(value.get(), value.getOffset(), value.getLength())
@@ -17,7 +17,9 @@
  */
 package org.apache.phoenix.expression.aggregator;
 
+import java.nio.ByteBuffer;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PDataType;
@@ -28,7 +30,7 @@ import org.apache.phoenix.util.SizedUtil;
  * Aggregator that sums integral number values
  * @since 0.1
  */
-abstract public class NumberSumAggregator extends BaseAggregator {
+abstract public class NumberSumAggregator extends BaseAggregator implements FixedWidthAggregator {
   private long sum = 0;
   private byte[] buffer;
 
@@ -68,6 +70,25 @@ abstract public class NumberSumAggregator extends BaseAggregator {
     }
   }
 
+  /**
+   * Sum a batch of values decoded from the input data type at once
+   * @param values the decoded values
+   * @param length the number of values in the batch
+   */
+  public void aggregateBatch(long[] values, int length) {
+    if (length == 0) {
+      return;
+    }
+    long batchSum = 0;
+    for (int i = 0; i < length; i++) {
+      batchSum += values[i];
+    }
+    sum += batchSum;
+    if (buffer == null) {
+      initBuffer();
+    }
+  }
+
   @Override
   public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
     if (buffer == null) {
@@ -93,6 +114,28 @@ abstract public class NumberSumAggregator extends BaseAggregator {
     super.reset();
   }
 
+  @Override
+  public int getStateSize() {
+    // The sum and whether any value was aggregated
+    return Bytes.SIZEOF_LONG + Bytes.SIZEOF_BOOLEAN;
+  }
+
+  @Override
+  public void writeState(ByteBuffer stateBuffer, int offset) {
+    stateBuffer.putLong(offset, sum);
+    stateBuffer.put(offset + Bytes.SIZEOF_LONG, buffer == null ? (byte) 0 : (byte) 1);
+  }
+
+  @Override
+  public void readState(ByteBuffer stateBuffer, int offset) {
+    sum = stateBuffer.getLong(offset);
+    if (stateBuffer.get(offset + Bytes.SIZEOF_LONG) == 0) {
+      buffer = null;
+    } else if (buffer == null) {
+      initBuffer();
+    }
+  }
+
   @Override
   public String toString() {
     return "SUM [sum=" + sum + "]";
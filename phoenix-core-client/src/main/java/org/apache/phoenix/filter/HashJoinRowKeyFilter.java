@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Writables;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.filter.RowKeyComparisonFilter.RowKeyTuple;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.join.HashJoinRuntimeFilter;
+import org.apache.phoenix.util.ClientUtil;
+import org.apache.phoenix.util.TupleUtil;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+/**
+ * Filter that rejects the probe side rows of a hash join whose join key cannot be in the hash cache
+ * of the join, according to the {@link HashJoinRuntimeFilter} of the build side. It is only used
+ * when the join key expressions reference row key columns alone, so that the key is evaluated on
+ * the row key before any column of the row is read or projected.
+ */
+public class HashJoinRowKeyFilter extends FilterBase implements Writable {
+  private List<Expression> joinExpressions;
+  private HashJoinRuntimeFilter runtimeFilter;
+  private byte[] essentialCF;
+  private boolean evaluate = true;
+  private boolean keepRow = false;
+  private final RowKeyTuple inputTuple = new RowKeyTuple();
+  private final ImmutableBytesPtr key = new ImmutableBytesPtr();
+
+  public HashJoinRowKeyFilter() {
+  }
+
+  public HashJoinRowKeyFilter(List<Expression> joinExpressions,
+    HashJoinRuntimeFilter runtimeFilter, byte[] essentialCF) {
+    this.joinExpressions = joinExpressions;
+    this.runtimeFilter = runtimeFilter;
+    this.essentialCF = essentialCF;
+  }
+
+  public List<Expression> getJoinExpressions() {
+    return joinExpressions;
+  }
+
+  @Override
+  public void reset() {
+    this.keepRow = false;
+    this.evaluate = true;
+  }
+
+  // No @Override for HBase 3 compatibility
+  public ReturnCode filterKeyValue(Cell v) {
+    return filterCell(v);
+  }
+
+  /**
+   * Evaluate in filterCell instead of filterRowKey, because HBASE-6562 causes filterRowKey to be
+   * called with deleted or partial row keys.
+   */
+  @Override
+  public ReturnCode filterCell(Cell v) {
+    if (evaluate) {
+      inputTuple.setKey(v.getRowArray(), v.getRowOffset(), v.getRowLength());
+      try {
+        // The key is built as the probe of the hash cache builds it
+        TupleUtil.getConcatenatedValue(inputTuple, joinExpressions, key);
+        keepRow = runtimeFilter.mightContain(key);
+      } catch (IOException e) {
+        // Leave the row to the hash cache lookup
+        keepRow = true;
+      }
+      evaluate = false;
+    }
+    return keepRow ? ReturnCode.INCLUDE_AND_NEXT_COL : ReturnCode.NEXT_ROW;
+  }
+
+  @Override
+  public boolean hasFilterRow() {
+    return true;
+  }
+
+  @Override
+  public boolean filterRow() {
+    return !this.keepRow;
+  }
+
+  @Override
+  public boolean isFamilyEssential(byte[] name) {
+    // As for RowKeyComparisonFilter, only the column family that is guaranteed to have a cell in
+    // every row is needed, or all of them when there is no such family
+    return this.essentialCF.length == 0 ? true : Bytes.compareTo(this.essentialCF, name) == 0;
+  }
+
+  @Override
+  public void readFields(DataInput input) throws IOException {
+    try {
+      int count = WritableUtils.readVInt(input);
+      joinExpressions = Lists.newArrayListWithExpectedSize(count);
+      for (int i = 0; i < count; i++) {
+        Expression expression =
+          ExpressionType.values()[WritableUtils.readVInt(input)].newInstance();
+        expression.readFields(input);
+        joinExpressions.add(expression);
+      }
+      runtimeFilter = new HashJoinRuntimeFilter();
+      runtimeFilter.readFields(input);
+      essentialCF = WritableUtils.readCompressedByteArray(input);
+    } catch (Throwable t) { // Catches incompatibilities during reading/writing and doesn't retry
+      ClientUtil.throwIOException("HashJoinRowKeyFilter failed during reading", t);
+    }
+  }
+
+  @Override
+  public void write(DataOutput output) throws IOException {
+    try {
+      WritableUtils.writeVInt(output, joinExpressions.size());
+      for (Expression expression : joinExpressions) {
+        WritableUtils.writeVInt(output, ExpressionType.valueOf(expression).ordinal());
+        expression.write(output);
+      }
+      runtimeFilter.write(output);
+      WritableUtils.writeCompressedByteArray(output, essentialCF);
+    } catch (Throwable t) { // Catches incompatibilities during reading/writing and doesn't retry
+      ClientUtil.throwIOException("HashJoinRowKeyFilter failed during writing", t);
+    }
+  }
+
+  @Override
+  public byte[] toByteArray() throws IOException {
+    return Writables.getBytes(this);
+  }
+
+  public static HashJoinRowKeyFilter parseFrom(final byte[] pbBytes)
+    throws DeserializationException {
+    try {
+      return (HashJoinRowKeyFilter) Writables.getWritable(pbBytes, new HashJoinRowKeyFilter());
+    } catch (IOException e) {
+      throw new DeserializationException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "HashJoinRowKeyFilter " + joinExpressions + " IN " + runtimeFilter;
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.util.ByteUtil;
+
+/**
+ * Sorted row keys of a multi-key point lookup stored in a single prefix compressed block. Each key
+ * is stored as the length of the prefix it shares with the previous key, the length of the rest of
+ * the key and the rest of the key, all but the lengths being vints. Every
+ * {@link #RESTART_INTERVAL}th key is a restart point stored in full, so that keys can be searched
+ * by a binary search over the restart points followed by a linear scan of at most
+ * {@link #RESTART_INTERVAL} keys. Keys are decoded into a reusable buffer, which makes consecutive
+ * accesses cheap, and which makes this class not thread safe.
+ */
+public class PointLookupKeys {
+  static final int RESTART_INTERVAL = 16;
+
+  private final int size;
+  private final byte[] block;
+  // Offsets of the restart points in the block
+  private final int[] restarts;
+  private final int maxKeyLength;
+  // Last decoded key
+  private byte[] key;
+  private int keyLength;
+  private int keyIndex = -1;
+  private int nextKeyOffset;
+
+  private PointLookupKeys(int size, byte[] block) {
+    this.size = size;
+    this.block = block;
+    this.restarts = new int[(size + RESTART_INTERVAL - 1) / RESTART_INTERVAL];
+    // Find the restart points and the length of the longest key
+    int maxKeyLength = 0;
+    int offset = 0;
+    for (int i = 0; i < size; i++) {
+      if (i % RESTART_INTERVAL == 0) {
+        restarts[i / RESTART_INTERVAL] = offset;
+      }
+      int sharedLength = ByteUtil.vintFromBytes(block, offset);
+      offset += WritableUtils.decodeVIntSize(block[offset]);
+      int suffixLength = ByteUtil.vintFromBytes(block, offset);
+      offset += WritableUtils.decodeVIntSize(block[offset]) + suffixLength;
+      maxKeyLength = Math.max(maxKeyLength, sharedLength + suffixLength);
+    }
+    this.maxKeyLength = maxKeyLength;
+    this.key = new byte[maxKeyLength];
+  }
+
+  private PointLookupKeys(PointLookupKeys keys) {
+    this.size = keys.size;
+    this.block = keys.block;
+    this.restarts = keys.restarts;
+    this.maxKeyLength = keys.maxKeyLength;
+    this.key = new byte[maxKeyLength];
+  }
+
+  /**
+   * Get a copy of these keys sharing their encoded block, to be used by another thread
+   */
+  public PointLookupKeys duplicate() {
+    return new PointLookupKeys(this);
+  }
+
+  /**
+   * Encode the lower ranges of the given single key ranges, which must be sorted
+   */
+  public static PointLookupKeys create(List<KeyRange> keys) {
+    int blockLength = 0;
+    byte[] previousKey = ByteUtil.EMPTY_BYTE_ARRAY;
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] key = keys.get(i).getLowerRange();
+      int sharedLength = i % RESTART_INTERVAL == 0 ? 0 : getSharedLength(previousKey, key);
+      blockLength += WritableUtils.getVIntSize(sharedLength)
+        + WritableUtils.getVIntSize(key.length - sharedLength) + key.length - sharedLength;
+      previousKey = key;
+    }
+    byte[] block = new byte[blockLength];
+    int offset = 0;
+    previousKey = ByteUtil.EMPTY_BYTE_ARRAY;
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] key = keys.get(i).getLowerRange();
+      int sharedLength = i % RESTART_INTERVAL == 0 ? 0 : getSharedLength(previousKey, key);
+      offset += ByteUtil.vintToBytes(block, offset, sharedLength);
+      offset += ByteUtil.vintToBytes(block, offset, key.length - sharedLength);
+      System.arraycopy(key, sharedLength, block, offset, key.length - sharedLength);
+      offset += key.length - sharedLength;
+      previousKey = key;
+    }
+    return new PointLookupKeys(keys.size(), block);
+  }
+
+  private static int getSharedLength(byte[] previousKey, byte[] key) {
+    int maxLength = Math.min(previousKey.length, key.length);
+    int length = 0;
+    while (length < maxLength && previousKey[length] == key[length]) {
+      length++;
+    }
+    return length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getMaxKeyLength() {
+    return maxKeyLength;
+  }
+
+  /**
+   * Get the size of the encoded keys in bytes
+   */
+  public int getEncodedLength() {
+    return block.length;
+  }
+
+  private void seek(int index) {
+    if (index == keyIndex) {
+      return;
+    }
+    // Decode from the restart point of the key unless the key is after the last decoded one
+    // within the same restart interval
+    if (
+      index < keyIndex || keyIndex < 0 || index / RESTART_INTERVAL != keyIndex / RESTART_INTERVAL
+    ) {
+      keyIndex = index - index % RESTART_INTERVAL - 1;
+      nextKeyOffset = restarts[index / RESTART_INTERVAL];
+    }
+    while (keyIndex < index) {
+      int offset = nextKeyOffset;
+      int sharedLength = ByteUtil.vintFromBytes(block, offset);
+      offset += WritableUtils.decodeVIntSize(block[offset]);
+      int suffixLength = ByteUtil.vintFromBytes(block, offset);
+      offset += WritableUtils.decodeVIntSize(block[offset]);
+      System.arraycopy(block, offset, key, sharedLength, suffixLength);
+      keyLength = sharedLength + suffixLength;
+      nextKeyOffset = offset + suffixLength;
+      keyIndex++;
+    }
+  }
+
+  /**
+   * Get a copy of the key at the given index
+   */
+  public byte[] getKey(int index) {
+    seek(index);
+    return Arrays.copyOf(key, keyLength);
+  }
+
+  /**
+   * Copy the key at the given index into the given buffer, which must be large enough
+   * @return the length of the key
+   */
+  public int copyKey(int index, byte[] buffer, int offset) {
+    seek(index);
+    System.arraycopy(key, 0, buffer, offset, keyLength);
+    return keyLength;
+  }
+
+  /**
+   * Compare the key at the given index with the given bytes
+   */
+  public int compareKey(int index, byte[] b, int o, int l) {
+    seek(index);
+    return Bytes.compareTo(key, 0, keyLength, b, o, l);
+  }
+
+  private int compareRestartKey(int restart, byte[] b, int o, int l) {
+    int offset = restarts[restart];
+    // The shared length of a restart point is 0, which takes a single byte
+    offset++;
+    int length = ByteUtil.vintFromBytes(block, offset);
+    offset += WritableUtils.decodeVIntSize(block[offset]);
+    return Bytes.compareTo(block, offset, length, b, o, l);
+  }
+
+  /**
+   * Find the first key at or after the given index that is not less than the given bytes
+   * @return the index of the key, or {@link #size()} if all keys from the given index are less
+   */
+  public int search(byte[] b, int o, int l, int fromIndex) {
+    if (fromIndex >= size) {
+      return size;
+    }
+    if (compareKey(fromIndex, b, o, l) >= 0) {
+      return fromIndex;
+    }
+    // Find the last restart point whose key is less than the given bytes
+    int low = fromIndex / RESTART_INTERVAL;
+    int high = restarts.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (compareRestartKey(mid, b, o, l) < 0) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    for (int index = Math.max(fromIndex + 1, low * RESTART_INTERVAL); index < size; index++) {
+      if (compareKey(index, b, o, l) >= 0) {
+        return index;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Get the keys as single key ranges, which are created on access
+   */
+  public List<KeyRange> asKeyRanges() {
+    return new KeyRangeList();
+  }
+
+  private class KeyRangeList extends AbstractList<KeyRange> implements RandomAccess {
+    @Override
+    public KeyRange get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return KeyRange.getKeyRange(getKey(index));
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, size);
+    WritableUtils.writeVInt(out, block.length);
+    out.write(block);
+  }
+
+  public static PointLookupKeys read(DataInput in) throws IOException {
+    int size = WritableUtils.readVInt(in);
+    byte[] block = new byte[WritableUtils.readVInt(in)];
+    in.readFully(block);
+    return new PointLookupKeys(size, block);
+  }
+}
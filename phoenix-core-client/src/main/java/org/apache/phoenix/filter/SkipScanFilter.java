@@ -79,10 +79,15 @@ public class SkipScanFilter extends FilterBase implements Writable {
   private boolean isDone;
   private int offset;
   private boolean isMultiKeyPointLookup;
+  // Keys of a multi-key point lookup deserialized in the compact form, of which slots is a view
+  private PointLookupKeys pointLookupKeys;
+  // Whether to serialize the keys of a multi-key point lookup in the compact form
+  private boolean useCompactPointLookupKeys;
   private Map<ImmutableBytesWritable, Cell> nextCellHintMap =
     new HashMap<ImmutableBytesWritable, Cell>();
 
   private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+  private final ImmutableBytesWritable familyPtr = new ImmutableBytesWritable();
 
   /**
    * We know that initially the first row will be positioned at or after the first possible key.
@@ -91,14 +96,18 @@ public class SkipScanFilter extends FilterBase implements Writable {
   }
 
   public SkipScanFilter(SkipScanFilter filter, boolean includeMultipleVersions) {
-    this(filter.slots, filter.slotSpan, filter.schema, includeMultipleVersions,
-      filter.isMultiKeyPointLookup);
+    this(filter, includeMultipleVersions, filter.isMultiKeyPointLookup);
   }
 
   public SkipScanFilter(SkipScanFilter filter, boolean includeMultipleVersions,
     boolean isMultiKeyPointLookup) {
-    this(filter.slots, filter.slotSpan, filter.schema, includeMultipleVersions,
-      isMultiKeyPointLookup);
+    if (filter.pointLookupKeys != null && isMultiKeyPointLookup) {
+      init(filter.pointLookupKeys.duplicate(), filter.slotSpan, filter.schema,
+        includeMultipleVersions);
+    } else {
+      init(filter.slots, filter.slotSpan, filter.schema, includeMultipleVersions,
+        isMultiKeyPointLookup);
+    }
   }
 
   public SkipScanFilter(List<List<KeyRange>> slots, RowKeySchema schema) {
@@ -136,6 +145,55 @@ public class SkipScanFilter extends FilterBase implements Writable {
     return isMultiKeyPointLookup ? slots.get(0) : Collections.emptyList();
   }
 
+  public int getPointLookupKeyCount() {
+    return isMultiKeyPointLookup ? slots.get(0).size() : 0;
+  }
+
+  /**
+   * Get the key of a multi-key point lookup without creating a key range for it when the keys
+   * were serialized in the compact form
+   */
+  public byte[] getPointLookupKey(int index) {
+    return pointLookupKeys != null
+      ? pointLookupKeys.getKey(index)
+      : slots.get(0).get(index).getLowerRange();
+  }
+
+  /**
+   * Find the first key of a multi-key point lookup that is not less than the given bytes
+   * @return the index of the key, or {@link #getPointLookupKeyCount()} if there is none
+   */
+  public int findPointLookupKey(byte[] b, int o, int l) {
+    if (pointLookupKeys != null) {
+      return pointLookupKeys.search(b, o, l, 0);
+    }
+    List<KeyRange> keys = getPointLookupKeyRanges();
+    int low = 0;
+    int high = keys.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      byte[] key = keys.get(mid).getLowerRange();
+      if (Bytes.compareTo(key, 0, key.length, b, o, l) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  public boolean useCompactPointLookupKeys() {
+    return useCompactPointLookupKeys;
+  }
+
+  /**
+   * Serialize the keys of a multi-key point lookup in a prefix compressed block instead of as key
+   * ranges, which only servers with {@link PointLookupKeys} can deserialize
+   */
+  public void setUseCompactPointLookupKeys(boolean useCompactPointLookupKeys) {
+    this.useCompactPointLookupKeys = useCompactPointLookupKeys;
+  }
+
   private void init(List<List<KeyRange>> slots, int[] slotSpan, RowKeySchema schema,
     boolean includeMultipleVersions, boolean isPointLookup) {
     for (List<KeyRange> ranges : slots) {
@@ -155,6 +213,26 @@ public class SkipScanFilter extends FilterBase implements Writable {
     this.isMultiKeyPointLookup = isPointLookup;
   }
 
+  private void init(PointLookupKeys keys, int[] slotSpan, RowKeySchema schema,
+    boolean includeMultipleVersions) {
+    if (keys.size() == 0) {
+      throw new IllegalStateException();
+    }
+    this.pointLookupKeys = keys;
+    this.useCompactPointLookupKeys = true;
+    this.slots = Collections.singletonList(keys.asKeyRanges());
+    this.slotSpan = slotSpan;
+    this.schema = schema;
+    this.maxKeyLength = SchemaUtil.getMaxKeyLength(schema, Collections.<List<KeyRange>> emptyList())
+      + keys.getMaxKeyLength();
+    this.position = new int[1];
+    this.startKey = new byte[maxKeyLength];
+    this.endKey = new byte[maxKeyLength];
+    this.endKeyLength = 0;
+    this.includeMultipleVersions = includeMultipleVersions;
+    this.isMultiKeyPointLookup = true;
+  }
+
   // Exposed for testing.
   public List<List<KeyRange>> getSlots() {
     return slots;
@@ -210,10 +288,11 @@ public class SkipScanFilter extends FilterBase implements Writable {
 
   @Override
   public Cell getNextCellHint(Cell kv) {
-    return isDone
-      ? null
-      : nextCellHintMap.get(new ImmutableBytesWritable(kv.getFamilyArray(), kv.getFamilyOffset(),
-        kv.getFamilyLength()));
+    if (isDone) {
+      return null;
+    }
+    familyPtr.set(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength());
+    return nextCellHintMap.get(familyPtr);
   }
 
   public boolean hasIntersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
@@ -228,7 +307,9 @@ public class SkipScanFilter extends FilterBase implements Writable {
   public SkipScanFilter intersect(byte[] lowerInclusiveKey, byte[] upperExclusiveKey) {
     List<List<KeyRange>> newSlots = Lists.newArrayListWithCapacity(slots.size());
     if (intersect(lowerInclusiveKey, upperExclusiveKey, newSlots)) {
-      return new SkipScanFilter(newSlots, slotSpan, schema, isMultiKeyPointLookup);
+      SkipScanFilter filter = new SkipScanFilter(newSlots, slotSpan, schema, isMultiKeyPointLookup);
+      filter.setUseCompactPointLookupKeys(useCompactPointLookupKeys);
+      return filter;
     }
     return null;
   }
@@ -418,6 +499,9 @@ public class SkipScanFilter extends FilterBase implements Writable {
       justification = "Assignment designed to work this way.")
   private ReturnCode navigate(final byte[] currentKey, final int offset, final int length,
     Terminate terminate) {
+    if (pointLookupKeys != null) {
+      return navigatePointLookupKeys(currentKey, offset, length, terminate);
+    }
     int nSlots = slots.size();
 
     // First check to see if we're in-range until we reach our end key
@@ -583,6 +667,32 @@ public class SkipScanFilter extends FilterBase implements Writable {
     return getIncludeReturnCode();
   }
 
+  /**
+   * Navigates through the keys of a multi-key point lookup the same way as the general case does for
+   * a single slot of single keys, but without creating key ranges. Rows come in order, so the
+   * search for the current row starts from the current position.
+   */
+  private ReturnCode navigatePointLookupKeys(final byte[] currentKey, final int offset,
+    final int length, Terminate terminate) {
+    if (isDone) {
+      return ReturnCode.NEXT_ROW;
+    }
+    int size = pointLookupKeys.size();
+    position[0] = pointLookupKeys.search(currentKey, offset, length, position[0]);
+    if (position[0] >= size) {
+      if (terminate == Terminate.AT) {
+        return ReturnCode.SEEK_NEXT_USING_HINT;
+      }
+      isDone = true;
+      return ReturnCode.NEXT_ROW;
+    }
+    if (pointLookupKeys.compareKey(position[0], currentKey, offset, length) == 0) {
+      return getIncludeReturnCode();
+    }
+    startKeyLength = pointLookupKeys.copyKey(position[0], startKey, 0);
+    return ReturnCode.SEEK_NEXT_USING_HINT;
+  }
+
   private boolean allTrailingNulls(int i) {
     for (; i < slots.size(); i++) {
       List<KeyRange> keyRanges = slots.get(i);
@@ -658,12 +768,24 @@ public class SkipScanFilter extends FilterBase implements Writable {
 
   private static final int KEY_RANGE_LENGTH_BITS = 21;
   private static final int SLOT_SPAN_BITS = 32 - KEY_RANGE_LENGTH_BITS;
+  // Written in place of the number of slots when the keys of a multi-key point lookup are
+  // serialized in the compact form. Older servers fail to deserialize them.
+  private static final int COMPACT_POINT_LOOKUP_KEYS = Integer.MIN_VALUE;
+  private static final int COMPACT_POINT_LOOKUP_KEYS_MULTIPLE_VERSIONS = Integer.MIN_VALUE + 1;
 
   @Override
   public void readFields(DataInput in) throws IOException {
     RowKeySchema schema = new RowKeySchema();
     schema.readFields(in);
     int andLen = in.readInt();
+    if (
+      andLen == COMPACT_POINT_LOOKUP_KEYS || andLen == COMPACT_POINT_LOOKUP_KEYS_MULTIPLE_VERSIONS
+    ) {
+      int[] slotSpan = new int[] { in.readInt() };
+      this.init(PointLookupKeys.read(in), slotSpan, schema,
+        andLen == COMPACT_POINT_LOOKUP_KEYS_MULTIPLE_VERSIONS);
+      return;
+    }
     boolean includeMultipleVersions = false;
     if (andLen < 0) {
       andLen = -andLen;
@@ -705,6 +827,16 @@ public class SkipScanFilter extends FilterBase implements Writable {
   public void write(DataOutput out) throws IOException {
     assert (slots.size() == slotSpan.length);
     schema.write(out);
+    if (useCompactPointLookupKeys && isMultiKeyPointLookup && slots.size() == 1) {
+      out.writeInt(this.includeMultipleVersions
+        ? COMPACT_POINT_LOOKUP_KEYS_MULTIPLE_VERSIONS
+        : COMPACT_POINT_LOOKUP_KEYS);
+      out.writeInt(slotSpan[0]);
+      PointLookupKeys keys =
+        pointLookupKeys != null ? pointLookupKeys : PointLookupKeys.create(slots.get(0));
+      keys.write(out);
+      return;
+    }
     int nSlots = slots.size();
     out.writeInt(this.includeMultipleVersions ? -nSlots : nSlots);
     for (int i = 0; i < nSlots; i++) {
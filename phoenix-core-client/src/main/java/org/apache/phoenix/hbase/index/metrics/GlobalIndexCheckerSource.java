@@ -49,6 +49,22 @@ public interface GlobalIndexCheckerSource extends BaseSource {
   String UNVERIFIED_INDEX_ROW_AGE_DESC =
     "Histogram for the age in " + "milliseconds for unverified row soon after it is repaired";
 
+  String INDEX_REPAIR_BATCH_SIZE = "indexRepairBatchSize";
+  String INDEX_REPAIR_BATCH_SIZE_DESC =
+    "Histogram for the number of index rows repaired together by a batch";
+
+  String INDEX_REPAIR_BATCH_TIME = "indexRepairBatchTime";
+  String INDEX_REPAIR_BATCH_TIME_DESC =
+    "Histogram for the time in milliseconds for batches of index row repairs";
+
+  String INDEX_COMPACTION_SWEEP_INSPECTION = "indexCompactionSweepInspections";
+  String INDEX_COMPACTION_SWEEP_INSPECTION_DESC =
+    "The number of unverified index rows verified against the data table by compactions";
+
+  String INDEX_COMPACTION_SWEEP_DELETE = "indexCompactionSweepDeletes";
+  String INDEX_COMPACTION_SWEEP_DELETE_DESC =
+    "The number of unverified index rows removed by compactions";
+
   /**
    * Increments the number of index rows inspected for verified status
    * @param indexName Name of the index
@@ -87,4 +103,32 @@ public interface GlobalIndexCheckerSource extends BaseSource {
    * @param t         time taken in milliseconds
    */
   void updateIndexRepairFailureTime(String indexName, long t);
+
+  /**
+   * Updates the index repair batch size histogram
+   * @param indexName Name of the index
+   * @param size      number of index rows repaired by the batch
+   */
+  void updateIndexRepairBatchSize(String indexName, long size);
+
+  /**
+   * Updates the index repair batch time histogram
+   * @param indexName Name of the index
+   * @param t         time taken in milliseconds
+   */
+  void updateIndexRepairBatchTime(String indexName, long t);
+
+  /**
+   * Increments the number of unverified index rows verified by compactions
+   * @param indexName Name of the index
+   * @param count     number of index rows verified
+   */
+  void incrementIndexCompactionSweepInspections(String indexName, long count);
+
+  /**
+   * Increments the number of unverified index rows removed by compactions
+   * @param indexName Name of the index
+   * @param count     number of index rows removed
+   */
+  void incrementIndexCompactionSweepDeletes(String indexName, long count);
 }
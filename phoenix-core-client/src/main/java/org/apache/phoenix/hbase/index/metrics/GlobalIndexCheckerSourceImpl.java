@@ -30,10 +30,14 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl
   private final MutableFastCounter indexInspections;
   private final MutableFastCounter indexRepairs;
   private final MutableFastCounter indexRepairFailures;
+  private final MutableFastCounter indexCompactionSweepInspections;
+  private final MutableFastCounter indexCompactionSweepDeletes;
 
   private final MetricHistogram indexRepairTimeHisto;
   private final MetricHistogram indexRepairFailureTimeHisto;
   private final MetricHistogram unverifiedIndexRowAge;
+  private final MetricHistogram indexRepairBatchSizeHisto;
+  private final MetricHistogram indexRepairBatchTimeHisto;
 
   public GlobalIndexCheckerSourceImpl() {
     this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
@@ -47,6 +51,10 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl
     indexRepairs = getMetricsRegistry().newCounter(INDEX_REPAIR, INDEX_REPAIR_DESC, 0L);
     indexRepairFailures =
       getMetricsRegistry().newCounter(INDEX_REPAIR_FAILURE, INDEX_REPAIR_FAILURE_DESC, 0L);
+    indexCompactionSweepInspections = getMetricsRegistry()
+      .newCounter(INDEX_COMPACTION_SWEEP_INSPECTION, INDEX_COMPACTION_SWEEP_INSPECTION_DESC, 0L);
+    indexCompactionSweepDeletes = getMetricsRegistry().newCounter(INDEX_COMPACTION_SWEEP_DELETE,
+      INDEX_COMPACTION_SWEEP_DELETE_DESC, 0L);
 
     indexRepairTimeHisto =
       getMetricsRegistry().newHistogram(INDEX_REPAIR_TIME, INDEX_REPAIR_TIME_DESC);
@@ -54,6 +62,10 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl
       getMetricsRegistry().newHistogram(INDEX_REPAIR_FAILURE_TIME, INDEX_REPAIR_FAILURE_TIME_DESC);
     unverifiedIndexRowAge =
       getMetricsRegistry().newHistogram(UNVERIFIED_INDEX_ROW_AGE, UNVERIFIED_INDEX_ROW_AGE_DESC);
+    indexRepairBatchSizeHisto =
+      getMetricsRegistry().newHistogram(INDEX_REPAIR_BATCH_SIZE, INDEX_REPAIR_BATCH_SIZE_DESC);
+    indexRepairBatchTimeHisto =
+      getMetricsRegistry().newHistogram(INDEX_REPAIR_BATCH_TIME, INDEX_REPAIR_BATCH_TIME_DESC);
   }
 
   /**
@@ -108,10 +120,49 @@ public class GlobalIndexCheckerSourceImpl extends BaseSourceImpl
     indexRepairFailureTimeHisto.add(t);
   }
 
+  /**
+   * Updates the index repair batch size histogram
+   * @param size number of index rows repaired by the batch
+   */
+  public void updateIndexRepairBatchSize(String indexName, long size) {
+    incrementIndexSpecificHistogram(INDEX_REPAIR_BATCH_SIZE, indexName, size);
+    indexRepairBatchSizeHisto.add(size);
+  }
+
+  /**
+   * Updates the index repair batch time histogram
+   * @param t time taken in milliseconds
+   */
+  public void updateIndexRepairBatchTime(String indexName, long t) {
+    incrementIndexSpecificHistogram(INDEX_REPAIR_BATCH_TIME, indexName, t);
+    indexRepairBatchTimeHisto.add(t);
+  }
+
+  /**
+   * Increments the number of unverified index rows verified by compactions
+   */
+  public void incrementIndexCompactionSweepInspections(String indexName, long count) {
+    incrementIndexSpecificCounter(INDEX_COMPACTION_SWEEP_INSPECTION, indexName, count);
+    indexCompactionSweepInspections.incr(count);
+  }
+
+  /**
+   * Increments the number of unverified index rows removed by compactions
+   */
+  public void incrementIndexCompactionSweepDeletes(String indexName, long count) {
+    incrementIndexSpecificCounter(INDEX_COMPACTION_SWEEP_DELETE, indexName, count);
+    indexCompactionSweepDeletes.incr(count);
+  }
+
   private void incrementIndexSpecificCounter(String baseCounterName, String indexName) {
+    incrementIndexSpecificCounter(baseCounterName, indexName, 1);
+  }
+
+  private void incrementIndexSpecificCounter(String baseCounterName, String indexName,
+    long count) {
     MutableFastCounter indexSpecificCounter =
       getMetricsRegistry().getCounter(getCounterName(baseCounterName, indexName), 0);
-    indexSpecificCounter.incr();
+    indexSpecificCounter.incr(count);
   }
 
   private void incrementIndexSpecificHistogram(String baseCounterName, String indexName, long t) {
@@ -86,6 +86,10 @@ public interface MetricsIndexerSource extends BaseSource {
   String POST_INDEX_UPDATE_FAILURE_TIME_DESC =
     "Histogram for the time in milliseconds on failures of index updates post data updates";
 
+  String ROW_LOCK_WAIT_TIME = "rowLockWaitTime";
+  String ROW_LOCK_WAIT_TIME_DESC =
+    "Histogram for the time in milliseconds for acquiring the row locks of a batch";
+
   String PRE_INDEX_UPDATE_FAILURE = "preIndexUpdateFailure";
   String PRE_INDEX_UPDATE_FAILURE_DESC = "The number of failures of index updates pre data updates";
   String POST_INDEX_UPDATE_FAILURE = "postIndexUpdateFailure";
@@ -212,6 +216,13 @@ public interface MetricsIndexerSource extends BaseSource {
    */
   void updatePostIndexUpdateFailureTime(String dataTableName, long t);
 
+  /**
+   * Updates the row lock wait time histogram.
+   * @param dataTableName Physical data table name
+   * @param t             time taken in milliseconds
+   */
+  void updateRowLockWaitTime(String dataTableName, long t);
+
   /**
    * Increments the number of pre index update failures.
    * @param dataTableName Physical data table name
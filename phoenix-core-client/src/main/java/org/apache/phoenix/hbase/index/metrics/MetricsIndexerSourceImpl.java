@@ -45,6 +45,7 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
   private final MetricHistogram postIndexUpdateTimeHisto;
   private final MetricHistogram preIndexUpdateFailureTimeHisto;
   private final MetricHistogram postIndexUpdateFailureTimeHisto;
+  private final MetricHistogram rowLockWaitTimeHisto;
   private final MutableFastCounter preIndexUpdateFailures;
   private final MutableFastCounter postIndexUpdateFailures;
 
@@ -89,6 +90,8 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
       .newHistogram(POST_INDEX_UPDATE_FAILURE_TIME, POST_INDEX_UPDATE_FAILURE_TIME_DESC);
     preIndexUpdateFailureTimeHisto = getMetricsRegistry()
       .newHistogram(PRE_INDEX_UPDATE_FAILURE_TIME, PRE_INDEX_UPDATE_FAILURE_TIME_DESC);
+    rowLockWaitTimeHisto =
+      getMetricsRegistry().newHistogram(ROW_LOCK_WAIT_TIME, ROW_LOCK_WAIT_TIME_DESC);
     postIndexUpdateFailures = getMetricsRegistry().newCounter(POST_INDEX_UPDATE_FAILURE,
       POST_INDEX_UPDATE_FAILURE_DESC, 0L);
     preIndexUpdateFailures =
@@ -203,6 +206,12 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     postIndexUpdateFailureTimeHisto.add(t);
   }
 
+  @Override
+  public void updateRowLockWaitTime(String dataTableName, long t) {
+    incrementTableSpecificHistogram(ROW_LOCK_WAIT_TIME, dataTableName, t);
+    rowLockWaitTimeHisto.add(t);
+  }
+
   @Override
   public void incrementPreIndexUpdateFailures(String dataTableName) {
     incrementTableSpecificCounter(PRE_INDEX_UPDATE_FAILURE, dataTableName);
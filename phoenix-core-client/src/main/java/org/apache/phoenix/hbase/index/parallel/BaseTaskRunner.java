@@ -123,6 +123,16 @@ public abstract class BaseTaskRunner implements TaskRunner {
     }
   }
 
+  @Override
+  public <R> Pair<ListenableFuture<List<R>>, List<Future<R>>> submitAsync(TaskBatch<R> tasks) {
+    List<ListenableFuture<R>> futures = new ArrayList<ListenableFuture<R>>(tasks.size());
+    for (Task<R> task : tasks.getTasks()) {
+      futures.add(this.writerPool.submit(task));
+    }
+    return Pair.newPair(submitTasks(futures),
+      Collections.unmodifiableList(((List<Future<R>>) (List<?>) futures)));
+  }
+
   @Override
   public void stop(String why) {
     if (this.stopped) {
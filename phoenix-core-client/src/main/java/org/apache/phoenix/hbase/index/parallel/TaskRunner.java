@@ -23,6 +23,8 @@ import java.util.concurrent.Future;
 import org.apache.hadoop.hbase.Stoppable;
 import org.apache.hadoop.hbase.util.Pair;
 
+import org.apache.phoenix.thirdparty.com.google.common.util.concurrent.ListenableFuture;
+
 /**
  *
  */
@@ -79,4 +81,14 @@ public interface TaskRunner extends Stoppable {
    * @throws ExecutionException if there is an error submitting the tasks to the thread pool
    */
   <R> void submitOnly(TaskBatch<R> tasks) throws ExecutionException;
+
+  /**
+   * Submit the given tasks to the pool without waiting for them to complete, and return a future
+   * of their results instead.
+   * @param tasks to run
+   * @return Pair containing a future of the ordered List of results from each task, which completes
+   *         as {@link #submit(TaskBatch)} would return, and an ordered immutable list of underlying
+   *         futures which can be used for getting underlying exceptions
+   */
+  <R> Pair<ListenableFuture<List<R>>, List<Future<R>>> submitAsync(TaskBatch<R> tasks);
 }
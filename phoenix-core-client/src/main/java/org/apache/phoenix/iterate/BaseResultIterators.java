@@ -52,6 +52,7 @@ import java.util.concurrent.TimeoutException;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.Scan;
@@ -84,6 +85,7 @@ import org.apache.phoenix.filter.EncodedQualifiersColumnProjectionFilter;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.VersionUtil;
+import org.apache.phoenix.job.FairShareJobQueue;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.monitoring.OverAllQueryMetrics;
 import org.apache.phoenix.parse.FilterableStatement;
@@ -98,6 +100,7 @@ import org.apache.phoenix.schema.ColumnFamilyNotFoundException;
 import org.apache.phoenix.schema.CompiledConditionalTTLExpression;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PColumnFamily;
+import org.apache.phoenix.schema.PName;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTable.ImmutableStorageScheme;
 import org.apache.phoenix.schema.PTable.IndexType;
@@ -138,7 +141,8 @@ import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
  * the table will be scanned in parallel with the results accessible through {@link #getIterators()}
  * @since 0.1
  */
-public abstract class BaseResultIterators extends ExplainTable implements ResultIterators {
+public abstract class BaseResultIterators extends ExplainTable
+  implements ResultIterators, FairShareJobQueue.Job {
   public static final Logger LOGGER = LoggerFactory.getLogger(BaseResultIterators.class);
   private static final int ESTIMATED_GUIDEPOSTS_PER_REGION = 20;
   private static final int MIN_SEEK_TO_COLUMN_VERSION = VersionUtil.encodeVersion("0", "98", "12");
@@ -634,6 +638,28 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
     this.allFutures = Lists.newArrayListWithExpectedSize(1);
   }
 
+  /**
+   * Returns the region server of the region a scan starts in, or null if it is not known.
+   */
+  protected ServerName getRegionServer(Scan scan) {
+    if (regionLocations == null || regionLocations.isEmpty()) {
+      return null;
+    }
+    byte[] startRow = scan.getStartRow();
+    // Find the last region starting at or before the start row of the scan
+    int low = 0;
+    int high = regionLocations.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (Bytes.compareTo(regionLocations.get(mid).getRegion().getStartKey(), startRow) <= 0) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return regionLocations.get(low).getServerName();
+  }
+
   @Override
   public List<KeyRange> getSplits() {
     if (splits == null) return Collections.emptyList();
@@ -773,6 +799,13 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         ) {
           newScan.withStopRow(regionInfo.getEndKey());
         }
+        // Only send the keys of the skip scan that fall in this region
+        if (
+          context.getScanRanges().useSkipScanFilter() && !ScanUtil.intersectSkipScanFilter(newScan)
+        ) {
+          regionIndex++;
+          continue;
+        }
       }
       if (regionLocation.getServerName() != null) {
         newScan.setAttribute(BaseScannerRegionObserverConstants.SCAN_REGION_SERVER,
@@ -1897,6 +1930,31 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
     return this.estimatedSize;
   }
 
+  @Override
+  public Object getTenantKey() {
+    PName tenantId = context.getConnection().getTenantId();
+    return tenantId == null ? context.getConnection() : tenantId.getString();
+  }
+
+  /**
+   * Point lookups get the high priority class, and queries estimated to scan at least the
+   * configured number of bytes the low one, so that short queries are not queued behind the scans
+   * of large ones.
+   */
+  @Override
+  public FairShareJobQueue.Priority getPriority() {
+    if (context.getScanRanges().isPointLookup()) {
+      return FairShareJobQueue.Priority.HIGH;
+    }
+    long lowPriorityBytes = context.getConnection().getQueryServices().getProps().getLong(
+      QueryServices.FAIR_SCHEDULING_LOW_PRIORITY_BYTES_ATTRIB,
+      QueryServicesOptions.DEFAULT_FAIR_SCHEDULING_LOW_PRIORITY_BYTES);
+    if (estimatedSize != null && estimatedSize >= lowPriorityBytes) {
+      return FairShareJobQueue.Priority.LOW;
+    }
+    return FairShareJobQueue.Priority.NORMAL;
+  }
+
   @Override
   public String toString() {
     return "ResultIterators [name=" + getName() + ",id=" + scanId + ",scans=" + scans + "]";
@@ -248,6 +248,10 @@ public class OrderedResultIterator implements PeekingResultIterator {
     return limit;
   }
 
+  public List<OrderByExpression> getOrderByExpressions() {
+    return orderByExpressions;
+  }
+
   public long getEstimatedByteSize() {
     return estimatedByteSize;
   }
@@ -24,8 +24,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
@@ -114,6 +116,9 @@ public class ParallelIterators extends BaseResultIterators {
     GLOBAL_NUM_PARALLEL_SCANS.update(numScans);
     final long renewLeaseThreshold =
       context.getConnection().getQueryServices().getRenewLeaseThresholdMilliSeconds();
+    // Limit the scans opened concurrently per region server when configured
+    RegionServerScanScheduler scanScheduler =
+      context.getConnection().getQueryServices().getRegionServerScanScheduler();
     for (final ScanLocator scanLocation : scanLocations) {
       final Scan scan = scanLocation.getScan();
       PhoenixConnection connection = context.getConnection();
@@ -126,8 +131,7 @@ public class ParallelIterators extends BaseResultIterators {
         context.getConnection().getTableResultIteratorFactory().newIterator(mutationState, tableRef,
           scan, scanMetricsHolder, renewLeaseThreshold, plan, scanGrouper, caches, maxQueryEndTime);
       context.getConnection().addIteratorForLeaseRenewal(tableResultItr);
-      Future<PeekingResultIterator> future =
-        executor.submit(Tracing.wrap(new JobCallable<PeekingResultIterator>() {
+      JobCallable<PeekingResultIterator> callable = new JobCallable<PeekingResultIterator>() {
 
           @Override
           public PeekingResultIterator call() throws Exception {
@@ -171,7 +175,17 @@ public class ParallelIterators extends BaseResultIterators {
           public TaskExecutionMetricsHolder getTaskExecutionMetric() {
             return taskMetrics;
           }
-        }, "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString()));
+        };
+      Callable<PeekingResultIterator> tracedCallable = Tracing.wrap(callable,
+        "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString());
+      // The tasks that do not fetch the first rows of their scan are not worth limiting
+      boolean fetches = !initFirstScanOnly
+        || (!isReverse && scanLocation.isFirstScan()) || (isReverse && scanLocation.isLastScan());
+      ServerName serverName = scanScheduler != null && fetches ? getRegionServer(scan) : null;
+      Future<PeekingResultIterator> future = serverName == null
+        ? executor.submit(tracedCallable)
+        : scanScheduler.submit(serverName.getAddress().toString(), executor, callable.getJobId(),
+          taskMetrics, numScans, tracedCallable);
       // Add our future in the right place so that we can concatenate the
       // results of the inner futures versus merge sorting across all of them.
       nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(),
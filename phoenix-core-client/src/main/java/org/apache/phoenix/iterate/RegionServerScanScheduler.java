@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.phoenix.job.JobManager.JobRunnable;
+import org.apache.phoenix.monitoring.HTableThreadPoolHistograms;
+import org.apache.phoenix.monitoring.HTableThreadPoolMetricsManager;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Limits the number of parallel scans that are opened concurrently against each region server,
+ * so that a query with many scans does not take up the whole thread pool and queue the scans of
+ * smaller queries behind its own, and so that a slow region server is not sent more scans than
+ * it keeps up with.
+ * <p>
+ * A scan holds its slot only while it is opened, i.e. while its task opens the scanner and fetches
+ * the first rows on the thread pool. The rest of the scan is read by the thread of the query as it
+ * consumes the results, so the slot is not held until the scan is closed: the results of a query
+ * are consumed in an order of its own (one scan after the other, or all of them merge sorted), and
+ * scans holding slots until they are consumed could keep the scans the query is waiting on from
+ * being opened. The tasks that do not fetch rows are not scheduled through this class.
+ * <p>
+ * The scans waiting for a region server are opened in the order of the number of scans of their
+ * query, the smallest queries first. The number of scans opened concurrently against a region
+ * server adapts to how fast the server responds: it is halved while the time the scans of the
+ * server take to open and return their first rows is well above the average of all region
+ * servers, and grows back one scan at a time up to the configured maximum otherwise.
+ * <p>
+ * The number of scans running and waiting per region server is reported through
+ * {@link HTableThreadPoolMetricsManager} under the key {@code RegionServerScans-<server>}.
+ * <p>
+ * A scheduler is owned by the query services whose executor runs the scans, see
+ * {@link org.apache.phoenix.query.QueryServices#getRegionServerScanScheduler()}. The state kept
+ * for a region server is dropped once no scan was submitted for it for ten minutes, so that the
+ * servers that were stopped or moved are not kept forever.
+ */
+public class RegionServerScanScheduler {
+  static final String HISTOGRAM_KEY_PREFIX = "RegionServerScans-";
+  static final String REGION_SERVER_TAG = "regionServer";
+  private static final int MAX_QUEUE_SIZE = 10000;
+  // Weight of the latest scan time in the moving average of the scan times of a region server
+  private static final double LATENCY_WEIGHT = 0.2;
+  // Region servers whose scans take this many times the average get fewer concurrent scans
+  private static final double SLOW_SERVER_FACTOR = 2.0;
+  // Region servers without scans submitted for this long are dropped
+  static final long IDLE_SERVER_EXPIRY_MS = 10 * 60 * 1000L;
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private final int maxConcurrentScans;
+  private final ConcurrentHashMap<String, ServerQueue> serverQueues = new ConcurrentHashMap<>();
+  private volatile long lastExpiryTime = EnvironmentEdgeManager.currentTimeMillis();
+
+  /**
+   * @param maxConcurrentScans the maximum number of scans opened concurrently against a server
+   */
+  public RegionServerScanScheduler(int maxConcurrentScans) {
+    this.maxConcurrentScans = maxConcurrentScans;
+  }
+
+  /**
+   * Schedules the opening of a scan of a region server, starting it right away if fewer than the
+   * allowed number of scans are being opened against the server.
+   * @param serverName     the region server of the scan
+   * @param executor       the executor to run the scan with
+   * @param jobId          the job of the scan for the round robin queue of the executor
+   * @param taskMetrics    the metrics of the task running the scan
+   * @param queryScanCount the number of scans of the query, used as the priority of the scan
+   * @param callable       the task opening the scan and fetching its first rows
+   * @return the future of the scan
+   */
+  public <T> FutureTask<T> submit(String serverName, ExecutorService executor, Object jobId,
+    TaskExecutionMetricsHolder taskMetrics, int queryScanCount, Callable<T> callable) {
+    final long now = EnvironmentEdgeManager.currentTimeMillis();
+    expireIdleServers(now);
+    ServerQueue queue = serverQueues.compute(serverName, (name, serverQueue) -> {
+      ServerQueue result = serverQueue == null ? new ServerQueue(name) : serverQueue;
+      result.lastSubmitTime = now;
+      return result;
+    });
+    ScheduledScan<T> scan =
+      new ScheduledScan<>(callable, executor, jobId, taskMetrics, queryScanCount);
+    queue.submit(scan);
+    return scan;
+  }
+
+  private void expireIdleServers(long now) {
+    if (now - lastExpiryTime < IDLE_SERVER_EXPIRY_MS) {
+      return;
+    }
+    lastExpiryTime = now;
+    for (String serverName : serverQueues.keySet()) {
+      serverQueues.computeIfPresent(serverName,
+        (name, queue) -> queue.isIdle(now) ? null : queue);
+    }
+  }
+
+  @VisibleForTesting
+  int getConcurrencyLimit(String serverName) {
+    ServerQueue queue = serverQueues.get(serverName);
+    return queue == null ? 0 : queue.limit;
+  }
+
+  @VisibleForTesting
+  int getServerCount() {
+    return serverQueues.size();
+  }
+
+  private double getAverageLatency() {
+    double total = 0;
+    int count = 0;
+    for (ServerQueue queue : serverQueues.values()) {
+      double latency = queue.avgLatencyMs;
+      if (latency >= 0) {
+        total += latency;
+        count++;
+      }
+    }
+    return count == 0 ? -1 : total / count;
+  }
+
+  private static class ScheduledScan<T> extends FutureTask<T>
+    implements Comparable<ScheduledScan<?>> {
+    private final ExecutorService executor;
+    private final Object jobId;
+    private final TaskExecutionMetricsHolder taskMetrics;
+    private final int priority;
+    private final long sequence = SEQUENCE.incrementAndGet();
+
+    ScheduledScan(Callable<T> callable, ExecutorService executor, Object jobId,
+      TaskExecutionMetricsHolder taskMetrics, int priority) {
+      super(callable);
+      this.executor = executor;
+      this.jobId = jobId;
+      this.taskMetrics = taskMetrics;
+      this.priority = priority;
+    }
+
+    void reject(RejectedExecutionException e) {
+      setException(e);
+    }
+
+    @Override
+    public int compareTo(ScheduledScan<?> other) {
+      int cmp = Integer.compare(priority, other.priority);
+      return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private class ServerQueue {
+    private final String serverName;
+    private final String histogramKey;
+    private final PriorityQueue<ScheduledScan<?>> waiting = new PriorityQueue<>();
+    private volatile int limit = maxConcurrentScans;
+    private int running;
+    private volatile double avgLatencyMs = -1;
+    private volatile long lastSubmitTime;
+
+    ServerQueue(String serverName) {
+      this.serverName = serverName;
+      this.histogramKey = HISTOGRAM_KEY_PREFIX + serverName;
+    }
+
+    synchronized boolean isIdle(long now) {
+      return running == 0 && waiting.isEmpty() && now - lastSubmitTime >= IDLE_SERVER_EXPIRY_MS;
+    }
+
+    void submit(ScheduledScan<?> scan) {
+      boolean start;
+      synchronized (this) {
+        start = running < limit;
+        if (start) {
+          running++;
+        } else {
+          waiting.add(scan);
+        }
+      }
+      if (start) {
+        start(scan);
+      }
+      reportMetrics();
+    }
+
+    private void start(final ScheduledScan<?> scan) {
+      try {
+        scan.executor.submit(new JobRunnable() {
+          @Override
+          public void run() {
+            long startTime = EnvironmentEdgeManager.currentTimeMillis();
+            try {
+              scan.run();
+            } finally {
+              complete(scan, EnvironmentEdgeManager.currentTimeMillis() - startTime);
+            }
+          }
+
+          @Override
+          public Object getJobId() {
+            return scan.jobId;
+          }
+
+          @Override
+          public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+            return scan.taskMetrics;
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        scan.reject(e);
+        complete(scan, -1);
+      }
+    }
+
+    private void complete(ScheduledScan<?> scan, long latencyMs) {
+      // Scans cancelled before they started say nothing about the region server
+      if (latencyMs >= 0 && !scan.isCancelled()) {
+        avgLatencyMs = avgLatencyMs < 0
+          ? latencyMs
+          : LATENCY_WEIGHT * latencyMs + (1 - LATENCY_WEIGHT) * avgLatencyMs;
+      }
+      double averageLatency = getAverageLatency();
+      ScheduledScan<?> next = null;
+      synchronized (this) {
+        running--;
+        if (averageLatency > 0 && avgLatencyMs > SLOW_SERVER_FACTOR * averageLatency) {
+          limit = Math.max(1, limit / 2);
+        } else if (limit < maxConcurrentScans) {
+          limit++;
+        }
+        if (running < limit && !waiting.isEmpty()) {
+          next = waiting.poll();
+          running++;
+        }
+      }
+      if (next != null) {
+        start(next);
+      }
+      reportMetrics();
+    }
+
+    private void reportMetrics() {
+      int runningScans;
+      int waitingScans;
+      synchronized (this) {
+        runningScans = running;
+        waitingScans = waiting.size();
+      }
+      HTableThreadPoolMetricsManager.updateActiveThreads(histogramKey,
+        Math.min(runningScans, MAX_QUEUE_SIZE), this::newHistograms);
+      HTableThreadPoolMetricsManager.updateQueueSize(histogramKey,
+        Math.min(waitingScans, MAX_QUEUE_SIZE), this::newHistograms);
+    }
+
+    private HTableThreadPoolHistograms newHistograms() {
+      HTableThreadPoolHistograms histograms =
+        new HTableThreadPoolHistograms(MAX_QUEUE_SIZE, MAX_QUEUE_SIZE);
+      histograms.addTag(REGION_SERVER_TAG, serverName);
+      return histograms;
+    }
+  }
+}
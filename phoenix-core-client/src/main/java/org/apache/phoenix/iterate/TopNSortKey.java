@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ByteUtil;
+
+/**
+ * The serialized values of the ORDER BY expressions of a row, exchanged between the client and the
+ * region servers by the two phase top-N of ORDER BY ... LIMIT ... OFFSET queries: the regions
+ * return the sort keys of their top rows, and the client sends back the range of sort keys of the
+ * rows in the requested page. The sort keys compare as the rows are ordered by
+ * {@link OrderedResultIterator}.
+ */
+public final class TopNSortKey {
+
+  private TopNSortKey() {
+  }
+
+  /**
+   * Returns the sort key of a row, each value being written as its length followed by its bytes, a
+   * null value having a length of 0.
+   */
+  public static byte[] toBytes(Tuple tuple, List<OrderByExpression> orderByExpressions) {
+    ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(stream)) {
+      for (OrderByExpression orderByExpression : orderByExpressions) {
+        if (!orderByExpression.getExpression().evaluate(tuple, ptr)) {
+          ptr.set(ByteUtil.EMPTY_BYTE_ARRAY);
+        }
+        WritableUtils.writeVInt(output, ptr.getLength());
+        output.write(ptr.get(), ptr.getOffset(), ptr.getLength());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return stream.toByteArray();
+  }
+
+  /**
+   * Compares two sort keys serialized by {@link #toBytes(Tuple, List)} in the order of the ORDER BY
+   * expressions.
+   */
+  public static int compare(byte[] key1, int offset1, int length1, byte[] key2, int offset2,
+    int length2, List<OrderByExpression> orderByExpressions) {
+    ImmutableBytesWritable ptr1 = new ImmutableBytesWritable(key1, offset1, length1);
+    ImmutableBytesWritable ptr2 = new ImmutableBytesWritable(key2, offset2, length2);
+    for (OrderByExpression orderByExpression : orderByExpressions) {
+      // Reading the length moves the offset of the pointer past it
+      int valueLength1 = ByteUtil.vintFromBytes(ptr1);
+      int valueLength2 = ByteUtil.vintFromBytes(ptr2);
+      int valueOffset1 = ptr1.getOffset();
+      int valueOffset2 = ptr2.getOffset();
+      ptr1.set(key1, valueOffset1 + valueLength1, 0);
+      ptr2.set(key2, valueOffset2 + valueLength2, 0);
+      if (valueLength1 == 0 && valueLength2 == 0) {
+        continue;
+      } else if (valueLength1 == 0) {
+        return orderByExpression.isNullsLast() ? 1 : -1;
+      } else if (valueLength2 == 0) {
+        return orderByExpression.isNullsLast() ? -1 : 1;
+      }
+      Expression expression = orderByExpression.getExpression();
+      int cmp = expression.getSortOrder() == SortOrder.DESC
+        && !expression.getDataType().isFixedWidth()
+          ? DescVarLengthFastByteComparisons.compareTo(key1, valueOffset1, valueLength1, key2,
+            valueOffset2, valueLength2)
+          : Bytes.compareTo(key1, valueOffset1, valueLength1, key2, valueOffset2, valueLength2);
+      if (cmp != 0) {
+        return orderByExpression.isAscending() ? cmp : -cmp;
+      }
+    }
+    return 0;
+  }
+
+  public static int compare(byte[] key1, byte[] key2, List<OrderByExpression> orderByExpressions) {
+    return compare(key1, 0, key1.length, key2, 0, key2.length, orderByExpressions);
+  }
+
+  /**
+   * Serializes the range of sort keys of the rows in a page, both ends included.
+   */
+  public static byte[] serializeRange(byte[] lowerKey, byte[] upperKey) {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(stream)) {
+      Bytes.writeByteArray(output, lowerKey);
+      Bytes.writeByteArray(output, upperKey);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return stream.toByteArray();
+  }
+
+  /**
+   * Returns the lower and upper sort keys of a range serialized by
+   * {@link #serializeRange(byte[], byte[])}.
+   */
+  public static byte[][] deserializeRange(byte[] range) {
+    ImmutableBytesWritable ptr = new ImmutableBytesWritable(range);
+    byte[][] keys = new byte[2][];
+    for (int i = 0; i < keys.length; i++) {
+      int length = ByteUtil.vintFromBytes(ptr);
+      keys[i] = Bytes.copy(ptr.get(), ptr.getOffset(), length);
+      ptr.set(ptr.get(), ptr.getOffset() + length, 0);
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.phoenix.compile.ExplainPlanAttributes.ExplainPlanAttributesBuilder;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.schema.tuple.Tuple;
+
+/**
+ * ResultIterator for ORDER BY ... LIMIT ... OFFSET queries with a large offset, which fetches the
+ * rows of the requested page in two passes instead of having every region return its top offset +
+ * limit rows.
+ * <p>
+ * In the first pass, the regions return the sort keys of their top offset + limit rows only, see
+ * {@link TopNSortKey}, which are merged to find the sort keys of the first and last rows of the
+ * page. In the second pass, the regions return the rows with sort keys in between only. The ORDER
+ * BY expressions end with the row key, so that no two rows have the same sort key and the page
+ * holds exactly the rows the offset and limit select.
+ */
+public class TwoPhaseTopNResultIterator implements PeekingResultIterator {
+
+  /**
+   * Creates the scans of the second pass.
+   */
+  public interface PageIteratorsFactory {
+    /**
+     * @param sortKeyRange the range of sort keys of the rows of the page, serialized by
+     *                     {@link TopNSortKey#serializeRange(byte[], byte[])}
+     */
+    ResultIterators newIterators(byte[] sortKeyRange) throws SQLException;
+  }
+
+  private final ResultIterators sortKeyIterators;
+  private final int limit;
+  private final int offset;
+  private final List<OrderByExpression> orderByExpressions;
+  private final PageIteratorsFactory pageIteratorsFactory;
+  private PeekingResultIterator pageIterator;
+  private boolean closed;
+
+  /**
+   * @param sortKeyIterators   the scans of the first pass
+   * @param orderByExpressions the ORDER BY expressions, ending with the row key
+   */
+  public TwoPhaseTopNResultIterator(ResultIterators sortKeyIterators, int limit, int offset,
+    List<OrderByExpression> orderByExpressions, PageIteratorsFactory pageIteratorsFactory) {
+    this.sortKeyIterators = sortKeyIterators;
+    this.limit = limit;
+    this.offset = offset;
+    this.orderByExpressions = orderByExpressions;
+    this.pageIteratorsFactory = pageIteratorsFactory;
+  }
+
+  private PeekingResultIterator getPageIterator() throws SQLException {
+    if (pageIterator != null) {
+      return pageIterator;
+    }
+    byte[] lowerKey = null;
+    byte[] upperKey = null;
+    MergeSortResultIterator sortKeys = new MergeSortResultIterator(sortKeyIterators) {
+      @Override
+      protected int compare(Tuple t1, Tuple t2) {
+        Cell c1 = t1.getValue(0);
+        Cell c2 = t2.getValue(0);
+        return TopNSortKey.compare(c1.getValueArray(), c1.getValueOffset(), c1.getValueLength(),
+          c2.getValueArray(), c2.getValueOffset(), c2.getValueLength(), orderByExpressions);
+      }
+
+      @Override
+      public void explain(List<String> planSteps) {
+      }
+
+      @Override
+      public void explain(List<String> planSteps,
+        ExplainPlanAttributesBuilder explainPlanAttributesBuilder) {
+      }
+    };
+    try {
+      Tuple tuple = null;
+      for (int i = 0; i < offset + limit && (tuple = sortKeys.next()) != null; i++) {
+        if (i == offset) {
+          lowerKey = CellUtil.cloneValue(tuple.getValue(0));
+        }
+        if (i >= offset) {
+          upperKey = CellUtil.cloneValue(tuple.getValue(0));
+        }
+      }
+    } finally {
+      sortKeys.close();
+    }
+    if (lowerKey == null || limit == 0) {
+      pageIterator = PeekingResultIterator.EMPTY_ITERATOR;
+    } else {
+      pageIterator = new MergeSortTopNResultIterator(
+        pageIteratorsFactory.newIterators(TopNSortKey.serializeRange(lowerKey, upperKey)), limit,
+        null, orderByExpressions);
+    }
+    return pageIterator;
+  }
+
+  @Override
+  public Tuple peek() throws SQLException {
+    return closed ? null : getPageIterator().peek();
+  }
+
+  @Override
+  public Tuple next() throws SQLException {
+    return closed ? null : getPageIterator().next();
+  }
+
+  @Override
+  public void close() throws SQLException {
+    closed = true;
+    if (pageIterator != null) {
+      pageIterator.close();
+    } else {
+      sortKeyIterators.close();
+    }
+  }
+
+  @Override
+  public void explain(List<String> planSteps) {
+    sortKeyIterators.explain(planSteps);
+    planSteps.add("CLIENT MERGE SORT");
+    planSteps.add("CLIENT TWO PHASE TOP-N");
+    planSteps.add("CLIENT OFFSET " + offset);
+    planSteps.add("CLIENT LIMIT " + limit);
+  }
+
+  @Override
+  public void explain(List<String> planSteps,
+    ExplainPlanAttributesBuilder explainPlanAttributesBuilder) {
+    sortKeyIterators.explain(planSteps, explainPlanAttributesBuilder);
+    explainPlanAttributesBuilder.setClientSortAlgo("CLIENT MERGE SORT");
+    planSteps.add("CLIENT MERGE SORT");
+    planSteps.add("CLIENT TWO PHASE TOP-N");
+    explainPlanAttributesBuilder.setClientOffset(offset);
+    planSteps.add("CLIENT OFFSET " + offset);
+    explainPlanAttributesBuilder.setClientRowLimit(limit);
+    planSteps.add("CLIENT LIMIT " + limit);
+  }
+
+  @Override
+  public String toString() {
+    return "TwoPhaseTopNResultIterator [limit=" + limit + ", offset=" + offset
+      + ", orderByExpressions=" + orderByExpressions + "]";
+  }
+}
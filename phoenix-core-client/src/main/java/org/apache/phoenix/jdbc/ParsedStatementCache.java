@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PARSED_STATEMENT_CACHE_MISS_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.phoenix.jdbc.PhoenixStatement.CompilableStatement;
+import org.apache.phoenix.parse.SelectStatement;
+
+import org.apache.phoenix.thirdparty.com.google.common.cache.Cache;
+import org.apache.phoenix.thirdparty.com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the parsed queries by their SQL text, shared by the connections of the query services.
+ * Query parse trees are not modified by compilation, which is why a prepared statement compiles
+ * the same one on every execution, so connections issuing the same SQL can share one and only
+ * compile it. Bind values are kept by the statements, not by the parse trees. Other statements are
+ * not cached since some of their parse nodes are mutable. The time saved is reported in
+ * milliseconds, accumulated from the parse times in nanoseconds as most of them are below a
+ * millisecond.
+ */
+public class ParsedStatementCache {
+  private final Cache<String, Entry> statements;
+  private final AtomicLong savedNanos = new AtomicLong();
+
+  private static class Entry {
+    private final CompilableStatement statement;
+    private final long parseTime;
+
+    private Entry(CompilableStatement statement, long parseTime) {
+      this.statement = statement;
+      this.parseTime = parseTime;
+    }
+  }
+
+  public ParsedStatementCache(long maxSize) {
+    this.statements = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  CompilableStatement get(String sql) {
+    Entry entry = statements.getIfPresent(sql);
+    if (entry == null) {
+      GLOBAL_PARSED_STATEMENT_CACHE_MISS_COUNTER.increment();
+      return null;
+    }
+    GLOBAL_PARSED_STATEMENT_CACHE_HIT_COUNTER.increment();
+    long before = savedNanos.getAndAdd(entry.parseTime);
+    long millis = TimeUnit.NANOSECONDS.toMillis(before + entry.parseTime)
+      - TimeUnit.NANOSECONDS.toMillis(before);
+    if (millis > 0) {
+      GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME.update(millis);
+    }
+    return entry.statement;
+  }
+
+  void put(String sql, CompilableStatement statement, long parseTime) {
+    if (statement instanceof SelectStatement) {
+      statements.put(sql, new Entry(statement, parseTime));
+    }
+  }
+
+  public long size() {
+    return statements.size();
+  }
+}
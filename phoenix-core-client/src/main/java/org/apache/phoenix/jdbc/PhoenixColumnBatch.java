@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.TimeZone;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.compile.ColumnProjector;
+import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDate;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTime;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDate;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTime;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
+import org.apache.phoenix.schema.types.PVarbinary;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.DateUtil;
+
+/**
+ * Batch of rows of a {@link PhoenixResultSet} stored by column, filled by
+ * {@link PhoenixResultSet#nextBatch(PhoenixColumnBatch)} directly from the projected rows without
+ * creating an object per value for the most common types. A batch is created for a result set by
+ * {@link PhoenixResultSet#newColumnBatch(int)} and can be refilled for the next rows as many times
+ * as needed. Columns are numbered from 1 as in {@link java.sql.ResultSet}, and rows from 0.
+ */
+public class PhoenixColumnBatch {
+
+  /**
+   * How the values of a column are stored
+   */
+  public enum VectorType {
+    /** BOOLEAN, in {@link ColumnVector#getBooleans()} */
+    BOOLEAN,
+    /** TINYINT, in {@link ColumnVector#getBytes()} */
+    BYTE,
+    /** SMALLINT, in {@link ColumnVector#getShorts()} */
+    SHORT,
+    /** INTEGER, in {@link ColumnVector#getInts()} */
+    INT,
+    /** BIGINT, and DATE and TIME as epoch millis, in {@link ColumnVector#getLongs()} */
+    LONG,
+    /** FLOAT, in {@link ColumnVector#getFloats()} */
+    FLOAT,
+    /** DOUBLE, in {@link ColumnVector#getDoubles()} */
+    DOUBLE,
+    /**
+     * VARCHAR as UTF-8 and VARBINARY, in {@link ColumnVector#getData()} between the offsets of the
+     * row and of the next row in {@link ColumnVector#getOffsets()}
+     */
+    BINARY,
+    /** Any other type, as returned by getObject, in {@link ColumnVector#getObjects()} */
+    OBJECT;
+
+    static VectorType of(PDataType type) {
+      if (type == null) {
+        return OBJECT;
+      } else if (type == PBoolean.INSTANCE) {
+        return BOOLEAN;
+      } else if (PDataType.equalsAny(type, PTinyint.INSTANCE, PUnsignedTinyint.INSTANCE)) {
+        return BYTE;
+      } else if (PDataType.equalsAny(type, PSmallint.INSTANCE, PUnsignedSmallint.INSTANCE)) {
+        return SHORT;
+      } else if (PDataType.equalsAny(type, PInteger.INSTANCE, PUnsignedInt.INSTANCE)) {
+        return INT;
+      } else if (
+        PDataType.equalsAny(type, PLong.INSTANCE, PUnsignedLong.INSTANCE, PDate.INSTANCE,
+          PUnsignedDate.INSTANCE, PTime.INSTANCE, PUnsignedTime.INSTANCE)
+      ) {
+        return LONG;
+      } else if (PDataType.equalsAny(type, PFloat.INSTANCE, PUnsignedFloat.INSTANCE)) {
+        return FLOAT;
+      } else if (PDataType.equalsAny(type, PDouble.INSTANCE, PUnsignedDouble.INSTANCE)) {
+        return DOUBLE;
+      } else if (PDataType.equalsAny(type, PVarchar.INSTANCE, PVarbinary.INSTANCE)) {
+        return BINARY;
+      }
+      return OBJECT;
+    }
+  }
+
+  /**
+   * Values of one column of the batch. Only the array of the type of the vector is allocated, and
+   * only the first {@link PhoenixColumnBatch#getRowCount()} entries of it are valid. Null values
+   * are 0, false, empty or null in the arrays.
+   */
+  public static class ColumnVector {
+    private final VectorType type;
+    private final PDataType dataType;
+    private final boolean isDateTime;
+    private final long[] nulls;
+    private boolean[] booleans;
+    private byte[] bytes;
+    private short[] shorts;
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private int[] offsets;
+    private byte[] data;
+    private Object[] objects;
+
+    ColumnVector(PDataType dataType, int capacity) {
+      this.type = VectorType.of(dataType);
+      this.dataType = dataType;
+      this.isDateTime = type == VectorType.LONG
+        && !PDataType.equalsAny(dataType, PLong.INSTANCE, PUnsignedLong.INSTANCE);
+      this.nulls = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+      switch (type) {
+        case BOOLEAN:
+          booleans = new boolean[capacity];
+          break;
+        case BYTE:
+          bytes = new byte[capacity];
+          break;
+        case SHORT:
+          shorts = new short[capacity];
+          break;
+        case INT:
+          ints = new int[capacity];
+          break;
+        case LONG:
+          longs = new long[capacity];
+          break;
+        case FLOAT:
+          floats = new float[capacity];
+          break;
+        case DOUBLE:
+          doubles = new double[capacity];
+          break;
+        case BINARY:
+          offsets = new int[capacity + 1];
+          data = new byte[capacity * 16];
+          break;
+        default:
+          objects = new Object[capacity];
+      }
+    }
+
+    public VectorType getType() {
+      return type;
+    }
+
+    /**
+     * Get the type of the column in the result set
+     */
+    public PDataType getDataType() {
+      return dataType;
+    }
+
+    public boolean isNull(int row) {
+      return (nulls[row / Long.SIZE] & (1L << row)) != 0;
+    }
+
+    /**
+     * Get the null bitmap of the column, where the value of a row is null if the bit
+     * {@code row % 64} of the word {@code row / 64} is set
+     */
+    public long[] getNulls() {
+      return nulls;
+    }
+
+    public boolean[] getBooleans() {
+      return booleans;
+    }
+
+    public byte[] getBytes() {
+      return bytes;
+    }
+
+    public short[] getShorts() {
+      return shorts;
+    }
+
+    public int[] getInts() {
+      return ints;
+    }
+
+    public long[] getLongs() {
+      return longs;
+    }
+
+    public float[] getFloats() {
+      return floats;
+    }
+
+    public double[] getDoubles() {
+      return doubles;
+    }
+
+    public int[] getOffsets() {
+      return offsets;
+    }
+
+    public byte[] getData() {
+      return data;
+    }
+
+    public Object[] getObjects() {
+      return objects;
+    }
+
+    private void clear() {
+      Arrays.fill(nulls, 0);
+    }
+
+    private void setNull(int row) {
+      nulls[row / Long.SIZE] |= 1L << row;
+      if (type == VectorType.BINARY) {
+        offsets[row + 1] = offsets[row];
+      } else if (type == VectorType.OBJECT) {
+        objects[row] = null;
+      }
+    }
+
+    private void set(int row, ColumnProjector projector, Tuple tuple,
+      ImmutableBytesWritable ptr, TimeZone timeZone, PhoenixResultSet rs, int columnIndex)
+      throws SQLException {
+      switch (type) {
+        case BOOLEAN:
+          Boolean value = (Boolean) projector.getValue(tuple, PBoolean.INSTANCE, ptr);
+          if (value == null) {
+            booleans[row] = false;
+            setNull(row);
+          } else {
+            booleans[row] = value;
+          }
+          return;
+        case BYTE:
+          bytes[row] = (byte) projector.getShort(tuple, ptr);
+          break;
+        case SHORT:
+          shorts[row] = projector.getShort(tuple, ptr);
+          break;
+        case INT:
+          ints[row] = projector.getInt(tuple, ptr);
+          break;
+        case LONG:
+          longs[row] = projector.getLong(tuple, ptr);
+          if (isDateTime && timeZone != null && ptr.getLength() != 0) {
+            longs[row] = DateUtil.applyOutputDisplacement(longs[row], timeZone);
+          }
+          break;
+        case FLOAT:
+          floats[row] = projector.getFloat(tuple, ptr);
+          break;
+        case DOUBLE:
+          doubles[row] = projector.getDouble(tuple, ptr);
+          break;
+        case BINARY:
+          if (projector.evaluate(tuple, ptr)) {
+            int offset = offsets[row];
+            int length = ptr.getLength();
+            if (offset + length > data.length) {
+              data = Arrays.copyOf(data, Math.max(data.length * 2, offset + length));
+            }
+            if (projector.getExpression().getSortOrder() == SortOrder.DESC) {
+              SortOrder.invert(ptr.get(), ptr.getOffset(), data, offset, length);
+            } else {
+              System.arraycopy(ptr.get(), ptr.getOffset(), data, offset, length);
+            }
+            offsets[row + 1] = offset + length;
+          } else {
+            setNull(row);
+          }
+          return;
+        default:
+          objects[row] = rs.getObject(columnIndex);
+          if (rs.wasNull()) {
+            setNull(row);
+          }
+          return;
+      }
+      if (ptr.getLength() == 0) {
+        setNull(row);
+      }
+    }
+  }
+
+  private final RowProjector projector;
+  private final ColumnVector[] columns;
+  private final int capacity;
+  private int rowCount;
+
+  PhoenixColumnBatch(RowProjector projector, int capacity) {
+    this.projector = projector;
+    this.capacity = capacity;
+    this.columns = new ColumnVector[projector.getColumnCount()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] =
+        new ColumnVector(projector.getColumnProjector(i).getExpression().getDataType(), capacity);
+    }
+  }
+
+  /**
+   * Get the maximum number of rows of the batch
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the number of rows in the batch, which is less than the capacity only for the last rows
+   * of the result set
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * Get the values of a column
+   * @param columnIndex the first column is 1, the second is 2, ...
+   */
+  public ColumnVector getColumn(int columnIndex) {
+    return columns[columnIndex - 1];
+  }
+
+  RowProjector getRowProjector() {
+    return projector;
+  }
+
+  boolean isFull() {
+    return rowCount == capacity;
+  }
+
+  void clear() {
+    rowCount = 0;
+    for (ColumnVector column : columns) {
+      column.clear();
+    }
+  }
+
+  /**
+   * Add the current row of the result set to the batch
+   */
+  void addRow(PhoenixResultSet rs, Tuple tuple, ImmutableBytesWritable ptr, TimeZone timeZone)
+    throws SQLException {
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].set(rowCount, projector.getColumnProjector(i), tuple, ptr, timeZone, rs, i + 1);
+    }
+    rowCount++;
+  }
+}
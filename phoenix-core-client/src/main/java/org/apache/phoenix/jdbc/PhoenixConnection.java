@@ -58,9 +58,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.hadoop.hbase.HConstants;
@@ -171,6 +177,10 @@ public class PhoenixConnection
   private TraceScope traceScope = null;
   private volatile boolean isClosed = false;
   private volatile boolean isClosing = false;
+  // Commits started by commitAsync() that have not completed, with the tasks running them on the
+  // commit executor
+  private final Map<CompletableFuture<Void>, Future<?>> pendingCommits =
+    new ConcurrentHashMap<>();
   private Sampler<?> sampler;
   private boolean readOnly = false;
   private Consistency consistency = Consistency.STRONG;
@@ -808,11 +818,17 @@ public class PhoenixConnection
     close();
   }
 
+  @Override
+  public void close() throws SQLException {
+    // Waited for outside of the lock, as the pending commits may need it to complete
+    awaitPendingCommits();
+    closeConnection();
+  }
+
   // A connection can be closed by calling thread, or by the high availability (HA) framework.
   // Making this logic synchronized will enforce a connection is closed only once.
   // Does this need to be synchronized?
-  @Override
-  synchronized public void close() throws SQLException {
+  synchronized private void closeConnection() throws SQLException {
     if (isClosed || isClosing) {
       return;
     }
@@ -879,6 +895,65 @@ public class PhoenixConnection
     statementExecutionCounter = 0;
   }
 
+  /**
+   * Commits the pending mutations on the commit thread pool instead of the calling thread. The
+   * commit behaves as {@link #commit()} does, including its metrics, and a failed commit completes
+   * the returned future exceptionally with the same {@link SQLException}, for example a
+   * {@link org.apache.phoenix.execute.CommitException} with the indexes of the failed statements.
+   * The connection must not be used until the returned future completes. Closing the connection
+   * waits for every commit that has already started. A commit that has not started yet is not run,
+   * and its future completes exceptionally with {@link SQLExceptionCode#CONNECTION_CLOSED},
+   * leaving the mutations uncommitted as a close without a commit does.
+   * @return future completed once the mutations are committed
+   */
+  public CompletableFuture<Void> commitAsync() {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      checkOpen();
+      Future<?> task = services.getCommitExecutor().submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          try {
+            commit();
+            future.complete(null);
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+          return null;
+        }
+      });
+      pendingCommits.put(future, task);
+      // Registered once the commit is tracked, so that it is not left tracked when it is done
+      future.whenComplete((result, t) -> pendingCommits.remove(future));
+    } catch (SQLException | RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Waits for the commits started by {@link #commitAsync()}, and cancels the ones that have not
+   * started. The outcome of each commit is reported through its future only.
+   */
+  private void awaitPendingCommits() {
+    for (Map.Entry<CompletableFuture<Void>, Future<?>> entry : pendingCommits.entrySet()) {
+      CompletableFuture<Void> future = entry.getKey();
+      if (entry.getValue().cancel(false)) {
+        future.completeExceptionally(
+          new SQLExceptionInfo.Builder(SQLExceptionCode.CONNECTION_CLOSED).build().buildException());
+        continue;
+      }
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        // Reported through the future
+      }
+    }
+  }
+
   @Override
   public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
     checkOpen();
@@ -41,6 +41,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.phoenix.job.VirtualThreadPoolExecutor;
 import org.apache.phoenix.monitoring.GlobalClientMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +70,10 @@ public class PhoenixHAExecutorServiceProvider {
   public static final String DEFAULT_HA_CLOSE_MAX_POOL_SIZE = "15";
   public static final String HA_CLOSE_MAX_QUEUE_SIZE = "phoenix.ha.close.max.queue.size";
   public static final String DEFAULT_HA_CLOSE_MAX_QUEUE_SIZE = "150";
+  // Whether the tasks run on virtual threads, if the JVM supports them, with the max pool sizes
+  // limiting the number of tasks running concurrently
+  public static final String HA_VIRTUAL_THREADS_ENABLED = "phoenix.ha.virtual.threads.enabled";
+  public static final String DEFAULT_HA_VIRTUAL_THREADS_ENABLED = "false";
 
   private static final Logger LOGGER =
     LoggerFactory.getLogger(PhoenixHAExecutorServiceProvider.class);
@@ -162,10 +167,12 @@ public class PhoenixHAExecutorServiceProvider {
       Integer.parseInt(properties.getProperty(HA_MAX_POOL_SIZE, DEFAULT_HA_MAX_POOL_SIZE));
     int maxQueueSize =
       Integer.parseInt(properties.getProperty(HA_MAX_QUEUE_SIZE, DEFAULT_HA_MAX_QUEUE_SIZE));
-    ThreadPoolExecutor pool1 =
-      createThreadPool(maxPoolSize, maxQueueSize, "phoenixha1", getGlobalExecutorMetricsForPool1());
-    ThreadPoolExecutor pool2 =
-      createThreadPool(maxPoolSize, maxQueueSize, "phoenixha2", getGlobalExecutorMetricsForPool2());
+    boolean useVirtualThreads = Boolean.parseBoolean(
+      properties.getProperty(HA_VIRTUAL_THREADS_ENABLED, DEFAULT_HA_VIRTUAL_THREADS_ENABLED));
+    ThreadPoolExecutor pool1 = createThreadPool(maxPoolSize, maxQueueSize, "phoenixha1",
+      getGlobalExecutorMetricsForPool1(), useVirtualThreads);
+    ThreadPoolExecutor pool2 = createThreadPool(maxPoolSize, maxQueueSize, "phoenixha2",
+      getGlobalExecutorMetricsForPool2(), useVirtualThreads);
 
     // Make the close executor services
     maxPoolSize = Integer
@@ -173,8 +180,10 @@ public class PhoenixHAExecutorServiceProvider {
     maxQueueSize = Integer
       .parseInt(properties.getProperty(HA_CLOSE_MAX_QUEUE_SIZE, DEFAULT_HA_CLOSE_MAX_QUEUE_SIZE));
 
-    ThreadPoolExecutor closePool1 = createThreadPool(maxPoolSize, maxQueueSize, "phoenixha1close");
-    ThreadPoolExecutor closePool2 = createThreadPool(maxPoolSize, maxQueueSize, "phoenixha2close");
+    ThreadPoolExecutor closePool1 =
+      createThreadPool(maxPoolSize, maxQueueSize, "phoenixha1close", null, useVirtualThreads);
+    ThreadPoolExecutor closePool2 =
+      createThreadPool(maxPoolSize, maxQueueSize, "phoenixha2close", null, useVirtualThreads);
     closePool1.allowCoreThreadTimeOut(true);
     closePool2.allowCoreThreadTimeOut(true);
 
@@ -183,12 +192,8 @@ public class PhoenixHAExecutorServiceProvider {
   }
 
   private static ThreadPoolExecutor createThreadPool(int maxPoolSize, int maxQueueSize,
-    String threadPoolNamePrefix) {
-    return createThreadPool(maxPoolSize, maxQueueSize, threadPoolNamePrefix, null);
-  }
-
-  private static ThreadPoolExecutor createThreadPool(int maxPoolSize, int maxQueueSize,
-    String threadPoolNamePrefix, @Nullable GlobalExecutorMetrics metrics) {
+    String threadPoolNamePrefix, @Nullable GlobalExecutorMetrics metrics,
+    boolean useVirtualThreads) {
     BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(maxQueueSize);
     RejectedExecutionHandler handler;
     if (metrics != null) {
@@ -199,7 +204,9 @@ public class PhoenixHAExecutorServiceProvider {
     ThreadPoolExecutor pool = new PhoenixHAThreadPoolExecutor(maxPoolSize, maxPoolSize,
       KEEP_ALIVE_TIME_SECONDS, TimeUnit.SECONDS, queue, new ThreadFactoryBuilder().setDaemon(true)
         .setNameFormat(threadPoolNamePrefix + "-%d").build(),
-      handler, metrics);
+      handler, metrics, useVirtualThreads
+        ? VirtualThreadPoolExecutor.newVirtualThreadFactory(threadPoolNamePrefix + "-v")
+        : null);
     pool.allowCoreThreadTimeOut(true);
     return pool;
   }
@@ -236,14 +243,16 @@ public class PhoenixHAExecutorServiceProvider {
   }
 
   // Executor with monitoring
-  private static class PhoenixHAThreadPoolExecutor extends ThreadPoolExecutor {
+  private static class PhoenixHAThreadPoolExecutor extends VirtualThreadPoolExecutor {
 
     private final GlobalExecutorMetrics metrics;
 
     public PhoenixHAThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
       TimeUnit unit, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
-      RejectedExecutionHandler handler, GlobalExecutorMetrics metrics) {
-      super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+      RejectedExecutionHandler handler, GlobalExecutorMetrics metrics,
+      ThreadFactory virtualThreadFactory) {
+      super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler,
+        virtualThreadFactory);
       this.metrics = metrics;
     }
 
@@ -49,6 +49,7 @@ import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
@@ -81,11 +82,7 @@ import org.apache.phoenix.schema.types.PBoolean;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PDate;
 import org.apache.phoenix.schema.types.PDecimal;
-import org.apache.phoenix.schema.types.PDouble;
-import org.apache.phoenix.schema.types.PFloat;
 import org.apache.phoenix.schema.types.PInteger;
-import org.apache.phoenix.schema.types.PLong;
-import org.apache.phoenix.schema.types.PSmallint;
 import org.apache.phoenix.schema.types.PTime;
 import org.apache.phoenix.schema.types.PTimestamp;
 import org.apache.phoenix.schema.types.PTinyint;
@@ -478,12 +475,8 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
   @Override
   public double getDouble(int columnIndex) throws SQLException {
     checkCursorState();
-    Double value = (Double) getRowProjector().getColumnProjector(columnIndex - 1)
-      .getValue(currentRow, PDouble.INSTANCE, ptr);
-    wasNull = (value == null);
-    if (wasNull) {
-      return 0;
-    }
+    double value = getRowProjector().getColumnProjector(columnIndex - 1).getDouble(currentRow, ptr);
+    wasNull = (ptr.getLength() == 0);
     return value;
   }
 
@@ -505,12 +498,8 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
   @Override
   public float getFloat(int columnIndex) throws SQLException {
     checkCursorState();
-    Float value = (Float) getRowProjector().getColumnProjector(columnIndex - 1).getValue(currentRow,
-      PFloat.INSTANCE, ptr);
-    wasNull = (value == null);
-    if (wasNull) {
-      return 0;
-    }
+    float value = getRowProjector().getColumnProjector(columnIndex - 1).getFloat(currentRow, ptr);
+    wasNull = (ptr.getLength() == 0);
     return value;
   }
 
@@ -527,12 +516,8 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
   @Override
   public int getInt(int columnIndex) throws SQLException {
     checkCursorState();
-    Integer value = (Integer) getRowProjector().getColumnProjector(columnIndex - 1)
-      .getValue(currentRow, PInteger.INSTANCE, ptr);
-    wasNull = (value == null);
-    if (wasNull) {
-      return 0;
-    }
+    int value = getRowProjector().getColumnProjector(columnIndex - 1).getInt(currentRow, ptr);
+    wasNull = (ptr.getLength() == 0);
     return value;
   }
 
@@ -544,12 +529,8 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
   @Override
   public long getLong(int columnIndex) throws SQLException {
     checkCursorState();
-    Long value = (Long) getRowProjector().getColumnProjector(columnIndex - 1).getValue(currentRow,
-      PLong.INSTANCE, ptr);
-    wasNull = (value == null);
-    if (wasNull) {
-      return 0;
-    }
+    long value = getRowProjector().getColumnProjector(columnIndex - 1).getLong(currentRow, ptr);
+    wasNull = (ptr.getLength() == 0);
     return value;
   }
 
@@ -672,12 +653,8 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
   @Override
   public short getShort(int columnIndex) throws SQLException {
     checkCursorState();
-    Short value = (Short) getRowProjector().getColumnProjector(columnIndex - 1).getValue(currentRow,
-      PSmallint.INSTANCE, ptr);
-    wasNull = (value == null);
-    if (wasNull) {
-      return 0;
-    }
+    short value = getRowProjector().getColumnProjector(columnIndex - 1).getShort(currentRow, ptr);
+    wasNull = (ptr.getLength() == 0);
     return value;
   }
 
@@ -931,6 +908,37 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
     return currentRow != null;
   }
 
+  /**
+   * Create a batch to read the rows of this result set by column through
+   * {@link #nextBatch(PhoenixColumnBatch)}. Dynamic columns are not part of the batch.
+   * @param capacity the maximum number of rows read at a time
+   */
+  public PhoenixColumnBatch newColumnBatch(int capacity) throws SQLException {
+    checkOpen();
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    return new PhoenixColumnBatch(rowProjector, capacity);
+  }
+
+  /**
+   * Replace the rows of the batch with the next rows of the result set, up to the capacity of the
+   * batch. The cursor is left on the last row read, which can still be read through the getters.
+   * @param batch created by {@link #newColumnBatch(int)} for this result set
+   * @return the number of rows read, which is 0 once all the rows have been read
+   */
+  public int nextBatch(PhoenixColumnBatch batch) throws SQLException {
+    if (batch.getRowProjector() != rowProjector) {
+      throw new IllegalArgumentException("Column batch was not created for this result set");
+    }
+    batch.clear();
+    TimeZone timeZone = isApplyTimeZoneDisplacement ? localCalendar.getTimeZone() : null;
+    while (!batch.isFull() && next()) {
+      batch.addRow(this, currentRow, ptr, timeZone);
+    }
+    return batch.getRowCount();
+  }
+
   private void updateTableLevelReadMetrics(String tableName, boolean isPointLookup) {
     Map<String, Map<MetricType, Long>> readMetrics = getReadMetrics();
     TableMetricsManager.pushMetricsFromConnInstanceMethod(readMetrics);
@@ -2554,7 +2554,17 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
   }
 
   protected CompilableStatement parseStatement(String sql) throws SQLException {
+    ParsedStatementCache parsedStatementCache =
+      connection.getQueryServices().getParsedStatementCache();
+    if (parsedStatementCache != null) {
+      CompilableStatement statement = parsedStatementCache.get(sql);
+      if (statement != null) {
+        setSqlQueryParsingTime(0);
+        return statement;
+      }
+    }
     long startQueryParsingTime = EnvironmentEdgeManager.currentTimeMillis();
+    long startNanos = System.nanoTime();
     PhoenixStatementParser parser = null;
     try {
       parser = new PhoenixStatementParser(sql, new ExecutableNodeFactory());
@@ -2563,6 +2573,9 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
     }
     CompilableStatement statement = parser.parseStatement();
     setSqlQueryParsingTime(EnvironmentEdgeManager.currentTimeMillis() - startQueryParsingTime);
+    if (parsedStatementCache != null) {
+      parsedStatementCache.put(sql, statement, System.nanoTime() - startNanos);
+    }
     return statement;
   }
 
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.apache.phoenix.query.QueryServicesOptions.UNLIMITED_QUEUE_SIZE;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+
+/**
+ * A bounded blocking queue that shares the threads of a thread pool fairly between the priority
+ * classes of jobs, between the tenants of each priority class and between the jobs of each tenant.
+ * <p>
+ * The priority classes and the tenants are served by stride scheduling: each has a pass that
+ * advances inversely to its weight whenever one of its elements is taken, and the class or tenant
+ * with the lowest pass is served next. A class or tenant that had nothing queued starts at the pass
+ * of the last one served, so that it does not make up for the time it was idle. The jobs of a
+ * tenant are served round robin as by {@link AbstractRoundRobinQueue}.
+ * <p>
+ * The time elements wait in the queue is recorded per priority class.
+ */
+public abstract class FairShareJobQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+  /**
+   * The priority classes of jobs, with their share of the threads relative to each other.
+   */
+  public enum Priority {
+    HIGH(4, GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME_HIGH_PRIORITY),
+    NORMAL(2, GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME_NORMAL_PRIORITY),
+    LOW(1, GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME_LOW_PRIORITY);
+
+    private final int weight;
+    private final GlobalClientMetrics queueWaitTime;
+
+    Priority(int weight, GlobalClientMetrics queueWaitTime) {
+      this.weight = weight;
+      this.queueWaitTime = queueWaitTime;
+    }
+  }
+
+  /**
+   * A job that tells the tenant it runs for and its priority class. The elements of other jobs are
+   * queued for a default tenant with {@link Priority#NORMAL} priority.
+   */
+  public interface Job {
+    /**
+     * Returns the tenant the job runs for, which is the tenant id of the connection of the job, or
+     * the connection itself if it has no tenant id.
+     */
+    Object getTenantKey();
+
+    Priority getPriority();
+  }
+
+  private static final Object DEFAULT_TENANT = new Object();
+  private static final long STRIDE = 1L << 20;
+
+  private final Object lock = new Object();
+  private final int maxSize;
+  private final Map<String, Integer> tenantWeights;
+  private final List<PriorityClass> priorityClasses;
+  private long pass;
+  private int size;
+
+  /**
+   * @param maxSize       the maximum number of queued elements
+   * @param tenantWeights the weights of tenants by tenant id, other tenants having a weight of 1
+   */
+  public FairShareJobQueue(int maxSize, Map<String, Integer> tenantWeights) {
+    this.maxSize = maxSize;
+    this.tenantWeights =
+      tenantWeights == null ? Collections.<String, Integer> emptyMap() : tenantWeights;
+    this.priorityClasses = new ArrayList<>(Priority.values().length);
+    for (Priority priority : Priority.values()) {
+      priorityClasses.add(new PriorityClass(priority));
+    }
+  }
+
+  /**
+   * Implementations must extract the job object which identifies the job an element belongs to.
+   */
+  protected abstract Object extractJob(E o);
+
+  @Override
+  public boolean offer(E o) {
+    if (o == null) throw new NullPointerException();
+    Object job = extractJob(o);
+    Priority priority = Priority.NORMAL;
+    Object tenantKey = DEFAULT_TENANT;
+    if (job instanceof Job) {
+      priority = ((Job) job).getPriority();
+      tenantKey = ((Job) job).getTenantKey();
+    }
+    synchronized (lock) {
+      if (maxSize != UNLIMITED_QUEUE_SIZE && size == maxSize) {
+        return false;
+      }
+      PriorityClass priorityClass = priorityClasses.get(priority.ordinal());
+      if (priorityClass.size == 0) {
+        priorityClass.pass = Math.max(priorityClass.pass, pass);
+      }
+      priorityClass.offer(tenantKey, new Element<E>(o, job));
+      size++;
+      lock.notifyAll();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean offer(E o, long timeout, TimeUnit unit) throws InterruptedException {
+    boolean taken = false;
+    long endAt = EnvironmentEdgeManager.currentTimeMillis() + unit.toMillis(timeout);
+    synchronized (lock) {
+      long waitTime = endAt - EnvironmentEdgeManager.currentTimeMillis();
+      while (!(taken = offer(o)) && waitTime > 0) {
+        lock.wait(waitTime);
+        waitTime = endAt - EnvironmentEdgeManager.currentTimeMillis();
+      }
+    }
+    return taken;
+  }
+
+  @Override
+  public void put(E o) {
+    offer(o);
+  }
+
+  @Override
+  public E poll() {
+    synchronized (lock) {
+      if (size == 0) {
+        return null;
+      }
+      PriorityClass next = null;
+      for (PriorityClass priorityClass : priorityClasses) {
+        if (priorityClass.size > 0 && (next == null || priorityClass.pass < next.pass)) {
+          next = priorityClass;
+        }
+      }
+      pass = next.pass;
+      next.pass += STRIDE / next.priority.weight;
+      Element<E> element = next.poll();
+      size--;
+      lock.notifyAll();
+      next.priority.queueWaitTime
+        .update(EnvironmentEdgeManager.currentTimeMillis() - element.enqueueTime);
+      return element.element;
+    }
+  }
+
+  @Override
+  public E take() throws InterruptedException {
+    synchronized (lock) {
+      while (size == 0) {
+        lock.wait();
+      }
+      return poll();
+    }
+  }
+
+  @Override
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long endAt = EnvironmentEdgeManager.currentTimeMillis() + unit.toMillis(timeout);
+    synchronized (lock) {
+      long waitTime = endAt - EnvironmentEdgeManager.currentTimeMillis();
+      while (size == 0 && waitTime > 0) {
+        lock.wait(waitTime);
+        waitTime = endAt - EnvironmentEdgeManager.currentTimeMillis();
+      }
+      return poll();
+    }
+  }
+
+  @Override
+  public E peek() {
+    synchronized (lock) {
+      Iterator<E> iterator = iterator();
+      return iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    synchronized (lock) {
+      List<E> allElements = new ArrayList<E>(size);
+      for (PriorityClass priorityClass : priorityClasses) {
+        for (Tenant tenant : priorityClass.tenants.values()) {
+          for (Element<E> element : tenant.jobs) {
+            allElements.add(element.element);
+          }
+        }
+      }
+      return allElements.iterator();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    if (c == null) throw new NullPointerException();
+    if (c == this) throw new IllegalArgumentException();
+    synchronized (lock) {
+      int i = 0;
+      E element;
+      while (i < maxElements && (element = poll()) != null) {
+        c.add(element);
+        i++;
+      }
+      return i;
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int size() {
+    synchronized (lock) {
+      return size;
+    }
+  }
+
+  private int getTenantWeight(Object tenantKey) {
+    Integer weight = tenantKey instanceof String ? tenantWeights.get(tenantKey) : null;
+    return weight == null || weight <= 0 ? 1 : weight;
+  }
+
+  private static class Element<E> {
+    private final E element;
+    private final Object job;
+    private final long enqueueTime = EnvironmentEdgeManager.currentTimeMillis();
+
+    Element(E element, Object job) {
+      this.element = element;
+      this.job = job;
+    }
+  }
+
+  private class PriorityClass {
+    private final Priority priority;
+    private final Map<Object, Tenant> tenants = new LinkedHashMap<>();
+    private long pass;
+    // The pass of the tenant served last, which tenants with nothing queued start from
+    private long tenantPass;
+    private int size;
+
+    PriorityClass(Priority priority) {
+      this.priority = priority;
+    }
+
+    void offer(Object tenantKey, Element<E> element) {
+      Tenant tenant = tenants.get(tenantKey);
+      if (tenant == null) {
+        tenant = new Tenant(tenantKey, getTenantWeight(tenantKey), tenantPass);
+        tenants.put(tenantKey, tenant);
+      }
+      tenant.jobs.offer(element);
+      size++;
+    }
+
+    Element<E> poll() {
+      Tenant next = null;
+      for (Tenant tenant : tenants.values()) {
+        if (next == null || tenant.pass < next.pass) {
+          next = tenant;
+        }
+      }
+      tenantPass = next.pass;
+      next.pass += STRIDE / next.weight;
+      Element<E> element = next.jobs.poll();
+      if (next.jobs.isEmpty()) {
+        tenants.remove(next.key);
+      }
+      size--;
+      return element;
+    }
+  }
+
+  private class Tenant {
+    private final Object key;
+    private final int weight;
+    private long pass;
+    private final AbstractRoundRobinQueue<Element<E>> jobs =
+      new AbstractRoundRobinQueue<Element<E>>(UNLIMITED_QUEUE_SIZE, true) {
+        @Override
+        protected Object extractProducer(Element<E> o) {
+          return o.job;
+        }
+      };
+
+    Tenant(Object key, int weight, long pass) {
+      this.key = key;
+      this.weight = weight;
+      this.pass = pass;
+    }
+  }
+}
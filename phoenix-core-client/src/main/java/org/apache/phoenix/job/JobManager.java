@@ -23,6 +23,7 @@ import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXEC
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTION_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME;
 
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
@@ -70,9 +71,35 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
 
   public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize,
     boolean useInstrumentedThreadPool) {
+    return createThreadPoolExec(keepAliveMs, size, queueSize, useInstrumentedThreadPool, false,
+      null, false);
+  }
+
+  /**
+   * Creates the thread pool executor of parallel scans. With fair scheduling, the queued tasks are
+   * taken by priority class and tenant through a {@link FairShareJobQueue} rather than round robin
+   * across all jobs. With virtual threads, if the JVM supports them, each task runs on a new
+   * virtual thread and at most {@code size} tasks run concurrently, see
+   * {@link VirtualThreadPoolExecutor}.
+   * @param tenantWeights the share of the threads of tenants relative to each other by tenant id,
+   *                      for fair scheduling
+   */
+  public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize,
+    boolean useInstrumentedThreadPool, boolean fairScheduling, Map<String, Integer> tenantWeights,
+    boolean useVirtualThreads) {
     BlockingQueue<Runnable> queue;
     if (queueSize == 0) {
       queue = new SynchronousQueue<Runnable>(); // Specialized for 0 length.
+    } else if (fairScheduling) {
+      queue = new FairShareJobQueue<Runnable>(queueSize, tenantWeights) {
+        @Override
+        protected Object extractJob(Runnable o) {
+          if (o instanceof JobFutureTask) {
+            return ((JobFutureTask) o).getJobId();
+          }
+          return o;
+        }
+      };
     } else {
       queue = new JobManager<Runnable>(queueSize);
     }
@@ -81,12 +108,20 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
       new ThreadFactoryBuilder().setNameFormat(name + "-thread-%s").setDaemon(true)
         .setThreadFactory(new ContextClassLoaderThreadFactory(JobManager.class.getClassLoader()))
         .build();
+    ThreadFactory virtualThreadFactory = null;
+    if (useVirtualThreads) {
+      virtualThreadFactory = VirtualThreadPoolExecutor.newVirtualThreadFactory(name + "-vthread-");
+      if (virtualThreadFactory != null) {
+        virtualThreadFactory = new ContextClassLoaderThreadFactory(virtualThreadFactory,
+          JobManager.class.getClassLoader());
+      }
+    }
     ThreadPoolExecutor exec;
     if (useInstrumentedThreadPool) {
       // For thread pool, set core threads = max threads -- we don't ever want to exceed core
       // threads, but want to go up to core threads *before* using the queue.
       exec = new InstrumentedThreadPoolExecutor(name, size, size, keepAliveMs,
-        TimeUnit.MILLISECONDS, queue, threadFactory) {
+        TimeUnit.MILLISECONDS, queue, threadFactory, virtualThreadFactory) {
         @Override
         protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
           return new InstrumentedJobFutureTask<T>(call);
@@ -100,8 +135,8 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
     } else {
       // For thread pool, set core threads = max threads -- we don't ever want to exceed core
       // threads, but want to go up to core threads *before* using the queue.
-      exec = new ThreadPoolExecutor(size, size, keepAliveMs, TimeUnit.MILLISECONDS, queue,
-        threadFactory) {
+      exec = new VirtualThreadPoolExecutor(size, size, keepAliveMs, TimeUnit.MILLISECONDS, queue,
+        threadFactory, virtualThreadFactory) {
         @Override
         protected <T> RunnableFuture<T> newTaskFor(Callable<T> call) {
           // Override this so we can create a JobFutureTask so we can extract out the parentJobId
@@ -221,7 +256,12 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
     private final ClassLoader contextClassLoader;
 
     public ContextClassLoaderThreadFactory(ClassLoader contextClassLoader) {
-      baseFactory = Executors.defaultThreadFactory();
+      this(Executors.defaultThreadFactory(), contextClassLoader);
+    }
+
+    public ContextClassLoaderThreadFactory(ThreadFactory baseFactory,
+      ClassLoader contextClassLoader) {
+      this.baseFactory = baseFactory;
       this.contextClassLoader = contextClassLoader;
     }
 
@@ -238,7 +278,7 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
    * threads and queue. This executor assumes that all the tasks handled are of type
    * {@link JobManager.InstrumentedJobFutureTask}
    */
-  private static class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+  private static class InstrumentedThreadPoolExecutor extends VirtualThreadPoolExecutor {
 
     private final RejectedExecutionHandler rejectedExecHandler = new RejectedExecutionHandler() {
       @Override
@@ -255,8 +295,9 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
 
     public InstrumentedThreadPoolExecutor(String threadPoolName, int corePoolSize,
       int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue,
-      ThreadFactory threadFactory) {
-      super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+      ThreadFactory threadFactory, ThreadFactory virtualThreadFactory) {
+      super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory,
+        virtualThreadFactory);
       setRejectedExecutionHandler(rejectedExecHandler);
     }
 
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ThreadPoolExecutor that can run each of its tasks on a new virtual thread instead of on a pool
+ * of platform threads, for the blocking tasks of the client such as parallel scans.
+ * <p>
+ * Without a virtual thread factory it behaves as a regular ThreadPoolExecutor. With one, no pool
+ * threads are started: the tasks are queued in the work queue as usual, and taken from it to run
+ * on a new virtual thread each while fewer than {@code maximumPoolSize} tasks are running, which
+ * is enforced by a semaphore. The order the tasks are taken in is the order of the work queue,
+ * and {@link #beforeExecute(Thread, Runnable)} and {@link #afterExecute(Runnable, Throwable)} are
+ * called around each task, so subclasses keep their task metrics.
+ * <p>
+ * Virtual threads need Java 21 or later. They are created by reflection, see
+ * {@link #newVirtualThreadFactory(String)}, so that the client still builds and runs on the older
+ * Java versions it supports.
+ */
+public class VirtualThreadPoolExecutor extends ThreadPoolExecutor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPoolExecutor.class);
+
+  @Nullable
+  private final ThreadFactory virtualThreadFactory;
+  private final Semaphore permits;
+  private final AtomicInteger runningTasks = new AtomicInteger();
+  private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+  private final Object terminationLock = new Object();
+
+  public VirtualThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+    TimeUnit unit, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+    @Nullable ThreadFactory virtualThreadFactory) {
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+    this.virtualThreadFactory = virtualThreadFactory;
+    this.permits = new Semaphore(maximumPoolSize);
+  }
+
+  public VirtualThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+    TimeUnit unit, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+    RejectedExecutionHandler handler, @Nullable ThreadFactory virtualThreadFactory) {
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+    this.virtualThreadFactory = virtualThreadFactory;
+    this.permits = new Semaphore(maximumPoolSize);
+  }
+
+  /**
+   * Returns a factory of virtual threads named with the given prefix, or null if the JVM does not
+   * support virtual threads.
+   */
+  @Nullable
+  public static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+        builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (Exception e) {
+      LOGGER.warn("Virtual threads are not supported by this JVM, using platform threads for "
+        + namePrefix);
+      return null;
+    }
+  }
+
+  public boolean isUsingVirtualThreads() {
+    return virtualThreadFactory != null;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (virtualThreadFactory == null) {
+      super.execute(task);
+      return;
+    }
+    if (task == null) {
+      throw new NullPointerException();
+    }
+    if (isShutdown()) {
+      getRejectedExecutionHandler().rejectedExecution(task, this);
+      return;
+    }
+    // As the pool threads of a ThreadPoolExecutor, start the task right away if there is a permit
+    // and nothing queued before it, and otherwise queue it
+    if (getQueue().isEmpty() && permits.tryAcquire()) {
+      runningTasks.incrementAndGet();
+      start(task);
+      return;
+    }
+    if (!getQueue().offer(task)) {
+      getRejectedExecutionHandler().rejectedExecution(task, this);
+      return;
+    }
+    startQueuedTasks();
+  }
+
+  /**
+   * Starts the queued tasks while there are permits. Both the tasks queued and the permits
+   * released call this after changing the state the other checks, so no task is left queued
+   * while a permit is available.
+   */
+  private void startQueuedTasks() {
+    while (!getQueue().isEmpty() && permits.tryAcquire()) {
+      runningTasks.incrementAndGet();
+      Runnable task = getQueue().poll();
+      if (task == null) {
+        runningTasks.decrementAndGet();
+        permits.release();
+      } else {
+        start(task);
+      }
+    }
+  }
+
+  private void start(final Runnable task) {
+    try {
+      virtualThreadFactory.newThread(new Runnable() {
+        @Override
+        public void run() {
+          runTask(task);
+        }
+      }).start();
+    } catch (RuntimeException | Error e) {
+      completeTask();
+      throw e;
+    }
+  }
+
+  private void runTask(Runnable task) {
+    Thread thread = Thread.currentThread();
+    runningThreads.add(thread);
+    try {
+      beforeExecute(thread, task);
+      Throwable thrown = null;
+      try {
+        task.run();
+      } catch (RuntimeException | Error e) {
+        thrown = e;
+        throw e;
+      } finally {
+        afterExecute(task, thrown);
+      }
+    } finally {
+      runningThreads.remove(thread);
+      completeTask();
+    }
+  }
+
+  private void completeTask() {
+    permits.release();
+    startQueuedTasks();
+    if (runningTasks.decrementAndGet() == 0 && isShutdown()) {
+      synchronized (terminationLock) {
+        terminationLock.notifyAll();
+      }
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> queuedTasks = super.shutdownNow();
+    for (Thread thread : runningThreads) {
+      thread.interrupt();
+    }
+    return queuedTasks;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    if (virtualThreadFactory == null) {
+      return super.isTerminated();
+    }
+    return isShutdown() && runningTasks.get() == 0 && getQueue().isEmpty();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    if (virtualThreadFactory == null) {
+      return super.awaitTermination(timeout, unit);
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (terminationLock) {
+      while (!isTerminated()) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMs <= 0) {
+          return false;
+        }
+        terminationLock.wait(remainingMs);
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public int getActiveCount() {
+    return virtualThreadFactory == null ? super.getActiveCount() : runningTasks.get();
+  }
+
+  @Override
+  public int getPoolSize() {
+    return virtualThreadFactory == null ? super.getPoolSize() : runningTasks.get();
+  }
+}
@@ -79,19 +79,21 @@ public class HashCacheClient {
   /**
    * Send the results of scanning through the scanner to all region servers for regions of the table
    * that will use the cache that intersect with the minMaxKeyRange.
+   * @param runtimeFilterBuilder if not null, collects the join key of every row of the cache
    * @return client-side {@link ServerCache} representing the added hash cache
    * @throws MaxServerCacheSizeExceededException if size of hash cache exceeds max allowed size
    */
   public ServerCache addHashCache(ScanRanges keyRanges, byte[] cacheId, ResultIterator iterator,
     long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly,
     boolean usePersistentCache, PTable cacheUsingTable, Expression keyRangeRhsExpression,
-    List<Expression> keyRangeRhsValues) throws SQLException {
+    List<Expression> keyRangeRhsValues, HashJoinRuntimeFilter.Builder runtimeFilterBuilder)
+    throws SQLException {
     /**
      * Serialize and compress hashCacheTable
      */
     ImmutableBytesWritable ptr = new ImmutableBytesWritable();
     serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression,
-      keyRangeRhsValues);
+      keyRangeRhsValues, runtimeFilterBuilder);
     ServerCache cache = serverCache.addServerCache(keyRanges, cacheId, ptr,
       ByteUtil.EMPTY_BYTE_ARRAY, new HashCacheFactory(), cacheUsingTable, usePersistentCache, true);
     return cache;
@@ -113,7 +115,8 @@ public class HashCacheClient {
 
   private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize,
     List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression,
-    List<Expression> keyRangeRhsValues) throws SQLException {
+    List<Expression> keyRangeRhsValues, HashJoinRuntimeFilter.Builder runtimeFilterBuilder)
+    throws SQLException {
     long maxSize = serverCache.getConnection().getQueryServices().getProps().getLongBytes(
       QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB,
       QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
@@ -146,6 +149,10 @@ public class HashCacheClient {
         if (keyRangeRhsExpression != null) {
           keyRangeRhsValues.add(evaluateKeyExpression(keyRangeRhsExpression, result, tempPtr));
         }
+        // Evaluate the hash key the same way as the server side hash cache does
+        if (runtimeFilterBuilder != null) {
+          runtimeFilterBuilder.addKey(TupleUtil.getConcatenatedValue(result, onExpressions));
+        }
         nRows++;
       }
       TrustedByteArrayOutputStream sizeOut = new TrustedByteArrayOutputStream(Bytes.SIZEOF_INT);
@@ -25,12 +25,10 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import net.jcip.annotations.Immutable;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -42,9 +40,14 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.InsufficientMemoryException;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
 import org.apache.phoenix.schema.tuple.ResultTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ClientUtil;
 import org.apache.phoenix.util.ResultUtil;
 import org.apache.phoenix.util.SizedUtil;
@@ -80,21 +83,52 @@ public class HashCacheFactory implements ServerCacheFactory {
     }
   }
 
+  /**
+   * Hash cache that keeps the rows in the uncompressed bytes sent by the client, and indexes them
+   * with an open addressing table of the distinct join keys. The rows of each key are contiguous in
+   * a row offset array, so only a few primitive array slots are used per row instead of the objects
+   * of a map of lists of tuples. Tuples are only materialized for the rows of a matching key. A
+   * single INTEGER or BIGINT join key is stored as a long instead of as bytes. The tuples of a key
+   * are materialized on its first probe into an immutable list that is handed out to every later
+   * probe of the key. The materialized tuples are charged to the memory chunk, and bounded by the
+   * size of the rows themselves, past which the tuples of a key are materialized on every probe.
+   */
   @Immutable
   private static class HashCacheImpl implements HashCache {
-    private final Map<ImmutableBytesPtr, List<Tuple>> hashCache;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int EMPTY_SLOT = -1;
+
+    private final byte[] rows;
     private final MemoryChunk memoryChunk;
     private final boolean singleValueOnly;
     private final int clientVersion;
+    // Width of a single fixed width join key stored as a long, or 0 if keys are stored as bytes
+    private final int keyWidth;
+    private int numKeys;
+    // Index of the empty (null) key when keys are stored as longs, or EMPTY_SLOT
+    private int emptyKeyIndex = EMPTY_SLOT;
+    private long[] longKeys;
+    private byte[] keyBytes;
+    private int keyBytesLength;
+    private int[] keyOffsets;
+    private int[] keyHashes;
+    private int[] slots;
+    // Rows of key i are at rowOffsets[keyRowStarts[i]] to rowOffsets[keyRowStarts[i + 1] - 1]
+    private int[] keyRowStarts;
+    private int[] rowOffsets;
+    // Tuples of key i, materialized on the first probe of the key
+    private AtomicReferenceArray<List<Tuple>> keyTuples;
+    // Memory charged for the tuples in keyTuples, guarded by the memory chunk
+    private long keyTuplesSize = 0;
 
     private HashCacheImpl(byte[] hashCacheBytes, MemoryChunk memoryChunk, int clientVersion) {
       try {
         this.memoryChunk = memoryChunk;
         this.clientVersion = clientVersion;
-        byte[] hashCacheByteArray = hashCacheBytes;
+        this.rows = hashCacheBytes;
         int offset = 0;
         ByteArrayInputStream input =
-          new ByteArrayInputStream(hashCacheByteArray, offset, hashCacheBytes.length);
+          new ByteArrayInputStream(hashCacheBytes, offset, hashCacheBytes.length);
         DataInputStream dataInput = new DataInputStream(input);
         int nExprs = dataInput.readInt();
         List<Expression> onExpressions = new ArrayList<Expression>(nExprs);
@@ -114,41 +148,284 @@ public class HashCacheFactory implements ServerCacheFactory {
         this.singleValueOnly = singleValueOnly;
         offset += exprSize;
         int nRows = dataInput.readInt();
-        long estimatedSize =
-          SizedUtil.sizeOfMap(nRows, SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE, SizedUtil.RESULT_SIZE)
-            + hashCacheBytes.length;
-        this.memoryChunk.resize(estimatedSize);
-        HashMap<ImmutableBytesPtr, List<Tuple>> hashCacheMap =
-          new HashMap<ImmutableBytesPtr, List<Tuple>>(nRows * 5 / 4);
         offset += Bytes.SIZEOF_INT;
-        // Build Map with evaluated hash key as key and row as value
-        for (int i = 0; i < nRows; i++) {
-          int resultSize = (int) Bytes.readAsVLong(hashCacheByteArray, offset);
-          offset += WritableUtils.decodeVIntSize(hashCacheByteArray[offset]);
-          ImmutableBytesWritable value =
-            new ImmutableBytesWritable(hashCacheByteArray, offset, resultSize);
-          Tuple result = new ResultTuple(ResultUtil.toResult(value));
-          ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(result, onExpressions);
-          List<Tuple> tuples = hashCacheMap.get(key);
-          if (tuples == null) {
-            tuples = new LinkedList<Tuple>();
-            hashCacheMap.put(key, tuples);
-          }
-          tuples.add(result);
-          offset += resultSize;
+        int keyWidth = getLongKeyWidth(onExpressions);
+        // Charge for the worst case of all keys being distinct before building the index
+        this.memoryChunk.resize(hashCacheBytes.length + sizeOfIndex(nRows, nRows, keyWidth, 0));
+        if (!build(onExpressions, offset, nRows, keyWidth)) {
+          keyWidth = 0;
+          build(onExpressions, offset, nRows, keyWidth);
         }
-        this.hashCache = Collections.unmodifiableMap(hashCacheMap);
+        this.keyWidth = keyWidth;
+        this.keyTuples = new AtomicReferenceArray<List<Tuple>>(numKeys);
+        this.memoryChunk.resize(
+          hashCacheBytes.length + sizeOfIndex(nRows, numKeys, keyWidth, keyBytes.length));
       } catch (IOException e) { // Not possible with ByteArrayInputStream
         throw new RuntimeException(e);
       }
     }
 
+    private static int getLongKeyWidth(List<Expression> onExpressions) {
+      if (onExpressions.size() != 1) {
+        return 0;
+      }
+      PDataType type = onExpressions.get(0).getDataType();
+      if (type == PInteger.INSTANCE || type == PLong.INSTANCE) {
+        return type.getByteSize();
+      }
+      return 0;
+    }
+
+    private static long sizeOfIndex(int nRows, int nKeys, int keyWidth, int keyBytesLength) {
+      long tableSize = tableSize(nKeys);
+      long size = SizedUtil.ARRAY_SIZE * 6L + SizedUtil.INT_SIZE * (tableSize + nKeys + 1 + nRows)
+        + SizedUtil.POINTER_SIZE * (long) nKeys;
+      if (keyWidth > 0) {
+        size += SizedUtil.LONG_SIZE * (long) nKeys;
+      } else {
+        size += SizedUtil.INT_SIZE * 2L * (nKeys + 1) + keyBytesLength;
+      }
+      return size;
+    }
+
+    private static int tableSize(int nKeys) {
+      int tableSize = Integer.highestOneBit(Math.max(1, (int) (nKeys / LOAD_FACTOR)));
+      return tableSize < nKeys / LOAD_FACTOR ? tableSize << 1 : tableSize;
+    }
+
+    private static int mix(int hash) {
+      int h = hash * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    private static int hashOf(long key) {
+      return mix((int) (key ^ (key >>> 32)));
+    }
+
+    private long toLongKey(byte[] b, int offset, int length) {
+      return length == Bytes.SIZEOF_LONG ? Bytes.toLong(b, offset) : Bytes.toInt(b, offset);
+    }
+
+    /**
+     * Build the index over the rows
+     * @return false if the keys cannot be stored as longs, in which case the index needs to be
+     *         built again with keys stored as bytes.
+     */
+    private boolean build(List<Expression> onExpressions, int rowsOffset, int nRows, int keyWidth)
+      throws IOException {
+      numKeys = 0;
+      emptyKeyIndex = EMPTY_SLOT;
+      slots = new int[tableSize(nRows)];
+      Arrays.fill(slots, EMPTY_SLOT);
+      if (keyWidth > 0) {
+        longKeys = new long[nRows];
+        keyBytes = ByteUtil.EMPTY_BYTE_ARRAY;
+      } else {
+        keyBytes = new byte[Math.max(16, nRows * 4)];
+        keyBytesLength = 0;
+        keyOffsets = new int[nRows + 1];
+        keyHashes = new int[nRows];
+      }
+      int[] rowKeyIndexes = new int[nRows];
+      int[] rowStarts = new int[nRows];
+      int offset = rowsOffset;
+      // Assign each row the index of its distinct key
+      for (int i = 0; i < nRows; i++) {
+        rowStarts[i] = offset;
+        int resultSize = (int) Bytes.readAsVLong(rows, offset);
+        offset += WritableUtils.decodeVIntSize(rows[offset]);
+        ImmutableBytesWritable value = new ImmutableBytesWritable(rows, offset, resultSize);
+        Tuple result = new ResultTuple(ResultUtil.toResult(value));
+        ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(result, onExpressions);
+        if (keyWidth > 0) {
+          if (key.getLength() == 0) {
+            if (emptyKeyIndex == EMPTY_SLOT) {
+              emptyKeyIndex = numKeys++;
+            }
+            rowKeyIndexes[i] = emptyKeyIndex;
+          } else if (key.getLength() != keyWidth) {
+            return false;
+          } else {
+            rowKeyIndexes[i] = addLongKey(toLongKey(key.get(), key.getOffset(), key.getLength()));
+          }
+        } else {
+          rowKeyIndexes[i] = addBytesKey(key);
+        }
+        offset += resultSize;
+      }
+      // Group the row offsets by key
+      keyRowStarts = new int[numKeys + 1];
+      for (int i = 0; i < nRows; i++) {
+        keyRowStarts[rowKeyIndexes[i] + 1]++;
+      }
+      for (int i = 0; i < numKeys; i++) {
+        keyRowStarts[i + 1] += keyRowStarts[i];
+      }
+      rowOffsets = new int[nRows];
+      int[] positions = Arrays.copyOf(keyRowStarts, numKeys);
+      for (int i = 0; i < nRows; i++) {
+        rowOffsets[positions[rowKeyIndexes[i]]++] = rowStarts[i];
+      }
+      // Trim the key storage to the number of distinct keys
+      slots = new int[tableSize(numKeys)];
+      Arrays.fill(slots, EMPTY_SLOT);
+      if (keyWidth > 0) {
+        longKeys = Arrays.copyOf(longKeys, numKeys);
+        for (int i = 0; i < numKeys; i++) {
+          if (i != emptyKeyIndex) {
+            slots[findLongSlot(longKeys[i])] = i;
+          }
+        }
+      } else {
+        keyBytes = Arrays.copyOf(keyBytes, keyBytesLength);
+        keyOffsets = Arrays.copyOf(keyOffsets, numKeys + 1);
+        keyHashes = Arrays.copyOf(keyHashes, numKeys);
+        for (int i = 0; i < numKeys; i++) {
+          slots[findBytesSlot(keyBytes, keyOffsets[i], keyOffsets[i + 1] - keyOffsets[i],
+            keyHashes[i])] = i;
+        }
+      }
+      return true;
+    }
+
+    private int addLongKey(long key) {
+      int slot = findLongSlot(key);
+      if (slots[slot] == EMPTY_SLOT) {
+        longKeys[numKeys] = key;
+        slots[slot] = numKeys++;
+      }
+      return slots[slot];
+    }
+
+    private int addBytesKey(ImmutableBytesPtr key) {
+      int hash = mix(key.hashCode());
+      int slot = findBytesSlot(key.get(), key.getOffset(), key.getLength(), hash);
+      if (slots[slot] == EMPTY_SLOT) {
+        if (keyBytesLength + key.getLength() > keyBytes.length) {
+          keyBytes = Arrays.copyOf(keyBytes,
+            Math.max(keyBytesLength + key.getLength(), keyBytes.length + (keyBytes.length >> 1)));
+        }
+        System.arraycopy(key.get(), key.getOffset(), keyBytes, keyBytesLength, key.getLength());
+        keyBytesLength += key.getLength();
+        keyHashes[numKeys] = hash;
+        keyOffsets[numKeys + 1] = keyBytesLength;
+        slots[slot] = numKeys++;
+      }
+      return slots[slot];
+    }
+
+    /**
+     * Find the slot of the given key, or the empty slot where it would be inserted
+     */
+    private int findLongSlot(long key) {
+      int mask = slots.length - 1;
+      int slot = hashOf(key) & mask;
+      while (slots[slot] != EMPTY_SLOT && longKeys[slots[slot]] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /**
+     * Find the slot of the given key, or the empty slot where it would be inserted
+     */
+    private int findBytesSlot(byte[] b, int offset, int length, int hash) {
+      int mask = slots.length - 1;
+      int slot = hash & mask;
+      while (slots[slot] != EMPTY_SLOT) {
+        int index = slots[slot];
+        if (
+          keyHashes[index] == hash && Bytes.equals(keyBytes, keyOffsets[index],
+            keyOffsets[index + 1] - keyOffsets[index], b, offset, length)
+        ) {
+          break;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private int getKeyIndex(ImmutableBytesPtr hashKey) {
+      if (keyWidth > 0) {
+        if (hashKey.getLength() == 0) {
+          return emptyKeyIndex;
+        }
+        if (hashKey.getLength() != keyWidth) {
+          return EMPTY_SLOT;
+        }
+        return slots[findLongSlot(
+          toLongKey(hashKey.get(), hashKey.getOffset(), hashKey.getLength()))];
+      }
+      return slots[findBytesSlot(hashKey.get(), hashKey.getOffset(), hashKey.getLength(),
+        mix(hashKey.hashCode()))];
+    }
+
+    private List<Tuple> getTuples(int keyIndex) {
+      int start = keyRowStarts[keyIndex];
+      int end = keyRowStarts[keyIndex + 1];
+      List<Tuple> tuples = new ArrayList<Tuple>(end - start);
+      for (int i = start; i < end; i++) {
+        int offset = rowOffsets[i];
+        int resultSize = (int) Bytes.readAsVLong(rows, offset);
+        offset += WritableUtils.decodeVIntSize(rows[offset]);
+        tuples
+          .add(new ResultTuple(ResultUtil.toResult(new ImmutableBytesWritable(rows, offset,
+            resultSize))));
+      }
+      return tuples;
+    }
+
+    /**
+     * Returns the tuples of the given key, materializing them on the first probe of the key. Later
+     * probes get the same immutable list back without any allocation. If the tuples would take the
+     * cached tuples past the size of the rows, or their memory cannot be acquired, they are
+     * materialized again on every probe instead.
+     */
+    private List<Tuple> getCachedTuples(int keyIndex) {
+      List<Tuple> tuples = keyTuples.get(keyIndex);
+      if (tuples != null) {
+        return tuples;
+      }
+      tuples = Collections.unmodifiableList(getTuples(keyIndex));
+      // The list and its wrapper, and for each tuple the tuple, its Result and the cells of the
+      // Result, whose bytes are in the rows
+      long size = SizedUtil.ARRAY_SIZE + SizedUtil.OBJECT_SIZE * 2L
+        + (long) SizedUtil.POINTER_SIZE * tuples.size();
+      for (Tuple tuple : tuples) {
+        size += SizedUtil.OBJECT_SIZE + SizedUtil.POINTER_SIZE + SizedUtil.RESULT_SIZE
+          + SizedUtil.ARRAY_SIZE
+          + (long) tuple.size() * (SizedUtil.POINTER_SIZE + SizedUtil.KEY_VALUE_SIZE);
+      }
+      synchronized (memoryChunk) {
+        // Concurrent probes of the same key only charge and cache the first tuples
+        if (keyTuples.get(keyIndex) != null) {
+          return keyTuples.get(keyIndex);
+        }
+        if (keyTuplesSize + size > rows.length) {
+          return tuples;
+        }
+        try {
+          memoryChunk.resize(memoryChunk.getSize() + size);
+        } catch (InsufficientMemoryException e) {
+          return tuples;
+        }
+        keyTuplesSize += size;
+        keyTuples.set(keyIndex, tuples);
+      }
+      return tuples;
+    }
+
     @Override
     public String toString() {
       StringBuilder sb = new StringBuilder();
-      Set<ImmutableBytesPtr> keySet = hashCache.keySet();
-      for (ImmutableBytesPtr key : keySet) {
-        sb.append("key: " + key + " value: " + hashCache.get(key));
+      for (int i = 0; i < numKeys; i++) {
+        String key;
+        if (keyWidth > 0) {
+          key = i == emptyKeyIndex ? "" : Long.toString(longKeys[i]);
+        } else {
+          key = Bytes.toStringBinary(keyBytes, keyOffsets[i], keyOffsets[i + 1] - keyOffsets[i]);
+        }
+        sb.append("key: " + key + " value: " + getTuples(i));
       }
       return sb.toString();
     }
@@ -160,15 +437,18 @@ public class HashCacheFactory implements ServerCacheFactory {
 
     @Override
     public List<Tuple> get(ImmutableBytesPtr hashKey) throws IOException {
-      List<Tuple> ret = hashCache.get(hashKey);
-      if (singleValueOnly && ret != null && ret.size() > 1) {
+      int keyIndex = getKeyIndex(hashKey);
+      if (keyIndex == EMPTY_SLOT) {
+        return null;
+      }
+      if (singleValueOnly && keyRowStarts[keyIndex + 1] - keyRowStarts[keyIndex] > 1) {
         SQLException ex =
           new SQLExceptionInfo.Builder(SQLExceptionCode.SINGLE_ROW_SUBQUERY_RETURNS_MULTIPLE_ROWS)
             .build().buildException();
         ClientUtil.throwIOException(ex.getMessage(), ex);
       }
 
-      return ret;
+      return getCachedTuples(keyIndex);
     }
 
     @Override
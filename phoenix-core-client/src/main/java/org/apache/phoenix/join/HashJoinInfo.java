@@ -50,12 +50,14 @@ public class HashJoinInfo {
   private Expression postJoinFilterExpression;
   private Integer limit;
   private boolean forceProjection; // always true now, but for backward compatibility.
+  private HashJoinRuntimeFilter[] runtimeFilters;
 
   public HashJoinInfo(PTable joinedTable, ImmutableBytesPtr[] joinIds,
     List<Expression>[] joinExpressions, JoinType[] joinTypes, boolean[] earlyEvaluation,
     PTable[] tables, int[] fieldPositions, Expression postJoinFilterExpression, Integer limit) {
     this(buildSchema(joinedTable), joinIds, joinExpressions, joinTypes, earlyEvaluation,
-      buildSchemas(tables), fieldPositions, postJoinFilterExpression, limit, true);
+      buildSchemas(tables), fieldPositions, postJoinFilterExpression, limit, true,
+      new HashJoinRuntimeFilter[joinIds.length]);
   }
 
   private static KeyValueSchema[] buildSchemas(PTable[] tables) {
@@ -81,7 +83,7 @@ public class HashJoinInfo {
   private HashJoinInfo(KeyValueSchema joinedSchema, ImmutableBytesPtr[] joinIds,
     List<Expression>[] joinExpressions, JoinType[] joinTypes, boolean[] earlyEvaluation,
     KeyValueSchema[] schemas, int[] fieldPositions, Expression postJoinFilterExpression,
-    Integer limit, boolean forceProjection) {
+    Integer limit, boolean forceProjection, HashJoinRuntimeFilter[] runtimeFilters) {
     this.joinedSchema = joinedSchema;
     this.joinIds = joinIds;
     this.joinExpressions = joinExpressions;
@@ -92,6 +94,7 @@ public class HashJoinInfo {
     this.postJoinFilterExpression = postJoinFilterExpression;
     this.limit = limit;
     this.forceProjection = forceProjection;
+    this.runtimeFilters = runtimeFilters;
   }
 
   public KeyValueSchema getJoinedSchema() {
@@ -134,6 +137,14 @@ public class HashJoinInfo {
     return forceProjection;
   }
 
+  /**
+   * Returns the filters over the build side join keys, set by the client once the hash caches are
+   * built. An element is null if the join has no runtime filter.
+   */
+  public HashJoinRuntimeFilter[] getRuntimeFilters() {
+    return runtimeFilters;
+  }
+
   public static void serializeHashJoinIntoScan(Scan scan, HashJoinInfo joinInfo) {
     ByteArrayOutputStream stream = new ByteArrayOutputStream();
     try {
@@ -162,6 +173,13 @@ public class HashJoinInfo {
       }
       WritableUtils.writeVInt(output, joinInfo.limit == null ? -1 : joinInfo.limit);
       output.writeBoolean(joinInfo.forceProjection);
+      for (int i = 0; i < count; i++) {
+        HashJoinRuntimeFilter runtimeFilter = joinInfo.runtimeFilters[i];
+        output.writeBoolean(runtimeFilter != null);
+        if (runtimeFilter != null) {
+          runtimeFilter.write(output);
+        }
+      }
       scan.setAttribute(HASH_JOIN, stream.toByteArray());
     } catch (IOException e) {
       throw new RuntimeException(e);
@@ -219,6 +237,7 @@ public class HashJoinInfo {
       }
       int limit = -1;
       boolean forceProjection = false;
+      HashJoinRuntimeFilter[] runtimeFilters = new HashJoinRuntimeFilter[count];
       // Read these and ignore if we don't find them as they were not
       // present in Apache Phoenix 3.0.0 release. This allows a newer
       // 3.1 server to work with an older 3.0 client without force
@@ -226,11 +245,18 @@ public class HashJoinInfo {
       try {
         limit = WritableUtils.readVInt(input);
         forceProjection = input.readBoolean();
+        // Runtime filters are absent when the client is older than the server
+        for (int i = 0; i < count; i++) {
+          if (input.readBoolean()) {
+            runtimeFilters[i] = new HashJoinRuntimeFilter();
+            runtimeFilters[i].readFields(input);
+          }
+        }
       } catch (EOFException ignore) {
       }
       return new HashJoinInfo(joinedSchema, joinIds, joinExpressions, joinTypes, earlyEvaluation,
         schemas, fieldPositions, postJoinFilterExpression, limit >= 0 ? limit : null,
-        forceProjection);
+        forceProjection, runtimeFilters);
     } catch (IOException e) {
       throw new RuntimeException(e);
     } finally {
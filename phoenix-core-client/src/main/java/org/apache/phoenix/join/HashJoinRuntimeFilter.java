@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Runtime filter over the join keys of the build side of a hash join. It holds the min and max key
+ * and a bloom filter of the keys, so that the probe side can reject rows whose join key cannot be
+ * in the hash cache without probing it. Keys are compared as the bytes used for the hash cache
+ * lookup, so a key that is rejected is never present in the hash cache.
+ */
+public class HashJoinRuntimeFilter {
+  private static final int BITS_PER_KEY = 10;
+  private static final int NUM_HASHES = 7;
+
+  private byte[] minKey;
+  private byte[] maxKey;
+  private long[] bits;
+  private int numHashes;
+
+  public HashJoinRuntimeFilter() {
+  }
+
+  private HashJoinRuntimeFilter(byte[] minKey, byte[] maxKey, long[] bits, int numHashes) {
+    this.minKey = minKey;
+    this.maxKey = maxKey;
+    this.bits = bits;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Returns false if the key is definitely not one of the build side keys
+   */
+  public boolean mightContain(ImmutableBytesWritable key) {
+    return mightContain(key.get(), key.getOffset(), key.getLength());
+  }
+
+  public boolean mightContain(byte[] b, int offset, int length) {
+    if (minKey == null) {
+      return false;
+    }
+    if (
+      Bytes.compareTo(b, offset, length, minKey, 0, minKey.length) < 0
+        || Bytes.compareTo(b, offset, length, maxKey, 0, maxKey.length) > 0
+    ) {
+      return false;
+    }
+    if (bits.length == 0) {
+      return true;
+    }
+    long hash = hash(b, offset, length);
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+    long numBits = bits.length * 64L;
+    for (int i = 1; i <= numHashes; i++) {
+      int combined = hash1 + i * hash2;
+      long bit = (combined & Integer.MAX_VALUE) % numBits;
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the smallest build side key, or null if the build side has no key
+   */
+  public byte[] getMinKey() {
+    return minKey;
+  }
+
+  /**
+   * Returns the largest build side key, or null if the build side has no key
+   */
+  public byte[] getMaxKey() {
+    return maxKey;
+  }
+
+  public int getEstimatedSize() {
+    if (minKey == null) {
+      return 0;
+    }
+    return bits.length * Bytes.SIZEOF_LONG + minKey.length + maxKey.length;
+  }
+
+  private static long hash(byte[] b, int offset, int length) {
+    long h = 0x9E3779B97F4A7C15L;
+    for (int i = offset; i < offset + length; i++) {
+      h = (h ^ b[i]) * 0x100000001B3L;
+    }
+    // Finalization step of MurmurHash3
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  public void write(DataOutput output) throws IOException {
+    output.writeBoolean(minKey != null);
+    if (minKey == null) {
+      return;
+    }
+    Bytes.writeByteArray(output, minKey);
+    Bytes.writeByteArray(output, maxKey);
+    WritableUtils.writeVInt(output, numHashes);
+    WritableUtils.writeVInt(output, bits.length);
+    for (long word : bits) {
+      output.writeLong(word);
+    }
+  }
+
+  public void readFields(DataInput input) throws IOException {
+    if (!input.readBoolean()) {
+      return;
+    }
+    minKey = Bytes.readByteArray(input);
+    maxKey = Bytes.readByteArray(input);
+    numHashes = WritableUtils.readVInt(input);
+    bits = new long[WritableUtils.readVInt(input)];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = input.readLong();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return minKey == null
+      ? "EMPTY"
+      : "[" + Bytes.toStringBinary(minKey) + " - " + Bytes.toStringBinary(maxKey) + "], "
+        + bits.length * 64L + " bits";
+  }
+
+  /**
+   * Collects the build side keys. The bloom filter is sized once all keys are known, so only a hash
+   * per key is kept until then.
+   */
+  public static class Builder {
+    private final int maxBytes;
+    private byte[] minKey;
+    private byte[] maxKey;
+    private long[] hashes = new long[16];
+    private int numKeys;
+
+    /**
+     * @param maxBytes the maximum size of the bloom filter. The filter falls back to the min/max
+     *                 range when the keys need a larger one.
+     */
+    public Builder(int maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    public void addKey(ImmutableBytesWritable key) {
+      byte[] b = key.get();
+      int offset = key.getOffset();
+      int length = key.getLength();
+      if (minKey == null || Bytes.compareTo(b, offset, length, minKey, 0, minKey.length) < 0) {
+        minKey = Arrays.copyOfRange(b, offset, offset + length);
+      }
+      if (maxKey == null || Bytes.compareTo(b, offset, length, maxKey, 0, maxKey.length) > 0) {
+        maxKey = Arrays.copyOfRange(b, offset, offset + length);
+      }
+      if (hashes == null) {
+        return;
+      }
+      if (numKeys == hashes.length) {
+        long newLength = hashes.length * 2L;
+        if (newLength * BITS_PER_KEY > maxBytes * 8L) {
+          // Too many keys for a useful bloom filter within the size limit
+          hashes = null;
+          return;
+        }
+        hashes = Arrays.copyOf(hashes, (int) newLength);
+      }
+      hashes[numKeys++] = hash(b, offset, length);
+    }
+
+    public HashJoinRuntimeFilter build() {
+      if (minKey == null || hashes == null) {
+        return new HashJoinRuntimeFilter(minKey, maxKey, new long[0], 0);
+      }
+      long[] bits = new long[Math.max(1, (numKeys * BITS_PER_KEY + 63) / 64)];
+      long numBits = bits.length * 64L;
+      for (int k = 0; k < numKeys; k++) {
+        int hash1 = (int) hashes[k];
+        int hash2 = (int) (hashes[k] >>> 32);
+        for (int i = 1; i <= NUM_HASHES; i++) {
+          int combined = hash1 + i * hash2;
+          long bit = (combined & Integer.MAX_VALUE) % numBits;
+          bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+      }
+      return new HashJoinRuntimeFilter(minKey, maxKey, bits, NUM_HASHES);
+    }
+  }
+}
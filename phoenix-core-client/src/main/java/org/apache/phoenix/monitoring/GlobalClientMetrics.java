@@ -63,6 +63,12 @@ import static org.apache.phoenix.monitoring.MetricType.NUM_PARALLEL_SCANS;
 import static org.apache.phoenix.monitoring.MetricType.OPEN_INTERNAL_PHOENIX_CONNECTIONS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.OPEN_PHOENIX_CONNECTIONS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.PAGED_ROWS_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PARSED_STATEMENT_CACHE_MISS_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PARSED_STATEMENT_CACHE_SAVED_TIME;
+import static org.apache.phoenix.monitoring.MetricType.PLAN_CHOICE_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PLAN_CHOICE_CACHE_MISS_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.PLAN_CHOICE_CACHE_SAVED_TIME;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_FAILED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_THROTTLED_COUNTER;
@@ -79,6 +85,9 @@ import static org.apache.phoenix.monitoring.MetricType.TASK_END_TO_END_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_EXECUTED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.TASK_EXECUTION_TIME;
 import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME;
+import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME_HIGH_PRIORITY;
+import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME_LOW_PRIORITY;
+import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME_NORMAL_PRIORITY;
 import static org.apache.phoenix.monitoring.MetricType.TASK_REJECTED_COUNTER;
 
 import java.util.ArrayList;
@@ -116,6 +125,9 @@ public enum GlobalClientMetrics {
   GLOBAL_MEMORY_CHUNK_BYTES(MEMORY_CHUNK_BYTES),
   GLOBAL_MEMORY_WAIT_TIME(MEMORY_WAIT_TIME),
   GLOBAL_TASK_QUEUE_WAIT_TIME(TASK_QUEUE_WAIT_TIME),
+  GLOBAL_TASK_QUEUE_WAIT_TIME_HIGH_PRIORITY(TASK_QUEUE_WAIT_TIME_HIGH_PRIORITY),
+  GLOBAL_TASK_QUEUE_WAIT_TIME_NORMAL_PRIORITY(TASK_QUEUE_WAIT_TIME_NORMAL_PRIORITY),
+  GLOBAL_TASK_QUEUE_WAIT_TIME_LOW_PRIORITY(TASK_QUEUE_WAIT_TIME_LOW_PRIORITY),
   GLOBAL_TASK_END_TO_END_TIME(TASK_END_TO_END_TIME),
   GLOBAL_TASK_EXECUTION_TIME(TASK_EXECUTION_TIME),
   GLOBAL_MUTATION_SQL_COUNTER(MUTATION_SQL_COUNTER),
@@ -169,7 +181,13 @@ public enum GlobalClientMetrics {
   GLOBAL_CLIENT_METADATA_CACHE_REMOVAL_COUNTER(CLIENT_METADATA_CACHE_REMOVAL_COUNTER),
   GLOBAL_CLIENT_METADATA_CACHE_ADD_COUNTER(CLIENT_METADATA_CACHE_ADD_COUNTER),
   GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE(CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE),
-  GLOBAL_CLIENT_STALE_METADATA_CACHE_EXCEPTION_COUNTER(STALE_METADATA_CACHE_EXCEPTION_COUNTER);
+  GLOBAL_CLIENT_STALE_METADATA_CACHE_EXCEPTION_COUNTER(STALE_METADATA_CACHE_EXCEPTION_COUNTER),
+  GLOBAL_PARSED_STATEMENT_CACHE_HIT_COUNTER(PARSED_STATEMENT_CACHE_HIT_COUNTER),
+  GLOBAL_PARSED_STATEMENT_CACHE_MISS_COUNTER(PARSED_STATEMENT_CACHE_MISS_COUNTER),
+  GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME(PARSED_STATEMENT_CACHE_SAVED_TIME),
+  GLOBAL_PLAN_CHOICE_CACHE_HIT_COUNTER(PLAN_CHOICE_CACHE_HIT_COUNTER),
+  GLOBAL_PLAN_CHOICE_CACHE_MISS_COUNTER(PLAN_CHOICE_CACHE_MISS_COUNTER),
+  GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME(PLAN_CHOICE_CACHE_SAVED_TIME);
 
   private static final Logger LOGGER = LoggerFactory.getLogger(GlobalClientMetrics.class);
   private static final boolean isGlobalMetricsEnabled =
@@ -79,6 +79,11 @@ import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesti
  * <b>External Thread Pools:</b> For user-defined thread pools, the histogram key can be the thread
  * pool name or any unique identifier chosen by the application.
  * </p>
+ * <p>
+ * <b>Region Servers:</b> {@link org.apache.phoenix.iterate.RegionServerScanScheduler} records the
+ * number of parallel scans running and waiting per region server, with the histogram key
+ * {@code RegionServerScans-<server>}.
+ * </p>
  * @see HTableThreadPoolHistograms
  * @see org.apache.phoenix.job.HTableThreadPoolWithUtilizationStats
  * @see org.apache.phoenix.util.PhoenixRuntime#getHTableThreadPoolHistograms()
@@ -198,6 +198,18 @@ public enum MetricType {
   TASK_REJECTED_COUNTER("tr",
     "Counter for number of tasks that were rejected by the thread pool executor", LogLevel.DEBUG,
     PLong.INSTANCE),
+  TASK_QUEUE_WAIT_TIME_HIGH_PRIORITY("twh",
+    "Time in milliseconds high priority tasks had to wait in the fair share queue of the thread"
+      + " pool executor",
+    LogLevel.DEBUG, PLong.INSTANCE),
+  TASK_QUEUE_WAIT_TIME_NORMAL_PRIORITY("twn",
+    "Time in milliseconds normal priority tasks had to wait in the fair share queue of the"
+      + " thread pool executor",
+    LogLevel.DEBUG, PLong.INSTANCE),
+  TASK_QUEUE_WAIT_TIME_LOW_PRIORITY("twl",
+    "Time in milliseconds low priority tasks had to wait in the fair share queue of the thread"
+      + " pool executor",
+    LogLevel.DEBUG, PLong.INSTANCE),
   // spool metrics
   SPOOL_FILE_SIZE("ss", "Size of spool files created in bytes", LogLevel.DEBUG, PLong.INSTANCE),
   SPOOL_FILE_COUNTER("sn", "Number of spool files created", LogLevel.DEBUG, PLong.INSTANCE),
@@ -252,6 +264,23 @@ public enum MetricType {
     LogLevel.DEBUG, PLong.INSTANCE),
   STALE_METADATA_CACHE_EXCEPTION_COUNTER("smce",
     "Number of StaleMetadataCacheException encountered.", LogLevel.DEBUG, PLong.INSTANCE),
+  PARSED_STATEMENT_CACHE_HIT_COUNTER("psch", "Number of queries found in the parsed query cache.",
+    LogLevel.DEBUG, PLong.INSTANCE),
+  PARSED_STATEMENT_CACHE_MISS_COUNTER("pscm",
+    "Number of queries not found in the parsed query cache.", LogLevel.DEBUG, PLong.INSTANCE),
+  PARSED_STATEMENT_CACHE_SAVED_TIME("psct",
+    "Time in milliseconds saved by not parsing the queries found in the parsed query cache.",
+    LogLevel.DEBUG, PLong.INSTANCE),
+  PLAN_CHOICE_CACHE_HIT_COUNTER("pcch",
+    "Number of queries whose plan choice was found in the plan choice cache.", LogLevel.DEBUG,
+    PLong.INSTANCE),
+  PLAN_CHOICE_CACHE_MISS_COUNTER("pccm",
+    "Number of queries whose plan choice was not found in the plan choice cache.", LogLevel.DEBUG,
+    PLong.INSTANCE),
+  PLAN_CHOICE_CACHE_SAVED_TIME("pcct",
+    "Time in milliseconds saved by not compiling the plans of the other tables and indexes for the"
+      + " queries found in the plan choice cache.",
+    LogLevel.DEBUG, PLong.INSTANCE),
 
   // hbase metrics
   COUNT_RPC_CALLS("rp", "Number of RPC calls", LogLevel.DEBUG, PLong.INSTANCE,
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.optimize;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PLAN_CHOICE_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PLAN_CHOICE_CACHE_MISS_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.phoenix.parse.SelectStatement;
+import org.apache.phoenix.schema.PName;
+import org.apache.phoenix.schema.PTable;
+
+import org.apache.phoenix.thirdparty.com.google.common.cache.Cache;
+import org.apache.phoenix.thirdparty.com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the plans chosen by the {@link QueryOptimizer} for the flat queries, shared by the
+ * connections of the query services. A compiled QueryPlan is bound to the StatementContext of the
+ * statement it was compiled for (its connection, scan, bind values and metrics), so it cannot be
+ * executed by another statement. Instead the cache keeps which table or index the chosen plan
+ * reads, and a query found in it compiles the plan of that table or index alone rather than the
+ * plans of all the indexes of its table. The key holds the tenant, the SQL of the query and the
+ * last DDL timestamps and states of the table and of its indexes, so that a choice is not reused
+ * once any of them is altered, rebuilt, disabled or dropped, or an index is added.
+ */
+public class PlanChoiceCache {
+  private final Cache<String, Entry> choices;
+  private final AtomicLong savedNanos = new AtomicLong();
+
+  static class Entry {
+    private final String indexName;
+    private final long optimizeNanos;
+
+    private Entry(String indexName, long optimizeNanos) {
+      this.indexName = indexName;
+      this.optimizeNanos = optimizeNanos;
+    }
+
+    /**
+     * @return the full name of the chosen index, or null if the data table was chosen
+     */
+    String getIndexName() {
+      return indexName;
+    }
+  }
+
+  public PlanChoiceCache(long maxSize) {
+    this.choices = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /**
+   * Returns the key of the given query on the given table, or null if the choice of its plan
+   * cannot be cached because the last DDL timestamp of the table or of one of its indexes is not
+   * known.
+   */
+  static String getKey(PName tenantId, SelectStatement select, PTable table) {
+    if (table.getLastDDLTimestamp() == null) {
+      return null;
+    }
+    StringBuilder key = new StringBuilder();
+    key.append(tenantId == null ? "" : tenantId.getString()).append('\0').append(select);
+    key.append('\0').append(table.getName().getString()).append(':')
+      .append(table.getLastDDLTimestamp());
+    for (PTable index : table.getIndexes()) {
+      if (index.getLastDDLTimestamp() == null) {
+        return null;
+      }
+      key.append('\0').append(index.getName().getString()).append(':')
+        .append(index.getLastDDLTimestamp()).append(':').append(index.getIndexState());
+    }
+    return key.toString();
+  }
+
+  Entry get(String key) {
+    Entry entry = choices.getIfPresent(key);
+    if (entry == null) {
+      GLOBAL_PLAN_CHOICE_CACHE_MISS_COUNTER.increment();
+      return null;
+    }
+    GLOBAL_PLAN_CHOICE_CACHE_HIT_COUNTER.increment();
+    return entry;
+  }
+
+  /**
+   * Caches the choice of a plan.
+   * @param key           the key of the query
+   * @param indexName     the full name of the chosen index, or null for the data table
+   * @param optimizeNanos the time spent compiling and ordering the candidate plans
+   */
+  void put(String key, String indexName, long optimizeNanos) {
+    choices.put(key, new Entry(indexName, optimizeNanos));
+  }
+
+  /**
+   * Reports the time saved by compiling the plan of a cached choice alone, in milliseconds. The
+   * savings are accumulated in nanoseconds, as most of them are below a millisecond.
+   */
+  void updateSavedTime(Entry entry, long hitNanos) {
+    long nanos = entry.optimizeNanos - hitNanos;
+    if (nanos <= 0) {
+      return;
+    }
+    long before = savedNanos.getAndAdd(nanos);
+    long millis =
+      TimeUnit.NANOSECONDS.toMillis(before + nanos) - TimeUnit.NANOSECONDS.toMillis(before);
+    if (millis > 0) {
+      GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME.update(millis);
+    }
+  }
+
+  public long size() {
+    return choices.size();
+  }
+}
@@ -88,6 +88,7 @@ public class QueryOptimizer {
   private final boolean useIndexes;
   private final boolean costBased;
   private long indexPendingDisabledThreshold;
+  private final PlanChoiceCache planChoiceCache;
 
   public QueryOptimizer(QueryServices services) {
     this.services = services;
@@ -98,6 +99,11 @@ public class QueryOptimizer {
     this.indexPendingDisabledThreshold =
       this.services.getProps().getLong(QueryServices.INDEX_PENDING_DISABLE_THRESHOLD,
         QueryServicesOptions.DEFAULT_INDEX_PENDING_DISABLE_THRESHOLD);
+    int planChoiceCacheSize = this.services.getProps()
+      .getInt(QueryServices.PLAN_CHOICE_CACHE_SIZE_ATTRIB,
+        QueryServicesOptions.DEFAULT_PLAN_CHOICE_CACHE_SIZE);
+    this.planChoiceCache =
+      planChoiceCacheSize > 0 ? new PlanChoiceCache(planChoiceCacheSize) : null;
   }
 
   public QueryPlan optimize(PhoenixStatement statement, QueryPlan dataPlan) throws SQLException {
@@ -225,6 +231,7 @@ public class QueryOptimizer {
   private List<QueryPlan> getApplicablePlansForSingleFlatQuery(QueryPlan dataPlan,
     PhoenixStatement statement, List<? extends PDatum> targetColumns,
     ParallelIteratorFactory parallelIteratorFactory, boolean stopAtBestPlan) throws SQLException {
+    long startNanos = System.nanoTime();
     SelectStatement select = (SelectStatement) dataPlan.getStatement();
     String indexHint = select.getHint().getHint(Hint.INDEX);
     // Exit early if we have a point lookup w/o index hint as we can't get better than that
@@ -314,6 +321,22 @@ public class QueryOptimizer {
       }
     }
 
+    String planChoiceKey = null;
+    if (planChoiceCache != null && stopAtBestPlan && hintedPlan == null && !forCDC) {
+      planChoiceKey = PlanChoiceCache.getKey(statement.getConnection().getTenantId(), select,
+        dataPlan.getTableRef().getTable());
+      PlanChoiceCache.Entry choice =
+        planChoiceKey == null ? null : planChoiceCache.get(planChoiceKey);
+      if (choice != null) {
+        QueryPlan plan = getChosenPlan(choice, statement, select, translatedIndexSelect, indexes,
+          targetColumns, parallelIteratorFactory, dataPlan);
+        if (plan != null) {
+          planChoiceCache.updateSavedTime(choice, System.nanoTime() - startNanos);
+          return Collections.singletonList(plan);
+        }
+      }
+    }
+
     for (PTable index : indexes) {
       if (CDCUtil.isCDCIndex(index) && !forCDC) {
         // A CDC index is allowed only for the queries on its CDC table because a CDC index
@@ -329,7 +352,7 @@ public class QueryOptimizer {
       ) {
         // Query can't possibly return anything so just return this plan.
         if (plan.isDegenerate()) {
-          return Collections.singletonList(plan);
+          return cachePlanChoice(planChoiceKey, Collections.singletonList(plan), startNanos);
         }
         plans.add(plan);
       }
@@ -350,10 +373,55 @@ public class QueryOptimizer {
 
     // OrderPlans
     return hintedPlan == null
-      ? orderPlansBestToWorst(select, applicablePlans, stopAtBestPlan)
+      ? cachePlanChoice(planChoiceKey,
+        orderPlansBestToWorst(select, applicablePlans, stopAtBestPlan), startNanos)
       : applicablePlans;
   }
 
+  /**
+   * Compiles the plan of the table or index of a cached plan choice, or returns null if that plan
+   * cannot be used for the query, for example when a partial index does not cover the query with
+   * its bind values.
+   */
+  private QueryPlan getChosenPlan(PlanChoiceCache.Entry choice, PhoenixStatement statement,
+    SelectStatement select, SelectStatement translatedIndexSelect, List<PTable> indexes,
+    List<? extends PDatum> targetColumns, ParallelIteratorFactory parallelIteratorFactory,
+    QueryPlan dataPlan) throws SQLException {
+    if (choice.getIndexName() == null) {
+      return dataPlan.isApplicable() ? dataPlan : null;
+    }
+    for (PTable index : indexes) {
+      if (!index.getName().getString().equals(choice.getIndexName())) {
+        continue;
+      }
+      QueryPlan plan = addPlan(statement, translatedIndexSelect, index, targetColumns,
+        parallelIteratorFactory, dataPlan, false, null);
+      if (
+        plan != null && plan.isApplicable()
+          && (index.getIndexWhere() == null || isPartialIndexUsable(select, dataPlan, index))
+      ) {
+        return plan;
+      }
+      return null;
+    }
+    return null;
+  }
+
+  /**
+   * Caches which table or index the best of the given plans reads, along with the time spent to
+   * compile and order the plans.
+   */
+  private List<QueryPlan> cachePlanChoice(String planChoiceKey, List<QueryPlan> plans,
+    long startNanos) {
+    if (planChoiceKey != null) {
+      PTable table = plans.get(0).getTableRef().getTable();
+      planChoiceCache.put(planChoiceKey,
+        table.getType() == PTableType.INDEX ? table.getName().getString() : null,
+        System.nanoTime() - startNanos);
+    }
+    return plans;
+  }
+
   private QueryPlan getHintedQueryPlan(PhoenixStatement statement, SelectStatement select,
     List<PTable> indexes, List<? extends PDatum> targetColumns,
     ParallelIteratorFactory parallelIteratorFactory, List<QueryPlan> plans) throws SQLException {
@@ -18,6 +18,8 @@
 package org.apache.phoenix.query;
 
 import java.util.concurrent.ThreadPoolExecutor;
+import org.apache.phoenix.iterate.RegionServerScanScheduler;
+import org.apache.phoenix.jdbc.ParsedStatementCache;
 import org.apache.phoenix.job.JobManager;
 import org.apache.phoenix.memory.GlobalMemoryManager;
 import org.apache.phoenix.memory.MemoryManager;
@@ -30,17 +32,47 @@ import org.apache.phoenix.util.ReadOnlyProps;
  */
 public abstract class BaseQueryServicesImpl implements QueryServices {
   private final ThreadPoolExecutor executor;
+  private final ThreadPoolExecutor mutationSendExecutor;
+  private final ThreadPoolExecutor commitExecutor;
   private final MemoryManager memoryManager;
   private final ReadOnlyProps props;
   private final QueryOptimizer queryOptimizer;
+  private final ParsedStatementCache parsedStatementCache;
+  private final RegionServerScanScheduler regionServerScanScheduler;
 
   public BaseQueryServicesImpl(ReadOnlyProps defaultProps, QueryServicesOptions options) {
     this.executor = JobManager.createThreadPoolExec(options.getKeepAliveMs(),
-      options.getThreadPoolSize(), options.getQueueSize(), options.isGlobalMetricsEnabled());
+      options.getThreadPoolSize(), options.getQueueSize(), options.isGlobalMetricsEnabled(),
+      options.isFairSchedulingEnabled(), options.getFairSchedulingTenantWeights(),
+      options.isVirtualThreadsEnabled());
     this.memoryManager =
       new GlobalMemoryManager(Runtime.getRuntime().maxMemory() * options.getMaxMemoryPerc() / 100);
     this.props = options.getProps(defaultProps);
     this.queryOptimizer = new QueryOptimizer(this);
+    int parsedStatementCacheSize = props.getInt(QueryServices.PARSED_STATEMENT_CACHE_SIZE_ATTRIB,
+      QueryServicesOptions.DEFAULT_PARSED_STATEMENT_CACHE_SIZE);
+    this.parsedStatementCache =
+      parsedStatementCacheSize > 0 ? new ParsedStatementCache(parsedStatementCacheSize) : null;
+    int parallelScansPerServer = props.getInt(QueryServices.PARALLEL_SCANS_PER_SERVER_ATTRIB,
+      QueryServicesOptions.DEFAULT_PARALLEL_SCANS_PER_SERVER);
+    this.regionServerScanScheduler = parallelScansPerServer > 0
+      ? new RegionServerScanScheduler(parallelScansPerServer)
+      : null;
+    // Kept apart from the scan executor, since sending a table may itself wait on tasks of the
+    // scan executor, for example to add the index metadata to the server cache
+    this.mutationSendExecutor = JobManager.createThreadPoolExec(options.getKeepAliveMs(),
+      props.getInt(QueryServices.MUTATE_PARALLEL_COMMIT_THREADS_ATTRIB,
+        QueryServicesOptions.DEFAULT_MUTATE_PARALLEL_COMMIT_THREADS),
+      props.getInt(QueryServices.MUTATE_PARALLEL_COMMIT_QUEUE_SIZE_ATTRIB,
+        QueryServicesOptions.DEFAULT_MUTATE_PARALLEL_COMMIT_QUEUE_SIZE),
+      false, false, null, options.isVirtualThreadsEnabled());
+    // Commits wait on both executors above, so they run on their own as well
+    this.commitExecutor = JobManager.createThreadPoolExec(options.getKeepAliveMs(),
+      props.getInt(QueryServices.COMMIT_ASYNC_THREADS_ATTRIB,
+        QueryServicesOptions.DEFAULT_COMMIT_ASYNC_THREADS),
+      props.getInt(QueryServices.COMMIT_ASYNC_QUEUE_SIZE_ATTRIB,
+        QueryServicesOptions.DEFAULT_COMMIT_ASYNC_QUEUE_SIZE),
+      false, false, null, options.isVirtualThreadsEnabled());
   }
 
   @Override
@@ -48,6 +80,16 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
     return executor;
   }
 
+  @Override
+  public ThreadPoolExecutor getMutationSendExecutor() {
+    return mutationSendExecutor;
+  }
+
+  @Override
+  public ThreadPoolExecutor getCommitExecutor() {
+    return commitExecutor;
+  }
+
   @Override
   public MemoryManager getMemoryManager() {
     return memoryManager;
@@ -68,4 +110,14 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
   public QueryOptimizer getOptimizer() {
     return queryOptimizer;
   }
+
+  @Override
+  public ParsedStatementCache getParsedStatementCache() {
+    return parsedStatementCache;
+  }
+
+  @Override
+  public RegionServerScanScheduler getRegionServerScanScheduler() {
+    return regionServerScanScheduler;
+  }
 }
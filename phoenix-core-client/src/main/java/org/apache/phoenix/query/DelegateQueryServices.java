@@ -19,6 +19,8 @@ package org.apache.phoenix.query;
 
 import java.sql.SQLException;
 import java.util.concurrent.ThreadPoolExecutor;
+import org.apache.phoenix.iterate.RegionServerScanScheduler;
+import org.apache.phoenix.jdbc.ParsedStatementCache;
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
 import org.apache.phoenix.util.ReadOnlyProps;
@@ -43,6 +45,16 @@ public class DelegateQueryServices implements QueryServices {
     return parent.getExecutor();
   }
 
+  @Override
+  public ThreadPoolExecutor getMutationSendExecutor() {
+    return parent.getMutationSendExecutor();
+  }
+
+  @Override
+  public ThreadPoolExecutor getCommitExecutor() {
+    return parent.getCommitExecutor();
+  }
+
   @Override
   public MemoryManager getMemoryManager() {
     return parent.getMemoryManager();
@@ -62,4 +74,14 @@ public class DelegateQueryServices implements QueryServices {
   public QueryOptimizer getOptimizer() {
     return parent.getOptimizer();
   }
+
+  @Override
+  public ParsedStatementCache getParsedStatementCache() {
+    return parent.getParsedStatementCache();
+  }
+
+  @Override
+  public RegionServerScanScheduler getRegionServerScanScheduler() {
+    return parent.getRegionServerScanScheduler();
+  }
 }
@@ -20,6 +20,8 @@ package org.apache.phoenix.query;
 import java.util.concurrent.ThreadPoolExecutor;
 import net.jcip.annotations.Immutable;
 import org.apache.phoenix.iterate.SpoolTooBigToDiskException;
+import org.apache.phoenix.iterate.RegionServerScanScheduler;
+import org.apache.phoenix.jdbc.ParsedStatementCache;
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
 import org.apache.phoenix.util.ReadOnlyProps;
@@ -36,6 +38,24 @@ public interface QueryServices extends SQLCloseable {
   public static final String KEEP_ALIVE_MS_ATTRIB = "phoenix.query.keepAliveMs";
   public static final String THREAD_POOL_SIZE_ATTRIB = "phoenix.query.threadPoolSize";
   public static final String QUEUE_SIZE_ATTRIB = "phoenix.query.queueSize";
+  // Maximum number of parallel scans opened concurrently per region server, 0 for no limit
+  public static final String PARALLEL_SCANS_PER_SERVER_ATTRIB =
+    "phoenix.query.parallelScansPerServer";
+  // Whether the thread pool takes queued tasks by priority class and tenant instead of round robin
+  public static final String FAIR_SCHEDULING_ENABLED_ATTRIB =
+    "phoenix.query.fairScheduling.enabled";
+  // Share of the thread pool of tenants relative to each other, as tenantId=weight,...
+  public static final String FAIR_SCHEDULING_TENANT_WEIGHTS_ATTRIB =
+    "phoenix.query.fairScheduling.tenantWeights";
+  // Estimated bytes scanned from which the tasks of a query get the low priority class
+  public static final String FAIR_SCHEDULING_LOW_PRIORITY_BYTES_ATTRIB =
+    "phoenix.query.fairScheduling.lowPriorityBytes";
+  // Whether the tasks of the thread pool run on virtual threads, if the JVM supports them
+  public static final String VIRTUAL_THREADS_ENABLED_ATTRIB =
+    "phoenix.query.virtualThreads.enabled";
+  // Offset from which ORDER BY ... LIMIT ... OFFSET queries use a two phase top-N, -1 to disable
+  public static final String TWO_PHASE_TOPN_MIN_OFFSET_ATTRIB =
+    "phoenix.query.twoPhaseTopN.minOffset";
   public static final String THREAD_TIMEOUT_MS_ATTRIB = "phoenix.query.timeoutMs";
   public static final String SERVER_SPOOL_THRESHOLD_BYTES_ATTRIB =
     "phoenix.query.server.spoolThresholdBytes";
@@ -85,6 +105,12 @@ public interface QueryServices extends SQLCloseable {
   public static final String MAX_TENANT_MEMORY_PERC_ATTRIB =
     "phoenix.query.maxTenantMemoryPercentage";
   public static final String MAX_SERVER_CACHE_SIZE_ATTRIB = "phoenix.query.maxServerCacheBytes";
+  // Whether a bloom filter and min/max range of the build side join keys of an inner or semi hash
+  // join are sent along with the probe side scan to reject rows that cannot join
+  public static final String HASH_JOIN_RUNTIME_FILTER_ENABLED_ATTRIB =
+    "phoenix.query.hashJoin.runtimeFilter.enabled";
+  public static final String HASH_JOIN_RUNTIME_FILTER_MAX_BYTES_ATTRIB =
+    "phoenix.query.hashJoin.runtimeFilter.maxBytes";
   public static final String APPLY_TIME_ZONE_DISPLACMENT_ATTRIB =
     "phoenix.query.applyTimeZoneDisplacement";
   public static final String DATE_FORMAT_TIMEZONE_ATTRIB = "phoenix.query.dateFormatTimeZone";
@@ -103,6 +129,17 @@ public interface QueryServices extends SQLCloseable {
 
   public static final String MUTATE_BATCH_SIZE_ATTRIB = "phoenix.mutate.batchSize";
   public static final String MUTATE_BATCH_SIZE_BYTES_ATTRIB = "phoenix.mutate.batchSizeBytes";
+  // Whether the mutations of independent tables in the same commit phase are sent concurrently
+  public static final String MUTATE_PARALLEL_COMMIT_ENABLED_ATTRIB =
+    "phoenix.mutate.parallelCommit.enabled";
+  // Size of the thread pool and of the queue that the tables of a commit phase are sent on
+  public static final String MUTATE_PARALLEL_COMMIT_THREADS_ATTRIB =
+    "phoenix.mutate.parallelCommit.threads";
+  public static final String MUTATE_PARALLEL_COMMIT_QUEUE_SIZE_ATTRIB =
+    "phoenix.mutate.parallelCommit.queueSize";
+  // Size of the thread pool and of the queue that PhoenixConnection.commitAsync() commits on
+  public static final String COMMIT_ASYNC_THREADS_ATTRIB = "phoenix.commit.async.threads";
+  public static final String COMMIT_ASYNC_QUEUE_SIZE_ATTRIB = "phoenix.commit.async.queueSize";
   public static final String MAX_SERVER_CACHE_TIME_TO_LIVE_MS_ATTRIB =
     "phoenix.coprocessor.maxServerCacheTimeToLiveMs";
   public static final String MAX_SERVER_CACHE_PERSISTENCE_TIME_TO_LIVE_MS_ATTRIB =
@@ -124,8 +161,14 @@ public interface QueryServices extends SQLCloseable {
   public static final String GROUPBY_MAX_CACHE_SIZE_ATTRIB = "phoenix.groupby.maxCacheSize";
   public static final String GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB =
     "phoenix.groupby.estimatedDistinctValues";
+  // Use the open addressing, slab allocated group by cache instead of the LRU map based one
+  public static final String GROUPBY_OFF_HEAP_ATTRIB = "phoenix.groupby.offHeap";
+  public static final String GROUPBY_OFF_HEAP_SLAB_SIZE_ATTRIB = "phoenix.groupby.offHeap.slabSize";
   public static final String AGGREGATE_CHUNK_SIZE_INCREASE_ATTRIB =
     "phoenix.aggregate.chunk_size_increase";
+  // Fold COUNT, SUM, MIN and MAX over numeric values a batch of rows at a time on the server
+  public static final String AGGREGATE_BATCH_ENABLED_ATTRIB = "phoenix.aggregate.batch.enabled";
+  public static final String AGGREGATE_BATCH_SIZE_ATTRIB = "phoenix.aggregate.batch.size";
 
   public static final String CALL_QUEUE_PRODUCER_ATTRIB_NAME = "CALL_QUEUE_PRODUCER";
 
@@ -150,6 +193,11 @@ public interface QueryServices extends SQLCloseable {
     "phoenix.coprocessor.maxMetaDataCacheSize";
   public static final String MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB =
     "phoenix.client.maxMetaDataCacheSize";
+  // Max number of parsed queries kept by SQL text, zero disables the cache
+  public static final String PARSED_STATEMENT_CACHE_SIZE_ATTRIB =
+    "phoenix.query.parsedStatementCache.size";
+  // Max number of plan choices kept by query and table DDL timestamps, zero disables the cache
+  public static final String PLAN_CHOICE_CACHE_SIZE_ATTRIB = "phoenix.query.planChoiceCache.size";
   public static final String HA_GROUP_NAME_ATTRIB = "phoenix.ha.group";
   public static final String AUTO_UPGRADE_WHITELIST_ATTRIB = "phoenix.client.autoUpgradeWhiteList";
   // Mainly for testing to force spilling
@@ -368,6 +416,11 @@ public interface QueryServices extends SQLCloseable {
     "phoenix.default.multitenant.immutable.storage.scheme";
 
   public static final String STATS_COLLECTION_ENABLED = "phoenix.stats.collection.enabled";
+  // Whether flushes and bulk loads merge the statistics of their new data into SYSTEM.STATS
+  public static final String STATS_INCREMENTAL_ENABLED = "phoenix.stats.incremental.enabled";
+  // Whether histograms and distinct value counts of columns are collected and used for planning
+  public static final String STATS_COLUMN_STATISTICS_ENABLED =
+    "phoenix.stats.columnStatistics.enabled";
   public static final String USE_STATS_FOR_PARALLELIZATION = "phoenix.use.stats.parallelization";
 
   // whether to enable server side RS -> RS calls for upsert select statements
@@ -421,6 +474,21 @@ public interface QueryServices extends SQLCloseable {
   // The minimum age of an unverified global index row to be eligible for deletion
   public static final String GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB =
     "phoenix.global.index.row.age.threshold.to.delete.ms";
+  // The max number of unverified global index rows repaired together by a single lookup of the
+  // data table, 1 to repair them one by one
+  public static final String GLOBAL_INDEX_READ_REPAIR_BATCH_SIZE_ATTRIB =
+    "phoenix.global.index.read.repair.batch.size";
+  // Enable the sweep of the unverified global index rows older than the age threshold to delete
+  // during the major compactions of global index tables
+  public static final String GLOBAL_INDEX_COMPACTION_SWEEP_ENABLED_ATTRIB =
+    "phoenix.global.index.compaction.sweep.enabled";
+  // The max number of unverified global index rows verified together by a single lookup of the
+  // data table during a compaction
+  public static final String GLOBAL_INDEX_COMPACTION_SWEEP_BATCH_SIZE_ATTRIB =
+    "phoenix.global.index.compaction.sweep.batch.size";
+  // The max number of data table rows read per second by the sweep of a compaction, 0 for no limit
+  public static final String GLOBAL_INDEX_COMPACTION_SWEEP_MAX_READS_PER_SEC_ATTRIB =
+    "phoenix.global.index.compaction.sweep.max.reads.per.sec";
   // Enable the IndexRegionObserver coprocessor
   public static final String INDEX_REGION_OBSERVER_ENABLED_ATTRIB =
     "phoenix.index.region.observer.enabled";
@@ -447,6 +515,10 @@ public interface QueryServices extends SQLCloseable {
   public static final String PHOENIX_TABLE_TTL_ENABLED = "phoenix.table.ttl.enabled";
   // Phoenix TTL/Compaction implemented by CompactionScanner and TTLRegionScanner is enabled
   public static final String PHOENIX_COMPACTION_ENABLED = "phoenix.compaction.enabled";
+  // Use the cell time ranges of the store files and memstores of a region to mask all its rows or
+  // none of them at once when a literal TTL expires all its cells or none of them
+  public static final String PHOENIX_TTL_TIME_RANGE_CHECK_ENABLED =
+    "phoenix.ttl.time.range.check.enabled";
   // Copied here to avoid dependency on hbase-server
   public static final String WAL_EDIT_CODEC_ATTRIB = "hbase.regionserver.wal.codec";
   // Property to know whether TTL at View Level is enabled
@@ -537,6 +609,11 @@ public interface QueryServices extends SQLCloseable {
 
   // The max point keys that can be generated for large in list clause
   public static final String MAX_IN_LIST_SKIP_SCAN_SIZE = "phoenix.max.inList.skipScan.size";
+  // The min point keys of a skip scan for them to be sent to the servers in a prefix compressed
+  // block instead of as key ranges, or 0 to always send key ranges. Only servers that support the
+  // compact form can deserialize it.
+  public static final String SKIP_SCAN_COMPACT_POINT_KEYS_MIN_SIZE_ATTRIB =
+    "phoenix.skipScan.compactPointKeys.minSize";
 
   /**
    * Parameter to skip the system tables existence check to avoid unnecessary calls to Region server
@@ -671,4 +748,25 @@ public interface QueryServices extends SQLCloseable {
    * Get query optimizer used to choose the best query plan
    */
   public QueryOptimizer getOptimizer();
+
+  /**
+   * Get the cache of parsed queries, or null if it is disabled
+   */
+  public ParsedStatementCache getParsedStatementCache();
+
+  /**
+   * Get the scheduler of the parallel scans per region server, or null if the scans are not
+   * limited per region server
+   */
+  public RegionServerScanScheduler getRegionServerScanScheduler();
+
+  /**
+   * Get executor service used to send the mutations of the tables of a commit phase concurrently
+   */
+  public ThreadPoolExecutor getMutationSendExecutor();
+
+  /**
+   * Get executor service used to run the commits of PhoenixConnection.commitAsync()
+   */
+  public ThreadPoolExecutor getCommitExecutor();
 }
@@ -58,6 +58,7 @@ import static org.apache.phoenix.query.QueryServices.EXTRA_JDBC_ARGUMENTS_ATTRIB
 import static org.apache.phoenix.query.QueryServices.FORCE_ROW_KEY_ORDER_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GLOBAL_METRICS_ENABLED;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_MAX_CACHE_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_OFF_HEAP_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILL_FILES_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.HBASE_CLIENT_SCANNER_TIMEOUT_ATTRIB;
@@ -128,6 +129,8 @@ import static org.apache.phoenix.query.QueryServices.USE_INDEXES_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.USE_STATS_FOR_PARALLELIZATION;
 import static org.apache.phoenix.query.QueryServices.WAL_EDIT_CODEC_ATTRIB;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Coprocessor;
@@ -155,6 +158,11 @@ public class QueryServicesOptions {
   public static final int DEFAULT_KEEP_ALIVE_MS = 60000;
   public static final int DEFAULT_THREAD_POOL_SIZE = 128;
   public static final int DEFAULT_QUEUE_SIZE = 5000;
+  public static final int DEFAULT_PARALLEL_SCANS_PER_SERVER = 0;
+  public static final boolean DEFAULT_FAIR_SCHEDULING_ENABLED = false;
+  public static final long DEFAULT_FAIR_SCHEDULING_LOW_PRIORITY_BYTES = 1024L * 1024 * 1024; // 1GB
+  public static final boolean DEFAULT_VIRTUAL_THREADS_ENABLED = false;
+  public static final int DEFAULT_TWO_PHASE_TOPN_MIN_OFFSET = -1;
   public static final int UNLIMITED_QUEUE_SIZE = -1;
   public static final int DEFAULT_THREAD_TIMEOUT_MS = 600000; // 10min
   public static final int DEFAULT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
@@ -167,6 +175,8 @@ public class QueryServicesOptions {
   public static final int DEFAULT_MAX_MEMORY_PERC = 15; // 15% of heap
   public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
   public static final long DEFAULT_MAX_SERVER_CACHE_SIZE = 1024 * 1024 * 100; // 100 Mb
+  public static final boolean DEFAULT_HASH_JOIN_RUNTIME_FILTER_ENABLED = false;
+  public static final int DEFAULT_HASH_JOIN_RUNTIME_FILTER_MAX_BYTES = 1024 * 1024; // 1 Mb
   public static final int DEFAULT_TARGET_QUERY_CONCURRENCY = 32;
   public static final int DEFAULT_MAX_QUERY_CONCURRENCY = 64;
   public static final String DEFAULT_DATE_FORMAT = DateUtil.DEFAULT_DATE_FORMAT;
@@ -175,6 +185,11 @@ public class QueryServicesOptions {
   public static final int DEFAULT_MAX_MUTATION_SIZE = 500000;
   public static final int DEFAULT_MAX_MUTATION_SIZE_BYTES = 104857600; // 100 Mb
   public static final boolean DEFAULT_PRESERVE_MUTATIONS_ON_LIMIT_EXCEEDED = false;
+  public static final boolean DEFAULT_MUTATE_PARALLEL_COMMIT_ENABLED = false;
+  public static final int DEFAULT_MUTATE_PARALLEL_COMMIT_THREADS = 16;
+  public static final int DEFAULT_MUTATE_PARALLEL_COMMIT_QUEUE_SIZE = 256;
+  public static final int DEFAULT_COMMIT_ASYNC_THREADS = 16;
+  public static final int DEFAULT_COMMIT_ASYNC_QUEUE_SIZE = 1000;
   public static final int DEFAULT_HBASE_CLIENT_KEYVALUE_MAXSIZE = 10485760; // 10 Mb
   public static final boolean DEFAULT_USE_INDEXES = true; // Use indexes
   public static final boolean DEFAULT_IMMUTABLE_ROWS = false; // Tables rows may be updated
@@ -203,6 +218,8 @@ public class QueryServicesOptions {
   public static final int DEFAULT_MAX_INTRA_REGION_PARALLELIZATION = DEFAULT_MAX_QUERY_CONCURRENCY;
   public static final int DEFAULT_DISTINCT_VALUE_COMPRESS_THRESHOLD = 1024 * 1024 * 1; // 1 Mb
   public static final int DEFAULT_AGGREGATE_CHUNK_SIZE_INCREASE = 1024 * 1024 * 1; // 1 Mb
+  public static final boolean DEFAULT_AGGREGATE_BATCH_ENABLED = false;
+  public static final int DEFAULT_AGGREGATE_BATCH_SIZE = 1024;
   public static final int DEFAULT_INDEX_MUTATE_BATCH_SIZE_THRESHOLD = 3;
   public static final boolean DEFAULT_INDEX_USE_SERVER_METADATA = true;
   public static final long DEFAULT_MAX_SPOOL_TO_DISK_BYTES = 1024000000;
@@ -214,6 +231,7 @@ public class QueryServicesOptions {
   public static final boolean DEFAULT_IS_NAMESPACE_MAPPING_ENABLED = false;
   public static final boolean DEFAULT_IS_SYSTEM_TABLE_MAPPED_TO_NAMESPACE = true;
   public static final int DEFAULT_MAX_IN_LIST_SKIP_SCAN_SIZE = 50000;
+  public static final int DEFAULT_SKIP_SCAN_COMPACT_POINT_KEYS_MIN_SIZE = 0;
 
   //
   // Spillable GroupBy - SPGBY prefix
@@ -225,6 +243,10 @@ public class QueryServicesOptions {
   public static final int DEFAULT_GROUPBY_SPILL_FILES = 2;
   // Max size of 1st level main memory cache in bytes --> upper bound
   public static final long DEFAULT_GROUPBY_MAX_CACHE_MAX = 1024L * 1024L * 100L; // 100 Mb
+  // Keep group by keys in off heap slabs indexed by an open addressing table instead of a map
+  public static final boolean DEFAULT_GROUPBY_OFF_HEAP = false;
+  // Size of a single off heap slab of the group by cache
+  public static final int DEFAULT_GROUPBY_OFF_HEAP_SLAB_SIZE = 1024 * 1024; // 1 Mb
 
   public static final long DEFAULT_SEQUENCE_CACHE_SIZE = 100; // reserve 100 sequences at a time
   public static final int GLOBAL_INDEX_CHECKER_ENABLED_MAP_EXPIRATION_MIN = 10;
@@ -232,6 +254,8 @@ public class QueryServicesOptions {
                                                                                            // mins
   public static final long DEFAULT_MAX_SERVER_METADATA_CACHE_SIZE = 1024L * 1024L * 20L; // 20 Mb
   public static final long DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE = 1024L * 1024L * 10L; // 10 Mb
+  public static final int DEFAULT_PARSED_STATEMENT_CACHE_SIZE = 0;
+  public static final int DEFAULT_PLAN_CHOICE_CACHE_SIZE = 0;
   public static final int DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES = 1000;
   public static final int DEFAULT_CLOCK_SKEW_INTERVAL = 2000;
   public static final boolean DEFAULT_INDEX_FAILURE_HANDLING_REBUILD = true; // auto rebuild on
@@ -403,6 +427,8 @@ public class QueryServicesOptions {
   public static final boolean DEFAULT_CONNECTION_EXPLAIN_PLAN_LOGGING_ENABLED = false;
   public static final int DEFAULT_CONNECTION_ACTIVITY_LOGGING_INTERVAL_IN_MINS = 15;
   public static final boolean DEFAULT_STATS_COLLECTION_ENABLED = true;
+  public static final boolean DEFAULT_STATS_INCREMENTAL_ENABLED = false;
+  public static final boolean DEFAULT_STATS_COLUMN_STATISTICS_ENABLED = false;
   public static final boolean DEFAULT_USE_STATS_FOR_PARALLELIZATION = true;
 
   // Security defaults
@@ -432,6 +458,10 @@ public class QueryServicesOptions {
 
   public static final long DEFAULT_GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS =
     7 * 24 * 60 * 60 * 1000; /* 7 days */
+  public static final int DEFAULT_GLOBAL_INDEX_READ_REPAIR_BATCH_SIZE = 1;
+  public static final boolean DEFAULT_GLOBAL_INDEX_COMPACTION_SWEEP_ENABLED = false;
+  public static final int DEFAULT_GLOBAL_INDEX_COMPACTION_SWEEP_BATCH_SIZE = 100;
+  public static final int DEFAULT_GLOBAL_INDEX_COMPACTION_SWEEP_MAX_READS_PER_SEC = 1000;
   public static final boolean DEFAULT_INDEX_REGION_OBSERVER_ENABLED = true;
   public static final boolean DEFAULT_SERVER_SIDE_IMMUTABLE_INDEXES_ENABLED = false;
 
@@ -485,6 +515,7 @@ public class QueryServicesOptions {
   public static final boolean DEFAULT_APPLY_TIME_ZONE_DISPLACMENT = false;
   public static final boolean DEFAULT_PHOENIX_TABLE_TTL_ENABLED = true;
   public static final boolean DEFAULT_PHOENIX_COMPACTION_ENABLED = true;
+  public static final boolean DEFAULT_PHOENIX_TTL_TIME_RANGE_CHECK_ENABLED = false;
   public static final boolean DEFAULT_PHOENIX_VIEW_TTL_ENABLED = false;
   public static final int DEFAULT_PHOENIX_VIEW_TTL_TENANT_VIEWS_PER_SCAN_LIMIT = 100;
 
@@ -759,6 +790,10 @@ public class QueryServicesOptions {
     return set(GROUPBY_SPILL_FILES_ATTRIB, num);
   }
 
+  public QueryServicesOptions setGroupByOffHeap(boolean enabled) {
+    return set(GROUPBY_OFF_HEAP_ATTRIB, enabled);
+  }
+
   QueryServicesOptions set(String name, boolean value) {
     config.set(name, Boolean.toString(value));
     return this;
@@ -791,6 +826,38 @@ public class QueryServicesOptions {
     return config.getInt(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE);
   }
 
+  public boolean isVirtualThreadsEnabled() {
+    return config.getBoolean(QueryServices.VIRTUAL_THREADS_ENABLED_ATTRIB,
+      DEFAULT_VIRTUAL_THREADS_ENABLED);
+  }
+
+  public boolean isFairSchedulingEnabled() {
+    return config.getBoolean(QueryServices.FAIR_SCHEDULING_ENABLED_ATTRIB,
+      DEFAULT_FAIR_SCHEDULING_ENABLED);
+  }
+
+  /**
+   * Returns the weights of tenants for fair scheduling, parsed from a comma separated list of
+   * tenantId=weight pairs. Malformed pairs are ignored.
+   */
+  public Map<String, Integer> getFairSchedulingTenantWeights() {
+    Map<String, Integer> tenantWeights = new HashMap<>();
+    for (String pair : config.getTrimmedStrings(
+      QueryServices.FAIR_SCHEDULING_TENANT_WEIGHTS_ATTRIB)) {
+      int index = pair.lastIndexOf('=');
+      if (index <= 0) {
+        continue;
+      }
+      try {
+        tenantWeights.put(pair.substring(0, index).trim(),
+          Integer.parseInt(pair.substring(index + 1).trim()));
+      } catch (NumberFormatException e) {
+        // Ignore the pair, the tenant gets the default weight
+      }
+    }
+    return tenantWeights;
+  }
+
   public int getMaxMemoryPerc() {
     return config.getInt(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC);
   }
@@ -832,6 +899,10 @@ public class QueryServicesOptions {
     return config.getInt(GROUPBY_SPILL_FILES_ATTRIB, DEFAULT_GROUPBY_SPILL_FILES);
   }
 
+  public boolean isOffHeapGroupByEnabled() {
+    return config.getBoolean(GROUPBY_OFF_HEAP_ATTRIB, DEFAULT_GROUPBY_OFF_HEAP);
+  }
+
   public boolean isTracingEnabled() {
     return config.getBoolean(TRACING_ENABLED, DEFAULT_TRACING_ENABLED);
   }
@@ -71,6 +71,14 @@ class StatsLoaderImpl implements PhoenixStatsLoader {
     try {
       GuidePostsInfo guidePostsInfo =
         StatisticsUtil.readStatistics(statsHTable, statsKey, HConstants.LATEST_TIMESTAMP);
+      if (
+        guidePostsInfo != GuidePostsInfo.NO_GUIDEPOST
+          && queryServices.getProps().getBoolean(QueryServices.STATS_COLUMN_STATISTICS_ENABLED,
+            QueryServicesOptions.DEFAULT_STATS_COLUMN_STATISTICS_ENABLED)
+      ) {
+        guidePostsInfo.setColumnStatistics(StatisticsUtil.readColumnStatistics(statsHTable,
+          statsKey, HConstants.LATEST_TIMESTAMP));
+      }
       traceStatsUpdate(statsKey, guidePostsInfo);
       return guidePostsInfo;
     } catch (TableNotFoundException e) {
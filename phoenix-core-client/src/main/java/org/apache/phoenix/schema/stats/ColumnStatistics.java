@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import com.clearspring.analytics.hash.MurmurHash;
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.util.EquiDepthStreamHistogram;
+import org.apache.phoenix.util.EquiDepthStreamHistogram.Bucket;
+import org.apache.phoenix.util.SizedUtil;
+
+/**
+ * The statistics of the values of a column: the number of values, a HyperLogLog sketch of the
+ * number of distinct values and an equi-depth histogram of the values. The statistics of a column
+ * are collected per region and combined on the client, where they are used to estimate the
+ * selectivity of the filters on the column.
+ */
+public class ColumnStatistics {
+  // Precisions of the HyperLogLog sketch, the normal one bounding its size to 16KB
+  private static final int NORMAL_SET_PRECISION = 14;
+  private static final int SPARSE_SET_PRECISION = 25;
+  static final int HISTOGRAM_BUCKETS = 32;
+
+  private final long valueCount;
+  private final HyperLogLogPlus ndvSketch;
+  private final List<Bucket> buckets;
+
+  private ColumnStatistics(long valueCount, HyperLogLogPlus ndvSketch, List<Bucket> buckets) {
+    this.valueCount = valueCount;
+    this.ndvSketch = ndvSketch;
+    this.buckets = buckets;
+  }
+
+  /**
+   * Returns the number of non null values of the column.
+   */
+  public long getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Returns the estimated number of distinct non null values of the column.
+   */
+  public long getDistinctCount() {
+    return Math.max(1, Math.min(valueCount, ndvSketch.cardinality()));
+  }
+
+  /**
+   * Returns the buckets of the histogram of the values, which are empty if there were too few
+   * values to build one. The buckets of different regions may overlap.
+   */
+  public List<Bucket> getHistogram() {
+    return buckets;
+  }
+
+  /**
+   * Returns the estimated fraction of the values that are equal to a given value.
+   */
+  public double getEqualitySelectivity() {
+    return 1.0 / getDistinctCount();
+  }
+
+  /**
+   * Returns the estimated fraction of the values that are less than, or less than or equal to, a
+   * given value in its serialized form, or null if there is no histogram.
+   */
+  public Double getLessThanSelectivity(byte[] value, boolean inclusive) {
+    if (buckets.isEmpty()) {
+      return null;
+    }
+    double totalCount = 0;
+    double count = 0;
+    for (Bucket bucket : buckets) {
+      totalCount += bucket.getCountEstimate();
+      if (Bytes.compareTo(bucket.getRightBoundExclusive(), value) <= 0) {
+        count += bucket.getCountEstimate();
+      } else {
+        int cmp = Bytes.compareTo(bucket.getLeftBoundInclusive(), value);
+        if (cmp < 0 || (inclusive && cmp == 0)) {
+          // Assume that the values within a bucket are spread evenly
+          count += bucket.getCountEstimate() / 2.0;
+        }
+      }
+    }
+    return totalCount == 0 ? null : count / totalCount;
+  }
+
+  /**
+   * Returns the statistics of the values of both this and the given statistics.
+   */
+  public ColumnStatistics merge(ColumnStatistics other) {
+    HyperLogLogPlus sketch = new HyperLogLogPlus(NORMAL_SET_PRECISION, SPARSE_SET_PRECISION);
+    try {
+      sketch.addAll(ndvSketch);
+      sketch.addAll(other.ndvSketch);
+    } catch (CardinalityMergeException e) {
+      throw new IllegalStateException(e);
+    }
+    List<Bucket> merged = new ArrayList<>(buckets.size() + other.buckets.size());
+    merged.addAll(buckets);
+    merged.addAll(other.buckets);
+    return new ColumnStatistics(valueCount + other.valueCount, sketch, merged);
+  }
+
+  public int getEstimatedSize() {
+    int size = SizedUtil.OBJECT_SIZE + SizedUtil.LONG_SIZE + ndvSketch.sizeof()
+      + SizedUtil.ARRAY_SIZE;
+    for (Bucket bucket : buckets) {
+      size += SizedUtil.OBJECT_SIZE + SizedUtil.LONG_SIZE + 2 * SizedUtil.ARRAY_SIZE
+        + bucket.getLeftBoundInclusive().length + bucket.getRightBoundExclusive().length;
+    }
+    return size;
+  }
+
+  public byte[] toBytes() throws IOException {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(stream)) {
+      WritableUtils.writeVLong(output, valueCount);
+      Bytes.writeByteArray(output, ndvSketch.getBytes());
+      WritableUtils.writeVInt(output, buckets.size());
+      for (Bucket bucket : buckets) {
+        Bytes.writeByteArray(output, bucket.getLeftBoundInclusive());
+        Bytes.writeByteArray(output, bucket.getRightBoundExclusive());
+        WritableUtils.writeVLong(output, bucket.getCountEstimate());
+      }
+    }
+    return stream.toByteArray();
+  }
+
+  public static ColumnStatistics fromBytes(byte[] bytes, int offset, int length)
+    throws IOException {
+    try (DataInputStream input =
+      new DataInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+      long valueCount = WritableUtils.readVLong(input);
+      HyperLogLogPlus sketch = HyperLogLogPlus.Builder.build(Bytes.readByteArray(input));
+      int bucketCount = WritableUtils.readVInt(input);
+      List<Bucket> buckets = new ArrayList<>(bucketCount);
+      for (int i = 0; i < bucketCount; i++) {
+        Bucket bucket = new Bucket(Bytes.readByteArray(input), Bytes.readByteArray(input));
+        bucket.incrementCountEstimate(WritableUtils.readVLong(input));
+        buckets.add(bucket);
+      }
+      return new ColumnStatistics(valueCount, sketch, buckets);
+    }
+  }
+
+  /**
+   * Collects the statistics of the values of a column one value at a time.
+   */
+  public static class Builder {
+    private final HyperLogLogPlus ndvSketch =
+      new HyperLogLogPlus(NORMAL_SET_PRECISION, SPARSE_SET_PRECISION);
+    private final EquiDepthStreamHistogram histogram =
+      new EquiDepthStreamHistogram(HISTOGRAM_BUCKETS);
+    private long valueCount;
+
+    public void addValue(byte[] value, int offset, int length) {
+      byte[] copy = new byte[length];
+      System.arraycopy(value, offset, copy, 0, length);
+      ndvSketch.offerHashed(MurmurHash.hash64(copy, length));
+      histogram.addValue(copy);
+      valueCount++;
+    }
+
+    public boolean isEmpty() {
+      return valueCount == 0;
+    }
+
+    public ColumnStatistics build() {
+      List<Bucket> buckets;
+      try {
+        buckets = histogram.computeBuckets();
+      } catch (IllegalStateException e) {
+        // Too few distinct values for a histogram
+        buckets = Collections.emptyList();
+      }
+      return new ColumnStatistics(valueCount, ndvSketch, buckets);
+    }
+  }
+}
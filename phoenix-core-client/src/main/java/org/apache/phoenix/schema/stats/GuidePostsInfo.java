@@ -20,8 +20,10 @@ package org.apache.phoenix.schema.stats;
 import edu.umd.cs.findbugs.annotations.SuppressWarnings;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.SizedUtil;
 
@@ -66,11 +68,15 @@ public class GuidePostsInfo {
   /**
    * Estimate of byte size of this instance
    */
-  private final int estimatedSize;
+  private int estimatedSize;
   /**
    * The timestamps at which guideposts were created/updated
    */
   private final long[] gpTimestamps;
+  /**
+   * The statistics of the columns of the column family keyed by column qualifier
+   */
+  private Map<ImmutableBytesPtr, ColumnStatistics> columnStatistics = Collections.emptyMap();
 
   /**
    * Constructor that creates GuidePostsInfo per region The bytecounts of each guidePost traversed
@@ -125,6 +131,25 @@ public class GuidePostsInfo {
     return estimatedSize;
   }
 
+  /**
+   * Returns the statistics of a column of the column family, or null if they were not collected.
+   */
+  public ColumnStatistics getColumnStatistics(byte[] qualifier) {
+    return columnStatistics.get(new ImmutableBytesPtr(qualifier));
+  }
+
+  /**
+   * Sets the statistics of the columns of the column family, which are loaded along with the guide
+   * posts when enabled.
+   */
+  public void setColumnStatistics(Map<ImmutableBytesPtr, ColumnStatistics> columnStatistics) {
+    for (Map.Entry<ImmutableBytesPtr, ColumnStatistics> entry : columnStatistics.entrySet()) {
+      estimatedSize += SizedUtil.MAP_ENTRY_SIZE + entry.getKey().getLength()
+        + entry.getValue().getEstimatedSize();
+    }
+    this.columnStatistics = columnStatistics;
+  }
+
   @SuppressWarnings(value = "EC_ARRAY_AND_NONARRAY",
       justification = "ImmutableBytesWritable DOES implement equals(byte])")
   public boolean isEmptyGuidePost() {
@@ -21,7 +21,13 @@ import static org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverCons
 import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
 import static org.apache.phoenix.util.SchemaUtil.getVarCharLength;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.hadoop.hbase.Cell;
@@ -37,6 +43,7 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
 import org.apache.phoenix.coprocessorclient.MetaDataProtocol;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
@@ -47,6 +54,7 @@ import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.MetaDataUtil;
 import org.apache.phoenix.util.SchemaUtil;
 
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Sets;
 
 /**
@@ -80,6 +88,14 @@ public class StatisticsUtil {
       .add(SchemaUtil.getPhysicalTableName(PhoenixDatabaseMetaData.SYSTEM_TASK_NAME_BYTES, true));
   }
 
+  /**
+   * Qualifier of the statistics of a column collected over a region. The rows of the statistics of
+   * columns have an empty column family name followed by the column family, the start key of the
+   * region and the column qualifier as their guide post key, so that they are not read as guide
+   * posts of any column family.
+   */
+  public static final byte[] COLUMN_STATISTICS_BYTES = Bytes.toBytes("COLUMN_STATISTICS");
+
   private StatisticsUtil() {
     // private ctor for utility classes
   }
@@ -222,6 +238,136 @@ public class StatisticsUtil {
       : guidePostsInfoBuilder.build();
   }
 
+  /**
+   * Returns the prefix of the keys of the rows with the statistics of the columns of a column
+   * family collected over the region with the given start key.
+   */
+  public static byte[] getColumnStatisticsRowKeyPrefix(byte[] table, ImmutableBytesWritable fam,
+    byte[] regionStartKey) {
+    byte[] key = new byte[fam.getLength() + 1 + Bytes.SIZEOF_INT + regionStartKey.length];
+    int offset = 0;
+    System.arraycopy(fam.get(), fam.getOffset(), key, offset, fam.getLength());
+    offset += fam.getLength();
+    key[offset++] = QueryConstants.SEPARATOR_BYTE;
+    offset = Bytes.putInt(key, offset, regionStartKey.length);
+    System.arraycopy(regionStartKey, 0, key, offset, regionStartKey.length);
+    return getRowKey(table, new ImmutableBytesWritable(ByteUtil.EMPTY_BYTE_ARRAY), key);
+  }
+
+  public static byte[] getColumnStatisticsRowKey(byte[] table, ImmutableBytesWritable fam,
+    byte[] regionStartKey, byte[] qualifier) {
+    return ByteUtil.concat(getColumnStatisticsRowKeyPrefix(table, fam, regionStartKey), qualifier);
+  }
+
+  /**
+   * Returns the value of the statistics of a column, which starts with the end key of the region
+   * they were collected over.
+   */
+  public static byte[] getColumnStatisticsValue(byte[] regionEndKey, ColumnStatistics stats)
+    throws IOException {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(stream)) {
+      Bytes.writeByteArray(output, regionEndKey);
+      output.write(stats.toBytes());
+    }
+    return stream.toByteArray();
+  }
+
+  /**
+   * Reads the statistics of the columns of a column family and combines the statistics of each
+   * column over all regions. The statistics of a region that has since been split or merged are
+   * kept until those of the new regions are collected, so the statistics of a region are skipped
+   * if they overlap with newer statistics of the column.
+   * @return the statistics keyed by column qualifier
+   */
+  public static Map<ImmutableBytesPtr, ColumnStatistics> readColumnStatistics(Table statsHTable,
+    GuidePostsKey key, long clientTimeStamp) throws IOException {
+    byte[] tableNameBytes = key.getPhysicalName();
+    ImmutableBytesWritable ptr = new ImmutableBytesWritable(key.getColumnFamily());
+    byte[] prefix = getRowKey(tableNameBytes, new ImmutableBytesWritable(ByteUtil.EMPTY_BYTE_ARRAY),
+      ByteUtil.concat(key.getColumnFamily(), QueryConstants.SEPARATOR_BYTE_ARRAY));
+    Scan s = MetaDataUtil.newTableRowsScan(prefix, ByteUtil.nextKey(prefix),
+      MetaDataProtocol.MIN_TABLE_TIMESTAMP, clientTimeStamp);
+    s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, COLUMN_STATISTICS_BYTES);
+    Map<ImmutableBytesPtr, List<RegionColumnStatistics>> statsByColumn = Maps.newHashMap();
+    try (ResultScanner scanner = statsHTable.getScanner(s)) {
+      Result result;
+      while ((result = scanner.next()) != null) {
+        Cell cell = result.getColumnLatestCell(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+          COLUMN_STATISTICS_BYTES);
+        if (cell == null) {
+          continue;
+        }
+        byte[] row = result.getRow();
+        int offset = prefix.length;
+        int startKeyLength = Bytes.toInt(row, offset);
+        offset += Bytes.SIZEOF_INT;
+        byte[] startKey = Bytes.copy(row, offset, startKeyLength);
+        offset += startKeyLength;
+        ImmutableBytesPtr qualifier = new ImmutableBytesPtr(Bytes.copy(row, offset,
+          row.length - offset));
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+          cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()))) {
+          byte[] endKey = Bytes.readByteArray(input);
+          int statsOffset = cell.getValueLength() - input.available();
+          ColumnStatistics stats = ColumnStatistics.fromBytes(cell.getValueArray(),
+            cell.getValueOffset() + statsOffset, cell.getValueLength() - statsOffset);
+          List<RegionColumnStatistics> regionStats = statsByColumn.get(qualifier);
+          if (regionStats == null) {
+            regionStats = new ArrayList<>();
+            statsByColumn.put(qualifier, regionStats);
+          }
+          regionStats.add(
+            new RegionColumnStatistics(startKey, endKey, cell.getTimestamp(), stats));
+        }
+      }
+    }
+    Map<ImmutableBytesPtr, ColumnStatistics> columnStats =
+      Maps.newHashMapWithExpectedSize(statsByColumn.size());
+    for (Map.Entry<ImmutableBytesPtr, List<RegionColumnStatistics>> entry : statsByColumn
+      .entrySet()) {
+      List<RegionColumnStatistics> regionStats = entry.getValue();
+      regionStats.sort((a, b) -> Long.compare(b.timeStamp, a.timeStamp));
+      List<RegionColumnStatistics> current = new ArrayList<>(regionStats.size());
+      ColumnStatistics stats = null;
+      for (RegionColumnStatistics candidate : regionStats) {
+        boolean overlaps = false;
+        for (RegionColumnStatistics newer : current) {
+          if (candidate.overlaps(newer)) {
+            overlaps = true;
+            break;
+          }
+        }
+        if (!overlaps) {
+          current.add(candidate);
+          stats = stats == null ? candidate.stats : stats.merge(candidate.stats);
+        }
+      }
+      columnStats.put(entry.getKey(), stats);
+    }
+    return columnStats;
+  }
+
+  private static class RegionColumnStatistics {
+    private final byte[] startKey;
+    private final byte[] endKey;
+    private final long timeStamp;
+    private final ColumnStatistics stats;
+
+    RegionColumnStatistics(byte[] startKey, byte[] endKey, long timeStamp,
+      ColumnStatistics stats) {
+      this.startKey = startKey;
+      this.endKey = endKey;
+      this.timeStamp = timeStamp;
+      this.stats = stats;
+    }
+
+    boolean overlaps(RegionColumnStatistics other) {
+      return (endKey.length == 0 || Bytes.compareTo(other.startKey, endKey) < 0)
+        && (other.endKey.length == 0 || Bytes.compareTo(startKey, other.endKey) < 0);
+    }
+  }
+
   public static long getGuidePostDepth(int guidepostPerRegion, long guidepostWidth,
     TableDescriptor tableDesc) {
     if (guidepostPerRegion > 0) {
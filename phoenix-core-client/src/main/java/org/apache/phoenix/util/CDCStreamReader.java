@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import org.apache.phoenix.coprocessor.generated.IndexMutationsProtos;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the change events of one partition of a CDC stream for a consumer outside of Phoenix. The
+ * reader is a cursor over the partition: every call to {@link #next()} returns the next batch of
+ * events in timestamp order, and {@link #commit()} stores the position of the last returned event
+ * in SYSTEM.IDX_CDC_TRACKER under the CDC name and the consumer id, so that a reader created later
+ * for the same consumer resumes after it. This is the tracker row layout that the IndexCDCConsumer
+ * of the eventually consistent indexes uses for its own partitions.
+ * <p>
+ * The events are returned either as the CDC JSON of the CDC object, or as
+ * {@link IndexMutationsProtos.DataRowStates} records with the row states before and after each
+ * change, which the server builds from the raw cells without building any JSON.
+ */
+public class CDCStreamReader {
+  private static final Logger LOG = LoggerFactory.getLogger(CDCStreamReader.class);
+
+  /**
+   * Only the events older than this are read, so that the events of the mutations that are still
+   * in flight with earlier timestamps are not skipped
+   */
+  public static final String CDC_STREAM_READER_TIMESTAMP_BUFFER_MS =
+    "phoenix.cdc.stream.reader.timestamp.buffer.ms";
+  private static final long DEFAULT_TIMESTAMP_BUFFER_MS = 5000;
+
+  /**
+   * The number of batches for which an event whose data row state is not visible yet is read
+   * again, before it is given up as the event of a failed data table mutation
+   */
+  public static final String CDC_STREAM_READER_MAX_DATA_VISIBILITY_RETRIES =
+    "phoenix.cdc.stream.reader.max.data.visibility.retries";
+  private static final int DEFAULT_MAX_DATA_VISIBILITY_RETRIES = 10;
+
+  /**
+   * The record format of the events
+   */
+  public enum Format {
+    /**
+     * The CDC JSON of the event, with the change scopes of the CDC object
+     */
+    JSON,
+
+    /**
+     * The data row states before and after the change, in the DATA_ROW_STATE change scope
+     */
+    DATA_ROW_STATE
+  }
+
+  /**
+   * A change event of the stream
+   */
+  public static class Event {
+    private final long timestamp;
+    private final String json;
+    private final IndexMutationsProtos.DataRowStates dataRowStates;
+
+    private Event(long timestamp, String json, IndexMutationsProtos.DataRowStates dataRowStates) {
+      this.timestamp = timestamp;
+      this.json = json;
+      this.dataRowStates = dataRowStates;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * @return the CDC JSON of the event, or null for the {@link Format#DATA_ROW_STATE} format
+     */
+    public String getJson() {
+      return json;
+    }
+
+    /**
+     * @return the row states of the event, or null for the {@link Format#JSON} format
+     */
+    public IndexMutationsProtos.DataRowStates getDataRowStates() {
+      return dataRowStates;
+    }
+
+    private boolean isDataRowVisible() {
+      return dataRowStates == null
+        || dataRowStates.hasCurrentDataRowState() || dataRowStates.hasNextDataRowState();
+    }
+  }
+
+  private final PhoenixConnection conn;
+  private final String cdcName;
+  private final String partitionId;
+  private final String consumerId;
+  private final Format format;
+  private final int batchSize;
+  private final long timestampBufferMs;
+  private final int maxDataVisibilityRetries;
+  private final String batchQuery;
+  private final String sameTimestampQuery;
+  private long position;
+  private int retryCount = 0;
+
+  /**
+   * Creates a reader that resumes from the position last committed for the consumer, or from the
+   * oldest event of the partition if there is none.
+   * @param conn        the connection to read the events with
+   * @param schemaName  the schema of the CDC object, or null
+   * @param cdcName     the name of the CDC object
+   * @param partitionId the partition of the stream, as returned by PARTITION_ID()
+   * @param consumerId  the id of the consumer the position is stored for
+   * @param format      the record format of the events
+   * @param batchSize   the number of events read at a time
+   */
+  public CDCStreamReader(PhoenixConnection conn, String schemaName, String cdcName,
+    String partitionId, String consumerId, Format format, int batchSize) throws SQLException {
+    this.conn = conn;
+    this.cdcName = SchemaUtil.getTableName(schemaName, cdcName);
+    this.partitionId = partitionId;
+    this.consumerId = consumerId;
+    this.format = format;
+    this.batchSize = batchSize;
+    ReadOnlyProps props = conn.getQueryServices().getProps();
+    this.timestampBufferMs =
+      props.getLong(CDC_STREAM_READER_TIMESTAMP_BUFFER_MS, DEFAULT_TIMESTAMP_BUFFER_MS);
+    this.maxDataVisibilityRetries = props.getInt(CDC_STREAM_READER_MAX_DATA_VISIBILITY_RETRIES,
+      DEFAULT_MAX_DATA_VISIBILITY_RETRIES);
+    String select = format == Format.DATA_ROW_STATE
+      ? "SELECT /*+ CDC_INCLUDE(DATA_ROW_STATE) */ PHOENIX_ROW_TIMESTAMP(), \"CDC JSON\" FROM "
+      : "SELECT PHOENIX_ROW_TIMESTAMP(), \"CDC JSON\" FROM ";
+    String escapedCdcName = SchemaUtil.getEscapedTableName(schemaName, cdcName);
+    this.batchQuery = select + escapedCdcName
+      + " WHERE PARTITION_ID() = ? AND PHOENIX_ROW_TIMESTAMP() > ? AND PHOENIX_ROW_TIMESTAMP() < ?"
+      + " ORDER BY PARTITION_ID() ASC, PHOENIX_ROW_TIMESTAMP() ASC LIMIT ?";
+    this.sameTimestampQuery = select + escapedCdcName
+      + " WHERE PARTITION_ID() = ? AND PHOENIX_ROW_TIMESTAMP() = ?";
+    this.position = readPosition();
+  }
+
+  private long readPosition() throws SQLException {
+    String query =
+      "SELECT LAST_TIMESTAMP FROM " + PhoenixDatabaseMetaData.SYSTEM_IDX_CDC_TRACKER_NAME
+        + " WHERE TABLE_NAME = ? AND PARTITION_ID = ? AND OWNER_PARTITION_ID = ?";
+    try (PreparedStatement ps = conn.prepareStatement(query)) {
+      ps.setString(1, cdcName);
+      ps.setString(2, partitionId);
+      ps.setString(3, consumerId);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getLong(1) : 0;
+      }
+    }
+  }
+
+  /**
+   * @return the timestamp of the last event returned by the reader
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Reads the events after the position of the reader, and moves the position to the last of
+   * them. A batch may have more events than the batch size, as the events of its last timestamp
+   * are never split across batches.
+   * @return the events, or an empty list if there is no event to read yet
+   */
+  public List<Event> next() throws SQLException {
+    List<Event> events = new ArrayList<>();
+    boolean isBatchFull;
+    try (PreparedStatement ps = conn.prepareStatement(batchQuery)) {
+      ps.setString(1, partitionId);
+      ps.setDate(2, new Date(position));
+      ps.setDate(3, new Date(EnvironmentEdgeManager.currentTimeMillis() - timestampBufferMs));
+      ps.setInt(4, batchSize);
+      isBatchFull = readEvents(ps, events) >= batchSize;
+    }
+    if (isBatchFull) {
+      // With the LIMIT, there might be more events with the last timestamp of the batch
+      final long lastTimestamp = events.get(events.size() - 1).getTimestamp();
+      events.removeIf(event -> event.getTimestamp() == lastTimestamp);
+      try (PreparedStatement ps = conn.prepareStatement(sameTimestampQuery)) {
+        ps.setString(1, partitionId);
+        ps.setDate(2, new Date(lastTimestamp));
+        readEvents(ps, events);
+      }
+    }
+    return removeInvisibleEvents(events);
+  }
+
+  private int readEvents(PreparedStatement ps, List<Event> events) throws SQLException {
+    int rowCount = 0;
+    try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        rowCount++;
+        long timestamp = rs.getDate(1).getTime();
+        String value = rs.getString(2);
+        if (value == null || value.isEmpty()) {
+          continue;
+        }
+        if (format == Format.DATA_ROW_STATE) {
+          try {
+            events.add(new Event(timestamp, null,
+              IndexMutationsProtos.DataRowStates.parseFrom(Base64.getDecoder().decode(value))));
+          } catch (IOException e) {
+            throw new SQLException("Invalid data row states of CDC " + cdcName, e);
+          }
+        } else {
+          events.add(new Event(timestamp, value, null));
+        }
+      }
+    }
+    return rowCount;
+  }
+
+  /**
+   * Cuts the batch before the first event whose data row state is not visible yet, so that it is
+   * read again with the next batch, and moves the position to the last event left. The event is
+   * skipped once it has been read again for the configured number of batches.
+   */
+  private List<Event> removeInvisibleEvents(List<Event> events) {
+    List<Event> visibleEvents = new ArrayList<>(events.size());
+    long newPosition = position;
+    long skippedTimestamp = -1;
+    for (Event event : events) {
+      if (event.isDataRowVisible()) {
+        visibleEvents.add(event);
+        newPosition = event.getTimestamp();
+        continue;
+      }
+      final long timestamp = event.getTimestamp();
+      if (timestamp != skippedTimestamp) {
+        if (retryCount < maxDataVisibilityRetries) {
+          visibleEvents.removeIf(visibleEvent -> visibleEvent.getTimestamp() == timestamp);
+          if (visibleEvents.isEmpty()) {
+            retryCount++;
+          } else {
+            retryCount = 0;
+            position = visibleEvents.get(visibleEvents.size() - 1).getTimestamp();
+          }
+          return visibleEvents;
+        }
+        LOG.warn("Skipping CDC events of {} partition {} at timestamp {} after {} retries,"
+          + " their data table mutations may have failed", cdcName, partitionId, timestamp,
+          retryCount);
+        skippedTimestamp = timestamp;
+        retryCount = 0;
+      }
+      newPosition = timestamp;
+    }
+    if (!visibleEvents.isEmpty()) {
+      retryCount = 0;
+    }
+    position = newPosition;
+    return visibleEvents;
+  }
+
+  /**
+   * Stores the position of the reader for its consumer, and commits the connection of the reader.
+   */
+  public void commit() throws SQLException {
+    String upsert = "UPSERT INTO " + PhoenixDatabaseMetaData.SYSTEM_IDX_CDC_TRACKER_NAME
+      + " (TABLE_NAME, PARTITION_ID, OWNER_PARTITION_ID, LAST_TIMESTAMP, STATUS)"
+      + " VALUES (?, ?, ?, ?, ?)";
+    try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+      ps.setString(1, cdcName);
+      ps.setString(2, partitionId);
+      ps.setString(3, consumerId);
+      ps.setLong(4, position);
+      ps.setString(5, PhoenixDatabaseMetaData.TRACKER_STATUS_IN_PROGRESS);
+      ps.executeUpdate();
+    }
+    conn.commit();
+  }
+}
@@ -508,6 +508,17 @@ public class DateUtil {
     return ts;
   }
 
+  /**
+   * Apply the time zone displacement to the input, so that the output represents the same
+   * LocalDateTime in the specified time zone as the Input in the UTC time zone.
+   * @param epoch    Date, time or timestamp as UTC epoch
+   * @param timeZone for displacement calculation
+   * @return input with the TZ displacement applied
+   */
+  public static long applyOutputDisplacement(long epoch, TimeZone timeZone) {
+    return epoch - getReverseOffset(epoch, timeZone);
+  }
+
   private static int getReverseOffset(long epoch, TimeZone tz) {
     return tz.getOffset(epoch - tz.getRawOffset() - tz.getDSTSavings());
   }
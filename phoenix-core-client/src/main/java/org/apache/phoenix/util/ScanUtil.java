@@ -28,6 +28,8 @@ import static org.apache.phoenix.query.QueryConstants.ENCODED_EMPTY_COLUMN_NAME;
 import static org.apache.phoenix.query.QueryServices.USE_STATS_FOR_PARALLELIZATION;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_USE_STATS_FOR_PARALLELIZATION;
 import static org.apache.phoenix.schema.LiteralTTLExpression.TTL_EXPRESSION_DEFINED_IN_TABLE_DESCRIPTOR;
+import static org.apache.phoenix.schema.LiteralTTLExpression.TTL_EXPRESSION_FOREVER;
+import static org.apache.phoenix.schema.LiteralTTLExpression.TTL_EXPRESSION_NOT_DEFINED;
 import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
 import static org.apache.phoenix.util.ByteUtil.EMPTY_BYTE_ARRAY;
 
@@ -70,12 +72,14 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.BaseQueryPlan;
 import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
 import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.filter.AllVersionsIndexRebuildFilter;
 import org.apache.phoenix.filter.BooleanExpressionFilter;
 import org.apache.phoenix.filter.ColumnProjectionFilter;
 import org.apache.phoenix.filter.DistinctPrefixFilter;
 import org.apache.phoenix.filter.EmptyColumnOnlyFilter;
 import org.apache.phoenix.filter.EncodedQualifiersColumnProjectionFilter;
+import org.apache.phoenix.filter.HashJoinRowKeyFilter;
 import org.apache.phoenix.filter.MultiEncodedCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.PagingFilter;
 import org.apache.phoenix.filter.SkipScanFilter;
@@ -101,6 +105,7 @@ import org.apache.phoenix.schema.PTableKey;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.RowKeySchema;
 import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.TTLExpression;
 import org.apache.phoenix.schema.TTLExpressionFactory;
 import org.apache.phoenix.schema.TableNotFoundException;
 import org.apache.phoenix.schema.ValueSchema.Field;
@@ -983,6 +988,10 @@ public class ScanUtil {
     } else if (filter instanceof DistinctPrefixFilter) {
       DistinctPrefixFilter prefixFilter = (DistinctPrefixFilter) filter;
       prefixFilter.setOffset(offset);
+    } else if (filter instanceof HashJoinRowKeyFilter) {
+      for (Expression expression : ((HashJoinRowKeyFilter) filter).getJoinExpressions()) {
+        IndexUtil.setRowKeyExpressionOffset(expression, offset);
+      }
     }
   }
 
@@ -1007,6 +1016,47 @@ public class ScanUtil {
     }
   }
 
+  /**
+   * Intersect the skip scan filter of the scan with the start and stop row of the scan, so that
+   * the scan only carries the keys that fall within its own range rather than all of the keys of
+   * the query. This is needed when a scan is bounded to a region after the skip scan filter was
+   * set up for a wider range.
+   * @return false if none of the keys of the skip scan filter falls within the scan range, in
+   *         which case the scan is left unchanged and need not be run, and true otherwise
+   */
+  public static boolean intersectSkipScanFilter(Scan scan) {
+    Filter filter = scan.getFilter();
+    if (filter instanceof SkipScanFilter) {
+      SkipScanFilter newFilter =
+        ((SkipScanFilter) filter).intersect(scan.getStartRow(), scan.getStopRow());
+      if (newFilter == null) {
+        return false;
+      }
+      scan.setFilter(newFilter);
+    } else if (
+      filter instanceof FilterList
+        && ((FilterList) filter).getOperator() == FilterList.Operator.MUST_PASS_ALL
+    ) {
+      List<Filter> filters = ((FilterList) filter).getFilters();
+      List<Filter> newFilters = new ArrayList<Filter>(filters.size());
+      boolean intersected = false;
+      for (Filter f : filters) {
+        if (f instanceof SkipScanFilter) {
+          f = ((SkipScanFilter) f).intersect(scan.getStartRow(), scan.getStopRow());
+          if (f == null) {
+            return false;
+          }
+          intersected = true;
+        }
+        newFilters.add(f);
+      }
+      if (intersected) {
+        scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, newFilters));
+      }
+    }
+    return true;
+  }
+
   public static int[] getDefaultSlotSpans(int nSlots) {
     return new int[nSlots];
   }
@@ -1862,6 +1912,28 @@ public class ScanUtil {
     }
   }
 
+  /**
+   * Marks the mutations of an indexed table with a Phoenix level TTL that is not conditional, so
+   * that the server does not keep the states of their rows in memory beyond the TTL. The mutations
+   * of a table with conditional TTL carry their TTL expression instead, see
+   * {@link #annotateMutationWithConditionalTTL}.
+   */
+  public static void annotateMutationWithLiteralTTL(PTable table,
+    List<? extends Mutation> mutations) {
+    if (table.hasConditionalTTL() || table.getIndexes().isEmpty()) {
+      return;
+    }
+    TTLExpression ttl = table.getTTLExpression();
+    if (
+      ttl == null || TTL_EXPRESSION_NOT_DEFINED.equals(ttl) || TTL_EXPRESSION_FOREVER.equals(ttl)
+    ) {
+      return;
+    }
+    for (Mutation mutation : mutations) {
+      mutation.setAttribute(BaseScannerRegionObserverConstants.HAS_LITERAL_TTL, TRUE_BYTES);
+    }
+  }
+
   public static PageFilter removePageFilterFromFilterList(FilterList filterList) {
     Iterator<Filter> filterIterator = filterList.getFilters().iterator();
     while (filterIterator.hasNext()) {
@@ -147,7 +147,19 @@ public class TupleUtil {
    */
   public static ImmutableBytesPtr getConcatenatedValue(Tuple result, List<Expression> expressions)
     throws IOException {
-    ImmutableBytesPtr value = new ImmutableBytesPtr(ByteUtil.EMPTY_BYTE_ARRAY);
+    return getConcatenatedValue(result, expressions, new ImmutableBytesPtr());
+  }
+
+  /**
+   * Concatenate results evaluated against a list of expressions. The value of a single expression
+   * is evaluated into the given pointer, so that no allocation is needed.
+   * @param result the tuple for expression evaluation
+   * @param value  the pointer to reuse
+   * @return the concatenated byte array as ImmutableBytesWritable
+   */
+  public static ImmutableBytesPtr getConcatenatedValue(Tuple result, List<Expression> expressions,
+    ImmutableBytesPtr value) throws IOException {
+    value.set(ByteUtil.EMPTY_BYTE_ARRAY);
     Expression expression = expressions.get(0);
     boolean evaluated = expression.evaluate(result, value);
 
@@ -0,0 +1,784 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static org.apache.phoenix.query.QueryConstants.GROUPED_AGGREGATOR_VALUE_BYTES;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_MAX_CACHE_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_OFF_HEAP_SLAB_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILL_FILES_ATTRIB;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_MAX_CACHE_MAX;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_OFF_HEAP_SLAB_SIZE;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILLABLE;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILL_FILES;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.util.ByteBufferUtils;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.coprocessor.GroupByCache;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.FixedWidthAggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.Closeables;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.SizedUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Group by cache that keeps the distinct groups in direct memory slabs and locates them through an
+ * open addressing table, instead of a map of heap objects, so that a high cardinality GROUP BY
+ * does not leave millions of long lived map entries, key copies and aggregators behind for the
+ * garbage collector. Each group is stored as a single record in a slab:
+ *
+ * <pre>
+ * | key length | last row key address | fixed width aggregator state | key |
+ * </pre>
+ *
+ * The state of the {@link FixedWidthAggregator}s of a group is loaded into a single set of
+ * aggregators when the group is handed out by {@link #cache(ImmutableBytesPtr)}, and written back
+ * to the record before another group is. Only the aggregators whose state has no fixed width, such
+ * as MIN and MAX, are kept on the heap for each group. The last scanned row key of a group is kept
+ * in a slab record of its own, which is overwritten in place while the row keys fit in it:
+ *
+ * <pre>
+ * | capacity | length | row key |
+ * </pre>
+ *
+ * The table is made up of parallel arrays indexed by slot: the slab address of the record, the
+ * hash of its key and, only if some aggregators have no fixed width, the heap aggregators of the
+ * group. The table, the slabs and the estimated size of the heap aggregators are charged to the
+ * tenant MemoryManager. Once no more memory can be acquired, all groups are spilled through the
+ * {@link SpillManager} and the slabs are reused, in the same way the {@link SpillableGroupByCache}
+ * spills its LRU entries.
+ */
+public class OffHeapGroupByCache implements GroupByCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapGroupByCache.class);
+
+  // Record header layout
+  private static final int KEY_LENGTH_OFFSET = 0;
+  private static final int ROW_KEY_ADDRESS_OFFSET = KEY_LENGTH_OFFSET + Bytes.SIZEOF_INT;
+  private static final int HEADER_SIZE = ROW_KEY_ADDRESS_OFFSET + Bytes.SIZEOF_LONG;
+
+  // Row key record header layout
+  private static final int ROW_KEY_CAPACITY_OFFSET = 0;
+  private static final int ROW_KEY_LENGTH_OFFSET = ROW_KEY_CAPACITY_OFFSET + Bytes.SIZEOF_INT;
+  private static final int ROW_KEY_HEADER_SIZE = ROW_KEY_LENGTH_OFFSET + Bytes.SIZEOF_INT;
+
+  private static final long EMPTY = -1L;
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final int MIN_TABLE_SIZE = 64;
+
+  private final ServerAggregators aggregators;
+  private final Configuration conf;
+  private final MemoryChunk chunk;
+  private final boolean isIncompatibleClient;
+  private final boolean spillable;
+  private final int numSpillFiles;
+  private final int slabSize;
+  // Each slot of the table is a long address, an int hash and the heap aggregators if any
+  private final int slotSize;
+
+  // The aggregators handed out by cache(), holding the state of the group in currentSlot
+  private final Aggregator[] groupAggregators;
+  // The aggregators with the initial state of a new group
+  private final Aggregator[] emptyAggregators;
+  // Offset of the state of each aggregator in the state of a group, -1 if kept on the heap
+  private final int[] stateOffsets;
+  // Positions of the aggregators that are kept on the heap for each group
+  private final int[] heapPositions;
+  private final int keyOffset;
+  private final int heapGroupSize;
+
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  private int currentSlab = 0;
+  private int slabPosition = 0;
+  // Memory charged for the heap aggregators of the groups in the table and how much of it is in
+  // use
+  private long groupBytesReserved = 0;
+  private long groupBytesUsed = 0;
+
+  private long[] addresses;
+  private int[] hashes;
+  private Aggregator[][] heapAggregators;
+  private int mask;
+  private int threshold;
+  private int numEntries = 0;
+  private long totalNumElements = 0;
+
+  // Last scanned row keys of groups that have been spilled, the others live in the table
+  private final ConcurrentMap<ImmutableBytesWritable, ImmutableBytesWritable> spilledRowKeys;
+  private SpillManager spillManager = null;
+  private boolean spilling = false;
+
+  // Slot of the group handed out by the last call to cache()
+  private int currentSlot = -1;
+
+  public OffHeapGroupByCache(RegionCoprocessorEnvironment env, ImmutableBytesPtr tenantId,
+    ServerAggregators aggregators, int estSizeNum, boolean isIncompatibleClient) {
+    this(GlobalCache.getTenantCache(env, tenantId).getMemoryManager(), env.getConfiguration(),
+      aggregators, estSizeNum, isIncompatibleClient);
+  }
+
+  @VisibleForTesting
+  OffHeapGroupByCache(MemoryManager memoryManager, Configuration conf,
+    ServerAggregators aggregators, int estSizeNum, boolean isIncompatibleClient) {
+    this.aggregators = aggregators;
+    this.conf = conf;
+    this.isIncompatibleClient = isIncompatibleClient;
+    this.spillable = conf.getBoolean(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE);
+    this.numSpillFiles = conf.getInt(GROUPBY_SPILL_FILES_ATTRIB, DEFAULT_GROUPBY_SPILL_FILES);
+    this.slabSize =
+      conf.getInt(GROUPBY_OFF_HEAP_SLAB_SIZE_ATTRIB, DEFAULT_GROUPBY_OFF_HEAP_SLAB_SIZE);
+    this.groupAggregators = aggregators.newAggregators(conf);
+    this.emptyAggregators = aggregators.newAggregators(conf);
+    this.stateOffsets = new int[groupAggregators.length];
+    List<Integer> heapPositionList = new ArrayList<>();
+    int stateSize = 0;
+    int heapAggregatorsSize = 0;
+    for (int i = 0; i < groupAggregators.length; i++) {
+      if (groupAggregators[i] instanceof FixedWidthAggregator) {
+        stateOffsets[i] = stateSize;
+        stateSize += ((FixedWidthAggregator) groupAggregators[i]).getStateSize();
+      } else {
+        stateOffsets[i] = -1;
+        heapPositionList.add(i);
+        heapAggregatorsSize += groupAggregators[i].getSize();
+      }
+    }
+    this.heapPositions = new int[heapPositionList.size()];
+    for (int i = 0; i < heapPositions.length; i++) {
+      heapPositions[i] = heapPositionList.get(i);
+    }
+    this.keyOffset = HEADER_SIZE + stateSize;
+    this.heapGroupSize = heapPositions.length == 0
+      ? 0
+      : SizedUtil.ARRAY_SIZE + SizedUtil.POINTER_SIZE * heapPositions.length + heapAggregatorsSize;
+    this.slotSize = SizedUtil.LONG_SIZE + SizedUtil.INT_SIZE
+      + (heapPositions.length == 0 ? 0 : SizedUtil.POINTER_SIZE);
+    this.spilledRowKeys = Maps.newConcurrentMap();
+
+    // Bound the initial table by the max cache size, as the LRU based cache does
+    long maxCacheSize =
+      conf.getLongBytes(GROUPBY_MAX_CACHE_SIZE_ATTRIB, DEFAULT_GROUPBY_MAX_CACHE_MAX);
+    int recordSize = keyOffset + heapGroupSize + slotSize;
+    int maxSizeNum = (int) Math.min(Integer.MAX_VALUE / 2, maxCacheSize / recordSize);
+    int tableSize = tableSizeFor(Math.max(MIN_TABLE_SIZE, Math.min(maxSizeNum, estSizeNum)));
+    try {
+      this.chunk = memoryManager.allocate((long) tableSize * slotSize);
+    } catch (InsufficientMemoryException ime) {
+      LOGGER.error("Requested group by table size exceeds memory limit, "
+        + "please decrease max size via config paramter: " + GROUPBY_MAX_CACHE_SIZE_ATTRIB);
+      throw ime;
+    }
+    initTable(tableSize);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Instantiating off heap groupby cache with table size: " + tableSize);
+    }
+  }
+
+  private static int tableSizeFor(int numElements) {
+    int size = (int) Math.ceil(numElements / LOAD_FACTOR);
+    return Integer.highestOneBit(size - 1) << 1;
+  }
+
+  private void initTable(int tableSize) {
+    addresses = new long[tableSize];
+    hashes = new int[tableSize];
+    heapAggregators = heapPositions.length == 0 ? null : new Aggregator[tableSize][];
+    Arrays.fill(addresses, EMPTY);
+    mask = tableSize - 1;
+    threshold = (int) (tableSize * LOAD_FACTOR);
+  }
+
+  private static int hash(ImmutableBytesWritable key) {
+    int h = Bytes.hashCode(key.get(), key.getOffset(), key.getLength());
+    // Spread the bits, since the table index only uses the lower ones
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static long toAddress(int slab, int offset) {
+    return ((long) slab << 32) | offset;
+  }
+
+  private ByteBuffer slabOf(long address) {
+    return slabs.get((int) (address >>> 32));
+  }
+
+  private static int offsetOf(long address) {
+    return (int) address;
+  }
+
+  /**
+   * Size function returns the current number of distinct groups
+   */
+  @Override
+  public long size() {
+    return totalNumElements;
+  }
+
+  @Override
+  public Aggregator[] cache(ImmutableBytesPtr cacheKey) {
+    int hash = hash(cacheKey);
+    int slot = findSlot(cacheKey, hash);
+    if (addresses[slot] != EMPTY) {
+      if (slot != currentSlot) {
+        saveCurrentGroup();
+        loadGroup(slot);
+      }
+      return groupAggregators;
+    }
+    saveCurrentGroup();
+    try {
+      Aggregator[] rowAggregators = null;
+      if (spillManager != null) {
+        // Spill manager present, check if key has been spilled before
+        rowAggregators = spillManager.loadEntry(cacheKey);
+      }
+      if (rowAggregators == null) {
+        // No, key never spilled before, start from the initial state, with new instances of the
+        // aggregators that are kept on the heap
+        rowAggregators =
+          heapPositions.length == 0 ? emptyAggregators : aggregators.newAggregators(conf);
+        totalNumElements++;
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("Adding new aggregate bucket for row key " + Bytes
+            .toStringBinary(cacheKey.get(), cacheKey.getOffset(), cacheKey.getLength()));
+        }
+      }
+      slot = insert(cacheKey, hash);
+      storeGroup(slot, rowAggregators);
+      loadGroup(slot);
+      return groupAggregators;
+    } catch (IOException ioe) {
+      // Ensure that we always close and delete the temp files
+      try {
+        throw new RuntimeException(ioe);
+      } finally {
+        Closeables.closeQuietly(this);
+      }
+    }
+  }
+
+  @Override
+  public void cacheAggregateRowKey(ImmutableBytesPtr value, ImmutableBytesPtr rowKey) {
+    if (isIncompatibleClient) {
+      return;
+    }
+    if (
+      currentSlot < 0 || addresses[currentSlot] == EMPTY
+        || !keyEquals(addresses[currentSlot], value)
+    ) {
+      // Not the group handed out last, bring it back in first
+      cache(value);
+    }
+    try {
+      writeRowKey(value, rowKey);
+    } catch (IOException ioe) {
+      // Ensure that we always close and delete the temp files
+      try {
+        throw new RuntimeException(ioe);
+      } finally {
+        Closeables.closeQuietly(this);
+      }
+    }
+  }
+
+  /**
+   * Writes the state of the aggregators of a group into its record, and keeps its heap aggregators
+   */
+  private void storeGroup(int slot, Aggregator[] rowAggregators) {
+    ByteBuffer slab = slabOf(addresses[slot]);
+    int stateOffset = offsetOf(addresses[slot]) + HEADER_SIZE;
+    for (int i = 0; i < rowAggregators.length; i++) {
+      if (stateOffsets[i] >= 0) {
+        ((FixedWidthAggregator) rowAggregators[i]).writeState(slab, stateOffset + stateOffsets[i]);
+      }
+    }
+    if (heapAggregators != null) {
+      Aggregator[] groupHeapAggregators = new Aggregator[heapPositions.length];
+      for (int i = 0; i < heapPositions.length; i++) {
+        groupHeapAggregators[i] = rowAggregators[heapPositions[i]];
+      }
+      heapAggregators[slot] = groupHeapAggregators;
+    }
+  }
+
+  /**
+   * Loads the state of a group into the aggregators handed out by cache()
+   */
+  private void loadGroup(int slot) {
+    ByteBuffer slab = slabOf(addresses[slot]);
+    int stateOffset = offsetOf(addresses[slot]) + HEADER_SIZE;
+    for (int i = 0; i < groupAggregators.length; i++) {
+      if (stateOffsets[i] >= 0) {
+        ((FixedWidthAggregator) groupAggregators[i]).readState(slab, stateOffset + stateOffsets[i]);
+      }
+    }
+    for (int i = 0; i < heapPositions.length; i++) {
+      groupAggregators[heapPositions[i]] = heapAggregators[slot][i];
+    }
+    currentSlot = slot;
+  }
+
+  /**
+   * Writes the state of the group handed out last back into its record, as it may have been
+   * aggregated into since
+   */
+  private void saveCurrentGroup() {
+    if (currentSlot < 0 || addresses[currentSlot] == EMPTY) {
+      return;
+    }
+    ByteBuffer slab = slabOf(addresses[currentSlot]);
+    int stateOffset = offsetOf(addresses[currentSlot]) + HEADER_SIZE;
+    for (int i = 0; i < groupAggregators.length; i++) {
+      if (stateOffsets[i] >= 0) {
+        ((FixedWidthAggregator) groupAggregators[i]).writeState(slab,
+          stateOffset + stateOffsets[i]);
+      }
+    }
+  }
+
+  /**
+   * Stores the last scanned row key of the group in currentSlot, in place if it fits in the row key
+   * record of the group. Spills all groups if the memory for a new row key record cannot be
+   * acquired.
+   */
+  private void writeRowKey(ImmutableBytesPtr key, ImmutableBytesPtr rowKey) throws IOException {
+    long rowKeyAddress = slabOf(addresses[currentSlot])
+      .getLong(offsetOf(addresses[currentSlot]) + ROW_KEY_ADDRESS_OFFSET);
+    if (
+      rowKeyAddress == EMPTY || slabOf(rowKeyAddress)
+        .getInt(offsetOf(rowKeyAddress) + ROW_KEY_CAPACITY_OFFSET) < rowKey.getLength()
+    ) {
+      int recordSize = ROW_KEY_HEADER_SIZE + rowKey.getLength();
+      rowKeyAddress = allocateRecord(recordSize, true);
+      if (rowKeyAddress == EMPTY) {
+        spillAll();
+        // Bring the group back in, now that there is room for it
+        cache(key);
+        rowKeyAddress = allocateRecord(recordSize, false);
+      }
+      slabOf(rowKeyAddress).putInt(offsetOf(rowKeyAddress) + ROW_KEY_CAPACITY_OFFSET,
+        rowKey.getLength());
+      slabOf(addresses[currentSlot])
+        .putLong(offsetOf(addresses[currentSlot]) + ROW_KEY_ADDRESS_OFFSET, rowKeyAddress);
+    }
+    ByteBuffer slab = slabOf(rowKeyAddress);
+    int offset = offsetOf(rowKeyAddress);
+    slab.putInt(offset + ROW_KEY_LENGTH_OFFSET, rowKey.getLength());
+    ByteBufferUtils.copyFromArrayToBuffer(slab, offset + ROW_KEY_HEADER_SIZE, rowKey.get(),
+      rowKey.getOffset(), rowKey.getLength());
+  }
+
+  /**
+   * Returns a copy of the last scanned row key of a group, or null if none was cached
+   */
+  private ImmutableBytesPtr readRowKey(long address) {
+    long rowKeyAddress = slabOf(address).getLong(offsetOf(address) + ROW_KEY_ADDRESS_OFFSET);
+    if (rowKeyAddress == EMPTY) {
+      return null;
+    }
+    ByteBuffer slab = slabOf(rowKeyAddress);
+    int offset = offsetOf(rowKeyAddress);
+    byte[] rowKey = new byte[slab.getInt(offset + ROW_KEY_LENGTH_OFFSET)];
+    ByteBufferUtils.copyFromBufferToArray(rowKey, slab, offset + ROW_KEY_HEADER_SIZE, 0,
+      rowKey.length);
+    return new ImmutableBytesPtr(rowKey);
+  }
+
+  private int findSlot(ImmutableBytesWritable key, int hash) {
+    int slot = hash & mask;
+    while (true) {
+      long address = addresses[slot];
+      if (address == EMPTY || (hashes[slot] == hash && keyEquals(address, key))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean keyEquals(long address, ImmutableBytesWritable key) {
+    ByteBuffer slab = slabOf(address);
+    int offset = offsetOf(address);
+    int keyLength = slab.getInt(offset + KEY_LENGTH_OFFSET);
+    if (keyLength != key.getLength()) {
+      return false;
+    }
+    byte[] b = key.get();
+    int start = offset + keyOffset;
+    for (int i = 0; i < keyLength; i++) {
+      if (slab.get(start + i) != b[key.getOffset() + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds a record for a key that is not in the table yet and returns its slot. Spills all groups if
+   * the memory for the record or the heap aggregators of the group cannot be acquired.
+   */
+  private int insert(ImmutableBytesPtr key, int hash) throws IOException {
+    if (numEntries >= threshold && !growTable()) {
+      spillAll();
+    }
+    if (!reserveGroup(true)) {
+      spillAll();
+      reserveGroup(false);
+    }
+    int recordSize = keyOffset + key.getLength();
+    long address = allocateRecord(recordSize, true);
+    if (address == EMPTY) {
+      spillAll();
+      reserveGroup(false);
+      address = allocateRecord(recordSize, false);
+    }
+    ByteBuffer slab = slabOf(address);
+    int offset = offsetOf(address);
+    slab.putInt(offset + KEY_LENGTH_OFFSET, key.getLength());
+    slab.putLong(offset + ROW_KEY_ADDRESS_OFFSET, EMPTY);
+    ByteBufferUtils.copyFromArrayToBuffer(slab, offset + keyOffset, key.get(), key.getOffset(),
+      key.getLength());
+    // The table may have been cleared by a spill, so probe again
+    int slot = findSlot(key, hash);
+    addresses[slot] = address;
+    hashes[slot] = hash;
+    numEntries++;
+    return slot;
+  }
+
+  /**
+   * Accounts for the heap aggregators of one more group, charging the memory chunk a slab worth of
+   * groups at a time. Returns false if the memory is not available and the caller is able to spill.
+   */
+  private boolean reserveGroup(boolean canSpill) {
+    if (heapGroupSize == 0) {
+      return true;
+    }
+    if (groupBytesUsed + heapGroupSize > groupBytesReserved) {
+      long nBytes = Math.max(slabSize, heapGroupSize);
+      if (!reserve(nBytes, canSpill)) {
+        return false;
+      }
+      groupBytesReserved += nBytes;
+    }
+    groupBytesUsed += heapGroupSize;
+    return true;
+  }
+
+  /**
+   * Reserves recordSize bytes at the end of the current slab, moving on to the next slab if the
+   * record does not fit. Returns EMPTY if a new slab is needed and the memory for it cannot be
+   * acquired and the caller is able to spill.
+   */
+  private long allocateRecord(int recordSize, boolean canSpill) {
+    if (!slabs.isEmpty() && slabs.get(currentSlab).capacity() - slabPosition >= recordSize) {
+      long address = toAddress(currentSlab, slabPosition);
+      slabPosition += recordSize;
+      return address;
+    }
+    // Reuse a slab that has been released by a spill before allocating a new one
+    for (int i = slabs.isEmpty() ? 0 : currentSlab + 1; i < slabs.size(); i++) {
+      if (slabs.get(i).capacity() >= recordSize) {
+        currentSlab = i;
+        slabPosition = recordSize;
+        return toAddress(i, 0);
+      }
+    }
+    int capacity = Math.max(slabSize, recordSize);
+    if (!reserve(capacity, canSpill)) {
+      return EMPTY;
+    }
+    slabs.add(ByteBuffer.allocateDirect(capacity));
+    currentSlab = slabs.size() - 1;
+    slabPosition = recordSize;
+    return toAddress(currentSlab, 0);
+  }
+
+  /**
+   * Charges nBytes more to the memory chunk. Returns false if the memory is not available and the
+   * caller is able to spill, otherwise the InsufficientMemoryException is propagated.
+   */
+  private boolean reserve(long nBytes, boolean canSpill) {
+    try {
+      chunk.resize(chunk.getSize() + nBytes);
+      return true;
+    } catch (InsufficientMemoryException ime) {
+      if (!spillable || !canSpill) {
+        throw ime;
+      }
+      return false;
+    }
+  }
+
+  private boolean growTable() {
+    int newSize = addresses.length * 2;
+    if (newSize <= 0 || !reserve((long) addresses.length * slotSize, true)) {
+      return false;
+    }
+    long[] oldAddresses = addresses;
+    int[] oldHashes = hashes;
+    Aggregator[][] oldAggregators = heapAggregators;
+    initTable(newSize);
+    for (int i = 0; i < oldAddresses.length; i++) {
+      if (oldAddresses[i] != EMPTY) {
+        int slot = oldHashes[i] & mask;
+        while (addresses[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        addresses[slot] = oldAddresses[i];
+        hashes[slot] = oldHashes[i];
+        if (oldAggregators != null) {
+          heapAggregators[slot] = oldAggregators[i];
+        }
+        if (i == currentSlot) {
+          currentSlot = slot;
+        }
+      }
+    }
+    return true;
+  }
+
+  private ImmutableBytesPtr readKey(long address) {
+    ByteBuffer slab = slabOf(address);
+    int offset = offsetOf(address);
+    byte[] key = new byte[slab.getInt(offset + KEY_LENGTH_OFFSET)];
+    ByteBufferUtils.copyFromBufferToArray(key, slab, offset + keyOffset, 0, key.length);
+    return new ImmutableBytesPtr(key);
+  }
+
+  /**
+   * Moves every group to the spill files and releases the slabs and the heap aggregators for reuse.
+   */
+  private void spillAll() throws IOException {
+    if (spillManager == null) {
+      // Lazy instantiation of spillable data structures
+      spillManager = new SpillManager(numSpillFiles, aggregators, conf,
+        new SpillManager.InMemoryCache() {
+          @Override
+          public boolean isKeyContained(ImmutableBytesPtr key) {
+            return !spilling && addresses[findSlot(key, hash(key))] != EMPTY;
+          }
+        });
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Spilling " + numEntries + " groups of off heap groupby cache");
+    }
+    saveCurrentGroup();
+    spilling = true;
+    try {
+      for (int slot = 0; slot < addresses.length; slot++) {
+        if (addresses[slot] == EMPTY) {
+          continue;
+        }
+        ImmutableBytesPtr key = readKey(addresses[slot]);
+        // The state is serialized as it is spilled, so the aggregators can be reused
+        loadGroup(slot);
+        spillManager.spill(key, groupAggregators);
+        ImmutableBytesPtr rowKey = isIncompatibleClient ? null : readRowKey(addresses[slot]);
+        if (rowKey != null) {
+          spilledRowKeys.put(key, rowKey);
+        }
+      }
+    } finally {
+      spilling = false;
+    }
+    Arrays.fill(addresses, EMPTY);
+    if (heapAggregators != null) {
+      Arrays.fill(heapAggregators, null);
+    }
+    numEntries = 0;
+    currentSlab = 0;
+    slabPosition = 0;
+    groupBytesUsed = 0;
+    currentSlot = -1;
+  }
+
+  /**
+   * Closes cache and releases spill resources
+   */
+  @Override
+  public void close() throws IOException {
+    Closeables.closeQuietly(spillManager);
+    // Slabs are freed once they are no longer referenced
+    slabs.clear();
+    addresses = new long[0];
+    hashes = new int[0];
+    heapAggregators = null;
+    currentSlot = -1;
+    Closeables.closeQuietly(chunk);
+  }
+
+  /**
+   * Iterates over the spilled groups that have not been loaded back into the table, followed by
+   * the groups held in the table. Returns the key, the serialized aggregators and, for compatible
+   * clients, the last scanned row key of each group.
+   */
+  private final class EntryIterator implements Iterator<ImmutableBytesWritable[]> {
+    private final Iterator<byte[]> spilledCacheIter;
+    private ImmutableBytesWritable[] spilledEntry;
+    private int slot = -1;
+
+    private EntryIterator() {
+      saveCurrentGroup();
+      spilledCacheIter = spillManager == null ? null : spillManager.newDataIterator();
+      advanceSpilled();
+      advanceSlot();
+    }
+
+    private void advanceSpilled() {
+      spilledEntry = null;
+      if (spilledCacheIter == null) {
+        return;
+      }
+      try {
+        while (spilledCacheIter.hasNext()) {
+          Map.Entry<ImmutableBytesWritable, Aggregator[]> entry =
+            spillManager.toCacheEntry(spilledCacheIter.next());
+          // Table entries always take precedence, since they are more up to date
+          ImmutableBytesPtr key = new ImmutableBytesPtr(entry.getKey());
+          if (addresses[findSlot(key, hash(key))] == EMPTY) {
+            spilledEntry = new ImmutableBytesWritable[] { key,
+              new ImmutableBytesWritable(aggregators.toBytes(entry.getValue())),
+              spilledRowKeys.get(key) };
+            return;
+          }
+        }
+      } catch (IOException ioe) {
+        throw new RuntimeException(ioe);
+      }
+    }
+
+    private void advanceSlot() {
+      do {
+        slot++;
+      } while (slot < addresses.length && addresses[slot] == EMPTY);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return spilledEntry != null || slot < addresses.length;
+    }
+
+    @Override
+    public ImmutableBytesWritable[] next() {
+      if (spilledEntry != null) {
+        ImmutableBytesWritable[] entry = spilledEntry;
+        advanceSpilled();
+        return entry;
+      }
+      int current = slot;
+      advanceSlot();
+      // The aggregators of a group are only serialized once it is returned
+      loadGroup(current);
+      return new ImmutableBytesWritable[] { readKey(addresses[current]),
+        new ImmutableBytesWritable(aggregators.toBytes(groupAggregators)),
+        isIncompatibleClient ? null : readRowKey(addresses[current]) };
+    }
+
+    @Override
+    public void remove() {
+      throw new IllegalAccessError("Remove is not supported for this type of iterator");
+    }
+  }
+
+  @Override
+  public RegionScanner getScanner(final RegionScanner s) {
+    final Iterator<ImmutableBytesWritable[]> cacheIter = new EntryIterator();
+
+    return new BaseRegionScanner(s) {
+      @Override
+      public void close() throws IOException {
+        try {
+          s.close();
+        } finally {
+          // Always close gbCache and swallow possible Exceptions
+          Closeables.closeQuietly(OffHeapGroupByCache.this);
+        }
+      }
+
+      @Override
+      public boolean next(List<Cell> result, ScannerContext scannerContext) throws IOException {
+        return next(result);
+      }
+
+      @Override
+      public boolean next(List<Cell> results) throws IOException {
+        if (!cacheIter.hasNext()) {
+          return false;
+        }
+        ImmutableBytesWritable[] entry = cacheIter.next();
+        ImmutableBytesWritable aggregateGroupValPtr = entry[0];
+        byte[] aggregateArrayBytes = entry[1].copyBytes();
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("Adding new distinct group: "
+            + Bytes.toStringBinary(aggregateGroupValPtr.get(), aggregateGroupValPtr.getOffset(),
+              aggregateGroupValPtr.getLength())
+            + " value = " + Bytes.toStringBinary(aggregateArrayBytes));
+        }
+        if (!isIncompatibleClient) {
+          ImmutableBytesWritable lastScannedRowKey = entry[2];
+          byte[] aggregateGroupValueBytes = aggregateGroupValPtr.copyBytes();
+          byte[] finalValue =
+            ByteUtil.concat(PInteger.INSTANCE.toBytes(aggregateGroupValueBytes.length),
+              aggregateGroupValueBytes, aggregateArrayBytes);
+          results.add(
+            PhoenixKeyValueUtil.newKeyValue(lastScannedRowKey.get(), lastScannedRowKey.getOffset(),
+              lastScannedRowKey.getLength(), GROUPED_AGGREGATOR_VALUE_BYTES,
+              GROUPED_AGGREGATOR_VALUE_BYTES, AGG_TIMESTAMP, finalValue, 0, finalValue.length));
+        } else {
+          results.add(PhoenixKeyValueUtil.newKeyValue(aggregateGroupValPtr.get(),
+            aggregateGroupValPtr.getOffset(), aggregateGroupValPtr.getLength(),
+            SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, AGG_TIMESTAMP, aggregateArrayBytes, 0,
+            aggregateArrayBytes.length));
+        }
+        return cacheIter.hasNext();
+      }
+    };
+  }
+}
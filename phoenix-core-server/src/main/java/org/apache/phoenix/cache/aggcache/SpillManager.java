@@ -55,6 +55,14 @@ import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
  */
 public class SpillManager implements Closeable {
 
+  /**
+   * Queryable view of the in-memory group by cache that sits in front of the spill partitions. A
+   * spilled element whose key is still held in memory is stale and can be dropped.
+   */
+  public interface InMemoryCache {
+    boolean isKeyContained(ImmutableBytesPtr key);
+  }
+
   // Wrapper class for DESERIALIZED groupby key/value tuples
   public static class CacheEntry<T extends ImmutableBytesWritable>
     implements Map.Entry<T, Aggregator[]> {
@@ -103,7 +111,7 @@ public class SpillManager implements Closeable {
    * SpillManager takes care of spilling and loading tuples from spilled data structs
    */
   public SpillManager(int numSpillFiles, ServerAggregators serverAggregators, Configuration conf,
-    SpillableGroupByCache.QueryCache cache) {
+    InMemoryCache cache) {
     try {
       int estValueSize = serverAggregators.getEstimatedByteSize();
       spillMaps = Lists.newArrayList();
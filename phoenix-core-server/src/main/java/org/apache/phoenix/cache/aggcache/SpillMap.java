@@ -54,10 +54,10 @@ public class SpillMap extends AbstractMap<ImmutableBytesPtr, byte[]> implements
   private SpillFile spillFile;
   // Directory of hash buckets --> extendible hashing implementation
   private FileMap[] directory;
-  private final SpillableGroupByCache.QueryCache cache;
+  private final SpillManager.InMemoryCache cache;
 
   public SpillMap(SpillFile file, int thresholdBytes, int estValueSize,
-    SpillableGroupByCache.QueryCache cache) throws IOException {
+    SpillManager.InMemoryCache cache) throws IOException {
     this.thresholdBytes = thresholdBytes - Bytes.SIZEOF_INT;
     this.pageInserts = thresholdBytes / estValueSize;
     this.spillFile = file;
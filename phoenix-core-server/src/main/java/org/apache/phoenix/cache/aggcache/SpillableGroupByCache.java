@@ -127,7 +127,8 @@ public class SpillableGroupByCache implements GroupByCache {
    * inner class that makes cache queryable for other classes that should not get the full instance.
    * Queryable view of the cache
    */
-  public class QueryCache {
+  public class QueryCache implements SpillManager.InMemoryCache {
+    @Override
     public boolean isKeyContained(ImmutableBytesPtr key) {
       return cache.containsKey(key);
     }
@@ -36,11 +36,13 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -165,6 +167,9 @@ public class CompactionScanner implements InternalScanner {
   private final PTable table;
   private final int cdcTtlMutationMaxRetries;
   private CDCCompactionUtil.CDCBatchProcessor cdcBatchProcessor;
+  private GlobalIndexCompactionSweeper indexSweeper;
+  private final Deque<List<Cell>> sweptRows = new ArrayDeque<>();
+  private boolean moreRowsToSweep = true;
 
   // Only for forcing minor compaction while testing
   private static boolean forceMinorCompaction = false;
@@ -226,6 +231,11 @@ public class CompactionScanner implements InternalScanner {
           compactionTime, tableName, cdcTtlMutationMaxRetries, cdcTtlMutationBatchSize);
     }
 
+    if (this.major) {
+      indexSweeper = GlobalIndexCompactionSweeper.create(env, table, familyCount, emptyCF, emptyCQ,
+        compactionTime, maxLookbackWindowStart);
+    }
+
     // Initialize the tracker that computes the TTL for the compacting table.
     // The TTL tracker can be
     // simple (one single TTL for the table) when the compacting table is not Partitioned
@@ -435,6 +445,12 @@ public class CompactionScanner implements InternalScanner {
 
   @Override
   public boolean next(List<Cell> result) throws IOException {
+    boolean hasMore = indexSweeper == null ? compactNextRow(result) : sweepNextRow(result);
+    outputCellCount += result.size();
+    return hasMore;
+  }
+
+  private boolean compactNextRow(List<Cell> result) throws IOException {
     boolean hasMore = storeScanner.next(result);
     inputCellCount += result.size();
     if (!result.isEmpty()) {
@@ -445,13 +461,44 @@ public class CompactionScanner implements InternalScanner {
       if (phoenixLevelRowCompactor.rowContext.hasConditionalTTL()) {
         postProcessForConditionalTTL(result);
       }
-      outputCellCount += result.size();
       // This is for debugging
       // printRow(result, "Output for " + tableName + " " + columnFamilyName, true, true);
     }
     return hasMore;
   }
 
+  /**
+   * Compacts the rows ahead until a batch of unverified index rows are found, so that they are
+   * verified against the data table together, and returns the next compacted row that is kept. The
+   * rows are not read ahead further than ten batches, to bound the memory used when unverified
+   * rows are rare.
+   */
+  private boolean sweepNextRow(List<Cell> result) throws IOException {
+    if (sweptRows.isEmpty() && moreRowsToSweep) {
+      List<List<Cell>> candidates = new ArrayList<>();
+      int batchSize = indexSweeper.getBatchSize();
+      do {
+        List<Cell> row = new ArrayList<>();
+        moreRowsToSweep = compactNextRow(row);
+        if (!row.isEmpty()) {
+          sweptRows.add(row);
+          if (indexSweeper.isCandidate(row)) {
+            candidates.add(row);
+          }
+        }
+      } while (
+        moreRowsToSweep && candidates.size() < batchSize && sweptRows.size() < 10 * batchSize
+      );
+      // The rows to remove are cleared
+      indexSweeper.sweep(candidates);
+    }
+    List<Cell> row = sweptRows.poll();
+    if (row != null) {
+      result.addAll(row);
+    }
+    return moreRowsToSweep || !sweptRows.isEmpty();
+  }
+
   @Override
   public boolean next(List<Cell> result, ScannerContext scannerContext) throws IOException {
     return next(result);
@@ -467,6 +514,9 @@ public class CompactionScanner implements InternalScanner {
       forceMinorCompaction = false;
     }
     storeScanner.close();
+    if (indexSweeper != null) {
+      indexSweeper.close();
+    }
 
     // Flush any remaining CDC mutations in the batch
     if (cdcBatchProcessor != null) {
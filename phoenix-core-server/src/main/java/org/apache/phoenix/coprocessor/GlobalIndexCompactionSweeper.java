@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.apache.phoenix.query.QueryConstants.UNVERIFIED_BYTES;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.hbase.index.metrics.GlobalIndexCheckerSource;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.index.IndexMaintainer;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTable.IndexType;
+import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.util.CDCUtil;
+import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ServerUtil.ConnectionFactory;
+import org.apache.phoenix.util.ServerUtil.ConnectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.phoenix.thirdparty.com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Removes the unverified rows of a global index table during its major compactions, so that the
+ * unverified rows of the index ranges that are not read are not kept until an IndexTool run.
+ * <p>
+ * An index row is a candidate if its empty column is unverified, it has no delete markers, and all
+ * its cells are older than both the age threshold to delete unverified rows
+ * (phoenix.global.index.row.age.threshold.to.delete.ms) and the max lookback window. The candidates
+ * are verified in batches by a single lookup of the data table, rate limited by
+ * phoenix.global.index.compaction.sweep.max.reads.per.sec. As GlobalIndexChecker does on read, a
+ * candidate is removed if its data table row does not exist, or does not point back to it and has
+ * not changed within the max lookback window. The other candidates are kept for read repair.
+ */
+public class GlobalIndexCompactionSweeper {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GlobalIndexCompactionSweeper.class);
+
+  private final String indexName;
+  private final IndexMaintainer indexMaintainer;
+  private final Table dataHTable;
+  private final byte[] emptyCF;
+  private final byte[] emptyCQ;
+  private final long sweepTimestamp;
+  private final long maxLookbackWindowStart;
+  private final int batchSize;
+  private final RateLimiter rateLimiter;
+  private final GlobalIndexCheckerSource metricsSource;
+  private long inspectedRowCount = 0;
+  private long removedRowCount = 0;
+
+  @VisibleForTesting
+  GlobalIndexCompactionSweeper(String indexName, IndexMaintainer indexMaintainer,
+    Table dataHTable, byte[] emptyCF, byte[] emptyCQ, long sweepTimestamp,
+    long maxLookbackWindowStart, int batchSize, int maxReadsPerSec) {
+    this.indexName = indexName;
+    this.indexMaintainer = indexMaintainer;
+    this.dataHTable = dataHTable;
+    this.emptyCF = emptyCF;
+    this.emptyCQ = emptyCQ;
+    this.sweepTimestamp = sweepTimestamp;
+    this.maxLookbackWindowStart = maxLookbackWindowStart;
+    this.batchSize = batchSize;
+    this.rateLimiter = maxReadsPerSec > 0 ? RateLimiter.create(maxReadsPerSec) : null;
+    this.metricsSource = MetricsIndexerSourceFactory.getInstance().getGlobalIndexCheckerSource();
+  }
+
+  /**
+   * Returns the sweeper for the major compaction of a store of the given table, or null if the
+   * sweep is disabled or does not apply to the table. The sweep applies to the global indexes of
+   * tables, which are stored in a single column family, and not to local, view or CDC indexes.
+   */
+  public static GlobalIndexCompactionSweeper create(RegionCoprocessorEnvironment env,
+    PTable table, int familyCount, byte[] emptyCF, byte[] emptyCQ, long compactionTime,
+    long maxLookbackWindowStart) throws IOException {
+    Configuration config = env.getConfiguration();
+    if (
+      !config.getBoolean(QueryServices.GLOBAL_INDEX_COMPACTION_SWEEP_ENABLED_ATTRIB,
+        QueryServicesOptions.DEFAULT_GLOBAL_INDEX_COMPACTION_SWEEP_ENABLED)
+    ) {
+      return null;
+    }
+    if (
+      table.getType() != PTableType.INDEX || familyCount != 1 || table.getViewIndexId() != null
+        || table.getParentName() == null || CDCUtil.isCDCIndex(table)
+        || (table.getIndexType() != IndexType.GLOBAL
+          && table.getIndexType() != IndexType.UNCOVERED_GLOBAL)
+    ) {
+      return null;
+    }
+    long ageThreshold =
+      config.getLong(QueryServices.GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB,
+        QueryServicesOptions.DEFAULT_GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS);
+    int batchSize = config.getInt(QueryServices.GLOBAL_INDEX_COMPACTION_SWEEP_BATCH_SIZE_ATTRIB,
+      QueryServicesOptions.DEFAULT_GLOBAL_INDEX_COMPACTION_SWEEP_BATCH_SIZE);
+    int maxReadsPerSec =
+      config.getInt(QueryServices.GLOBAL_INDEX_COMPACTION_SWEEP_MAX_READS_PER_SEC_ATTRIB,
+        QueryServicesOptions.DEFAULT_GLOBAL_INDEX_COMPACTION_SWEEP_MAX_READS_PER_SEC);
+    IndexMaintainer indexMaintainer;
+    PTable dataTable;
+    try (PhoenixConnection serverConnection =
+      QueryUtil.getConnectionOnServer(new Properties(), config).unwrap(PhoenixConnection.class)) {
+      dataTable = serverConnection.getTableNoCache(table.getParentName().getString());
+      indexMaintainer = table.getIndexMaintainer(dataTable, serverConnection);
+    } catch (SQLException e) {
+      LOGGER.warn("Not sweeping unverified rows of index {} as its data table is not found",
+        table.getName().getString(), e);
+      return null;
+    }
+    Table dataHTable = ConnectionFactory.getConnection(ConnectionType.COMPACTION_CONNECTION, env)
+      .getTable(TableName.valueOf(dataTable.getPhysicalName().getBytes()));
+    return new GlobalIndexCompactionSweeper(table.getName().getString(), indexMaintainer,
+      dataHTable, emptyCF, emptyCQ, Math.min(compactionTime - ageThreshold, maxLookbackWindowStart),
+      maxLookbackWindowStart, Math.max(batchSize, 1), maxReadsPerSec);
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Returns true if the given compacted index row is to be verified against the data table
+   */
+  public boolean isCandidate(List<Cell> row) {
+    Cell emptyCell = null;
+    for (Cell cell : row) {
+      if (cell.getType() != Cell.Type.Put || cell.getTimestamp() >= sweepTimestamp) {
+        return false;
+      }
+      // The cells of a column are ordered from the latest to the oldest
+      if (emptyCell == null && CellUtil.matchingColumn(cell, emptyCF, emptyCQ)) {
+        emptyCell = cell;
+      }
+    }
+    return emptyCell != null && CellUtil.matchingValue(emptyCell, UNVERIFIED_BYTES);
+  }
+
+  /**
+   * Verifies the given candidate rows against the data table, and clears the rows to remove. The
+   * rows are all kept if the data table cannot be read.
+   */
+  public void sweep(List<List<Cell>> candidates) {
+    if (candidates.isEmpty()) {
+      return;
+    }
+    List<Get> gets = new ArrayList<>(candidates.size());
+    for (List<Cell> row : candidates) {
+      byte[] indexRowKey = CellUtil.cloneRow(row.get(0));
+      gets.add(new Get(
+        indexMaintainer.buildDataRowKey(new ImmutableBytesWritable(indexRowKey), null)));
+    }
+    boolean[] orphans = new boolean[candidates.size()];
+    try {
+      if (rateLimiter != null) {
+        rateLimiter.acquire(gets.size());
+      }
+      Result[] dataRows = dataHTable.get(gets);
+      for (int i = 0; i < candidates.size(); i++) {
+        orphans[i] = isOrphan(CellUtil.cloneRow(candidates.get(i).get(0)), dataRows[i]);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to verify {} unverified rows of index {}, keeping them",
+        candidates.size(), indexName, e);
+      return;
+    }
+    int removed = 0;
+    for (int i = 0; i < candidates.size(); i++) {
+      if (orphans[i]) {
+        candidates.get(i).clear();
+        removed++;
+      }
+    }
+    inspectedRowCount += candidates.size();
+    removedRowCount += removed;
+    metricsSource.incrementIndexCompactionSweepInspections(indexName, candidates.size());
+    if (removed > 0) {
+      metricsSource.incrementIndexCompactionSweepDeletes(indexName, removed);
+    }
+  }
+
+  private boolean isOrphan(byte[] indexRowKey, Result dataRow) throws IOException {
+    if (dataRow == null || dataRow.isEmpty()) {
+      return true;
+    }
+    Put put = new Put(dataRow.getRow());
+    for (Cell cell : dataRow.rawCells()) {
+      put.add(cell);
+    }
+    // A data table row that changed within the max lookback window may have pointed to the index
+    // row at a time that is still visible to queries
+    return IndexUtil.getMaxTimestamp(put) < maxLookbackWindowStart
+      && !indexMaintainer.checkIndexRow(indexRowKey, put);
+  }
+
+  public void close() {
+    LOGGER.info("Compaction of index {} removed {} of {} unverified rows verified, older than {}",
+      indexName, removedRowCount, inspectedRowCount, sweepTimestamp);
+    try {
+      dataHTable.close();
+    } catch (IOException e) {
+      LOGGER.warn("Unable to close data table of index {}", indexName, e);
+    }
+  }
+}
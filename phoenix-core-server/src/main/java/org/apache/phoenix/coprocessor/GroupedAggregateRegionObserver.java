@@ -21,9 +21,15 @@ import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
 import static org.apache.phoenix.query.QueryConstants.GROUPED_AGGREGATOR_VALUE_BYTES;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.apache.phoenix.query.QueryServices.AGGREGATE_BATCH_ENABLED_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.AGGREGATE_BATCH_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_OFF_HEAP_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_AGGREGATE_BATCH_ENABLED;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_AGGREGATE_BATCH_SIZE;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_OFF_HEAP;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILLABLE;
 import static org.apache.phoenix.util.ScanUtil.getDummyResult;
 import static org.apache.phoenix.util.ScanUtil.getPageSizeMsForRegionScanner;
@@ -59,12 +65,14 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.cache.TenantCache;
+import org.apache.phoenix.cache.aggcache.OffHeapGroupByCache;
 import org.apache.phoenix.cache.aggcache.SpillableGroupByCache;
 import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.BatchAggregators;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
@@ -381,6 +389,11 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
       byte[] customAnnotations, ServerAggregators aggregators, int estDistVals,
       boolean isIncompatibleClient) {
       Configuration conf = env.getConfiguration();
+      if (conf.getBoolean(GROUPBY_OFF_HEAP_ATTRIB, DEFAULT_GROUPBY_OFF_HEAP)) {
+        // Spills on its own if GROUPBY_SPILLABLE_ATTRIB is enabled
+        return new OffHeapGroupByCache(env, tenantId, aggregators, estDistVals,
+          isIncompatibleClient);
+      }
       boolean spillableEnabled =
         conf.getBoolean(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE);
       if (spillableEnabled) {
@@ -733,6 +746,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
     private final boolean useQualifierAsIndex;
     private final PTable.QualifierEncodingScheme encodingScheme;
     private final ServerAggregators aggregators;
+    private final BatchAggregators batchAggregators;
     private final long limit;
     private final List<Expression> expressions;
     private final long pageSizeMs;
@@ -754,6 +768,13 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
       this.limit = limit;
       this.pageSizeMs = pageSizeMs;
       this.expressions = expressions;
+      Configuration conf = c.getEnvironment().getConfiguration();
+      // Rows of a group are contiguous, so values can be buffered until the group is complete
+      this.batchAggregators =
+        conf.getBoolean(AGGREGATE_BATCH_ENABLED_ATTRIB, DEFAULT_AGGREGATE_BATCH_ENABLED)
+          ? BatchAggregators.newBatchAggregators(aggregators,
+            conf.getInt(AGGREGATE_BATCH_SIZE_ATTRIB, DEFAULT_AGGREGATE_BATCH_SIZE))
+          : null;
       region = c.getEnvironment().getRegion();
       minMaxQualifiers = EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan);
       useQualifierAsIndex = EncodedColumnsUtil.useQualifierAsIndex(minMaxQualifiers);
@@ -820,7 +841,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
               key = TupleUtil.getConcatenatedValue(result, expressions);
               aggBoundary = currentKey != null && currentKey.compareTo(key) != 0;
               if (!aggBoundary) {
-                aggregators.aggregate(rowAggregators, result);
+                aggregate(rowAggregators, result);
                 if (LOGGER.isDebugEnabled()) {
                   LOGGER.debug(LogUtil.addCustomAnnotations("Row passed filters: " + kvs
                     + ", aggregated values: " + Arrays.asList(rowAggregators),
@@ -861,6 +882,9 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
           return true;
         }
         if (currentKey != null) {
+          if (batchAggregators != null) {
+            batchAggregators.flush();
+          }
           if (!isIncompatibleClient) {
             byte[] aggregateArrayBytes = aggregators.toBytes(rowAggregators);
             byte[] aggregateGroupValueBytes = new byte[currentKey.getLength()];
@@ -887,7 +911,7 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
           // the returned result).
           if (aggBoundary) {
             aggregators.reset(rowAggregators);
-            aggregators.aggregate(rowAggregators, result);
+            aggregate(rowAggregators, result);
             currentKey = key;
             if (result.size() > 0) {
               result.getKey(currentKeyRowKey);
@@ -916,6 +940,14 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver
       }
     }
 
+    private void aggregate(Aggregator[] rowAggregators, Tuple result) {
+      if (batchAggregators != null) {
+        batchAggregators.aggregate(rowAggregators, result);
+      } else {
+        aggregators.aggregate(rowAggregators, result);
+      }
+    }
+
     /**
      * Add dummy cell to the result list based on either the previous rowkey returned to the client
      * or the start rowkey and start rowkey include params.
@@ -50,6 +50,7 @@ import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.iterate.RegionScannerFactory;
 import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.join.HashJoinRuntimeFilter;
 import org.apache.phoenix.parse.JoinTableNode.JoinType;
 import org.apache.phoenix.schema.IllegalDataException;
 import org.apache.phoenix.schema.KeyValueSchema;
@@ -74,6 +75,11 @@ public class HashJoinRegionScanner implements RegionScanner {
   private long limit;
   private HashCache[] hashCaches;
   private List<Tuple>[] tempTuples;
+  // Reused for probing the hash caches, which do not hold on to the key
+  private final ImmutableBytesPtr tempKey = new ImmutableBytesPtr();
+  private final HashJoinRuntimeFilter[] runtimeFilters;
+  // Rows rejected by the runtime filters since last reported to the scanner context
+  private long rowsFilteredByRuntimeFilters;
   private ValueBitSet tempDestBitSet;
   private ValueBitSet[] tempSrcBitSet;
   private final boolean useQualifierAsListIndex;
@@ -118,6 +124,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     this.tempTuples = new List[count];
     this.hashCaches = new HashCache[count];
     this.tempSrcBitSet = new ValueBitSet[count];
+    this.runtimeFilters = joinInfo.getRuntimeFilters();
     TenantCache cache = GlobalCache.getTenantCache(env, tenantId);
     for (int i = 0; i < count; i++) {
       ImmutableBytesPtr joinId = joinInfo.getJoinIds()[i];
@@ -169,9 +176,7 @@ public class HashJoinRegionScanner implements RegionScanner {
     boolean cont = true;
     for (int i = 0; i < count; i++) {
       if (!(joinInfo.earlyEvaluation()[i]) || hashCaches[i] == null) continue;
-      ImmutableBytesPtr key =
-        TupleUtil.getConcatenatedValue(tuple, joinInfo.getJoinExpressions()[i]);
-      tempTuples[i] = hashCaches[i].get(key);
+      tempTuples[i] = probe(i, tuple);
       JoinType type = joinInfo.getJoinTypes()[i];
       if (
         ((type == JoinType.Inner || type == JoinType.Semi) && tempTuples[i] == null)
@@ -205,9 +210,7 @@ public class HashJoinRegionScanner implements RegionScanner {
           while (j-- > 0) {
             Tuple lhs = resultQueue.poll();
             if (!earlyEvaluation) {
-              ImmutableBytesPtr key =
-                TupleUtil.getConcatenatedValue(lhs, joinInfo.getJoinExpressions()[i]);
-              tempTuples[i] = hashCaches[i].get(key);
+              tempTuples[i] = probe(i, lhs);
               if (tempTuples[i] == null) {
                 if (type == JoinType.Inner || type == JoinType.Semi) {
                   continue;
@@ -260,6 +263,31 @@ public class HashJoinRegionScanner implements RegionScanner {
     }
   }
 
+  /**
+   * Look up the join key of the probe side tuple in the hash cache of the given join, unless the
+   * runtime filter of the join shows that the key cannot be there.
+   */
+  private List<Tuple> probe(int index, Tuple tuple) throws IOException {
+    ImmutableBytesPtr key =
+      TupleUtil.getConcatenatedValue(tuple, joinInfo.getJoinExpressions()[index], tempKey);
+    HashJoinRuntimeFilter runtimeFilter = runtimeFilters[index];
+    if (runtimeFilter != null && !runtimeFilter.mightContain(key)) {
+      rowsFilteredByRuntimeFilters++;
+      return null;
+    }
+    return hashCaches[index].get(key);
+  }
+
+  private void updateMetrics(ScannerContext scannerContext) {
+    if (
+      rowsFilteredByRuntimeFilters > 0 && scannerContext != null
+        && scannerContext.isTrackingMetrics()
+    ) {
+      scannerContext.getMetrics().countOfRowsFiltered.addAndGet(rowsFilteredByRuntimeFilters);
+      rowsFilteredByRuntimeFilters = 0;
+    }
+  }
+
   private boolean shouldAdvance() {
     if (!resultQueue.isEmpty()) return false;
 
@@ -321,6 +349,7 @@ public class HashJoinRegionScanner implements RegionScanner {
         }
         Cell cell = result.get(0);
         processResults(result, false);
+        updateMetrics(scannerContext);
         if (
           PhoenixScannerContext.isReturnImmediately(scannerContext)
             || PhoenixScannerContext.isTimedOut(scannerContext, pageSizeMs)
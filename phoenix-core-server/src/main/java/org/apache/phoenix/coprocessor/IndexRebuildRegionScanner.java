@@ -84,6 +84,7 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
   }
 
   private int singleRowRebuildReturnCode;
+  private boolean isBatchReadRepair;
 
   @VisibleForTesting
   public IndexRebuildRegionScanner(final RegionScanner innerScanner, final Region region,
@@ -99,6 +100,12 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
       pageSizeInRows = 1;
       return;
     }
+    isBatchReadRepair =
+      scan.getAttribute(BaseScannerRegionObserverConstants.INDEX_ROWS_READ_REPAIR) != null;
+    if (isBatchReadRepair) {
+      // The index rows are rebuilt without verification, which does not need the index regions
+      return;
+    }
     try (org.apache.hadoop.hbase.client.Connection connection =
       HBaseFactoryProvider.getHConnectionFactory().createConnection(env.getConfiguration())) {
       regionEndKeys = connection.getRegionLocator(indexHTable.getName()).getEndKeys();
@@ -388,7 +395,7 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
           }
         } while (hasMore && indexMutationCount < pageSizeInRows && dataRowCount < pageSizeInRows);
         if (!indexMutationMap.isEmpty()) {
-          if (indexRowKeyforReadRepair != null) {
+          if (indexRowKeyforReadRepair != null || isBatchReadRepair) {
             rebuildIndexRows(indexMutationMap, Collections.EMPTY_LIST, verificationResult);
           } else {
             verifyAndOrRebuildIndex(indexMutationMap, mostRecentIndexRowKeys);
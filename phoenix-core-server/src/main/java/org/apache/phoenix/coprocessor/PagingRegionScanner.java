@@ -33,7 +33,6 @@ import org.apache.hadoop.hbase.regionserver.ScannerContext;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.filter.PagingFilter;
 import org.apache.phoenix.filter.SkipScanFilter;
-import org.apache.phoenix.query.KeyRange;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.util.ScanUtil;
 import org.slf4j.Logger;
@@ -64,13 +63,13 @@ public class PagingRegionScanner extends BaseRegionScanner {
 
   private class MultiKeyPointLookup {
     private SkipScanFilter skipScanFilter;
-    private List<KeyRange> pointLookupRanges = null;
+    private int pointLookupKeyCount;
     private int lookupPosition = 0;
     private byte[] lookupKeyPrefix = null;
 
     private MultiKeyPointLookup(SkipScanFilter skipScanFilter) throws IOException {
       this.skipScanFilter = skipScanFilter;
-      pointLookupRanges = skipScanFilter.getPointLookupKeyRanges();
+      pointLookupKeyCount = skipScanFilter.getPointLookupKeyCount();
       lookupPosition = findLookupPosition(scan.getStartRow());
       if (skipScanFilter.getOffset() > 0) {
         lookupKeyPrefix = new byte[skipScanFilter.getOffset()];
@@ -83,36 +82,28 @@ public class PagingRegionScanner extends BaseRegionScanner {
     }
 
     private int findLookupPosition(byte[] startRowKey) {
-      for (int i = 0; i < pointLookupRanges.size(); i++) {
-        byte[] rowKey = pointLookupRanges.get(i).getLowerRange();
-        if (
-          Bytes.compareTo(startRowKey, skipScanFilter.getOffset(),
-            startRowKey.length - skipScanFilter.getOffset(), rowKey, 0, rowKey.length) <= 0
-        ) {
-          return i;
-        }
-      }
-      return pointLookupRanges.size();
+      return skipScanFilter.findPointLookupKey(startRowKey, skipScanFilter.getOffset(),
+        startRowKey.length - skipScanFilter.getOffset());
     }
 
     private boolean verifyStartRowKey(byte[] startRowKey) {
       // The startRowKey may not be one of the point lookup keys. This happens when
       // the region moves and the HBase client adjusts the scan start row key.
       lookupPosition = findLookupPosition(startRowKey);
-      if (lookupPosition == pointLookupRanges.size()) {
+      if (lookupPosition == pointLookupKeyCount) {
         return false;
       }
-      byte[] rowKey = pointLookupRanges.get(lookupPosition++).getLowerRange();
+      byte[] rowKey = skipScanFilter.getPointLookupKey(lookupPosition++);
       scan.withStopRow(rowKey, true);
       scan.withStopRow(rowKey, true);
       return true;
     }
 
     private RegionScanner getNewScanner() throws IOException {
-      if (lookupPosition >= pointLookupRanges.size()) {
+      if (lookupPosition >= pointLookupKeyCount) {
         return null;
       }
-      byte[] rowKey = pointLookupRanges.get(lookupPosition++).getLowerRange();
+      byte[] rowKey = skipScanFilter.getPointLookupKey(lookupPosition++);
       byte[] adjustedRowKey = rowKey;
       if (lookupKeyPrefix != null) {
         int len = rowKey.length + lookupKeyPrefix.length;
@@ -126,7 +117,7 @@ public class PagingRegionScanner extends BaseRegionScanner {
     }
 
     private boolean hasMore() {
-      return lookupPosition < pointLookupRanges.size();
+      return lookupPosition < pointLookupKeyCount;
     }
 
     private boolean next(List<Cell> results, boolean raw, RegionScanner scanner,
@@ -163,7 +154,7 @@ public class PagingRegionScanner extends BaseRegionScanner {
           }
 
           if (PhoenixScannerContext.isTimedOut(scannerContext, pageSizeMs)) {
-            byte[] rowKey = pointLookupRanges.get(lookupPosition - 1).getLowerRange();
+            byte[] rowKey = skipScanFilter.getPointLookupKey(lookupPosition - 1);
             ScanUtil.getDummyResult(rowKey, results);
             return true;
           }
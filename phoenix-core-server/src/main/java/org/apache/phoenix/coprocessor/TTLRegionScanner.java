@@ -38,15 +38,24 @@ import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.regionserver.PhoenixScannerContext;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.regionserver.TimeRangeTracker;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.CompiledTTLExpression;
+import org.apache.phoenix.schema.LiteralTTLExpression;
 import org.apache.phoenix.schema.TTLExpressionFactory;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PhoenixTimeRangeUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * TTLRegionScanner masks expired rows using the empty column cell timestamp
+ * TTLRegionScanner masks expired rows using the empty column cell timestamp. When
+ * phoenix.ttl.time.range.check.enabled is set and the TTL is a literal, the range of the timestamps
+ * of the cells the scan can read is checked first: if all the cells are older than the TTL window,
+ * all the rows are masked without being read, and if all the cells are within the window, no row
+ * is checked.
  */
 public class TTLRegionScanner extends BaseRegionScanner {
   private static final Logger LOG = LoggerFactory.getLogger(TTLRegionScanner.class);
@@ -63,6 +72,8 @@ public class TTLRegionScanner extends BaseRegionScanner {
   private boolean initialized = false;
   private CompiledTTLExpression ttlExpression;
   long currentTime;
+  private boolean isRegionExpired = false;
+  private boolean isRegionLive = false;
 
   public TTLRegionScanner(final RegionCoprocessorEnvironment env, final Scan scan,
     final RegionScanner s) throws IOException {
@@ -113,6 +124,36 @@ public class TTLRegionScanner extends BaseRegionScanner {
       delegate.close();
       delegate = ((DelegateRegionScanner) delegate).getNewRegionScanner(scan);
     }
+    if (
+      ttlExpression instanceof LiteralTTLExpression
+        && env.getConfiguration().getBoolean(QueryServices.PHOENIX_TTL_TIME_RANGE_CHECK_ENABLED,
+          QueryServicesOptions.DEFAULT_PHOENIX_TTL_TIME_RANGE_CHECK_ENABLED)
+    ) {
+      checkCellTimeRange(((LiteralTTLExpression) ttlExpression).getTTLValue() * 1000L);
+    }
+  }
+
+  /**
+   * Checks if a literal TTL expires all the rows of the scan or none of them, using the cell time
+   * ranges of the memstores of the region and of its store files that overlap the scan. The region
+   * scanner is already open, so the cells it returns are within the range.
+   */
+  private void checkCellTimeRange(long ttlInMillis) throws IOException {
+    TimeRangeTracker timeRange = PhoenixTimeRangeUtil.getCellTimeRange(env.getRegion(), scan);
+    if (timeRange == null) {
+      return;
+    }
+    long regionTTLWindowStart = currentTime - ttlInMillis;
+    if (timeRange.getMax() < regionTTLWindowStart) {
+      // All the cells, so the empty column cells of all the rows, are older than the TTL window
+      isRegionExpired = true;
+    } else if (timeRange.getMin() >= regionTTLWindowStart && timeRange.getMax() <= currentTime) {
+      // The empty column cells are within the TTL window, and the cells of a row are
+      // at most TTL apart so there is no gap to trim
+      isRegionLive = true;
+    }
+    LOG.debug("Cell time range of {} is {}, expired = {}, live = {}",
+      env.getRegionInfo().getRegionNameAsString(), timeRange, isRegionExpired, isRegionLive);
   }
 
   private void setTTLContextForRow(List<Cell> result) {
@@ -263,6 +304,9 @@ public class TTLRegionScanner extends BaseRegionScanner {
       init();
       initialized = true;
     }
+    if (isRegionExpired) {
+      return false;
+    }
 
     if (scannerContext != null) {
       hasMore =
@@ -274,9 +318,11 @@ public class TTLRegionScanner extends BaseRegionScanner {
     if (result.isEmpty() || ScanUtil.isDummy(result)) {
       return hasMore;
     }
-    hasMore = skipExpired(result, raw, hasMore, scannerContext);
-    if (result.isEmpty() || ScanUtil.isDummy(result)) {
-      return hasMore;
+    if (!isRegionLive) {
+      hasMore = skipExpired(result, raw, hasMore, scannerContext);
+      if (result.isEmpty() || ScanUtil.isDummy(result)) {
+        return hasMore;
+      }
     }
     rowCount++;
     if (rowCount >= maxRowCount) {
@@ -18,16 +18,26 @@
 package org.apache.phoenix.coprocessor;
 
 import static org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants.PHYSICAL_DATA_TABLE_NAME;
+import static org.apache.phoenix.util.ScanUtil.isDummy;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
@@ -35,8 +45,10 @@ import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.PhoenixScannerContext;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.compat.hbase.CompatScanMetrics;
@@ -56,10 +68,18 @@ import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+import org.apache.phoenix.thirdparty.com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * This is an index table region scanner which scans index table rows locally and then extracts data
  * table row keys from them. Using the data table row keys, the data table rows are scanned using
  * the HBase client available to region servers.
+ * <p>
+ * By default, the data table rows of a page of index rows are retrieved before the next page of
+ * index rows is scanned. If phoenix.index.prefetch.page.count is set, the data table rows of up to
+ * that many pages are retrieved in the background while the next pages of index rows are scanned,
+ * so that the index region and the data table regions are read at the same time.
  */
 public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScanner {
   private static final Logger LOGGER =
@@ -68,6 +88,9 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
   public static final String INDEX_ROW_COUNTS_PER_TASK_CONF_KEY =
     "phoenix.index.row.count.per.task";
   public static final int DEFAULT_INDEX_ROW_COUNTS_PER_TASK = 2048;
+  public static final String INDEX_PREFETCH_PAGE_COUNT_CONF_KEY =
+    "phoenix.index.prefetch.page.count";
+  public static final int DEFAULT_INDEX_PREFETCH_PAGE_COUNT = 0;
 
   protected byte[][] regionEndKeys;
   protected final Table dataHTable;
@@ -76,6 +99,10 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
   protected final HTableFactory hTableFactory;
   private final boolean isScanMetricsEnabled;
   private List<DataTableScanMetricsWithScanTime> dataTableScanMetrics;
+  private final int prefetchPageCount;
+  private final Deque<PrefetchedPage> prefetchedPages = new ArrayDeque<>();
+  private boolean isIndexScanDone = false;
+  private volatile boolean isClosed = false;
 
   // This relies on Hadoop Configuration to handle warning about deprecated configs and
   // to set the correct non-deprecated configs when an old one shows up.
@@ -111,10 +138,37 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
     if (isScanMetricsEnabled) {
       dataTableScanMetrics = new ArrayList<>();
     }
+    // Pages of a query with a limit or with a distinct prefix are too small to prefetch
+    prefetchPageCount = queryLimit == -1 && !isDistinct && !indexMaintainer.isCDCIndex()
+      ? config.getInt(INDEX_PREFETCH_PAGE_COUNT_CONF_KEY, DEFAULT_INDEX_PREFETCH_PAGE_COUNT)
+      : 0;
   }
 
+  /**
+   * Drains the prefetched pages before closing the data table, so that none of their scans is
+   * left running on it. The scans stop at their next row once the scanner is closed.
+   */
   @Override
   public void close() throws IOException {
+    isClosed = true;
+    boolean interrupted = false;
+    for (PrefetchedPage page : prefetchedPages) {
+      while (true) {
+        try {
+          page.resultsFuture.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          // The results of the page are not needed anymore
+          break;
+        }
+      }
+    }
+    prefetchedPages.clear();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
     innerScanner.close();
     hTableFactory.shutdown();
     if (dataHTable != null) {
@@ -180,27 +234,35 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
     });
   }
 
+  private static TaskRunner getThreadPool() throws IOException {
+    TaskRunner pool = PhoenixRegionServerEndpoint.getUncoveredIndexThreadPool();
+    if (pool == null) {
+      throw new IOException(
+        "PhoenixRegionServerEndpoint should be loaded to use Uncovered Indexes.");
+    }
+    return pool;
+  }
+
   protected void submitTasks(TaskBatch<Boolean> tasks) throws IOException {
     Pair<List<Boolean>, List<Future<Boolean>>> resultsAndFutures = null;
     try {
       LOGGER.debug("Waiting on index tasks to complete...");
-      TaskRunner pool = PhoenixRegionServerEndpoint.getUncoveredIndexThreadPool();
-      if (pool == null) {
-        throw new IOException(
-          "PhoenixRegionServerEndpoint should be loaded to use Uncovered Indexes.");
-      }
-      resultsAndFutures = pool.submitUninterruptible(tasks);
+      resultsAndFutures = getThreadPool().submitUninterruptible(tasks);
     } catch (ExecutionException e) {
       throw new RuntimeException(
         "Should not fail on the results while using a WaitForCompletionTaskRunner", e);
     } catch (EarlyExitFailure e) {
       throw new RuntimeException("Stopped while waiting for batch, quitting!", e);
     }
+    checkTaskResults(resultsAndFutures.getFirst(), resultsAndFutures.getSecond());
+  }
+
+  private void checkTaskResults(List<Boolean> results, List<Future<Boolean>> futures)
+    throws IOException {
     int index = 0;
-    for (Boolean result : resultsAndFutures.getFirst()) {
+    for (Boolean result : results) {
       if (result == null) {
-        Throwable cause =
-          ServerUtil.getExceptionFromFailedFuture(resultsAndFutures.getSecond().get(index));
+        Throwable cause = ServerUtil.getExceptionFromFailedFuture(futures.get(index));
         // there was a failure
         throw new IOException(exceptionMessage == null ? "" : exceptionMessage, cause);
       }
@@ -227,8 +289,20 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
     }
     submitTasks(tasks);
     if (isScanMetricsEnabled) {
-      DataTableScanMetricsWithScanTime dataTableScanMetricsForSlowestScan = null;
-      for (DataTableScanMetricsWithScanTime dataTableScanMetrics : dataTableScanMetrics) {
+      populateSlowestScanMetrics(dataTableScanMetrics);
+    }
+    if (state == State.SCANNING_DATA_INTERRUPTED) {
+      state = State.SCANNING_DATA;
+    } else {
+      state = State.READY;
+    }
+  }
+
+  private static void
+    populateSlowestScanMetrics(List<DataTableScanMetricsWithScanTime> dataTableScanMetricsList) {
+    DataTableScanMetricsWithScanTime dataTableScanMetricsForSlowestScan = null;
+    synchronized (dataTableScanMetricsList) {
+      for (DataTableScanMetricsWithScanTime dataTableScanMetrics : dataTableScanMetricsList) {
         if (dataTableScanMetricsForSlowestScan == null) {
           dataTableScanMetricsForSlowestScan = dataTableScanMetrics;
         } else if (
@@ -238,14 +312,198 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
           dataTableScanMetricsForSlowestScan = dataTableScanMetrics;
         }
       }
-      if (dataTableScanMetricsForSlowestScan != null) {
-        dataTableScanMetricsForSlowestScan.populateThreadLocalServerSideScanMetrics();
+    }
+    if (dataTableScanMetricsForSlowestScan != null) {
+      dataTableScanMetricsForSlowestScan.populateThreadLocalServerSideScanMetrics();
+    }
+  }
+
+  /**
+   * A page of index rows whose data table rows are retrieved in the background
+   */
+  private static class PrefetchedPage {
+    private final List<List<Cell>> indexRows;
+    private final Map<byte[], byte[]> indexToDataRowKeyMap;
+    private final Map<ImmutableBytesPtr, Result> dataRows = Maps.newConcurrentMap();
+    private final List<DataTableScanMetricsWithScanTime> dataTableScanMetrics =
+      Collections.synchronizedList(new ArrayList<DataTableScanMetricsWithScanTime>());
+    private ListenableFuture<List<Boolean>> resultsFuture;
+    private List<Future<Boolean>> futures;
+
+    PrefetchedPage(List<List<Cell>> indexRows, Map<byte[], byte[]> indexToDataRowKeyMap) {
+      this.indexRows = indexRows;
+      this.indexToDataRowKeyMap = indexToDataRowKeyMap;
+    }
+  }
+
+  /**
+   * Retrieves the data table rows of a page in the background. Unlike the scans of
+   * {@link #scanDataRows(Collection, long)}, these scans are not bound to the time of an RPC, so
+   * they skip the dummy results of the data table regions and run until they complete.
+   */
+  private void scanDataRows(Collection<byte[]> dataRowKeys, PrefetchedPage page)
+    throws IOException {
+    Scan dataScan = prepareDataTableScan(dataRowKeys, false, page.dataRows);
+    if (dataScan == null) {
+      return;
+    }
+    long startTime = EnvironmentEdgeManager.currentTimeMillis();
+    dataScan.setScanMetricsEnabled(isScanMetricsEnabled);
+    try (ResultScanner resultScanner = dataHTable.getScanner(dataScan)) {
+      for (Result result = resultScanner.next(); (result != null); result = resultScanner.next()) {
+        if (isClosed) {
+          break;
+        }
+        if (!ScanUtil.isDummy(result)) {
+          page.dataRows.put(new ImmutableBytesPtr(result.getRow()), result);
+        }
+      }
+      if (isScanMetricsEnabled) {
+        long scanTimeInMs = EnvironmentEdgeManager.currentTimeMillis() - startTime;
+        page.dataTableScanMetrics
+          .add(buildDataTableScanMetrics(resultScanner.getScanMetrics(), scanTimeInMs));
       }
+    } catch (Throwable t) {
+      exceptionMessage = "scanDataRows fails for at least one prefetch task";
+      ClientUtil.throwIOException(dataHTable.getName().toString(), t);
     }
-    if (state == State.SCANNING_DATA_INTERRUPTED) {
-      state = State.SCANNING_DATA;
-    } else {
-      state = State.READY;
+  }
+
+  private PrefetchedPage prefetchDataTableRows() throws IOException {
+    final PrefetchedPage page = new PrefetchedPage(indexRows, indexToDataRowKeyMap);
+    TreeSet<byte[]> dataRowKeys = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    dataRowKeys.addAll(indexToDataRowKeyMap.values());
+    List<Set<byte[]>> setList =
+      IndexRepairRegionScanner.getPerTaskDataRowKeys(dataRowKeys, regionEndKeys, rowCountPerTask);
+    TaskBatch<Boolean> tasks = new TaskBatch<>(setList.size());
+    for (final Set<byte[]> taskDataRowKeys : setList) {
+      tasks.add(new Task<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          if (Thread.currentThread().isInterrupted()) {
+            exceptionMessage = "Pool closed, not retrieving data table rows for "
+              + region.getRegionInfo().getRegionNameAsString();
+            throw new IOException(exceptionMessage);
+          }
+          if (!isClosed) {
+            scanDataRows(taskDataRowKeys, page);
+          }
+          return Boolean.TRUE;
+        }
+      });
+    }
+    Pair<ListenableFuture<List<Boolean>>, List<Future<Boolean>>> resultsAndFutures =
+      getThreadPool().submitAsync(tasks);
+    page.resultsFuture = resultsAndFutures.getFirst();
+    page.futures = resultsAndFutures.getSecond();
+    return page;
+  }
+
+  /**
+   * Waits for the data table rows of the oldest prefetched page until the page of the RPC times
+   * out, and makes it the current page
+   * @return false if the page of the RPC timed out first
+   */
+  private boolean takePrefetchedPage(long startTime) throws IOException {
+    PrefetchedPage page = prefetchedPages.peek();
+    List<Boolean> results;
+    try {
+      long remainingMs = pageSizeMs - (EnvironmentEdgeManager.currentTimeMillis() - startTime);
+      results = page.resultsFuture.isDone()
+        ? page.resultsFuture.get()
+        : page.resultsFuture.get(Math.max(remainingMs, 0), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while retrieving data table rows for "
+        + region.getRegionInfo().getRegionNameAsString());
+    } catch (ExecutionException e) {
+      throw new RuntimeException(
+        "Should not fail on the results while using a WaitForCompletionTaskRunner", e);
+    }
+    checkTaskResults(results, page.futures);
+    prefetchedPages.poll();
+    indexRows = page.indexRows;
+    indexToDataRowKeyMap = page.indexToDataRowKeyMap;
+    dataRows = page.dataRows;
+    indexRowIterator = indexRows.iterator();
+    if (isScanMetricsEnabled) {
+      populateSlowestScanMetrics(page.dataTableScanMetrics);
+    }
+    return true;
+  }
+
+  /**
+   * Pipelines the scans of the index rows and of the data table rows: while the data table rows of
+   * up to prefetchPageCount pages are retrieved in the background, the next page of index rows is
+   * scanned, and the rows of a page are returned once its data table rows are retrieved.
+   */
+  @Override
+  public boolean next(List<Cell> result, ScannerContext scannerContext) throws IOException {
+    if (prefetchPageCount <= 0) {
+      return super.next(result, scannerContext);
+    }
+    long startTime = (scannerContext != null)
+      ? ((PhoenixScannerContext) scannerContext).getStartTime()
+      : EnvironmentEdgeManager.currentTimeMillis();
+    region.startRegionOperation();
+    try {
+      synchronized (innerScanner) {
+        while (true) {
+          if (state == State.READY) {
+            if (indexRowIterator.hasNext()) {
+              boolean moreRows = getNextCoveredIndexRow(result);
+              if (!result.isEmpty()) {
+                previousResultRowKey = CellUtil.cloneRow(result.get(0));
+              }
+              return moreRows;
+            }
+            state = State.INITIAL;
+          }
+          if (state == State.INITIAL) {
+            if (!isIndexScanDone && prefetchedPages.size() < prefetchPageCount) {
+              indexRowCount = 0;
+              indexRows = new ArrayList<>();
+              indexToDataRowKeyMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+              state = State.SCANNING_INDEX;
+            } else if (!prefetchedPages.isEmpty()) {
+              state = State.SCANNING_DATA;
+            } else {
+              return false;
+            }
+          }
+          if (state == State.SCANNING_INDEX) {
+            boolean hasMore = scanIndexTableRows(result, scannerContext);
+            if (isDummy(result)) {
+              updateDummyWithPrevRowKey(result, initStartRowKey, includeInitStartRowKey, scan);
+              return true;
+            }
+            isIndexScanDone = !hasMore;
+            if (indexRowCount > 0) {
+              prefetchedPages.add(prefetchDataTableRows());
+            }
+            state = State.INITIAL;
+          }
+          if (state == State.SCANNING_DATA && takePrefetchedPage(startTime)) {
+            state = State.READY;
+          }
+          if (
+            state != State.READY && (PhoenixScannerContext.isTimedOut(scannerContext, pageSizeMs)
+              || PhoenixScannerContext.isReturnImmediately(scannerContext)
+              || state == State.SCANNING_DATA)
+          ) {
+            updateDummyWithPrevRowKey(result, initStartRowKey, includeInitStartRowKey, scan);
+            return true;
+          }
+        }
+      }
+    } catch (Throwable e) {
+      LOGGER.error("Exception in UncoveredGlobalIndexRegionScanner for region "
+        + region.getRegionInfo().getRegionNameAsString(), e);
+      throw e;
+    } finally {
+      region.closeRegionOperation();
     }
   }
 
@@ -106,9 +106,9 @@ public abstract class UncoveredIndexRegionScanner extends BaseRegionScanner {
   protected int indexRowCount = 0;
   protected final long pageSizeMs;
   protected byte[] lastIndexRowKey = null;
-  private byte[] previousResultRowKey = null;
-  private final byte[] initStartRowKey;
-  private final boolean includeInitStartRowKey;
+  protected byte[] previousResultRowKey = null;
+  protected final byte[] initStartRowKey;
+  protected final boolean includeInitStartRowKey;
 
   public UncoveredIndexRegionScanner(final RegionScanner innerScanner, final Region region,
     final Scan scan, final RegionCoprocessorEnvironment env, final Scan dataTableScan,
@@ -197,12 +197,21 @@ public abstract class UncoveredIndexRegionScanner extends BaseRegionScanner {
 
   protected Scan prepareDataTableScan(Collection<byte[]> dataRowKeys,
     boolean includeMultipleVersions) throws IOException {
+    return prepareDataTableScan(dataRowKeys, includeMultipleVersions, dataRows);
+  }
+
+  /**
+   * @param fetchedRows the data rows already fetched for the page of the given data row keys
+   */
+  protected Scan prepareDataTableScan(Collection<byte[]> dataRowKeys,
+    boolean includeMultipleVersions, Map<ImmutableBytesPtr, Result> fetchedRows)
+    throws IOException {
     List<KeyRange> keys = new ArrayList<>(dataRowKeys.size());
     for (byte[] dataRowKey : dataRowKeys) {
       // If the data table scan was interrupted because of paging we retry the scan
       // but on retry we should only fetch data table rows which we haven't already
       // fetched.
-      if (!dataRows.containsKey(new ImmutableBytesPtr(dataRowKey))) {
+      if (!fetchedRows.containsKey(new ImmutableBytesPtr(dataRowKey))) {
         keys.add(PVarbinary.INSTANCE.getKeyRange(dataRowKey, SortOrder.ASC));
       }
     }
@@ -480,7 +489,7 @@ public abstract class UncoveredIndexRegionScanner extends BaseRegionScanner {
    * @param includeInitStartRowKey scan start rowkey included.
    * @param scan                   scan object.
    */
-  private void updateDummyWithPrevRowKey(List<Cell> result, byte[] initStartRowKey,
+  protected void updateDummyWithPrevRowKey(List<Cell> result, byte[] initStartRowKey,
     boolean includeInitStartRowKey, Scan scan) {
     result.clear();
     if (previousResultRowKey != null) {
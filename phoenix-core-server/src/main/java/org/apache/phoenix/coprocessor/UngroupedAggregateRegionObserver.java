@@ -33,11 +33,13 @@ import java.security.PrivilegedExceptionAction;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
@@ -59,6 +61,7 @@ import org.apache.hadoop.hbase.coprocessor.RegionObserver;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.ipc.RpcControllerFactory;
 import org.apache.hadoop.hbase.ipc.controller.InterRegionServerIndexRpcControllerFactory;
+import org.apache.hadoop.hbase.regionserver.FlushLifeCycleTracker;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
 import org.apache.hadoop.hbase.regionserver.Region;
@@ -99,6 +102,7 @@ import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTableImpl;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.TableNotFoundException;
+import org.apache.phoenix.schema.stats.BulkLoadStatisticsCollector;
 import org.apache.phoenix.schema.stats.NoOpStatisticsCollector;
 import org.apache.phoenix.schema.stats.StatisticsCollectionRunTracker;
 import org.apache.phoenix.schema.stats.StatisticsCollector;
@@ -1023,6 +1027,61 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
     }
   }
 
+  private static boolean isIncrementalStatsEnabled(Configuration conf) {
+    return conf.getBoolean(QueryServices.STATS_INCREMENTAL_ENABLED,
+      QueryServicesOptions.DEFAULT_STATS_INCREMENTAL_ENABLED);
+  }
+
+  @Override
+  public InternalScanner preFlush(ObserverContext<RegionCoprocessorEnvironment> c, Store store,
+    InternalScanner scanner, FlushLifeCycleTracker tracker) throws IOException {
+    if (!isIncrementalStatsEnabled(c.getEnvironment().getConfiguration())) {
+      return scanner;
+    }
+    final TableName tableName = c.getEnvironment().getRegion().getRegionInfo().getTable();
+    // Merge the stats of the flushed cells into the stats of the region so that they account
+    // for new data before the next major compaction
+    return User.runAsLoginUser(new PrivilegedExceptionAction<InternalScanner>() {
+      @Override
+      public InternalScanner run() throws Exception {
+        try {
+          DelegateRegionCoprocessorEnvironment compactionConfEnv =
+            new DelegateRegionCoprocessorEnvironment(c.getEnvironment(),
+              ConnectionType.COMPACTION_CONNECTION);
+          StatisticsCollector statisticsCollector =
+            StatisticsCollectorFactory.createIncrementalStatisticsCollector(compactionConfEnv,
+              tableName.getNameAsString(), EnvironmentEdgeManager.currentTimeMillis(),
+              store.getColumnFamilyDescriptor().getName());
+          // The collector is initialized when its stats are merged, after the flush
+          return statisticsCollector.createCompactionScanner(compactionConfEnv, store, scanner);
+        } catch (Exception e) {
+          // Don't fail the flush if the stats can't be updated
+          LOGGER.warn("Unable to collect stats of the flush for " + tableName, e);
+          return scanner;
+        }
+      }
+    });
+  }
+
+  @Override
+  public void postBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> c,
+    List<Pair<byte[], String>> stagingFamilyPaths, Map<byte[], List<Path>> finalPaths)
+    throws IOException {
+    Configuration conf = c.getEnvironment().getConfiguration();
+    if (finalPaths == null || !isIncrementalStatsEnabled(conf)) {
+      return;
+    }
+    String tableName = c.getEnvironment().getRegion().getRegionInfo().getTable().getNameAsString();
+    DelegateRegionCoprocessorEnvironment compactionConfEnv =
+      new DelegateRegionCoprocessorEnvironment(c.getEnvironment(),
+        ConnectionType.COMPACTION_CONNECTION);
+    // Bulk loaded files are read in the background, off the bulk load path
+    for (Map.Entry<byte[], List<Path>> entry : finalPaths.entrySet()) {
+      StatisticsCollectionRunTracker.getInstance(conf).runTask(new BulkLoadStatisticsCollector(
+        compactionConfEnv, tableName, entry.getKey(), entry.getValue()));
+    }
+  }
+
   @Override
   public void preBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> c,
     List<Pair<byte[], String>> familyPaths) throws IOException {
@@ -30,9 +30,13 @@ import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
 import static org.apache.phoenix.query.QueryConstants.UNGROUPED_AGG_ROW_KEY;
+import static org.apache.phoenix.query.QueryServices.AGGREGATE_BATCH_ENABLED_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.AGGREGATE_BATCH_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MUTATE_BATCH_SIZE_BYTES_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.SOURCE_OPERATION_ATTRIB;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_AGGREGATE_BATCH_ENABLED;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_AGGREGATE_BATCH_SIZE;
 import static org.apache.phoenix.schema.PTableImpl.getColumnsToClone;
 import static org.apache.phoenix.util.ScanUtil.getPageSizeMsForRegionScanner;
 import static org.apache.phoenix.util.ScanUtil.isDummy;
@@ -74,7 +78,7 @@ import org.apache.phoenix.exception.DataExceedsCapacityException;
 import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.aggregator.Aggregator;
-import org.apache.phoenix.expression.aggregator.Aggregators;
+import org.apache.phoenix.expression.aggregator.BatchAggregators;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.ValueGetter;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
@@ -606,10 +610,15 @@ public class UngroupedAggregateRegionScanner extends BaseRegionScanner {
     Configuration conf = env.getConfiguration();
     final TenantCache tenantCache = GlobalCache.getTenantCache(env, ScanUtil.getTenantId(scan));
     try (MemoryManager.MemoryChunk em = tenantCache.getMemoryManager().allocate(0)) {
-      Aggregators aggregators = ServerAggregators
+      ServerAggregators aggregators = ServerAggregators
         .deserialize(scan.getAttribute(BaseScannerRegionObserverConstants.AGGREGATORS), conf, em);
       Aggregator[] rowAggregators = aggregators.getAggregators();
       aggregators.reset(rowAggregators);
+      BatchAggregators batchAggregators = null;
+      if (conf.getBoolean(AGGREGATE_BATCH_ENABLED_ATTRIB, DEFAULT_AGGREGATE_BATCH_ENABLED)) {
+        batchAggregators = BatchAggregators.newBatchAggregators(aggregators,
+          conf.getInt(AGGREGATE_BATCH_SIZE_ATTRIB, DEFAULT_AGGREGATE_BATCH_SIZE));
+      }
       Cell lastCell = null;
       boolean hasAny = false;
       ImmutableBytesWritable ptr = new ImmutableBytesWritable();
@@ -699,7 +708,11 @@ public class UngroupedAggregateRegionScanner extends BaseRegionScanner {
                   blockingMemStoreSize);
                 indexMutations.clear();
               }
-              aggregators.aggregate(rowAggregators, result);
+              if (batchAggregators != null) {
+                batchAggregators.aggregate(rowAggregators, result);
+              } else {
+                aggregators.aggregate(rowAggregators, result);
+              }
               hasAny = true;
             }
             if (
@@ -712,6 +725,9 @@ public class UngroupedAggregateRegionScanner extends BaseRegionScanner {
               break;
             }
           } while (hasMore);
+          if (batchAggregators != null) {
+            batchAggregators.flush();
+          }
           if (!mutations.isEmpty()) {
             if (!isSingleRowDelete) {
               annotateAndCommit(mutations);
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.util.MutationUtil;
+
+import org.apache.phoenix.thirdparty.com.google.common.cache.Cache;
+import org.apache.phoenix.thirdparty.com.google.common.cache.CacheBuilder;
+
+/**
+ * LRU cache of the states of the data table rows of a region after their last update through
+ * {@link IndexRegionObserver}, so that consecutive batches on the same rows do not need to read
+ * them back to build their index updates. The cached states include at least the given columns,
+ * which is what a batch that reads these columns only would get from the region. The caller is
+ * responsible for updating and invalidating the rows while holding their row locks.
+ * <p>
+ * Rows can also be updated without their next states being computed, e.g. by mutations that skip
+ * index maintenance. A batch that read the state of such a row before it was updated must not
+ * cache its own next state of the row, as it misses the update. So these updates move the cache
+ * to its next generation, and a batch caches its next row states only if the generation has not
+ * changed since it started reading its row states.
+ */
+public class DataRowStateCache {
+  private final Set<ColumnReference> columns;
+  private final Cache<ImmutableBytesPtr, Put> rowStates;
+  private final AtomicLong generation = new AtomicLong();
+
+  public DataRowStateCache(Set<ColumnReference> columns, long maxRows) {
+    this.columns = Collections.unmodifiableSet(columns);
+    this.rowStates = CacheBuilder.newBuilder().maximumSize(maxRows).build();
+  }
+
+  public Set<ColumnReference> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns a copy of the cached state of the row, or null if the row is not cached
+   */
+  public Put get(ImmutableBytesPtr rowKey) throws IOException {
+    Put rowState = rowStates.getIfPresent(rowKey);
+    return rowState == null ? null : MutationUtil.copyPut(rowState, true);
+  }
+
+  /**
+   * Caches a copy of the state of the row. A null state means that the row does not exist, in
+   * which case the row is removed from the cache.
+   */
+  public void put(ImmutableBytesPtr rowKey, Put rowState) throws IOException {
+    if (rowState == null) {
+      rowStates.invalidate(rowKey);
+    } else {
+      rowStates.put(new ImmutableBytesPtr(rowKey.copyBytesIfNecessary()),
+        MutationUtil.copyPut(rowState, true));
+    }
+  }
+
+  public void invalidate(Collection<ImmutableBytesPtr> rowKeys) {
+    rowStates.invalidateAll(rowKeys);
+  }
+
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Removes the rows updated without computing their next states, and moves the cache to its next
+   * generation so that the batches that read these rows before the update do not cache them
+   */
+  public void invalidateUncomputedUpdates(Collection<ImmutableBytesPtr> rowKeys) {
+    generation.incrementAndGet();
+    rowStates.invalidateAll(rowKeys);
+  }
+
+  public long size() {
+    return rowStates.size();
+  }
+}
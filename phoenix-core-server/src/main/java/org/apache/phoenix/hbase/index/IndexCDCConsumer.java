@@ -114,6 +114,15 @@ public class IndexCDCConsumer implements Runnable {
     "phoenix.index.cdc.consumer.poll.interval.ms";
   private static final long DEFAULT_POLL_INTERVAL_MS = 1000;
 
+  /**
+   * When enabled, the next batch is read right away instead of after the poll interval if the
+   * last batch read was full, so that a backlog of CDC events is consumed at the rate the batches
+   * can be processed rather than at one batch per poll interval.
+   */
+  public static final String INDEX_CDC_CONSUMER_DRAIN_BACKLOG_ENABLED =
+    "phoenix.index.cdc.consumer.drain.backlog.enabled";
+  private static final boolean DEFAULT_DRAIN_BACKLOG_ENABLED = false;
+
   /**
    * The time buffer in milliseconds subtracted from current time when querying CDC mutations to
    * help avoid reading mutations that are too recent.
@@ -148,6 +157,7 @@ public class IndexCDCConsumer implements Runnable {
   private final long startupDelayMs;
   private final int batchSize;
   private final long pollIntervalMs;
+  private final boolean drainBacklog;
   private final long timestampBufferMs;
   private final int maxDataVisibilityRetries;
   private final long parentProgressPauseMs;
@@ -158,6 +168,7 @@ public class IndexCDCConsumer implements Runnable {
   private Thread consumerThread;
   private boolean hasParentPartitions = false;
   private PTable cachedDataTable;
+  private boolean isLastBatchFull = false;
 
   private boolean tenantInit = false;
   private boolean isMultiTenant = false;
@@ -222,6 +233,8 @@ public class IndexCDCConsumer implements Runnable {
     this.batchSize = baseBatchSize + jitter;
     this.pollIntervalMs =
       config.getLong(INDEX_CDC_CONSUMER_POLL_INTERVAL_MS, DEFAULT_POLL_INTERVAL_MS);
+    this.drainBacklog =
+      config.getBoolean(INDEX_CDC_CONSUMER_DRAIN_BACKLOG_ENABLED, DEFAULT_DRAIN_BACKLOG_ENABLED);
     this.timestampBufferMs =
       config.getLong(INDEX_CDC_CONSUMER_TIMESTAMP_BUFFER_MS, DEFAULT_TIMESTAMP_BUFFER_MS);
     this.maxDataVisibilityRetries = config.getInt(INDEX_CDC_CONSUMER_MAX_DATA_VISIBILITY_RETRIES,
@@ -417,11 +430,11 @@ public class IndexCDCConsumer implements Runnable {
       }
       LOG.info(
         "IndexCDCConsumer started for table {} region {}"
-          + " [batchSize: {}, pollIntervalMs: {}, timestampBufferMs: {}, startupDelayMs: {},"
-          + " pause: {}, maxDataVisibilityRetries: {}, parentProgressPauseMs: {},"
-          + " serializeCDCMutations: {}]",
-        dataTableName, encodedRegionName, batchSize, pollIntervalMs, timestampBufferMs,
-        startupDelayMs, pause, maxDataVisibilityRetries, parentProgressPauseMs,
+          + " [batchSize: {}, pollIntervalMs: {}, drainBacklog: {}, timestampBufferMs: {},"
+          + " startupDelayMs: {}, pause: {}, maxDataVisibilityRetries: {},"
+          + " parentProgressPauseMs: {}, serializeCDCMutations: {}]",
+        dataTableName, encodedRegionName, batchSize, pollIntervalMs, drainBacklog,
+        timestampBufferMs, startupDelayMs, pause, maxDataVisibilityRetries, parentProgressPauseMs,
         serializeCDCMutations);
       if (!waitForCDCStreamEntry()) {
         LOG.error(
@@ -466,7 +479,9 @@ public class IndexCDCConsumer implements Runnable {
             sleepIfNotStopped(ConnectionUtils.getPauseTime(pause, ++retryCount));
           } else {
             retryCount = 0;
-            sleepIfNotStopped(pollIntervalMs);
+            if (!drainBacklog || !isLastBatchFull) {
+              sleepIfNotStopped(pollIntervalMs);
+            }
           }
         } catch (Exception e) {
           if (e instanceof InterruptedException) {
@@ -946,9 +961,10 @@ public class IndexCDCConsumer implements Runnable {
       while (hasMoreRows && batchMutations.isEmpty()) {
         try (PreparedStatement ps = conn.prepareStatement(cdcQuery)) {
           setStatementParams(scanInfo, partitionId, isParentReplay, newLastTimestamp, ps);
-          Pair<Long, Boolean> result =
+          Pair<Long, Integer> result =
             getMutationsAndTimestamp(ps, newLastTimestamp, batchMutations);
-          hasMoreRows = result.getSecond();
+          hasMoreRows = result.getSecond() > 0;
+          isLastBatchFull = result.getSecond() >= batchSize;
           if (hasMoreRows) {
             newLastTimestamp = result.getFirst();
             if (batchMutations.isEmpty()) {
@@ -971,7 +987,7 @@ public class IndexCDCConsumer implements Runnable {
           int idx = scanInfo.bindParams(ps, 1);
           ps.setString(idx++, partitionId);
           ps.setDate(idx, new Date(newLastTimestamp));
-          Pair<Long, Boolean> result =
+          Pair<Long, Integer> result =
             getMutationsAndTimestamp(ps, newLastTimestamp, batchMutations);
           newLastTimestamp = result.getFirst();
           if (newLastTimestamp != timestampToRefetch) {
@@ -1055,9 +1071,10 @@ public class IndexCDCConsumer implements Runnable {
       while (hasMoreRows && batchStates.isEmpty()) {
         try (PreparedStatement ps = conn.prepareStatement(cdcQuery)) {
           setStatementParams(scanInfo, partitionId, isParentReplay, newLastTimestamp, ps);
-          Pair<Long, Boolean> result =
+          Pair<Long, Integer> result =
             getDataRowStatesAndTimestamp(ps, newLastTimestamp, batchStates, lastScannedTimestamp);
-          hasMoreRows = result.getSecond();
+          hasMoreRows = result.getSecond() > 0;
+          isLastBatchFull = result.getSecond() >= batchSize;
           if (hasMoreRows) {
             if (!batchStates.isEmpty()) {
               newLastTimestamp = result.getFirst();
@@ -1089,7 +1106,7 @@ public class IndexCDCConsumer implements Runnable {
           int idx = scanInfo.bindParams(ps, 1);
           ps.setString(idx++, partitionId);
           ps.setDate(idx, new Date(newLastTimestamp));
-          Pair<Long, Boolean> result =
+          Pair<Long, Integer> result =
             getDataRowStatesAndTimestamp(ps, newLastTimestamp, batchStates, lastScannedTimestamp);
           newLastTimestamp = result.getFirst();
           if (batchStates.isEmpty()) {
@@ -1131,15 +1148,15 @@ public class IndexCDCConsumer implements Runnable {
     }
   }
 
-  private static Pair<Long, Boolean> getDataRowStatesAndTimestamp(PreparedStatement ps,
+  private static Pair<Long, Integer> getDataRowStatesAndTimestamp(PreparedStatement ps,
     long initialLastTimestamp, List<Pair<Long, IndexMutationsProtos.DataRowStates>> batchStates,
     long[] lastScannedTimestamp) throws SQLException, IOException {
-    boolean hasRows = false;
+    int rowCount = 0;
     long lastTimestamp = initialLastTimestamp;
     lastScannedTimestamp[0] = initialLastTimestamp;
     try (ResultSet rs = ps.executeQuery()) {
       while (rs.next()) {
-        hasRows = true;
+        rowCount++;
         long rowTimestamp = rs.getDate(1).getTime();
         lastScannedTimestamp[0] = rowTimestamp;
         String cdcValue = rs.getString(2);
@@ -1157,7 +1174,7 @@ public class IndexCDCConsumer implements Runnable {
         }
       }
     }
-    return Pair.newPair(lastTimestamp, hasRows);
+    return Pair.newPair(lastTimestamp, rowCount);
   }
 
   private void generateAndApplyIndexMutations(PhoenixConnection conn,
@@ -1319,16 +1336,16 @@ public class IndexCDCConsumer implements Runnable {
    * @param ps                   the prepared statement to execute.
    * @param initialLastTimestamp the initial last timestamp to use if no rows are found.
    * @param batchMutations       list to add mutations to.
-   * @return Pair of last processed timestamp and boolean to indicate if any rows were returned.
+   * @return Pair of last processed timestamp and the number of rows returned.
    */
-  private static Pair<Long, Boolean> getMutationsAndTimestamp(PreparedStatement ps,
+  private static Pair<Long, Integer> getMutationsAndTimestamp(PreparedStatement ps,
     long initialLastTimestamp, List<Pair<Long, IndexMutationsProtos.IndexMutations>> batchMutations)
     throws SQLException, IOException {
-    boolean hasRows = false;
+    int rowCount = 0;
     long lastTimestamp = initialLastTimestamp;
     try (ResultSet rs = ps.executeQuery()) {
       while (rs.next()) {
-        hasRows = true;
+        rowCount++;
         lastTimestamp = rs.getDate(1).getTime();
         String cdcValue = rs.getString(2);
         if (cdcValue != null && !cdcValue.isEmpty()) {
@@ -1341,7 +1358,7 @@ public class IndexCDCConsumer implements Runnable {
         }
       }
     }
-    return Pair.newPair(lastTimestamp, hasRows);
+    return Pair.newPair(lastTimestamp, rowCount);
   }
 
 }
@@ -48,6 +48,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.CellScanner;
@@ -57,11 +58,13 @@ import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Increment;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -349,6 +352,9 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       Lists.newArrayListWithExpectedSize(QueryServicesOptions.DEFAULT_MUTATE_BATCH_SIZE);
     // TreeSet to improve locking efficiency and avoid deadlock (PHOENIX-6871 and HBASE-17924)
     private Set<ImmutableBytesPtr> rowsToLock = new TreeSet<>();
+    // The rows mutated without index maintenance while the row state cache is enabled. They are
+    // locked along with rowsToLock only to invalidate them in the cache.
+    private Set<ImmutableBytesPtr> rowsToInvalidate = new TreeSet<>();
     // The current and next states of the data rows corresponding to the pending mutations
     private HashMap<ImmutableBytesPtr, Pair<Put, Put>> dataRowStates;
     // The previous concurrent batch contexts
@@ -380,6 +386,12 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     private boolean returnOldRow;
     private boolean hasConditionalTTL; // table has Conditional TTL
     private boolean immutableRows;
+    // The columns the data row states are limited to, null if they are full rows
+    private Set<ColumnReference> dataRowStateColumns;
+    // The cache of the data row states used by this batch, and its generation before the batch
+    // read its data row states
+    private DataRowStateCache dataRowStateCache;
+    private long dataRowStateCacheGeneration;
 
     public BatchMutateContext() {
       this.clientVersion = 0;
@@ -454,6 +466,34 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     "org.apache.hadoop.hbase.index.lazy.post_batch.write";
   private static final boolean INDEX_LAZY_POST_BATCH_WRITE_DEFAULT = false;
 
+  /**
+   * Configuration key for locking the rows of a batch through a fixed number of striped locks
+   * instead of a lock per row. See {@link StripedLockManager}.
+   */
+  public static final String INDEX_STRIPED_ROW_LOCKS_ENABLED =
+    "phoenix.index.striped.row.locks.enabled";
+  private static final boolean INDEX_STRIPED_ROW_LOCKS_ENABLED_DEFAULT = false;
+  public static final String INDEX_STRIPED_ROW_LOCKS_COUNT =
+    "phoenix.index.striped.row.locks.count";
+  private static final int INDEX_STRIPED_ROW_LOCKS_COUNT_DEFAULT = 1024;
+
+  /**
+   * Configuration key for reading the current states of the data rows of a batch with a single
+   * scanner that seeks to the rows in key order and reads only the columns the global indexes need,
+   * when the states are used only to build the global index updates of the batch.
+   */
+  public static final String INDEX_ROW_STATE_PROJECTION_ENABLED =
+    "phoenix.index.row.state.projection.enabled";
+  private static final boolean INDEX_ROW_STATE_PROJECTION_ENABLED_DEFAULT = false;
+  /**
+   * Configuration key for the max number of rows whose states after their last update are kept in
+   * memory per region, so that the next batch on these rows does not read them back. Used only
+   * with {@link #INDEX_ROW_STATE_PROJECTION_ENABLED} on tables without HBase or Phoenix level TTL,
+   * and zero disables it. See {@link DataRowStateCache}.
+   */
+  public static final String INDEX_ROW_STATE_CACHE_SIZE = "phoenix.index.row.state.cache.size";
+  private static final long INDEX_ROW_STATE_CACHE_SIZE_DEFAULT = 0;
+
   private static final String INDEXER_INDEX_WRITE_SLOW_THRESHOLD_KEY =
     "phoenix.indexer.slow.post.batch.mutate.threshold";
   private static final long INDEXER_INDEX_WRITE_SLOW_THRESHOLD_DEFAULT = 3_000;
@@ -467,6 +507,11 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
 
   protected IndexBuildManager builder;
   private LockManager lockManager;
+  private boolean projectRowStates;
+  // Set to zero when the rows of the table turn out to expire
+  private volatile long rowStateCacheSize;
+  // Created by the first batch that can use it, and replaced when the index columns change
+  private volatile DataRowStateCache rowStateCache;
 
   // The collection of pending data table rows
   private Map<ImmutableBytesPtr, PendingRow> pendingRows = new ConcurrentHashMap<>();
@@ -530,7 +575,15 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
 
       this.rowLockWaitDuration =
         env.getConfiguration().getInt("hbase.rowlock.wait.duration", DEFAULT_ROWLOCK_WAIT_DURATION);
-      this.lockManager = new LockManager();
+      if (
+        env.getConfiguration().getBoolean(INDEX_STRIPED_ROW_LOCKS_ENABLED,
+          INDEX_STRIPED_ROW_LOCKS_ENABLED_DEFAULT)
+      ) {
+        this.lockManager = new StripedLockManager(env.getConfiguration()
+          .getInt(INDEX_STRIPED_ROW_LOCKS_COUNT, INDEX_STRIPED_ROW_LOCKS_COUNT_DEFAULT));
+      } else {
+        this.lockManager = new LockManager();
+      }
       this.concurrentMutationWaitDuration =
         env.getConfiguration().getInt("phoenix.index.concurrent.wait.duration.ms",
           DEFAULT_CONCURRENT_MUTATION_WAIT_DURATION_IN_MS);
@@ -553,6 +606,18 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       BloomType bloomFilterType = tableDescriptor.getColumnFamilies()[0].getBloomFilterType();
       // when the table descriptor changes, the coproc is reloaded
       this.useBloomFilter = bloomFilterType == BloomType.ROW;
+      this.projectRowStates = env.getConfiguration()
+        .getBoolean(INDEX_ROW_STATE_PROJECTION_ENABLED, INDEX_ROW_STATE_PROJECTION_ENABLED_DEFAULT);
+      if (projectRowStates) {
+        this.rowStateCacheSize = env.getConfiguration().getLong(INDEX_ROW_STATE_CACHE_SIZE,
+          INDEX_ROW_STATE_CACHE_SIZE_DEFAULT);
+        for (ColumnFamilyDescriptor family : tableDescriptor.getColumnFamilies()) {
+          if (family.getTimeToLive() != HConstants.FOREVER) {
+            // Cached rows would not expire
+            this.rowStateCacheSize = 0;
+          }
+        }
+      }
       if (
         this.indexCDCConsumerEnabled && !this.dataTableName.startsWith("SYSTEM.")
           && !this.dataTableName.startsWith("SYSTEM:")
@@ -602,6 +667,28 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     }
   }
 
+  /**
+   * The rows loaded from HFiles do not go through the batches of this observer, so the row state
+   * cache is dropped. The batches that read their row states before the load cannot cache them
+   * either, as they do not use the next cache.
+   */
+  @Override
+  public void postBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> ctx,
+    List<Pair<byte[], String>> stagingFamilyPaths, Map<byte[], List<Path>> finalPaths)
+    throws IOException {
+    rowStateCache = null;
+  }
+
+  /**
+   * Drops the row state cache after the region replays edits without going through the batches of
+   * this observer, see {@link #postBulkLoadHFile}
+   */
+  @Override
+  public void postReplayWALs(ObserverContext<? extends RegionCoprocessorEnvironment> ctx,
+    RegionInfo info, Path edits) throws IOException {
+    rowStateCache = null;
+  }
+
   /**
    * We use an Increment to serialize the ON DUPLICATE KEY clause so that the HBase plumbing sets up
    * the necessary locks and mvcc to allow an atomic update. The Increment is not a real increment,
@@ -683,6 +770,9 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       ) {
         ImmutableBytesPtr row = new ImmutableBytesPtr(m.getRow());
         context.rowsToLock.add(row);
+      } else if (rowStateCacheSize > 0) {
+        // The row is updated without computing its next state, see updateCachedRowStates()
+        context.rowsToInvalidate.add(new ImmutableBytesPtr(m.getRow()));
       }
     }
   }
@@ -868,9 +958,16 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
   }
 
   private void lockRows(BatchMutateContext context) throws IOException {
-    for (ImmutableBytesPtr rowKey : context.rowsToLock) {
-      context.rowLocks.add(lockManager.lockRow(rowKey, rowLockWaitDuration));
+    long start = EnvironmentEdgeManager.currentTimeMillis();
+    Set<ImmutableBytesPtr> rows = context.rowsToLock;
+    if (!context.rowsToInvalidate.isEmpty()) {
+      // Lock all the rows in key order
+      rows = new TreeSet<>(context.rowsToLock);
+      rows.addAll(context.rowsToInvalidate);
     }
+    lockManager.lockRows(rows, rowLockWaitDuration, context.rowLocks);
+    metricSource.updateRowLockWaitTime(dataTableName,
+      EnvironmentEdgeManager.currentTimeMillis() - start);
   }
 
   private void unlockRows(BatchMutateContext context) throws IOException {
@@ -1165,14 +1262,20 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
   private void getCurrentRowStates(ObserverContext<RegionCoprocessorEnvironment> c,
     BatchMutateContext context) throws IOException {
     Set<KeyRange> keys = new HashSet<KeyRange>(context.rowsToLock.size());
+    // The same rows in key order since rowsToLock is sorted
+    List<ImmutableBytesPtr> rowKeys = new ArrayList<>(context.rowsToLock.size());
     for (ImmutableBytesPtr rowKeyPtr : context.rowsToLock) {
       PendingRow pendingRow = new PendingRow(rowKeyPtr, context);
       // Add the data table rows in the mini batch to the per region collection of pending
       // rows. This will be used to detect concurrent updates
       PendingRow existingPendingRow = pendingRows.putIfAbsent(rowKeyPtr, pendingRow);
       if (existingPendingRow == null) {
-        // There was no pending row for this row key. We need to retrieve this row from disk
-        keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+        // There was no pending row for this row key. We need to retrieve this row from the cache
+        // or disk
+        if (!getCachedRowState(context, rowKeyPtr)) {
+          keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+          rowKeys.add(rowKeyPtr);
+        }
       } else {
         // There is a pending row for this row key. We need to retrieve the row from memory
         BatchMutateContext lastContext = existingPendingRow.addAndGetPrevCtx(context);
@@ -1188,6 +1291,7 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
             if (context.maxPendingRowCount < existingPendingRow.getCount()) {
               context.maxPendingRowCount = existingPendingRow.getCount();
             }
+            checkPreviousRowStateColumns(context, lastContext);
             Put put = lastContext.getNextDataRowState(rowKeyPtr);
             if (put != null) {
               // We have detected a concurrent update so do a deep copy of the
@@ -1199,12 +1303,16 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
             // The last batch for this row key failed. We cannot use the memory state.
             // So we need to retrieve this row from disk
             keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+            rowKeys.add(rowKeyPtr);
           }
         } else {
           // The existing pending row is removed from the map. That means there is no
           // pending row for this row key anymore. We need to add the new one to the map
           pendingRows.put(rowKeyPtr, pendingRow);
-          keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+          if (!getCachedRowState(context, rowKeyPtr)) {
+            keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+            rowKeys.add(rowKeyPtr);
+          }
         }
       }
     }
@@ -1216,12 +1324,15 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       for (KeyRange key : keys) {
         // Scan.java usage alters scan instances, safer to create scan instance per usage
         Scan scan = new Scan();
+        addColumns(scan, context.dataRowStateColumns);
         // create a scan with same start/stop row key scan#isGetScan()
         // for bloom filters scan should be a get
         scan.withStartRow(key.getLowerRange(), true);
         scan.withStopRow(key.getLowerRange(), true);
         readDataTableRows(c, context, scan);
       }
+    } else if (context.dataRowStateColumns != null) {
+      readDataTableRows(c, context, rowKeys);
     } else {
       Scan scan = new Scan();
       ScanRanges scanRanges = ScanRanges.createPointLookup(new ArrayList<KeyRange>(keys));
@@ -1253,6 +1364,214 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     }
   }
 
+  /**
+   * Reads the given rows, which are in key order, with a single scanner that seeks to each row
+   * instead of evaluating a skip scan filter on the cells in between, and reads only the columns
+   * the data row states of the batch are limited to
+   */
+  private void readDataTableRows(ObserverContext<RegionCoprocessorEnvironment> c,
+    BatchMutateContext context, List<ImmutableBytesPtr> rowKeys) throws IOException {
+    Scan scan = new Scan();
+    addColumns(scan, context.dataRowStateColumns);
+    scan.withStartRow(rowKeys.get(0).copyBytesIfNecessary(), true);
+    scan.withStopRow(rowKeys.get(rowKeys.size() - 1).copyBytesIfNecessary(), true);
+    try (RegionScanner scanner = c.getEnvironment().getRegion().getScanner(scan)) {
+      boolean more = true;
+      boolean isFirstRow = true;
+      byte[] scannedRowKey = null;
+      List<Cell> cells = null;
+      for (ImmutableBytesPtr rowKeyPtr : rowKeys) {
+        if (scannedRowKey == null || compareRowKey(rowKeyPtr, scannedRowKey) > 0) {
+          if (!more) {
+            break;
+          }
+          if (!isFirstRow) {
+            scanner.reseek(rowKeyPtr.copyBytesIfNecessary());
+          }
+          isFirstRow = false;
+          cells = new ArrayList<Cell>();
+          more = scanner.next(cells);
+          if (cells.isEmpty()) {
+            scannedRowKey = null;
+            continue;
+          }
+          scannedRowKey = CellUtil.cloneRow(cells.get(0));
+        }
+        if (compareRowKey(rowKeyPtr, scannedRowKey) != 0) {
+          // The scanner is at the next existing row, which is either not in the batch or a later
+          // row of the batch. This row does not exist, and the scanned row is kept for the later
+          // rows of the batch.
+          continue;
+        }
+        Put put = new Put(scannedRowKey);
+        for (Cell cell : cells) {
+          put.add(cell);
+        }
+        context.dataRowStates.put(new ImmutableBytesPtr(scannedRowKey),
+          new Pair<Put, Put>(put, new Put(put)));
+      }
+    }
+  }
+
+  private static int compareRowKey(ImmutableBytesPtr rowKeyPtr, byte[] rowKey) {
+    return Bytes.compareTo(rowKeyPtr.get(), rowKeyPtr.getOffset(), rowKeyPtr.getLength(), rowKey,
+      0, rowKey.length);
+  }
+
+  private static void addColumns(Scan scan, Set<ColumnReference> columns) {
+    if (columns == null) {
+      return;
+    }
+    for (ColumnReference column : columns) {
+      scan.addColumn(column.getFamily(), column.getQualifier());
+    }
+  }
+
+  /**
+   * Limits the data row states of the batch to the columns its global indexes need if the states
+   * are used only to build the index updates. The columns of the row state cache are used if they
+   * include these columns, so that the batch can use the cached states and cache its own.
+   */
+  private void prepareRowStateProjection(BatchMutateContext context,
+    PhoenixIndexMetaData indexMetaData) {
+    if (
+      !context.hasGlobalIndex || context.hasAtomic || context.returnResult || context.hasTransform
+        || context.hasConditionalTTL || context.hasUncoveredIndex || serializeCDCMutations
+    ) {
+      return;
+    }
+    Set<ColumnReference> columns = new HashSet<>();
+    for (IndexMaintainer indexMaintainer : indexMetaData.getIndexMaintainers()) {
+      if (indexMaintainer.isLocalIndex()) {
+        continue;
+      }
+      if (
+        indexMaintainer.isCDCIndex() || indexMaintainer.getIndexConsistency() != null
+          && indexMaintainer.getIndexConsistency().isAsynchronous()
+      ) {
+        return;
+      }
+      columns.addAll(indexMaintainer.getAllColumnsForDataTable());
+      columns.add(new ColumnReference(indexMaintainer.getDataEmptyKeyValueCF(),
+        indexMaintainer.getEmptyKeyValueQualifierForDataTable()));
+    }
+    if (rowStateCacheSize <= 0) {
+      context.dataRowStateColumns = columns;
+      return;
+    }
+    DataRowStateCache cache = rowStateCache;
+    if (cache == null || !cache.getColumns().containsAll(columns)) {
+      cache = replaceRowStateCache(cache, columns);
+      if (cache == null) {
+        context.dataRowStateColumns = columns;
+        return;
+      }
+    }
+    context.dataRowStateCache = cache;
+    context.dataRowStateCacheGeneration = cache.getGeneration();
+    context.dataRowStateColumns = cache.getColumns();
+  }
+
+  /**
+   * Replaces the row state cache with one that includes the given columns
+   * @return the new cache, or null if the cache has been disabled
+   */
+  private synchronized DataRowStateCache replaceRowStateCache(DataRowStateCache cache,
+    Set<ColumnReference> columns) {
+    if (rowStateCacheSize <= 0) {
+      return null;
+    }
+    // The cached rows may be missing some of the columns, so start over with all of them
+    if (cache != null) {
+      columns.addAll(cache.getColumns());
+    }
+    cache = new DataRowStateCache(columns, rowStateCacheSize);
+    rowStateCache = cache;
+    return cache;
+  }
+
+  /**
+   * Disables the row state cache if the rows of the batch can expire through a Phoenix level TTL,
+   * since the cached rows would not expire. The HBase level TTL is checked in start().
+   */
+  private void checkRowStateCacheTTL(MiniBatchOperationInProgress<Mutation> miniBatchOp) {
+    for (int i = 0; i < miniBatchOp.size(); i++) {
+      Mutation m = miniBatchOp.getOperation(i);
+      if (
+        m.getAttribute(BaseScannerRegionObserverConstants.TTL) != null
+          || m.getAttribute(BaseScannerRegionObserverConstants.HAS_LITERAL_TTL) != null
+      ) {
+        synchronized (this) {
+          rowStateCacheSize = 0;
+          rowStateCache = null;
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Adds the cached state of the row to the data row states of the batch if there is one
+   * @return true if the row state is found in the cache
+   */
+  private boolean getCachedRowState(BatchMutateContext context, ImmutableBytesPtr rowKeyPtr)
+    throws IOException {
+    if (context.dataRowStateCache == null) {
+      return false;
+    }
+    Put put = context.dataRowStateCache.get(rowKeyPtr);
+    if (put == null) {
+      return false;
+    }
+    context.dataRowStates.put(rowKeyPtr, new Pair<>(put, new Put(put)));
+    return true;
+  }
+
+  /**
+   * The next row states of a previous concurrent batch are used as the current row states of this
+   * batch, so they need to include all the columns this batch needs
+   */
+  private void checkPreviousRowStateColumns(BatchMutateContext context,
+    BatchMutateContext lastContext) throws IOException {
+    if (
+      lastContext.dataRowStateColumns != null && (context.dataRowStateColumns == null
+        || !lastContext.dataRowStateColumns.containsAll(context.dataRowStateColumns))
+    ) {
+      // Removal of reference counts and locks for the rows of this batch will be done in
+      // postBatchMutateIndispensably()
+      throw new IOException("A previous concurrent mutation has not read all the columns this "
+        + "mutation needs. The batch needs to be retried " + dataTableName);
+    }
+  }
+
+  /**
+   * Caches the next states of the rows of a successful batch that used the current row state
+   * cache, and removes the rows of any other batch from it. The rows the batch mutated without
+   * computing their next states are removed too, and also keep the concurrent batches that read
+   * them from caching them. Called while holding the locks of all these rows.
+   */
+  private void updateCachedRowStates(BatchMutateContext context, boolean success)
+    throws IOException {
+    DataRowStateCache cache = rowStateCache;
+    if (cache == null) {
+      return;
+    }
+    if (!context.rowsToInvalidate.isEmpty()) {
+      cache.invalidateUncomputedUpdates(context.rowsToInvalidate);
+    }
+    if (
+      !success || cache != context.dataRowStateCache || context.dataRowStates == null
+        || cache.getGeneration() != context.dataRowStateCacheGeneration
+    ) {
+      cache.invalidate(context.rowsToLock);
+      return;
+    }
+    for (ImmutableBytesPtr rowKeyPtr : context.rowsToLock) {
+      Pair<Put, Put> dataRowState = context.dataRowStates.get(rowKeyPtr);
+      cache.put(rowKeyPtr, dataRowState == null ? null : dataRowState.getSecond());
+    }
+  }
+
   public static Mutation getDeleteIndexMutation(Put dataRowState, IndexMaintainer indexMaintainer,
     long ts, ImmutableBytesPtr rowKeyPtr, byte[] encodedRegionName) {
     ValueGetter dataRowVG = new IndexUtil.SimpleValueGetter(dataRowState);
@@ -1819,6 +2138,9 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     identifyIndexMaintainerTypes(indexMetaData, context);
     identifyMutationTypes(miniBatchOp, context);
     context.populateOriginalMutations(miniBatchOp);
+    if (rowStateCacheSize > 0) {
+      checkRowStateCacheTTL(miniBatchOp);
+    }
 
     if (context.hasRowDelete) {
       // Need to add cell tags to Delete Marker before we do any index processing
@@ -1830,12 +2152,16 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     // (i.e., the data and its index tables)
     populateRowsToLock(miniBatchOp, context);
     // early exit if it turns out we don't have any update for indexes
-    if (context.rowsToLock.isEmpty()) {
+    if (context.rowsToLock.isEmpty() && context.rowsToInvalidate.isEmpty()) {
       return;
     }
     lockRows(context);
     // acquired the locks, move to the next phase PRE
     context.currentPhase = BatchMutatePhase.PRE;
+    if (context.rowsToLock.isEmpty()) {
+      // The rows are locked only to be invalidated in the row state cache
+      return;
+    }
     long onDupCheckTime = 0;
 
     if (
@@ -1854,6 +2180,9 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
           || !context.immutableRows && context.hasUncoveredIndex
             && isPartialUncoveredIndexMutation(indexMetaData, miniBatchOp)
       ) {
+        if (projectRowStates) {
+          prepareRowStateProjection(context, indexMetaData);
+        }
         getCurrentRowStates(c, context);
       }
       onDupCheckTime += (EnvironmentEdgeManager.currentTimeMillis() - start);
@@ -2014,6 +2343,7 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       // If we are in the INIT phase that means we failed to acquire the locks before the
       // PRE phase
       if (context.getCurrentPhase() != BatchMutatePhase.INIT) {
+        updateCachedRowStates(context, success);
         removePendingRows(context);
       }
       if (success) {
@@ -19,6 +19,8 @@ package org.apache.phoenix.hbase.index;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -107,6 +109,19 @@ public class LockManager {
     return lockRow(rowKey, waitDurationMs);
   }
 
+  /**
+   * Lock the given rows in their iteration order, which should be sorted to avoid deadlocks. The
+   * locks are added to rowLocks as they are acquired, so the ones acquired before a failure can
+   * still be released by the caller.
+   * @throws TimeoutIOException if a lock could not be acquired within the allowed wait duration
+   */
+  public void lockRows(Collection<ImmutableBytesPtr> rowKeys, long waitDurationMs,
+    List<RowLock> rowLocks) throws IOException {
+    for (ImmutableBytesPtr rowKey : rowKeys) {
+      rowLocks.add(lockRow(rowKey, waitDurationMs));
+    }
+  }
+
   /**
    * Class used to represent a lock on a row.
    */
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Row lock manager over a fixed number of reentrant locks. A row is locked by locking the stripe
+ * its key hashes to, so no lock object is created or shared through a map per row, at the cost of
+ * unrelated rows of the same stripe waiting for each other. Rows locked together through
+ * {@link #lockRows(Collection, long, List)} are locked in stripe order, which avoids deadlocks
+ * between batches regardless of the order of their row keys.
+ */
+public class StripedLockManager extends LockManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StripedLockManager.class);
+
+  private final ReentrantLock[] stripes;
+  private final int mask;
+
+  /**
+   * @param numStripes the number of locks, rounded up to a power of two
+   */
+  public StripedLockManager(int numStripes) {
+    int size = numStripes <= 1 ? 1 : Integer.highestOneBit(numStripes - 1) << 1;
+    this.stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ReentrantLock(true);
+    }
+    this.mask = size - 1;
+  }
+
+  private int getStripe(ImmutableBytesPtr rowKey) {
+    int hash = rowKey.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  @Override
+  public RowLock lockRow(ImmutableBytesPtr rowKey, long waitDurationMs) throws IOException {
+    ReentrantLock lock = stripes[getStripe(rowKey)];
+    acquire(lock, rowKey, waitDurationMs);
+    return new StripedRowLock(rowKey, lock);
+  }
+
+  @Override
+  public void lockRows(Collection<ImmutableBytesPtr> rowKeys, long waitDurationMs,
+    List<RowLock> rowLocks) throws IOException {
+    ImmutableBytesPtr[] keys = rowKeys.toArray(new ImmutableBytesPtr[rowKeys.size()]);
+    // Sort by stripe, keeping the position of the row key in the low order bits
+    long[] order = new long[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      order[i] = ((long) getStripe(keys[i]) << 32) | i;
+    }
+    Arrays.sort(order);
+    long deadline = EnvironmentEdgeManager.currentTimeMillis() + waitDurationMs;
+    for (long stripeAndIndex : order) {
+      ReentrantLock lock = stripes[(int) (stripeAndIndex >>> 32)];
+      ImmutableBytesPtr rowKey = keys[(int) stripeAndIndex];
+      // A stripe held by this thread is reentered right away, once for each of its rows
+      acquire(lock, rowKey, Math.max(0, deadline - EnvironmentEdgeManager.currentTimeMillis()));
+      rowLocks.add(new StripedRowLock(rowKey, lock));
+    }
+  }
+
+  private static void acquire(ReentrantLock lock, ImmutableBytesPtr rowKey, long waitDurationMs)
+    throws IOException {
+    try {
+      if (!lock.tryLock(waitDurationMs, TimeUnit.MILLISECONDS)) {
+        throw new TimeoutIOException("Timed out waiting for lock for row: " + rowKey);
+      }
+    } catch (InterruptedException ie) {
+      LOGGER.warn("Thread interrupted waiting for lock on row: " + rowKey);
+      InterruptedIOException iie = new InterruptedIOException();
+      iie.initCause(ie);
+      Thread.currentThread().interrupt();
+      throw iie;
+    }
+  }
+
+  /**
+   * Lock on a row held through the stripe of the row. It must be released by the thread that
+   * acquired it.
+   */
+  private static class StripedRowLock implements RowLock {
+    private final ImmutableBytesPtr rowKey;
+    private final ReentrantLock lock;
+
+    private StripedRowLock(ImmutableBytesPtr rowKey, ReentrantLock lock) {
+      this.rowKey = rowKey;
+      this.lock = lock;
+    }
+
+    @Override
+    public void release() {
+      lock.unlock();
+    }
+
+    @Override
+    public ImmutableBytesPtr getRowKey() {
+      return rowKey;
+    }
+
+    @Override
+    public String toString() {
+      return "StripedRowLock{" + "row=" + rowKey + ", lock=" + lock + "}";
+    }
+  }
+}
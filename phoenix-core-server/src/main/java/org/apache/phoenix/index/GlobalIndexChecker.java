@@ -27,16 +27,22 @@ import static org.apache.phoenix.util.ScanUtil.isDummy;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Random;
+import java.util.TreeMap;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.PackagePrivateFieldAccessor;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
@@ -48,6 +54,8 @@ import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.RegionObserver;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
 import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.PhoenixScannerContext;
@@ -98,7 +106,10 @@ import org.slf4j.LoggerFactory;
  * table row is masked by this unverified row. This happens if the first phase updates (i.e.,
  * unverified index row updates) complete but the second phase updates (i.e., data table row
  * updates) fail. There could be back to back such events so we need to scan older versions to
- * retrieve the verified version that is masked by the unverified version(s).
+ * retrieve the verified version that is masked by the unverified version(s). When
+ * phoenix.global.index.read.repair.batch.size is more than 1, the unverified index rows that
+ * follow each other are repaired in batches instead, see
+ * GlobalIndexScanner#repairIndexRowsInBatch.
  */
 public class GlobalIndexChecker extends BaseScannerRegionObserver implements RegionCoprocessor {
   private static final Logger LOG = LoggerFactory.getLogger(GlobalIndexChecker.class);
@@ -156,6 +167,10 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
     private long pageSizeMs;
     private boolean initialized = false;
     private boolean isScanMetricsEnabled = false;
+    private int repairBatchSize;
+    // The codes of the index rows repaired by the last batch, until they are scanned again
+    private final Map<byte[], RebuildReturnCode> repairedRowCodes =
+      new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     public GlobalIndexScanner(RegionCoprocessorEnvironment env, Scan scan, RegionScanner scanner,
       GlobalIndexCheckerSource metricsSource) throws IOException {
@@ -189,6 +204,12 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
       pageSizeMs = getPageSizeMsForRegionScanner(scan);
       isScanMetricsEnabled =
         scan.isScanMetricsEnabled() && CompatScanMetrics.supportsFineGrainedReadMetrics();
+      repairBatchSize =
+        env.getConfiguration().getInt(QueryServices.GLOBAL_INDEX_READ_REPAIR_BATCH_SIZE_ATTRIB,
+          QueryServicesOptions.DEFAULT_GLOBAL_INDEX_READ_REPAIR_BATCH_SIZE);
+      if (indexMaintainer instanceof TransformMaintainer || indexMaintainer.isCDCIndex()) {
+        repairBatchSize = 1;
+      }
     }
 
     @Override
@@ -261,7 +282,7 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
             return true;
           }
           Cell cell = result.get(0);
-          if (verifyRowAndRepairIfNecessary(result)) {
+          if (verifyRowAndRepairIfNecessary(result, scannerContext)) {
             break;
           }
           if (
@@ -336,7 +357,7 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
       return builder.build();
     }
 
-    private void repairIndexRows(byte[] indexRowKey, long ts, List<Cell> row) throws IOException {
+    private void initRepair() throws IOException {
       if (buildIndexScanForDataTable == null) {
         buildIndexScanForDataTable = new Scan();
         indexScan = new Scan(scan);
@@ -380,6 +401,10 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
         buildIndexScanForDataTable.addColumn(indexMaintainer.getDataEmptyKeyValueCF(),
           indexMaintainer.getEmptyKeyValueQualifierForDataTable());
       }
+    }
+
+    private void repairIndexRows(byte[] indexRowKey, long ts, List<Cell> row) throws IOException {
+      initRepair();
       // Rebuild the index row from the corresponding the row in the the data table
       // Get the data row key from the index row key
       byte[] dataRowKey =
@@ -490,6 +515,15 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
       // updates (i.e.,
       // unverified index row updates) complete but the second phase updates (i.e., data table
       // updates) fail.
+      repairMaskedIndexRow(indexRowKey, ts, row);
+    }
+
+    /**
+     * Returns the verified version of an index row masked by unverified versions, deleting them if
+     * they are old enough. The row is cleared if there is no verified version.
+     */
+    private void repairMaskedIndexRow(byte[] indexRowKey, long ts, List<Cell> row)
+      throws IOException {
       // There could be back to back such events so we need a loop to go through them
       do {
         // First delete the unverified row from index if it is old enough
@@ -600,13 +634,18 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
     /**
      * @param cellList is an input and output parameter and will either include a valid row or be an
      *                 empty list
+     * @param scannerContext is the context of the scan RPC, used to bound the batch repairs by its
+     *                       deadline
      * @return true if there exists more rows, otherwise false
      */
-    private boolean verifyRowAndRepairIfNecessary(List<Cell> cellList) throws IOException {
+    private boolean verifyRowAndRepairIfNecessary(List<Cell> cellList,
+      ScannerContext scannerContext) throws IOException {
       metricsSource.incrementIndexInspections(indexName);
       Cell cell = cellList.get(0);
       if (verifyRowAndRemoveEmptyColumn(cellList)) {
         return true;
+      } else if (repairBatchSize > 1) {
+        return repairIndexRowsInBatch(cellList, scannerContext);
       } else {
         long repairStart = EnvironmentEdgeManager.currentTimeMillis();
 
@@ -647,6 +686,179 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
       }
     }
 
+    /**
+     * Repairs the unverified index rows that follow each other, starting with the given one,
+     * together instead of one by one. The data rows of up to repairBatchSize index rows are read by
+     * one batch of gets, the index rows of the data rows found are rebuilt by one scan of the data
+     * table, and the index scanner is reopened once from the first row of the batch, as the
+     * rebuilt rows are not visible to it. The rows that are still unverified when they are scanned
+     * again are skipped or unmasked based on the code recorded for them by the batch, without
+     * going back to the data table. The batch is cut short when the page deadline of the scan
+     * passes while its rows are read ahead, as the single row repair stops scanning then.
+     * @param cellList       is an input and output parameter and will either include a valid row
+     *                       or be an empty list
+     * @param scannerContext is the context of the scan RPC
+     * @return true if the row is valid, otherwise false
+     */
+    private boolean repairIndexRowsInBatch(List<Cell> cellList, ScannerContext scannerContext)
+      throws IOException {
+      byte[] indexRowKey = CellUtil.cloneRow(cellList.get(0));
+      long ts = getMaxTimestamp(cellList);
+      RebuildReturnCode code = repairedRowCodes.remove(indexRowKey);
+      if (code != null) {
+        cellList.clear();
+        if (code == RebuildReturnCode.INDEX_ROW_EXISTS) {
+          // The index row rebuilt from the data row is masked by unverified versions
+          repairMaskedIndexRow(indexRowKey, ts, cellList);
+          return !cellList.isEmpty();
+        }
+        // There is no index row for this row in the data table. It has not been deleted by the
+        // batch as it is not old enough, skip it
+        return false;
+      }
+      repairedRowCodes.clear();
+      List<byte[]> indexRowKeys = new ArrayList<>(repairBatchSize);
+      List<Long> timestamps = new ArrayList<>(repairBatchSize);
+      indexRowKeys.add(indexRowKey);
+      timestamps.add(ts);
+      List<Cell> row = new ArrayList<>();
+      while (hasMore && indexRowKeys.size() < repairBatchSize) {
+        if (
+          PhoenixScannerContext.isTimedOut(scannerContext, pageSizeMs)
+            || PhoenixScannerContext.isReturnImmediately(scannerContext)
+        ) {
+          // Repair the rows read so far, the rest of them are repaired by the next RPC
+          break;
+        }
+        row.clear();
+        hasMore = scanner.next(row);
+        if (row.isEmpty() || isDummy(row) || verifyRowAndRemoveEmptyColumn(row)) {
+          // The batch ends here, the row is scanned again after the repair
+          break;
+        }
+        indexRowKeys.add(CellUtil.cloneRow(row.get(0)));
+        timestamps.add(getMaxTimestamp(row));
+      }
+      long repairStart = EnvironmentEdgeManager.currentTimeMillis();
+      long repairTime;
+      try {
+        repairIndexRows(indexRowKeys, timestamps);
+        repairTime = EnvironmentEdgeManager.currentTimeMillis() - repairStart;
+        for (long rowTs : timestamps) {
+          metricsSource.incrementIndexRepairs(indexName);
+          metricsSource.updateUnverifiedIndexRowAge(indexName,
+            EnvironmentEdgeManager.currentTimeMillis() - rowTs);
+        }
+        metricsSource.updateIndexRepairBatchSize(indexName, indexRowKeys.size());
+        metricsSource.updateIndexRepairBatchTime(indexName, repairTime);
+        if (shouldLog()) {
+          LOG.info("Index row batch repair of {} rows on region {} took {} ms.",
+            indexRowKeys.size(), env.getRegionInfo().getRegionNameAsString(), repairTime);
+        }
+      } catch (IOException e) {
+        repairTime = EnvironmentEdgeManager.currentTimeMillis() - repairStart;
+        metricsSource.incrementIndexRepairFailures(indexName);
+        metricsSource.updateIndexRepairFailureTime(indexName, repairTime);
+        if (shouldLog()) {
+          LOG.warn("Index row batch repair failure of {} rows on region {} took {} ms.",
+            indexRowKeys.size(), env.getRegionInfo().getRegionNameAsString(), repairTime);
+        }
+        throw e;
+      }
+      scanner.close();
+      indexScan.withStartRow(indexRowKey, true);
+      scanner = ((DelegateRegionScanner) delegate).getNewRegionScanner(indexScan);
+      hasMore = true;
+      cellList.clear();
+      return false;
+    }
+
+    private void repairIndexRows(List<byte[]> indexRowKeys, List<Long> timestamps)
+      throws IOException {
+      initRepair();
+      List<Get> gets = new ArrayList<>(indexRowKeys.size());
+      for (byte[] indexRowKey : indexRowKeys) {
+        Get get = new Get(
+          indexMaintainer.buildDataRowKey(new ImmutableBytesWritable(indexRowKey), viewConstants));
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry : buildIndexScanForDataTable
+          .getFamilyMap().entrySet()) {
+          for (byte[] qualifier : entry.getValue()) {
+            get.addColumn(entry.getKey(), qualifier);
+          }
+        }
+        get.setTimeRange(0, maxTimestamp);
+        gets.add(get);
+      }
+      Result[] results = null;
+      try {
+        results = dataHTable.get(gets);
+      } catch (Throwable t) {
+        ClientUtil.throwIOException(dataHTable.getName().toString(), t);
+      }
+      List<RowRange> dataRowRanges = new ArrayList<>(gets.size());
+      byte[] minDataRowKey = null;
+      byte[] maxDataRowKey = null;
+      for (int i = 0; i < indexRowKeys.size(); i++) {
+        byte[] indexRowKey = indexRowKeys.get(i);
+        byte[] dataRowKey = gets.get(i).getRow();
+        RebuildReturnCode code;
+        if (results[i].isEmpty()) {
+          code = RebuildReturnCode.NO_DATA_ROW;
+        } else {
+          Put put = new Put(dataRowKey);
+          for (Cell cell : results[i].rawCells()) {
+            put.add(cell);
+          }
+          code = indexMaintainer.checkIndexRow(indexRowKey, put)
+            ? RebuildReturnCode.INDEX_ROW_EXISTS
+            : RebuildReturnCode.NO_INDEX_ROW;
+          // Rebuild the index row of the data row, whether it is this index row or not
+          dataRowRanges.add(new RowRange(dataRowKey, true, dataRowKey, true));
+          if (minDataRowKey == null || Bytes.compareTo(dataRowKey, minDataRowKey) < 0) {
+            minDataRowKey = dataRowKey;
+          }
+          if (maxDataRowKey == null || Bytes.compareTo(dataRowKey, maxDataRowKey) > 0) {
+            maxDataRowKey = dataRowKey;
+          }
+        }
+        repairedRowCodes.put(indexRowKey, code);
+      }
+      if (!dataRowRanges.isEmpty()) {
+        Scan rebuildScan = new Scan(buildIndexScanForDataTable);
+        rebuildScan.setAttribute(BaseScannerRegionObserverConstants.INDEX_ROW_KEY, null);
+        rebuildScan.setAttribute(BaseScannerRegionObserverConstants.INDEX_ROWS_READ_REPAIR,
+          TRUE_BYTES);
+        rebuildScan.withStartRow(minDataRowKey, true);
+        rebuildScan.withStopRow(maxDataRowKey, true);
+        rebuildScan.setTimeRange(0, maxTimestamp);
+        rebuildScan.setFilter(new MultiRowRangeFilter(dataRowRanges));
+        rebuildScan.setScanMetricsEnabled(isScanMetricsEnabled);
+        try (ResultScanner resultScanner = dataHTable.getScanner(rebuildScan)) {
+          while (resultScanner.next() != null) {
+            // The row counts of the data table regions are not needed
+          }
+          if (isScanMetricsEnabled) {
+            ScanMetrics scanMetrics = resultScanner.getScanMetrics();
+            DataTableScanMetrics dataTableScanMetrics = buildDataTableScanMetrics(scanMetrics);
+            dataTableScanMetrics.populateThreadLocalServerSideScanMetrics();
+          }
+        } catch (Throwable t) {
+          ClientUtil.throwIOException(dataHTable.getName().toString(), t);
+        }
+      }
+      // Delete the unverified rows without an index row in the data table if they are old enough
+      for (int i = 0; i < indexRowKeys.size(); i++) {
+        byte[] indexRowKey = indexRowKeys.get(i);
+        long ts = timestamps.get(i);
+        if (
+          repairedRowCodes.get(indexRowKey) != RebuildReturnCode.INDEX_ROW_EXISTS
+            && indexMaintainer.isAgedEnough(ts, ageThreshold)
+        ) {
+          region.delete(indexMaintainer.createDelete(indexRowKey, ts, false));
+        }
+      }
+    }
+
     private boolean shouldLog() {
       if (loggingPercent == 0) {
         return false;
@@ -82,6 +82,7 @@ import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ClientUtil;
 import org.apache.phoenix.util.EncodedColumnsUtil;
 import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -205,7 +206,9 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
       return innerScanner;
     }
     // TODO:the above wrapped scanner should be used here also
-    return getTopNScanner(env, innerScanner, iterator, tenantId, ic.getScannerContext());
+    return getTopNScanner(env, innerScanner, iterator, ic.getRegionScannerIterator(), tenantId,
+      ic.getScannerContext(),
+      scan.getAttribute(BaseScannerRegionObserverConstants.TOPN_SORT_KEYS_ONLY) != null);
   }
 
   private List<Expression> getServerParsedExpressions(Scan scan,
@@ -251,7 +254,7 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
     boolean spoolingEnabled, long thresholdBytes) {
     byte[] topN = scan.getAttribute(BaseScannerRegionObserverConstants.TOPN);
     if (topN == null) {
-      return new OrderedResultIteratorWithScannerContext(null, null);
+      return new OrderedResultIteratorWithScannerContext(null, null, null);
     }
     int clientVersion = ScanUtil.getClientVersion(scan);
     // Client including and after 4.15 and 5.1 are not going to serialize thresholdBytes
@@ -289,10 +292,17 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
       // context is used when we are iterating over the top n rows before the first next() call
       PhoenixScannerContext sc = new PhoenixScannerContext(scan.isScanMetricsEnabled());
       inner.setRegionScannerContext(sc);
-      OrderedResultIterator iterator = new OrderedResultIterator(inner, orderByExpressions,
+      ResultIterator rows = inner;
+      byte[] sortKeyRange =
+        scan.getAttribute(BaseScannerRegionObserverConstants.TOPN_SORT_KEY_RANGE);
+      if (sortKeyRange != null) {
+        rows = new SortKeyRangeResultIterator(inner, orderByExpressions,
+          TopNSortKey.deserializeRange(sortKeyRange));
+      }
+      OrderedResultIterator iterator = new OrderedResultIterator(rows, orderByExpressions,
         spoolingEnabled, thresholdBytes, limit >= 0 ? limit : null, null, estimatedRowSize,
         getPageSizeMsForRegionScanner(scan), scan, s.getRegionInfo());
-      return new OrderedResultIteratorWithScannerContext(sc, iterator);
+      return new OrderedResultIteratorWithScannerContext(sc, iterator, inner);
     } catch (IOException e) {
       throw new RuntimeException(e);
     } finally {
@@ -304,13 +314,56 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
     }
   }
 
+  /**
+   * Skips the rows with sort keys outside of the range of the page of the second pass of a two
+   * phase top-N, before they are sorted.
+   */
+  private static class SortKeyRangeResultIterator extends DelegateResultIterator {
+    private final List<OrderByExpression> orderByExpressions;
+    private final byte[] lowerKey;
+    private final byte[] upperKey;
+
+    SortKeyRangeResultIterator(ResultIterator delegate, List<OrderByExpression> orderByExpressions,
+      byte[][] sortKeyRange) {
+      super(delegate);
+      this.orderByExpressions = orderByExpressions;
+      this.lowerKey = sortKeyRange[0];
+      this.upperKey = sortKeyRange[1];
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+      Tuple tuple;
+      while ((tuple = super.next()) != null) {
+        if (isDummy(tuple)) {
+          return tuple;
+        }
+        byte[] sortKey = TopNSortKey.toBytes(tuple, orderByExpressions);
+        if (
+          TopNSortKey.compare(sortKey, lowerKey, orderByExpressions) >= 0
+            && TopNSortKey.compare(sortKey, upperKey, orderByExpressions) <= 0
+        ) {
+          return tuple;
+        }
+      }
+      return null;
+    }
+  }
+
   private static class OrderedResultIteratorWithScannerContext {
     private PhoenixScannerContext scannerContext;
     private OrderedResultIterator iterator;
+    private RegionScannerResultIterator regionScannerIterator;
 
-    OrderedResultIteratorWithScannerContext(PhoenixScannerContext sc, OrderedResultIterator ori) {
+    OrderedResultIteratorWithScannerContext(PhoenixScannerContext sc, OrderedResultIterator ori,
+      RegionScannerResultIterator regionScannerIterator) {
       this.scannerContext = sc;
       this.iterator = ori;
+      this.regionScannerIterator = regionScannerIterator;
+    }
+
+    public RegionScannerResultIterator getRegionScannerIterator() {
+      return regionScannerIterator;
     }
 
     public PhoenixScannerContext getScannerContext() {
@@ -560,7 +613,8 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
    * region) since after this everything is held in memory
    */
   private RegionScanner getTopNScanner(RegionCoprocessorEnvironment env, final RegionScanner s,
-    final OrderedResultIterator iterator, ImmutableBytesPtr tenantId, PhoenixScannerContext sc)
+    final OrderedResultIterator iterator, final RegionScannerResultIterator regionScannerIterator,
+    ImmutableBytesPtr tenantId, PhoenixScannerContext sc, final boolean sortKeysOnly)
     throws Throwable {
 
     final Tuple firstTuple;
@@ -614,15 +668,21 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
           }
           if (isDummy(tuple)) {
             ScanUtil.getDummyResult(CellUtil.cloneRow(tuple.getValue(0)), results);
+          } else if (sortKeysOnly) {
+            // The first pass of a two phase top-N returns the sort keys of the rows only
+            ImmutableBytesWritable rowKey = new ImmutableBytesWritable();
+            tuple.getKey(rowKey);
+            byte[] sortKey = TopNSortKey.toBytes(tuple, iterator.getOrderByExpressions());
+            results.add(PhoenixKeyValueUtil.newKeyValue(rowKey, QueryConstants.SINGLE_COLUMN_FAMILY,
+              QueryConstants.SINGLE_COLUMN, QueryConstants.AGG_TIMESTAMP, sortKey, 0,
+              sortKey.length));
           } else {
             for (int i = 0; i < tuple.size(); i++) {
               results.add(tuple.getValue(i));
             }
           }
-          RegionScannerResultIterator delegate =
-            (RegionScannerResultIterator) (iterator.getDelegate());
           // just use the scanner context passed to us from now on
-          delegate.setRegionScannerContext(scannerContext);
+          regionScannerIterator.setRegionScannerContext(scannerContext);
           tuple = iterator.next();
           return !isFilterDone();
         } catch (Throwable t) {
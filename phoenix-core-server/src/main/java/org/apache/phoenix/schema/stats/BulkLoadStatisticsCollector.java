@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the statistics of the files bulk loaded into a store of a region and merges them into
+ * the statistics of the region, as the data of bulk loaded files does not go through flushes.
+ */
+public class BulkLoadStatisticsCollector implements Callable<Void> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkLoadStatisticsCollector.class);
+
+  private final RegionCoprocessorEnvironment env;
+  private final String tableName;
+  private final byte[] family;
+  private final List<Path> paths;
+
+  public BulkLoadStatisticsCollector(RegionCoprocessorEnvironment env, String tableName,
+    byte[] family, List<Path> paths) {
+    this.env = env;
+    this.tableName = tableName;
+    this.family = family;
+    this.paths = paths;
+  }
+
+  @Override
+  public Void call() throws IOException {
+    Configuration conf = env.getConfiguration();
+    try (StatisticsCollector tracker = StatisticsCollectorFactory
+      .createIncrementalStatisticsCollector(env, tableName,
+        EnvironmentEdgeManager.currentTimeMillis(), family)) {
+      if (tracker.getGuidePostDepth() <= 0) {
+        return null;
+      }
+      for (Path path : paths) {
+        collectStatistics(tracker, conf, path);
+      }
+      // As for a flush, the new data is collected at the finer depth of the collector before
+      // init() reads the guide post depth of the table to merge with
+      tracker.init();
+      tracker.getStatisticsWriter().mergeStats(env.getRegion(), tracker,
+        new ImmutableBytesPtr(family));
+    } catch (IOException e) {
+      // The files may have been compacted away already, in which case the next major compaction
+      // collects their statistics
+      LOGGER.warn("Unable to collect the statistics of bulk loaded files of " + tableName, e);
+    }
+    return null;
+  }
+
+  private static void collectStatistics(StatisticsCollector tracker, Configuration conf, Path path)
+    throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    try (HFile.Reader reader = HFile.createReader(fs, path, CacheConfig.DISABLED, true, conf);
+      HFileScanner scanner = reader.getScanner(conf, false, false)) {
+      if (!scanner.seekTo()) {
+        return;
+      }
+      // Collect the cells of a row at a time as during a scan
+      List<Cell> row = new ArrayList<Cell>();
+      do {
+        Cell cell = KeyValueUtil.copyToNewKeyValue(scanner.getCell());
+        if (!row.isEmpty() && !CellUtil.matchingRows(row.get(0), cell)) {
+          tracker.collectStatistics(row);
+          row = new ArrayList<Cell>();
+        }
+        row.add(cell);
+      } while (scanner.next());
+      tracker.collectStatistics(row);
+    }
+  }
+}
@@ -21,11 +21,13 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.client.Get;
@@ -43,6 +45,7 @@ import org.apache.phoenix.coprocessorclient.MetaDataProtocol;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PName;
@@ -68,6 +71,8 @@ import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
 public class DefaultStatisticsCollector implements StatisticsCollector {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultStatisticsCollector.class);
+  // The ratio of the guide post depth of the statistics of a region to that of its new data
+  private static final int INCREMENTAL_GUIDE_POST_DEPTH_DIVISOR = 10;
 
   final Map<ImmutableBytesPtr, Pair<Long, GuidePostsInfoBuilder>> guidePostsInfoWriterMap =
     Maps.newHashMap();
@@ -82,15 +87,38 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
   private long guidePostDepth;
   private long maxTimeStamp = MetaDataProtocol.MIN_TABLE_TIMESTAMP;
   private ImmutableBytesWritable currentRow;
+  // The last row that was counted, as delete markers are not counted when incremental
+  private ImmutableBytesWritable lastCountedRow;
   private final String tableName;
   private final boolean isViewIndexTable;
   private final Region region;
   private final Configuration configuration;
+  // Whether only the statistics of new data are collected, to be merged into the existing ones
+  private final boolean incremental;
+  // The statistics of the values of the columns of each column family, keyed by column qualifier
+  final Map<ImmutableBytesPtr, Map<ImmutableBytesPtr, ColumnStatistics.Builder>> columnStatsMap =
+    Maps.newHashMap();
+  private final boolean collectColumnStatistics;
+  // The row and column of the last cell seen for the statistics of columns
+  private KeyValue lastColumnKey;
 
   public DefaultStatisticsCollector(Configuration configuration, Region region, String tableName,
     byte[] family, byte[] gp_width_bytes, byte[] gp_per_region_bytes, StatisticsWriter statsWriter,
     Table htable) {
+    this(configuration, region, tableName, family, gp_width_bytes, gp_per_region_bytes,
+      statsWriter, htable, false);
+  }
+
+  public DefaultStatisticsCollector(Configuration configuration, Region region, String tableName,
+    byte[] family, byte[] gp_width_bytes, byte[] gp_per_region_bytes, StatisticsWriter statsWriter,
+    Table htable, boolean incremental) {
     this.configuration = configuration;
+    this.incremental = incremental;
+    // The statistics of columns are not mergeable with those of new data as distinct values are
+    // only counted over the whole region
+    this.collectColumnStatistics = !incremental
+      && configuration.getBoolean(QueryServices.STATS_COLUMN_STATISTICS_ENABLED,
+        QueryServicesOptions.DEFAULT_STATS_COLUMN_STATISTICS_ENABLED);
     this.region = region;
     this.guidePostWidthBytes = gp_width_bytes;
     this.guidePostPerRegionBytes = gp_per_region_bytes;
@@ -116,6 +144,14 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
 
     this.statsWriter = statsWriter;
     this.htable = htable;
+    // The new data of a flush is collected before init(), which reads SYSTEM.CATALOG and so is
+    // kept off the flush path. Its guide posts are only used to spread its counts over the
+    // existing guide posts of the region, so they are finer than those of a full collection.
+    if (incremental) {
+      long depth = getGuidePostDepthFromConfiguration();
+      this.guidePostDepth =
+        depth > 0 ? Math.max(1, depth / INCREMENTAL_GUIDE_POST_DEPTH_DIVISOR) : 0;
+    }
   }
 
   @Override
@@ -149,18 +185,22 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
         this.guidePostDepth = guidepostWidth;
         LOGGER.info("Guide post depth determined from SYSTEM.CATALOG: " + guidePostDepth);
       } else {
-        this.guidePostDepth = StatisticsUtil.getGuidePostDepth(
-          configuration.getInt(QueryServices.STATS_GUIDEPOST_PER_REGION_ATTRIB,
-            QueryServicesOptions.DEFAULT_STATS_GUIDEPOST_PER_REGION),
-          configuration.getLongBytes(QueryServices.STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB,
-            QueryServicesOptions.DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES),
-          region.getTableDescriptor());
+        this.guidePostDepth = getGuidePostDepthFromConfiguration();
         LOGGER.info("Guide post depth determined from global configuration: " + guidePostDepth);
       }
     }
 
   }
 
+  private long getGuidePostDepthFromConfiguration() {
+    return StatisticsUtil.getGuidePostDepth(
+      configuration.getInt(QueryServices.STATS_GUIDEPOST_PER_REGION_ATTRIB,
+        QueryServicesOptions.DEFAULT_STATS_GUIDEPOST_PER_REGION),
+      configuration.getLongBytes(QueryServices.STATS_GUIDEPOST_WIDTH_BYTES_ATTRIB,
+        QueryServicesOptions.DEFAULT_STATS_GUIDEPOST_WIDTH_BYTES),
+      region.getTableDescriptor());
+  }
+
   private long getGuidePostDepthFromSystemCatalog() throws IOException, SQLException {
     try {
       long guidepostWidth = -1;
@@ -287,6 +327,7 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
       if (this.guidePostDepth > 0) {
         int oldSize = mutations.size();
         statsWriter.addStats(this, fam, mutations, guidePostDepth);
+        statsWriter.addColumnStats(region, this, fam, mutations);
         LOGGER.info("Generated " + (mutations.size() - oldSize) + " mutations for new stats");
       }
     }
@@ -323,6 +364,14 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
     }
     for (Cell cell : results) {
       maxTimeStamp = Math.max(maxTimeStamp, cell.getTimestamp());
+      // Delete markers of new data do not add to the size of the region
+      if (incremental && CellUtil.isDelete(cell)) {
+        continue;
+      }
+      lastCountedRow = row;
+      if (collectColumnStatistics) {
+        collectColumnStatistics(cell);
+      }
       Pair<Long, GuidePostsInfoBuilder> gps;
       if (cachedGuidePosts == null) {
         ImmutableBytesPtr cfKey = new ImmutableBytesPtr(cell.getFamilyArray(),
@@ -357,10 +406,70 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
     }
   }
 
+  private void collectColumnStatistics(Cell cell) {
+    // Only the latest version of a column is counted
+    if (
+      lastColumnKey != null && CellUtil.matchingRows(lastColumnKey, cell)
+        && CellUtil.matchingColumn(lastColumnKey, cell)
+    ) {
+      return;
+    }
+    lastColumnKey = KeyValueUtil.createFirstOnRow(cell.getRowArray(), cell.getRowOffset(),
+      cell.getRowLength(), cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+      cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+    if (
+      CellUtil.isDelete(cell) || cell.getValueLength() == 0
+        || CellUtil.matchingQualifier(cell, QueryConstants.EMPTY_COLUMN_BYTES)
+        || CellUtil.matchingQualifier(cell, QueryConstants.ENCODED_EMPTY_COLUMN_BYTES)
+    ) {
+      return;
+    }
+    ImmutableBytesPtr cfKey = new ImmutableBytesPtr(cell.getFamilyArray(), cell.getFamilyOffset(),
+      cell.getFamilyLength());
+    Map<ImmutableBytesPtr, ColumnStatistics.Builder> columnStats = columnStatsMap.get(cfKey);
+    if (columnStats == null) {
+      columnStats = Maps.newHashMap();
+      columnStatsMap.put(new ImmutableBytesPtr(CellUtil.cloneFamily(cell)), columnStats);
+    }
+    ImmutableBytesPtr qualifier = new ImmutableBytesPtr(cell.getQualifierArray(),
+      cell.getQualifierOffset(), cell.getQualifierLength());
+    ColumnStatistics.Builder builder = columnStats.get(qualifier);
+    if (builder == null) {
+      builder = new ColumnStatistics.Builder();
+      columnStats.put(new ImmutableBytesPtr(CellUtil.cloneQualifier(cell)), builder);
+    }
+    builder.addValue(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+  }
+
+  @Override
+  public Map<ImmutableBytesPtr, ColumnStatistics> getColumnStatistics(ImmutableBytesPtr fam) {
+    Map<ImmutableBytesPtr, ColumnStatistics.Builder> builders = columnStatsMap.get(fam);
+    if (builders == null) {
+      return Collections.emptyMap();
+    }
+    Map<ImmutableBytesPtr, ColumnStatistics> columnStats =
+      Maps.newHashMapWithExpectedSize(builders.size());
+    for (Map.Entry<ImmutableBytesPtr, ColumnStatistics.Builder> entry : builders.entrySet()) {
+      columnStats.put(entry.getKey(), entry.getValue().build());
+    }
+    return columnStats;
+  }
+
   @Override
   public GuidePostsInfo getGuidePosts(ImmutableBytesPtr fam) {
     Pair<Long, GuidePostsInfoBuilder> pair = guidePostsInfoWriterMap.get(fam);
     if (pair != null) {
+      // New data is usually much smaller than a region, so rather than dropping what was collected
+      // after the last guide post, end it with a guide post at the last row.
+      if (incremental && cachedGuidePosts != null && pair.getFirst() > 0) {
+        if (
+          pair.getSecond().addGuidePostOnCollection(lastCountedRow, pair.getFirst(),
+            pair.getSecond().getRowCount())
+        ) {
+          pair.setFirst(0l);
+          pair.getSecond().resetRowCount();
+        }
+      }
       return pair.getSecond().build();
     }
     return null;
@@ -383,7 +492,7 @@ public class DefaultStatisticsCollector implements StatisticsCollector {
     ImmutableBytesPtr cfKey = new ImmutableBytesPtr(store.getColumnFamilyDescriptor().getName());
     LOGGER.info(
       "StatisticsScanner created for table: " + tableName + " CF: " + store.getColumnFamilyName());
-    return new StatisticsScanner(this, statsWriter, env, delegate, cfKey);
+    return new StatisticsScanner(this, statsWriter, env, delegate, cfKey, incremental);
   }
 
 }
@@ -18,7 +18,9 @@
 package org.apache.phoenix.schema.stats;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
@@ -63,6 +65,11 @@ public class NoOpStatisticsCollector implements StatisticsCollector {
     return null;
   }
 
+  @Override
+  public Map<ImmutableBytesPtr, ColumnStatistics> getColumnStatistics(ImmutableBytesPtr fam) {
+    return Collections.emptyMap();
+  }
+
   @Override
   public long getGuidePostDepth() {
     return -1;
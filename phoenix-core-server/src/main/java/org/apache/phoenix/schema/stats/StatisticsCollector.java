@@ -20,6 +20,7 @@ package org.apache.phoenix.schema.stats;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
@@ -62,6 +63,12 @@ public interface StatisticsCollector extends Closeable {
    */
   GuidePostsInfo getGuidePosts(ImmutableBytesPtr fam);
 
+  /**
+   * Retrieve the statistics of the columns of the given column family keyed by column qualifier,
+   * which are empty unless the statistics of columns are enabled.
+   */
+  Map<ImmutableBytesPtr, ColumnStatistics> getColumnStatistics(ImmutableBytesPtr fam);
+
   /**
    * Retrieve the guide post depth during stats collection
    */
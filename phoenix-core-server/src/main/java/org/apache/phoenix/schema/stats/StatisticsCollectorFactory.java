@@ -18,7 +18,9 @@
 package org.apache.phoenix.schema.stats;
 
 import static org.apache.phoenix.query.QueryServices.STATS_COLLECTION_ENABLED;
+import static org.apache.phoenix.query.QueryServices.STATS_INCREMENTAL_ENABLED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_STATS_COLLECTION_ENABLED;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_STATS_INCREMENTAL_ENABLED;
 
 import java.io.IOException;
 import org.apache.hadoop.hbase.client.Table;
@@ -61,6 +63,29 @@ public class StatisticsCollectorFactory {
     }
   }
 
+  /**
+   * Creates a collector of the statistics of new data of the given store, such as a flush or a bulk
+   * loaded file, which are merged into the existing statistics of the region instead of replacing
+   * them. Returns a no-op collector unless incremental statistics are enabled too.
+   */
+  public static StatisticsCollector createIncrementalStatisticsCollector(
+    RegionCoprocessorEnvironment env, String tableName, long clientTimeStamp, byte[] storeName)
+    throws IOException {
+    if (
+      statisticsEnabled(env) && env.getConfiguration().getBoolean(STATS_INCREMENTAL_ENABLED,
+        DEFAULT_STATS_INCREMENTAL_ENABLED)
+    ) {
+      StatisticsWriter statsWriter = StatisticsWriter.newWriter(env, tableName, clientTimeStamp);
+      Table table = ConnectionFactory.getConnection(ConnectionType.DEFAULT_SERVER_CONNECTION, env)
+        .getTable(SchemaUtil.getPhysicalTableName(PhoenixDatabaseMetaData.SYSTEM_CATALOG_NAME_BYTES,
+          env.getConfiguration()));
+      return new DefaultStatisticsCollector(env.getConfiguration(), env.getRegion(), tableName,
+        storeName, null, null, statsWriter, table, true);
+    } else {
+      return new NoOpStatisticsCollector();
+    }
+  }
+
   /**
    * Determines if statistics are enabled (which is the default). This is done on the
    * RegionCoprocessorEnvironment for now to allow setting this on a per-table basis, although it
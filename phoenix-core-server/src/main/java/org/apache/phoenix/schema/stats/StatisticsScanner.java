@@ -40,7 +40,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The scanner that does the scanning to collect the stats during major
- * compaction.{@link DefaultStatisticsCollector}
+ * compaction.{@link DefaultStatisticsCollector} When incremental, it collects the stats of new data
+ * instead, such as a flush, and merges them into the existing stats of the region.
  */
 public class StatisticsScanner implements InternalScanner {
   private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsScanner.class);
@@ -51,9 +52,16 @@ public class StatisticsScanner implements InternalScanner {
   private ImmutableBytesPtr family;
   private final Configuration config;
   private final RegionCoprocessorEnvironment env;
+  private final boolean incremental;
 
   public StatisticsScanner(StatisticsCollector tracker, StatisticsWriter stats,
     RegionCoprocessorEnvironment env, InternalScanner delegate, ImmutableBytesPtr family) {
+    this(tracker, stats, env, delegate, family, false);
+  }
+
+  public StatisticsScanner(StatisticsCollector tracker, StatisticsWriter stats,
+    RegionCoprocessorEnvironment env, InternalScanner delegate, ImmutableBytesPtr family,
+    boolean incremental) {
     this.tracker = tracker;
     this.statsWriter = stats;
     this.delegate = delegate;
@@ -61,7 +69,13 @@ public class StatisticsScanner implements InternalScanner {
     this.env = env;
     this.family = family;
     this.config = env.getConfiguration();
-    StatisticsCollectionRunTracker.getInstance(config).addCompactingRegion(region.getRegionInfo());
+    this.incremental = incremental;
+    // Incremental collection does not replace the stats of the region, so it can run concurrently
+    // with UPDATE STATISTICS and major compactions
+    if (!incremental) {
+      StatisticsCollectionRunTracker.getInstance(config)
+        .addCompactingRegion(region.getRegionInfo());
+    }
   }
 
   @Override
@@ -91,11 +105,16 @@ public class StatisticsScanner implements InternalScanner {
     boolean async = getConfig().getBoolean(COMMIT_STATS_ASYNC, DEFAULT_COMMIT_STATS_ASYNC);
     StatisticsCollectionRunTracker collectionTracker = getStatsCollectionRunTracker(config);
     StatisticsScannerCallable callable = createCallable();
+    if (isIncremental()) {
+      // Don't hold on to the scanner of a flush while the stats are being committed
+      getDelegate().close();
+    }
     if (isConnectionClosed()) {
       LOGGER.debug("Not updating table statistics because the server is stopping/stopped");
       return;
     }
-    if (!async) {
+    // The stats of new data are always merged asynchronously, so as not to delay the flush
+    if (!async && !isIncremental()) {
       callable.call();
     } else {
       collectionTracker.runTask(callable);
@@ -135,6 +154,10 @@ public class StatisticsScanner implements InternalScanner {
     return delegate;
   }
 
+  boolean isIncremental() {
+    return incremental;
+  }
+
   class StatisticsScannerCallable implements Callable<Void> {
     @Override
     public Void call() throws IOException {
@@ -146,6 +169,16 @@ public class StatisticsScanner implements InternalScanner {
         // Just verify if this if fine
         ArrayList<Mutation> mutations = new ArrayList<Mutation>();
 
+        if (isIncremental()) {
+          if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Merging the stats of new data into the stats for the region "
+              + regionInfo.getRegionNameAsString());
+          }
+          // The guide post depth of the table is only read here, off the flush path
+          getTracker().init();
+          getStatisticsWriter().mergeStats(getRegion(), getTracker(), family);
+          return null;
+        }
         if (LOGGER.isDebugEnabled()) {
           LOGGER.debug("Deleting the stats for the region " + regionInfo.getRegionNameAsString()
             + " as part of major compaction");
@@ -156,6 +189,7 @@ public class StatisticsScanner implements InternalScanner {
             + " as part of major compaction");
         }
         getStatisticsWriter().addStats(tracker, family, mutations, tracker.getGuidePostDepth());
+        getStatisticsWriter().addColumnStats(region, tracker, family, mutations);
         if (LOGGER.isDebugEnabled()) {
           LOGGER.debug("Committing new stats for the region " + regionInfo.getRegionNameAsString()
             + " as part of major compaction");
@@ -170,7 +204,9 @@ public class StatisticsScanner implements InternalScanner {
         }
       } finally {
         try {
-          collectionTracker.removeCompactingRegion(regionInfo);
+          if (!isIncremental()) {
+            collectionTracker.removeCompactingRegion(regionInfo);
+          }
           getStatisticsWriter().close();// close the writer
           getTracker().close();// close the tracker
         } catch (IOException e) {
@@ -179,7 +215,9 @@ public class StatisticsScanner implements InternalScanner {
         } finally {
           // close the delegate scanner
           try {
-            getDelegate().close();
+            if (!isIncremental()) {
+              getDelegate().close();
+            }
           } catch (IOException e) {
             if (toThrow == null) toThrow = e;
             LOGGER.error("Error while closing the scanner", e);
@@ -31,7 +31,12 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
@@ -53,12 +58,15 @@ import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.coprocessorclient.MetaDataProtocol;
+import org.apache.phoenix.hbase.index.LockManager;
+import org.apache.phoenix.hbase.index.LockManager.RowLock;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.types.PDate;
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.util.ByteUtil;
@@ -122,6 +130,10 @@ public class StatisticsWriter implements Closeable {
     return clientTimeStamp;
   }
 
+  // Serializes the merges of the statistics of new data into the statistics of a region
+  private static final LockManager MERGE_LOCK_MANAGER = new LockManager();
+  private static final long MERGE_LOCK_WAIT_DURATION_MS = 60000;
+
   private final Table statsWriterTable;
   // In HBase 0.98.4 or above, the reader and writer will be the same.
   // In pre HBase 0.98.4, there was a bug in using the HTable returned
@@ -213,6 +225,192 @@ public class StatisticsWriter implements Closeable {
     }
   }
 
+  /**
+   * Merge the statistics collected over new data of a region, such as a flush or a bulk loaded
+   * file, into the statistics of the region, and commit them. The row and byte counts of the new
+   * data are added to the existing guide post that ends the chunk they fall in, so that the
+   * estimates account for the new data until the next full collection replaces them without the
+   * number of guide posts growing with every flush. Only new data past the last guide post of the
+   * region extends the last guide post up to the guide post depth, and starts a new one beyond it.
+   * Merges of the same region and column family are serialized, as each one reads the counts that
+   * it updates.
+   */
+  public void mergeStats(Region region, StatisticsCollector tracker, ImmutableBytesPtr cfKey)
+    throws IOException {
+    if (tracker == null || tracker.getGuidePostDepth() <= 0) {
+      return;
+    }
+    GuidePostsInfo gps = tracker.getGuidePosts(cfKey);
+    if (gps == null || gps.getGuidePosts().getLength() == 0) {
+      return;
+    }
+    long guidePostDepth = tracker.getGuidePostDepth();
+    long[] byteCounts = gps.getByteCounts();
+    long[] rowCounts = gps.getRowCounts();
+    List<byte[]> newGuidePosts = new ArrayList<byte[]>();
+    ImmutableBytesWritable keys = gps.getGuidePosts();
+    try (ByteArrayInputStream stream =
+      new ByteArrayInputStream(keys.get(), keys.getOffset(), keys.getLength())) {
+      DataInput input = new DataInputStream(stream);
+      PrefixByteDecoder decoder = new PrefixByteDecoder(gps.getMaxLength());
+      while (true) {
+        newGuidePosts.add(decoder.decode(input).copyBytes());
+      }
+    } catch (EOFException e) { // Ignore as this signifies we're done
+
+    }
+    RowLock lock = MERGE_LOCK_MANAGER.lockRow(new ImmutableBytesPtr(
+      ByteUtil.concat(region.getRegionInfo().getRegionName(), cfKey.copyBytesIfNecessary())),
+      MERGE_LOCK_WAIT_DURATION_MS);
+    try {
+      List<Mutation> mutations = new ArrayList<Mutation>();
+      long timeStamp = clientTimeStamp;
+      if (clientTimeStamp == DefaultStatisticsCollector.NO_TIMESTAMP) {
+        timeStamp = tracker.getMaxTimeStamp();
+        mutations.add(getLastStatsUpdatedTimePut(timeStamp));
+      }
+      TreeMap<byte[], long[]> guidePosts = new TreeMap<byte[], long[]>(Bytes.BYTES_COMPARATOR);
+      // The existing guide posts are not overwritten with an older timestamp
+      timeStamp = Math.max(timeStamp, readGuidePosts(region, cfKey, guidePosts));
+      Set<byte[]> existingGuidePosts = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+      existingGuidePosts.addAll(guidePosts.keySet());
+      Set<byte[]> changedGuidePosts = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+      for (int i = 0; i < newGuidePosts.size(); i++) {
+        byte[] key = newGuidePosts.get(i);
+        Map.Entry<byte[], long[]> entry = guidePosts.ceilingEntry(key);
+        if (entry != null) {
+          entry.getValue()[0] += byteCounts[i];
+          entry.getValue()[1] += rowCounts[i];
+          changedGuidePosts.add(entry.getKey());
+          continue;
+        }
+        long[] counts = new long[] { byteCounts[i], rowCounts[i] };
+        Map.Entry<byte[], long[]> last = guidePosts.lastEntry();
+        if (last != null && last.getValue()[0] + byteCounts[i] <= guidePostDepth) {
+          guidePosts.remove(last.getKey());
+          changedGuidePosts.remove(last.getKey());
+          counts[0] += last.getValue()[0];
+          counts[1] += last.getValue()[1];
+        }
+        guidePosts.put(key, counts);
+        changedGuidePosts.add(key);
+      }
+      for (byte[] key : existingGuidePosts) {
+        if (!guidePosts.containsKey(key)) {
+          mutations.add(new Delete(StatisticsUtil.getRowKey(tableName, cfKey, key), timeStamp));
+        }
+      }
+      for (byte[] key : changedGuidePosts) {
+        long[] counts = guidePosts.get(key);
+        addGuidepost(cfKey, mutations, new ImmutableBytesWritable(key), counts[0], counts[1],
+          timeStamp);
+      }
+      // Real guide posts replace the empty guide post indicator as in addStats
+      byte[] rowKey =
+        StatisticsUtil.getRowKey(tableName, cfKey, ByteUtil.EMPTY_IMMUTABLE_BYTE_ARRAY);
+      mutations.add(new Delete(rowKey, timeStamp));
+      commitStats(mutations, tracker);
+    } finally {
+      lock.release();
+    }
+  }
+
+  /**
+   * Read the guide posts of the region with their byte and row counts
+   * @return the latest timestamp of the guide posts
+   */
+  private long readGuidePosts(Region region, ImmutableBytesPtr cfKey,
+    Map<byte[], long[]> guidePosts) throws IOException {
+    byte[] startKey = region.getRegionInfo().getStartKey();
+    byte[] stopKey = region.getRegionInfo().getEndKey();
+    Scan s = MetaDataUtil.newTableRowsScan(getAdjustedKey(startKey, tableName, cfKey, false),
+      getAdjustedKey(stopKey, tableName, cfKey, true), MetaDataProtocol.MIN_TABLE_TIMESTAMP,
+      clientTimeStamp);
+    s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+      PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES);
+    s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+      PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES);
+    byte[] family = cfKey.copyBytesIfNecessary();
+    long maxTimeStamp = MetaDataProtocol.MIN_TABLE_TIMESTAMP;
+    try (ResultScanner scanner = statsReaderTable.getScanner(s)) {
+      Result result = null;
+      while ((result = scanner.next()) != null) {
+        byte[] key =
+          StatisticsUtil.getGuidePostsInfoFromRowKey(tableName, family, result.getRow());
+        if (GuidePostsInfo.isEmptyGpsKey(key)) {
+          continue;
+        }
+        for (Cell cell : result.rawCells()) {
+          maxTimeStamp = Math.max(maxTimeStamp, cell.getTimestamp());
+        }
+        guidePosts.put(key,
+          new long[] { getLongValue(result, PhoenixDatabaseMetaData.GUIDE_POSTS_WIDTH_BYTES),
+            getLongValue(result, PhoenixDatabaseMetaData.GUIDE_POSTS_ROW_COUNT_BYTES) });
+      }
+    }
+    return maxTimeStamp;
+  }
+
+  /**
+   * Replace the statistics of the columns of a column family collected over a region. The
+   * statistics of a region are stored along with its end key, as they are combined with those of
+   * other regions on the client, where the statistics of regions that have since been split or
+   * merged are told apart from those of the new regions.
+   */
+  public void addColumnStats(Region region, StatisticsCollector tracker, ImmutableBytesPtr cfKey,
+    List<Mutation> mutations) throws IOException {
+    if (tracker == null) {
+      return;
+    }
+    Map<ImmutableBytesPtr, ColumnStatistics> columnStats = tracker.getColumnStatistics(cfKey);
+    if (columnStats.isEmpty()) {
+      return;
+    }
+    long timeStamp = clientTimeStamp == DefaultStatisticsCollector.NO_TIMESTAMP
+      ? tracker.getMaxTimeStamp()
+      : clientTimeStamp;
+    byte[] startKey = region.getRegionInfo().getStartKey();
+    byte[] prefix = StatisticsUtil.getColumnStatisticsRowKeyPrefix(tableName, cfKey, startKey);
+    // Delete the statistics of the columns that are no longer in the region
+    Scan s = MetaDataUtil.newTableRowsScan(prefix, ByteUtil.nextKey(prefix),
+      MetaDataProtocol.MIN_TABLE_TIMESTAMP, clientTimeStamp);
+    s.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES);
+    List<byte[]> rows = new ArrayList<byte[]>();
+    try (ResultScanner scanner = statsWriterTable.getScanner(s)) {
+      Result result = null;
+      while ((result = scanner.next()) != null) {
+        rows.add(result.getRow());
+      }
+    }
+    for (byte[] row : rows) {
+      mutations.add(new Delete(row, timeStamp - 1));
+    }
+    byte[] endKey = region.getRegionInfo().getEndKey();
+    for (Map.Entry<ImmutableBytesPtr, ColumnStatistics> entry : columnStats.entrySet()) {
+      Put put = new Put(StatisticsUtil.getColumnStatisticsRowKey(tableName, cfKey, startKey,
+        entry.getKey().copyBytesIfNecessary()));
+      put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES,
+        StatisticsUtil.COLUMN_STATISTICS_BYTES, timeStamp,
+        StatisticsUtil.getColumnStatisticsValue(endKey, entry.getValue()));
+      // Add our empty column value so that the row is deleted along with the guide posts
+      put.addColumn(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, QueryConstants.EMPTY_COLUMN_BYTES,
+        timeStamp, ByteUtil.EMPTY_BYTE_ARRAY);
+      mutations.add(put);
+    }
+  }
+
+  private static long getLongValue(Result result, byte[] qualifier) {
+    if (result == null) {
+      return 0;
+    }
+    Cell cell = result.getColumnLatestCell(QueryConstants.DEFAULT_COLUMN_FAMILY_BYTES, qualifier);
+    if (cell == null) {
+      return 0;
+    }
+    return PLong.INSTANCE.getCodec().decodeLong(cell.getValueArray(), cell.getValueOffset(),
+      SortOrder.getDefault());
+  }
+
   @SuppressWarnings("deprecation")
   private void addGuidepost(ImmutableBytesPtr cfKey, List<Mutation> mutations,
     ImmutableBytesWritable ptr, long byteCount, long rowCount, long timeStamp) {
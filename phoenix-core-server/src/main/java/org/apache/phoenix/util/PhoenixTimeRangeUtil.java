@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.OptionalLong;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.CompatMemStoreUtil;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.HStoreFile;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.TimeRangeTracker;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Utility methods for the ranges of the cell timestamps of a region
+ */
+public final class PhoenixTimeRangeUtil {
+
+  private PhoenixTimeRangeUtil() {
+  }
+
+  /**
+   * Returns the range of the timestamps of the cells of the given region that the given scan can
+   * read, from the time ranges kept for the memstore segments and recorded in the file info of the
+   * store files, or null if the time range of a store is not known. Only the store files whose
+   * row key range overlaps the row key range of the scan are included, while the memstore is
+   * always included. The memstore is read before the store files, so that the cells flushed in
+   * between are still included. The cells written later are included or not, so the range is
+   * exact only for the scanners opened before it is computed.
+   */
+  public static TimeRangeTracker getCellTimeRange(Region region, Scan scan) throws IOException {
+    long minTimestamp = Long.MAX_VALUE;
+    long maxTimestamp = Long.MIN_VALUE;
+    for (Store store : region.getStores()) {
+      if (!(store instanceof HStore)) {
+        return null;
+      }
+      TimeRangeTracker memStoreTimeRange =
+        CompatMemStoreUtil.getMemStoreTimeRange((HStore) store);
+      if (memStoreTimeRange == null) {
+        return null;
+      }
+      if (memStoreTimeRange.getMin() <= memStoreTimeRange.getMax()) {
+        minTimestamp = Math.min(minTimestamp, memStoreTimeRange.getMin());
+        maxTimestamp = Math.max(maxTimestamp, memStoreTimeRange.getMax());
+      }
+      for (HStoreFile storeFile : ((HStore) store).getStorefiles()) {
+        if (!overlaps(storeFile, scan)) {
+          continue;
+        }
+        OptionalLong min = storeFile.getMinimumTimestamp();
+        OptionalLong max = storeFile.getMaximumTimestamp();
+        if (!min.isPresent() || !max.isPresent()) {
+          return null;
+        }
+        minTimestamp = Math.min(minTimestamp, min.getAsLong());
+        maxTimestamp = Math.max(maxTimestamp, max.getAsLong());
+      }
+    }
+    if (minTimestamp > maxTimestamp) {
+      // No cell to read
+      return TimeRangeTracker.create(TimeRangeTracker.Type.NON_SYNC);
+    }
+    return TimeRangeTracker.create(TimeRangeTracker.Type.NON_SYNC, minTimestamp, maxTimestamp);
+  }
+
+  /**
+   * Checks if the row key range of the given store file overlaps the row key range of the given
+   * scan. Both ranges are taken as inclusive, and a reversed scan overlaps every store file.
+   */
+  private static boolean overlaps(HStoreFile storeFile, Scan scan) {
+    if (scan.isReversed()) {
+      return true;
+    }
+    Optional<Cell> firstKey = storeFile.getFirstKey();
+    Optional<Cell> lastKey = storeFile.getLastKey();
+    if (!firstKey.isPresent() || !lastKey.isPresent()) {
+      return true;
+    }
+    byte[] startRow = scan.getStartRow();
+    byte[] stopRow = scan.getStopRow();
+    Cell first = firstKey.get();
+    Cell last = lastKey.get();
+    if (
+      startRow.length > 0 && Bytes.compareTo(last.getRowArray(), last.getRowOffset(),
+        last.getRowLength(), startRow, 0, startRow.length) < 0
+    ) {
+      return false;
+    }
+    return stopRow.length == 0 || Bytes.compareTo(first.getRowArray(), first.getRowOffset(),
+      first.getRowLength(), stopRow, 0, stopRow.length) <= 0;
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.generated.IndexMutationsProtos;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.util.CDCStreamReader;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests that {@link CDCStreamReader} reads the events of a CDC stream partition in batches, in
+ * both record formats, and resumes from the position committed for its consumer.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class CDCStreamReaderIT extends BaseTest {
+
+  private static final int ROW_COUNT = 25;
+  private static final int BATCH_SIZE = 10;
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(1);
+    props.put(CDCStreamReader.CDC_STREAM_READER_TIMESTAMP_BUFFER_MS, Long.toString(0));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  private static String getPartitionId(Connection conn, String cdcName) throws Exception {
+    ResultSet rs =
+      conn.createStatement().executeQuery("SELECT DISTINCT PARTITION_ID() FROM " + cdcName);
+    assertTrue(rs.next());
+    String partitionId = rs.getString(1);
+    assertFalse(rs.next());
+    return partitionId;
+  }
+
+  private static List<CDCStreamReader.Event> readAll(CDCStreamReader reader) throws Exception {
+    // Lets the events of the last commit get older than the timestamp buffer
+    Thread.sleep(10);
+    List<CDCStreamReader.Event> events = new ArrayList<>();
+    List<CDCStreamReader.Event> batch = reader.next();
+    while (!batch.isEmpty()) {
+      events.addAll(batch);
+      assertEquals(batch.get(batch.size() - 1).getTimestamp(), reader.getPosition());
+      batch = reader.next();
+    }
+    return events;
+  }
+
+  @Test
+  public void testReadAndResume() throws Exception {
+    String tableName = generateUniqueName();
+    String cdcName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      PhoenixConnection phoenixConn = conn.unwrap(PhoenixConnection.class);
+      conn.createStatement()
+        .execute("CREATE TABLE " + tableName + " (id VARCHAR PRIMARY KEY, val VARCHAR)");
+      conn.createStatement().execute("CREATE CDC " + cdcName + " ON " + tableName);
+      PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?)");
+      for (int i = 0; i < ROW_COUNT; i++) {
+        stmt.setString(1, String.format("id%02d", i));
+        stmt.setString(2, "v");
+        stmt.execute();
+      }
+      conn.commit();
+      String partitionId = getPartitionId(conn, cdcName);
+
+      CDCStreamReader reader = new CDCStreamReader(phoenixConn, null, cdcName, partitionId,
+        "consumer1", CDCStreamReader.Format.DATA_ROW_STATE, BATCH_SIZE);
+      List<CDCStreamReader.Event> events = readAll(reader);
+      assertEquals(ROW_COUNT, events.size());
+      Set<String> rowKeys = new HashSet<>();
+      for (CDCStreamReader.Event event : events) {
+        IndexMutationsProtos.DataRowStates states = event.getDataRowStates();
+        assertNull(event.getJson());
+        assertFalse(states.hasCurrentDataRowState());
+        assertTrue(states.hasNextDataRowState());
+        rowKeys.add(Bytes.toString(states.getDataRowKey().toByteArray()));
+      }
+      assertEquals(ROW_COUNT, rowKeys.size());
+      reader.commit();
+
+      conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES ('id00', 'u')");
+      conn.commit();
+      // A new reader of the consumer resumes after the committed position
+      reader = new CDCStreamReader(phoenixConn, null, cdcName, partitionId, "consumer1",
+        CDCStreamReader.Format.DATA_ROW_STATE, BATCH_SIZE);
+      events = readAll(reader);
+      assertEquals(1, events.size());
+      IndexMutationsProtos.DataRowStates states = events.get(0).getDataRowStates();
+      assertEquals("id00", Bytes.toString(states.getDataRowKey().toByteArray()));
+      assertTrue(states.hasCurrentDataRowState());
+      assertTrue(states.hasNextDataRowState());
+      // The position of the reader was not committed, so the event is read again
+      reader = new CDCStreamReader(phoenixConn, null, cdcName, partitionId, "consumer1",
+        CDCStreamReader.Format.DATA_ROW_STATE, BATCH_SIZE);
+      assertEquals(1, readAll(reader).size());
+
+      // The position is kept per consumer
+      reader = new CDCStreamReader(phoenixConn, null, cdcName, partitionId, "consumer2",
+        CDCStreamReader.Format.JSON, BATCH_SIZE);
+      events = readAll(reader);
+      assertEquals(ROW_COUNT + 1, events.size());
+      for (CDCStreamReader.Event event : events) {
+        assertNull(event.getDataRowStates());
+        assertTrue(event.getJson().contains("upsert"));
+      }
+    }
+  }
+}
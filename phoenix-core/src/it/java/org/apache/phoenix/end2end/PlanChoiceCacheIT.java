@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PLAN_CHOICE_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PLAN_CHOICE_CACHE_MISS_COUNTER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.Map;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests that the queries reuse the table or index chosen for them before, until the table or its
+ * indexes change.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class PlanChoiceCacheIT extends BaseTest {
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(1);
+    props.put(QueryServices.PLAN_CHOICE_CACHE_SIZE_ATTRIB, Integer.toString(100));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  private static String getChosenTable(String query) throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+      QueryPlan plan = stmt.optimizeQuery(query);
+      ResultSet rs = stmt.executeQuery(query);
+      assertTrue(rs.next());
+      assertEquals("b", rs.getString(1));
+      assertFalse(rs.next());
+      return plan.getTableRef().getTable().getTableName().getString();
+    }
+  }
+
+  @Test
+  public void testChoiceReusedUntilIndexDropped() throws Exception {
+    String tableName = generateUniqueName();
+    String indexName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      conn.createStatement().execute("CREATE TABLE " + tableName
+        + " (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR)");
+      conn.createStatement()
+        .execute("CREATE INDEX " + indexName + " ON " + tableName + " (v1) INCLUDE (v2)");
+      conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES ('k1', 'a', 'b')");
+      conn.commit();
+    }
+    String query = "SELECT v2 FROM " + tableName + " WHERE v1 = 'a'";
+    long hits = GLOBAL_PLAN_CHOICE_CACHE_HIT_COUNTER.getMetric().getValue();
+    long misses = GLOBAL_PLAN_CHOICE_CACHE_MISS_COUNTER.getMetric().getValue();
+    assertEquals(indexName, getChosenTable(query));
+    assertEquals(misses + 1, GLOBAL_PLAN_CHOICE_CACHE_MISS_COUNTER.getMetric().getValue());
+    // Both the plan of the next connection and the execution of the query find the choice
+    assertEquals(indexName, getChosenTable(query));
+    assertEquals(hits + 3, GLOBAL_PLAN_CHOICE_CACHE_HIT_COUNTER.getMetric().getValue());
+
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      conn.createStatement().execute("DROP INDEX " + indexName + " ON " + tableName);
+    }
+    assertEquals(tableName, getChosenTable(query));
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.TimeRangeTracker;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.TTLRegionScanner;
+import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ManualEnvironmentEdge;
+import org.apache.phoenix.util.PhoenixTimeRangeUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests the masking of {@link TTLRegionScanner} with a literal TTL when the cell time range of the
+ * region is checked first, for regions whose rows are all expired, all live, or some of each.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class TTLTimeRangeCheckIT extends BaseTest {
+
+  private static final int TTL = 100;
+  private ManualEnvironmentEdge injectEdge;
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+    props.put(QueryServices.PHOENIX_TTL_TIME_RANGE_CHECK_ENABLED, Boolean.toString(true));
+    props.put(BaseScannerRegionObserverConstants.PHOENIX_MAX_LOOKBACK_AGE_CONF_KEY,
+      Integer.toString(0));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  @Before
+  public void beforeTest() {
+    EnvironmentEdgeManager.reset();
+    injectEdge = new ManualEnvironmentEdge();
+    injectEdge.setValue(EnvironmentEdgeManager.currentTimeMillis());
+    EnvironmentEdgeManager.injectEdge(injectEdge);
+  }
+
+  @After
+  public synchronized void afterTest() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  private static void createTable(Connection conn, String tableName) throws SQLException {
+    conn.createStatement()
+      .execute("CREATE TABLE " + tableName + " (id VARCHAR PRIMARY KEY, val VARCHAR) TTL=" + TTL);
+  }
+
+  private static void upsert(Connection conn, String tableName, String id) throws SQLException {
+    conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES ('" + id + "', 'v')");
+    conn.commit();
+  }
+
+  private static void assertRows(Connection conn, String tableName, String... expectedIds)
+    throws SQLException {
+    assertQueryRows(conn, "SELECT id FROM " + tableName, expectedIds);
+  }
+
+  private static void assertQueryRows(Connection conn, String query, String... expectedIds)
+    throws SQLException {
+    ResultSet rs = conn.createStatement().executeQuery(query);
+    for (String expectedId : expectedIds) {
+      assertTrue(rs.next());
+      assertEquals(expectedId, rs.getString(1));
+    }
+    assertFalse(rs.next());
+  }
+
+  private static TimeRangeTracker getCellTimeRange(String tableName) throws IOException {
+    return getCellTimeRange(tableName, new Scan());
+  }
+
+  private static TimeRangeTracker getCellTimeRange(String tableName, Scan scan)
+    throws IOException {
+    List<HRegion> regions =
+      getUtility().getMiniHBaseCluster().getRegions(TableName.valueOf(tableName));
+    assertEquals(1, regions.size());
+    TimeRangeTracker timeRange = PhoenixTimeRangeUtil.getCellTimeRange(regions.get(0), scan);
+    assertTrue(timeRange != null);
+    return timeRange;
+  }
+
+  private long getTTLWindowStart() {
+    return injectEdge.currentTime() - TTL * 1000L;
+  }
+
+  @Test
+  public void testAllRowsExpired() throws Exception {
+    String tableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTable(conn, tableName);
+      upsert(conn, tableName, "a");
+      upsert(conn, tableName, "b");
+      TestUtil.flush(getUtility(), TableName.valueOf(tableName));
+      injectEdge.incrementValue(2 * TTL * 1000L);
+      assertTrue(getCellTimeRange(tableName).getMax() < getTTLWindowStart());
+      assertRows(conn, tableName);
+    }
+  }
+
+  @Test
+  public void testNoRowExpired() throws Exception {
+    String tableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTable(conn, tableName);
+      upsert(conn, tableName, "a");
+      TestUtil.flush(getUtility(), TableName.valueOf(tableName));
+      injectEdge.incrementValue(1000);
+      upsert(conn, tableName, "b");
+      injectEdge.incrementValue(1000);
+      TimeRangeTracker timeRange = getCellTimeRange(tableName);
+      assertTrue(timeRange.getMin() >= getTTLWindowStart());
+      assertTrue(timeRange.getMax() <= injectEdge.currentTime());
+      assertRows(conn, tableName, "a", "b");
+    }
+  }
+
+  @Test
+  public void testSomeRowsExpired() throws Exception {
+    String tableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTable(conn, tableName);
+      upsert(conn, tableName, "a");
+      upsert(conn, tableName, "c");
+      TestUtil.flush(getUtility(), TableName.valueOf(tableName));
+      injectEdge.incrementValue(2 * TTL * 1000L);
+      upsert(conn, tableName, "b");
+      injectEdge.incrementValue(1000);
+      TimeRangeTracker timeRange = getCellTimeRange(tableName);
+      assertTrue(timeRange.getMin() < getTTLWindowStart());
+      assertTrue(timeRange.getMax() >= getTTLWindowStart());
+      // The region is neither expired nor live as a whole, so its rows are masked one by one
+      assertRows(conn, tableName, "b");
+    }
+  }
+
+  @Test
+  public void testRowsOfScanExpired() throws Exception {
+    String tableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTable(conn, tableName);
+      upsert(conn, tableName, "a");
+      TestUtil.flush(getUtility(), TableName.valueOf(tableName));
+      injectEdge.incrementValue(2 * TTL * 1000L);
+      upsert(conn, tableName, "z");
+      TestUtil.flush(getUtility(), TableName.valueOf(tableName));
+      injectEdge.incrementValue(1000);
+      // The store file of the live row does not overlap the scan of the expired one
+      Scan scan = new Scan().withStartRow(Bytes.toBytes("a")).withStopRow(Bytes.toBytes("m"));
+      assertTrue(getCellTimeRange(tableName, scan).getMax() < getTTLWindowStart());
+      assertTrue(getCellTimeRange(tableName).getMax() >= getTTLWindowStart());
+      assertQueryRows(conn, "SELECT id FROM " + tableName + " WHERE id < 'm'");
+      assertQueryRows(conn, "SELECT id FROM " + tableName + " WHERE id > 'm'", "z");
+    }
+  }
+}
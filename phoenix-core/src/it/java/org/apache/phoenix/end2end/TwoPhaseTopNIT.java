@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests that the pages of ORDER BY ... LIMIT ... OFFSET queries fetched by the two phase top-N hold
+ * the rows the single phase top-N returns for them, over several regions and with ties, descending
+ * and null sort keys.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+@RunWith(Parameterized.class)
+public class TwoPhaseTopNIT extends BaseTest {
+
+  private static final int ROW_COUNT = 200;
+  private static final int PAGE_SIZE = 15;
+
+  private final String preSplit;
+  private String tableName;
+
+  public TwoPhaseTopNIT(String preSplit) {
+    this.preSplit = preSplit;
+  }
+
+  @Parameters(name = "preSplit = {0}")
+  public static synchronized Collection<String> data() {
+    return Arrays.asList(" SPLIT ON (50, 100, 150)", " SALT_BUCKETS=4");
+  }
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(1);
+    // Every query with an offset uses the two phase top-N
+    props.put(QueryServices.TWO_PHASE_TOPN_MIN_OFFSET_ATTRIB, Integer.toString(0));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  @Before
+  public void initTable() throws Exception {
+    tableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      conn.createStatement().execute("CREATE TABLE " + tableName
+        + " (id INTEGER NOT NULL PRIMARY KEY, v INTEGER, s VARCHAR)" + preSplit);
+      PreparedStatement stmt =
+        conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?, ?)");
+      for (int i = 0; i < ROW_COUNT; i++) {
+        stmt.setInt(1, i);
+        // Many ties, and a null every 11 rows
+        if (i % 11 == 0) {
+          stmt.setNull(2, Types.INTEGER);
+        } else {
+          stmt.setInt(2, i % 7);
+        }
+        stmt.setString(3, i % 3 == 0 ? null : "s" + (i % 5));
+        stmt.execute();
+      }
+      conn.commit();
+    }
+  }
+
+  /**
+   * Returns the rows of the given query, each as its id and its sort values
+   */
+  private static List<String[]> getRows(Connection conn, String query) throws Exception {
+    List<String[]> rows = new ArrayList<>();
+    try (ResultSet rs = conn.createStatement().executeQuery(query)) {
+      while (rs.next()) {
+        rows.add(new String[] { rs.getString(1), rs.getString(2) + ":" + rs.getString(3) });
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Checks that the pages of the query with the given ORDER BY hold every row once, in the order
+   * of the sort values of the single phase top-N. The rows with the same sort values may be in any
+   * order, unless the ORDER BY ends with the row key.
+   */
+  private void assertPages(String orderBy, boolean isUnique) throws Exception {
+    String select = "SELECT id, v, s FROM " + tableName + " ORDER BY " + orderBy;
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String pageQuery = select + " LIMIT " + PAGE_SIZE + " OFFSET " + PAGE_SIZE;
+      String plan = QueryUtil.getExplainPlan(
+        conn.createStatement().executeQuery("EXPLAIN " + pageQuery));
+      assertTrue(plan, plan.contains("CLIENT TWO PHASE TOP-N"));
+
+      List<String[]> expected = getRows(conn, select + " LIMIT " + (ROW_COUNT + 1));
+      assertEquals(ROW_COUNT, expected.size());
+      List<String[]> actual = new ArrayList<>();
+      for (int offset = 0;; offset += PAGE_SIZE) {
+        List<String[]> page =
+          getRows(conn, select + " LIMIT " + PAGE_SIZE + " OFFSET " + offset);
+        actual.addAll(page);
+        if (page.size() < PAGE_SIZE) {
+          break;
+        }
+      }
+      assertEquals(ROW_COUNT, actual.size());
+      Set<String> ids = new HashSet<>();
+      for (int i = 0; i < ROW_COUNT; i++) {
+        assertTrue(ids.add(actual.get(i)[0]));
+        assertEquals(orderBy + " row " + i, expected.get(i)[1], actual.get(i)[1]);
+        if (isUnique) {
+          assertEquals(orderBy + " row " + i, expected.get(i)[0], actual.get(i)[0]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPagesWithTies() throws Exception {
+    assertPages("v", false);
+    assertPages("v, s", false);
+    assertPages("v, id", true);
+  }
+
+  @Test
+  public void testPagesDescending() throws Exception {
+    assertPages("v DESC", false);
+    assertPages("v DESC, s", false);
+    assertPages("v DESC, id DESC", true);
+  }
+
+  @Test
+  public void testPagesWithNullSortKeys() throws Exception {
+    assertPages("v NULLS FIRST", false);
+    assertPages("v DESC NULLS LAST", false);
+    assertPages("s DESC NULLS FIRST, v NULLS LAST, id", true);
+  }
+
+  @Test
+  public void testOffsetPastLastRow() throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      assertTrue(getRows(conn, "SELECT id, v, s FROM " + tableName + " ORDER BY v LIMIT "
+        + PAGE_SIZE + " OFFSET " + ROW_COUNT).isEmpty());
+      List<String[]> lastRows = getRows(conn, "SELECT id, v, s FROM " + tableName
+        + " ORDER BY v DESC, id LIMIT " + PAGE_SIZE + " OFFSET " + (ROW_COUNT - 5));
+      assertEquals(5, lastRows.size());
+    }
+  }
+}
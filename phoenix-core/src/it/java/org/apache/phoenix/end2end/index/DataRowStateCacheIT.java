@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.tool.BulkLoadHFiles;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.hbase.index.DataRowStateCache;
+import org.apache.phoenix.hbase.index.IndexRegionObserver;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.IndexScrutiny;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests that the {@link DataRowStateCache} of {@link IndexRegionObserver} does not build index
+ * updates from the states of rows that were changed or expired outside of the cache.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class DataRowStateCacheIT extends BaseTest {
+
+  private static final byte[] FAMILY = Bytes.toBytes("0");
+  private static final byte[] VAL2 = Bytes.toBytes("VAL2");
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(3);
+    props.put(IndexRegionObserver.INDEX_ROW_STATE_PROJECTION_ENABLED, "true");
+    props.put(IndexRegionObserver.INDEX_ROW_STATE_CACHE_SIZE, "1000");
+    props.put(BaseScannerRegionObserverConstants.PHOENIX_MAX_LOOKBACK_AGE_CONF_KEY, "0");
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  private static void createTableAndIndex(Connection conn, String dataTableName,
+    String indexTableName, String options) throws SQLException {
+    conn.createStatement().execute("CREATE TABLE " + dataTableName
+      + " (id VARCHAR PRIMARY KEY, val1 VARCHAR, val2 VARCHAR) COLUMN_ENCODED_BYTES=0" + options);
+    conn.createStatement()
+      .execute("CREATE INDEX " + indexTableName + " ON " + dataTableName + " (val1) INCLUDE (val2)");
+  }
+
+  /**
+   * Upserts the row changed outside of the row state cache, and checks that its index row is built
+   * from the changed row rather than from the cached one
+   */
+  private static void upsertAndVerifyIndex(Connection conn, String dataTableName,
+    String indexTableName, String expectedVal2) throws Exception {
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " (id, val1) VALUES ('a', 'x')");
+    conn.commit();
+    ResultSet rs = conn.createStatement()
+      .executeQuery("SELECT val2 FROM " + dataTableName + " WHERE val1 = 'x'");
+    assertTrue(rs.next());
+    assertEquals(expectedVal2, rs.getString(1));
+    assertFalse(rs.next());
+    assertEquals(1, IndexScrutiny.scrutinizeIndex(conn, dataTableName, indexTableName));
+  }
+
+  @Test
+  public void testRowUpdatedWithoutIndexMaintenance() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTableAndIndex(conn, dataTableName, indexTableName, "");
+      conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'x', '1')");
+      conn.commit();
+      // A mutation without the index metadata of the client skips index maintenance
+      try (Table table = conn.unwrap(PhoenixConnection.class).getQueryServices()
+        .getTable(Bytes.toBytes(dataTableName))) {
+        Put put = new Put(Bytes.toBytes("a"));
+        put.addColumn(FAMILY, VAL2, Bytes.toBytes("2"));
+        table.put(put);
+      }
+      upsertAndVerifyIndex(conn, dataTableName, indexTableName, "2");
+    }
+  }
+
+  @Test
+  public void testBulkLoad() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTableAndIndex(conn, dataTableName, indexTableName, "");
+      conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'x', '1')");
+      conn.commit();
+      Configuration conf = getUtility().getConfiguration();
+      FileSystem fs = FileSystem.get(conf);
+      Path dir = new Path(getUtility().getDataTestDirOnTestFS(), generateUniqueName());
+      HFile.Writer writer = HFile.getWriterFactory(conf, new CacheConfig(conf))
+        .withPath(fs, new Path(new Path(dir, Bytes.toString(FAMILY)), "hfile"))
+        .withFileContext(new HFileContextBuilder().build()).create();
+      try {
+        writer.append(new KeyValue(Bytes.toBytes("a"), FAMILY, VAL2,
+          EnvironmentEdgeManager.currentTimeMillis(), Bytes.toBytes("2")));
+      } finally {
+        writer.close();
+      }
+      BulkLoadHFiles.create(conf).bulkLoad(TableName.valueOf(dataTableName), dir);
+      upsertAndVerifyIndex(conn, dataTableName, indexTableName, "2");
+    }
+  }
+
+  @Test
+  public void testRowBetweenBatchRowsNotRead() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createTableAndIndex(conn, dataTableName, indexTableName, "");
+      conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('b', 'y', '1')");
+      conn.commit();
+      String query = "SELECT PHOENIX_ROW_TIMESTAMP() FROM " + dataTableName + " WHERE val1 = 'y'";
+      ResultSet rs = conn.createStatement().executeQuery(query);
+      assertTrue(rs.next());
+      long indexRowTimestamp = rs.getTimestamp(1).getTime();
+      // The row 'b' is read while the rows 'a' and 'c' of the batch are looked up, but it is not
+      // in the batch, so its index row must not be rewritten
+      Thread.sleep(1);
+      conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'x', '2')");
+      conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('c', 'z', '3')");
+      conn.commit();
+      rs = conn.createStatement().executeQuery(query);
+      assertTrue(rs.next());
+      assertEquals(indexRowTimestamp, rs.getTimestamp(1).getTime());
+      assertFalse(rs.next());
+      assertEquals(3, IndexScrutiny.scrutinizeIndex(conn, dataTableName, indexTableName));
+    }
+  }
+
+  @Test
+  public void testPhoenixTTL() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      // The TTL is kept by Phoenix rather than set on the HBase column families
+      createTableAndIndex(conn, dataTableName, indexTableName, ", TTL=2");
+      conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'x', '1')");
+      conn.commit();
+      Thread.sleep(3000);
+      // Purges the expired row
+      TestUtil.doMajorCompaction(conn, dataTableName);
+      upsertAndVerifyIndex(conn, dataTableName, indexTableName, null);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.hbase.index.IndexRegionObserver;
+import org.apache.phoenix.index.GlobalIndexChecker;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.IndexScrutiny;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests the batch read repair of {@link GlobalIndexChecker}, with consecutive unverified index rows
+ * that have no data row, that the data row does not point back to, and that are valid but
+ * unverified or masked by unverified versions.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class GlobalIndexCheckerBatchRepairIT extends BaseTest {
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+    props.put(QueryServices.GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB, Long.toString(0));
+    props.put(QueryServices.GLOBAL_INDEX_READ_REPAIR_BATCH_SIZE_ATTRIB, Integer.toString(10));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  @After
+  public void unsetFailForTesting() {
+    IndexRegionObserver.setFailDataTableUpdatesForTesting(false);
+    IndexRegionObserver.setFailPostIndexUpdatesForTesting(false);
+  }
+
+  private static void commitWithException(Connection conn) {
+    try {
+      conn.commit();
+      fail("Expected the commit to fail");
+    } catch (SQLException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Leaves the index rows {a1, a}, {a2, a}, {b1, b}, {c1, c} and {d1, d} unverified, one after the
+   * other. {a2, a} is not pointed back to by its data row, {d1, d} has no data row, {b1, b} is
+   * valid and {c1, c} is valid but masked by an unverified version.
+   */
+  private static void createMixedUnverifiedRows(Connection conn, String dataTableName,
+    String indexTableName) throws SQLException {
+    conn.createStatement().execute("CREATE TABLE " + dataTableName
+      + " (id VARCHAR PRIMARY KEY, val1 VARCHAR, val2 VARCHAR)");
+    conn.createStatement()
+      .execute("CREATE INDEX " + indexTableName + " ON " + dataTableName + " (val1) INCLUDE (val2)");
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'a1', 'x')");
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('b', 'b1', 'x')");
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('c', 'c1', 'x')");
+    conn.commit();
+    // The unverified index rows are written but the data table rows are not
+    IndexRegionObserver.setFailDataTableUpdatesForTesting(true);
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('a', 'a2', 'y')");
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('c', 'c1', 'y')");
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('d', 'd1', 'y')");
+    commitWithException(conn);
+    IndexRegionObserver.setFailDataTableUpdatesForTesting(false);
+    // The data table row is written but its index row is left unverified
+    IndexRegionObserver.setFailPostIndexUpdatesForTesting(true);
+    conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('b', 'b1', 'z')");
+    conn.commit();
+    IndexRegionObserver.setFailPostIndexUpdatesForTesting(false);
+  }
+
+  private static void verifyRepairedRows(Connection conn, String dataTableName,
+    String indexTableName) throws Exception {
+    String query = "SELECT val1, id, val2 FROM " + dataTableName + " WHERE val1 >= 'a'";
+    ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+    assertTrue(QueryUtil.getExplainPlan(rs).contains(indexTableName));
+    rs = conn.createStatement().executeQuery(query);
+    assertTrue(rs.next());
+    assertEquals("a1", rs.getString(1));
+    assertEquals("a", rs.getString(2));
+    assertEquals("x", rs.getString(3));
+    assertTrue(rs.next());
+    assertEquals("b1", rs.getString(1));
+    assertEquals("b", rs.getString(2));
+    assertEquals("z", rs.getString(3));
+    assertTrue(rs.next());
+    assertEquals("c1", rs.getString(1));
+    assertEquals("c", rs.getString(2));
+    assertEquals("x", rs.getString(3));
+    assertFalse(rs.next());
+    // The rows without an index row in the data table are deleted by the repair
+    try (Table indexTable = conn.unwrap(PhoenixConnection.class).getQueryServices()
+      .getTable(Bytes.toBytes(indexTableName))) {
+      assertEquals(3, TestUtil.getRowCount(indexTable, false));
+    }
+    assertEquals(3, IndexScrutiny.scrutinizeIndex(conn, dataTableName, indexTableName));
+  }
+
+  @Test
+  public void testMixedBatch() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createMixedUnverifiedRows(conn, dataTableName, indexTableName);
+      verifyRepairedRows(conn, dataTableName, indexTableName);
+      // The rows are verified now, and scanning them again does not change them
+      verifyRepairedRows(conn, dataTableName, indexTableName);
+    }
+  }
+
+  @Test
+  public void testMixedBatchWithPageDeadline() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      createMixedUnverifiedRows(conn, dataTableName, indexTableName);
+    }
+    // The page deadline passes while the batches are read ahead, which cuts them short
+    Properties props = new Properties();
+    props.setProperty(QueryServices.PHOENIX_SERVER_PAGE_SIZE_MS, Long.toString(0));
+    try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+      verifyRepairedRows(conn, dataTableName, indexTableName);
+    }
+  }
+}
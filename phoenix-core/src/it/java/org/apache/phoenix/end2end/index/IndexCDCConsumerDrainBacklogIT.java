@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.apache.phoenix.hbase.index.IndexCDCConsumer.INDEX_CDC_CONSUMER_BATCH_SIZE;
+import static org.apache.phoenix.hbase.index.IndexCDCConsumer.INDEX_CDC_CONSUMER_DRAIN_BACKLOG_ENABLED;
+import static org.apache.phoenix.hbase.index.IndexCDCConsumer.INDEX_CDC_CONSUMER_POLL_INTERVAL_MS;
+import static org.apache.phoenix.hbase.index.IndexCDCConsumer.INDEX_CDC_CONSUMER_RETRY_PAUSE_MS;
+import static org.apache.phoenix.hbase.index.IndexCDCConsumer.INDEX_CDC_CONSUMER_STARTUP_DELAY_MS;
+import static org.apache.phoenix.hbase.index.IndexCDCConsumer.INDEX_CDC_CONSUMER_TIMESTAMP_BUFFER_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.hbase.index.IndexCDCConsumer;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests that the {@link IndexCDCConsumer} of an eventually consistent index consumes a backlog of
+ * many batches without waiting for the poll interval between full batches.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class IndexCDCConsumerDrainBacklogIT extends BaseTest {
+
+  private static final int BATCH_SIZE = 10;
+  private static final long POLL_INTERVAL_MS = 20000;
+  private static final int ROW_COUNT = 300;
+  // Enough for a couple of poll intervals, far from the ROW_COUNT / BATCH_SIZE intervals that
+  // consuming the backlog one batch per poll interval takes
+  private static final long WAIT_MS = 3 * POLL_INTERVAL_MS;
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(9);
+    props.put(QueryServices.GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB, Long.toString(0));
+    props.put(QueryServices.TASK_HANDLING_INTERVAL_MS_ATTRIB, Long.toString(2));
+    props.put(QueryServices.TASK_HANDLING_INITIAL_DELAY_MS_ATTRIB, Long.toString(1));
+    props.put(INDEX_CDC_CONSUMER_BATCH_SIZE, Integer.toString(BATCH_SIZE));
+    props.put(INDEX_CDC_CONSUMER_POLL_INTERVAL_MS, Long.toString(POLL_INTERVAL_MS));
+    props.put(INDEX_CDC_CONSUMER_DRAIN_BACKLOG_ENABLED, Boolean.toString(true));
+    props.put(INDEX_CDC_CONSUMER_STARTUP_DELAY_MS, Integer.toString(1000));
+    props.put(INDEX_CDC_CONSUMER_TIMESTAMP_BUFFER_MS, Integer.toString(1000));
+    props.put(INDEX_CDC_CONSUMER_RETRY_PAUSE_MS, Integer.toString(5));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  private static void upsertRows(Connection conn, String dataTableName, String prefix)
+    throws SQLException {
+    PreparedStatement stmt =
+      conn.prepareStatement("UPSERT INTO " + dataTableName + " VALUES (?, ?, ?)");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      stmt.setString(1, String.format("id%03d", i));
+      stmt.setString(2, String.format("%s%03d", prefix, i));
+      stmt.setString(3, prefix);
+      stmt.execute();
+    }
+    conn.commit();
+  }
+
+  private static int countIndexRows(Connection conn, String dataTableName, String indexTableName,
+    String prefix) throws SQLException {
+    String query = "SELECT COUNT(*) FROM " + dataTableName + " WHERE val1 LIKE '" + prefix + "%'";
+    ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+    assertTrue(QueryUtil.getExplainPlan(rs).contains(indexTableName));
+    rs = conn.createStatement().executeQuery(query);
+    assertTrue(rs.next());
+    return rs.getInt(1);
+  }
+
+  /**
+   * Waits until the index rows of all the data rows with the given prefix are written by the
+   * consumer, or until WAIT_MS passes
+   */
+  private static void waitForIndexRows(Connection conn, String dataTableName,
+    String indexTableName, String prefix) throws Exception {
+    long deadline = EnvironmentEdgeManager.currentTimeMillis() + WAIT_MS;
+    int count = countIndexRows(conn, dataTableName, indexTableName, prefix);
+    while (count < ROW_COUNT && EnvironmentEdgeManager.currentTimeMillis() < deadline) {
+      Thread.sleep(1000);
+      count = countIndexRows(conn, dataTableName, indexTableName, prefix);
+    }
+    assertEquals(ROW_COUNT, count);
+  }
+
+  @Test
+  public void testBacklogDrainedWithoutPollInterval() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      conn.createStatement().execute("CREATE TABLE " + dataTableName
+        + " (id VARCHAR PRIMARY KEY, val1 VARCHAR, val2 VARCHAR)");
+      conn.createStatement().execute("CREATE INDEX " + indexTableName + " ON " + dataTableName
+        + " (val1) INCLUDE (val2) CONSISTENCY=EVENTUAL");
+      upsertRows(conn, dataTableName, "v");
+      waitForIndexRows(conn, dataTableName, indexTableName, "v");
+      // The updates of the same rows are consumed in order across the batches, leaving no index
+      // row of the first values behind
+      upsertRows(conn, dataTableName, "u");
+      waitForIndexRows(conn, dataTableName, indexTableName, "u");
+      assertEquals(0, countIndexRows(conn, dataTableName, indexTableName, "v"));
+      ResultSet rs = conn.createStatement()
+        .executeQuery("SELECT id, val2 FROM " + dataTableName + " WHERE val1 = 'u007'");
+      assertTrue(rs.next());
+      assertEquals("id007", rs.getString(1));
+      assertEquals("u", rs.getString(2));
+    }
+  }
+}
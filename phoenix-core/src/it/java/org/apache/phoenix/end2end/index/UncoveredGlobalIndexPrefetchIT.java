@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import org.apache.phoenix.coprocessor.UncoveredGlobalIndexRegionScanner;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests {@link UncoveredGlobalIndexRegionScanner} with the data table rows of the next pages of
+ * index rows prefetched, over an index region whose pages span several data table regions.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class UncoveredGlobalIndexPrefetchIT extends BaseTest {
+
+  private static final int ROW_COUNT = 200;
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> props = Maps.newHashMapWithExpectedSize(3);
+    props.put(QueryServices.INDEX_PAGE_SIZE_IN_ROWS, Integer.toString(10));
+    props.put(UncoveredGlobalIndexRegionScanner.INDEX_PREFETCH_PAGE_COUNT_CONF_KEY,
+      Integer.toString(2));
+    props.put(UncoveredGlobalIndexRegionScanner.INDEX_ROW_COUNTS_PER_TASK_CONF_KEY,
+      Integer.toString(4));
+    setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+  }
+
+  /**
+   * Creates a data table split in four regions, with its rows in the reverse order of their rows in
+   * the uncovered index on val1
+   * @return the query that reads the rows through the index, in the order of the index
+   */
+  private static String createTableAndIndex(Connection conn, String dataTableName,
+    String indexTableName) throws SQLException {
+    conn.createStatement()
+      .execute("CREATE TABLE " + dataTableName
+        + " (id VARCHAR PRIMARY KEY, val1 VARCHAR, val2 VARCHAR)"
+        + " SPLIT ON ('id050', 'id100', 'id150')");
+    conn.createStatement()
+      .execute("CREATE UNCOVERED INDEX " + indexTableName + " ON " + dataTableName + " (val1)");
+    PreparedStatement stmt =
+      conn.prepareStatement("UPSERT INTO " + dataTableName + " VALUES (?, ?, ?)");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      stmt.setString(1, String.format("id%03d", i));
+      stmt.setString(2, String.format("v%03d", ROW_COUNT - 1 - i));
+      stmt.setString(3, "w" + i);
+      stmt.execute();
+    }
+    conn.commit();
+    String query = "SELECT val1, id, val2 FROM " + dataTableName + " WHERE val1 >= 'v'";
+    ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+    assertTrue(QueryUtil.getExplainPlan(rs).contains(indexTableName));
+    return query;
+  }
+
+  private static void assertRow(ResultSet rs, int indexRow) throws SQLException {
+    int dataRow = ROW_COUNT - 1 - indexRow;
+    assertTrue(rs.next());
+    assertEquals(String.format("v%03d", indexRow), rs.getString(1));
+    assertEquals(String.format("id%03d", dataRow), rs.getString(2));
+    assertEquals("w" + dataRow, rs.getString(3));
+  }
+
+  @Test
+  public void testRowsReturnedInIndexOrder() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String query = createTableAndIndex(conn, dataTableName, indexTableName);
+      ResultSet rs = conn.createStatement().executeQuery(query);
+      for (int i = 0; i < ROW_COUNT; i++) {
+        assertRow(rs, i);
+      }
+      assertFalse(rs.next());
+    }
+  }
+
+  @Test
+  public void testCloseWithPrefetchedPages() throws Exception {
+    String dataTableName = generateUniqueName();
+    String indexTableName = generateUniqueName();
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String query = createTableAndIndex(conn, dataTableName, indexTableName);
+      // The scanner is closed after the first page, while the next pages are prefetched
+      try (ResultSet rs = conn.createStatement().executeQuery(query)) {
+        for (int i = 0; i < 15; i++) {
+          assertRow(rs, i);
+        }
+      }
+      assertFalse("refCount leaked", isAnyStoreRefCountLeaked());
+      // The regions are still usable by the scans that follow
+      ResultSet rs = conn.createStatement().executeQuery(query);
+      for (int i = 0; i < ROW_COUNT; i++) {
+        assertRow(rs, i);
+      }
+      assertFalse(rs.next());
+      conn.createStatement().execute("DROP TABLE " + dataTableName);
+    }
+  }
+}
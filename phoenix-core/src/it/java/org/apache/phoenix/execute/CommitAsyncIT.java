@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.hbase.index.Indexer;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests {@link PhoenixConnection#commitAsync()}, with failing rows through the
+ * {@link PartialCommitIT.FailingRegionObserver}.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class CommitAsyncIT extends BaseTest {
+
+  // Rows and table names that PartialCommitIT.FailingRegionObserver fails
+  private static final String TABLE_NAME_TO_FAIL = "B_FAILURE_TABLE";
+  private static final String ROW_TO_FAIL = "fail me upsert";
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(3);
+    serverProps.put("hbase.coprocessor.region.classes",
+      PartialCommitIT.FailingRegionObserver.class.getName());
+    serverProps.put("hbase.coprocessor.abortonerror", "false");
+    serverProps.put(Indexer.CHECK_VERSION_CONF_KEY, "false");
+    Map<String, String> clientProps = Maps.newHashMapWithExpectedSize(2);
+    // Commits nest the sends of their tables, which must not starve a single commit thread
+    clientProps.put(QueryServices.MUTATE_PARALLEL_COMMIT_ENABLED_ATTRIB, "true");
+    clientProps.put(QueryServices.COMMIT_ASYNC_THREADS_ATTRIB, "1");
+    setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()),
+      new ReadOnlyProps(clientProps.entrySet().iterator()));
+  }
+
+  private static String createTable(Connection conn, String prefix) throws SQLException {
+    String tableName = prefix + generateUniqueName();
+    conn.createStatement()
+      .execute("CREATE TABLE " + tableName + " (k VARCHAR PRIMARY KEY, c VARCHAR)");
+    return tableName;
+  }
+
+  private static int count(Connection conn, String tableName) throws SQLException {
+    ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + tableName);
+    rs.next();
+    return rs.getInt(1);
+  }
+
+  @Test
+  public void testCommitAsync() throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String aTable = createTable(conn, "A_");
+      String cTable = createTable(conn, "C_");
+      conn.setAutoCommit(false);
+      Statement stmt = conn.createStatement();
+      for (int i = 0; i < 10; i++) {
+        stmt.execute("UPSERT INTO " + aTable + " VALUES ('k" + i + "', 'a')");
+        stmt.execute("UPSERT INTO " + cTable + " VALUES ('k" + i + "', 'c')");
+      }
+      PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+      pconn.commitAsync().get(1, TimeUnit.MINUTES);
+      assertEquals(0, pconn.getStatementExecutionCounter());
+      assertEquals(10, count(conn, aTable));
+      assertEquals(10, count(conn, cTable));
+    }
+  }
+
+  @Test
+  public void testCommitExceptionThroughFuture() throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String aTable = createTable(conn, "A_");
+      String bFailureTable = createTable(conn, TABLE_NAME_TO_FAIL);
+      conn.setAutoCommit(false);
+      Statement stmt = conn.createStatement();
+      stmt.execute("UPSERT INTO " + aTable + " VALUES ('a', 'a')");
+      stmt.execute("UPSERT INTO " + bFailureTable + " VALUES ('" + ROW_TO_FAIL + "', 'b')");
+      stmt.execute("UPSERT INTO " + aTable + " VALUES ('aa', 'a')");
+      CompletableFuture<Void> future = conn.unwrap(PhoenixConnection.class).commitAsync();
+      try {
+        future.get(1, TimeUnit.MINUTES);
+        fail("Expected the commit to fail");
+      } catch (ExecutionException e) {
+        assertEquals(CommitException.class, e.getCause().getClass());
+        assertArrayEquals(new int[] { 1 },
+          ((CommitException) e.getCause()).getUncommittedStatementIndexes());
+      }
+      assertTrue(future.isCompletedExceptionally());
+      assertEquals(2, count(conn, aTable));
+    }
+  }
+
+  @Test
+  public void testCloseWithPendingCommit() throws Exception {
+    String aTable;
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      aTable = createTable(conn, "A_");
+    }
+    Connection conn = DriverManager.getConnection(getUrl());
+    conn.setAutoCommit(false);
+    for (int i = 0; i < 100; i++) {
+      conn.createStatement().execute("UPSERT INTO " + aTable + " VALUES ('k" + i + "', 'a')");
+    }
+    CompletableFuture<Void> future = conn.unwrap(PhoenixConnection.class).commitAsync();
+    conn.close();
+    // Either the commit was waited for, or it was not started and reports the closed connection
+    assertTrue(future.isDone());
+    try (Connection otherConn = DriverManager.getConnection(getUrl())) {
+      try {
+        future.get();
+        assertEquals(100, count(otherConn, aTable));
+      } catch (ExecutionException e) {
+        assertEquals(SQLExceptionCode.CONNECTION_CLOSED.getErrorCode(),
+          ((SQLException) e.getCause()).getErrorCode());
+        assertEquals(0, count(otherConn, aTable));
+      }
+    }
+  }
+
+  @Test
+  public void testCloseWithSeveralPendingCommits() throws Exception {
+    String aTable;
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      aTable = createTable(conn, "A_");
+    }
+    Connection conn = DriverManager.getConnection(getUrl());
+    conn.setAutoCommit(false);
+    for (int i = 0; i < 100; i++) {
+      conn.createStatement().execute("UPSERT INTO " + aTable + " VALUES ('k" + i + "', 'a')");
+    }
+    PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+    // The single commit thread runs the commits one after the other
+    CompletableFuture<Void> firstFuture = pconn.commitAsync();
+    CompletableFuture<Void> secondFuture = pconn.commitAsync();
+    conn.close();
+    // Every commit is waited for or cancelled, not only the last one
+    assertTrue(firstFuture.isDone());
+    assertTrue(secondFuture.isDone());
+  }
+}
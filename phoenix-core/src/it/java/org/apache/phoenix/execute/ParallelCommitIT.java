@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.hbase.index.Indexer;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests commits that send the tables of a commit phase concurrently, with some of the tables
+ * failing through the {@link PartialCommitIT.FailingRegionObserver}.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class ParallelCommitIT extends BaseTest {
+
+  // Rows and table names that PartialCommitIT.FailingRegionObserver fails
+  private static final String TABLE_NAME_TO_FAIL = "B_FAILURE_TABLE";
+  private static final String ROW_TO_FAIL = "fail me upsert";
+
+  @BeforeClass
+  public static synchronized void doSetup() throws Exception {
+    Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(3);
+    serverProps.put("hbase.coprocessor.region.classes",
+      PartialCommitIT.FailingRegionObserver.class.getName());
+    serverProps.put("hbase.coprocessor.abortonerror", "false");
+    serverProps.put(Indexer.CHECK_VERSION_CONF_KEY, "false");
+    Map<String, String> clientProps = Maps.newHashMapWithExpectedSize(2);
+    clientProps.put(QueryServices.MUTATE_PARALLEL_COMMIT_ENABLED_ATTRIB, "true");
+    // A single sender thread, so the tables queue up while the first is sent by the committer
+    clientProps.put(QueryServices.MUTATE_PARALLEL_COMMIT_THREADS_ATTRIB, "1");
+    setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()),
+      new ReadOnlyProps(clientProps.entrySet().iterator()));
+  }
+
+  private static String createTable(Connection conn, String prefix) throws SQLException {
+    String tableName = prefix + generateUniqueName();
+    conn.createStatement()
+      .execute("CREATE TABLE " + tableName + " (k VARCHAR PRIMARY KEY, c VARCHAR)");
+    return tableName;
+  }
+
+  private static void assertCount(Connection conn, String tableName, int expected)
+    throws SQLException {
+    ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + tableName);
+    rs.next();
+    assertEquals(expected, rs.getInt(1));
+  }
+
+  @Test
+  public void testNoFailure() throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String[] tableNames = new String[5];
+      for (int i = 0; i < tableNames.length; i++) {
+        tableNames[i] = createTable(conn, "T_");
+      }
+      conn.setAutoCommit(false);
+      Statement stmt = conn.createStatement();
+      for (String tableName : tableNames) {
+        for (int i = 0; i < 10; i++) {
+          stmt.execute("UPSERT INTO " + tableName + " VALUES ('k" + i + "', 'v')");
+        }
+      }
+      conn.commit();
+      for (String tableName : tableNames) {
+        assertCount(conn, tableName, 10);
+      }
+    }
+  }
+
+  @Test
+  public void testPartialFailureAcrossTables() throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      String aSuccessTable = createTable(conn, "A_");
+      String bFailureTable = createTable(conn, TABLE_NAME_TO_FAIL);
+      String cSuccessTable = createTable(conn, "C_");
+      String dFailureTable = createTable(conn, TABLE_NAME_TO_FAIL);
+      String eSuccessTable = createTable(conn, "E_");
+      conn.setAutoCommit(false);
+      Statement stmt = conn.createStatement();
+      stmt.execute("UPSERT INTO " + aSuccessTable + " VALUES ('a', 'a')");
+      stmt.execute("UPSERT INTO " + bFailureTable + " VALUES ('" + ROW_TO_FAIL + "', 'b')");
+      stmt.execute("UPSERT INTO " + cSuccessTable + " VALUES ('c', 'c')");
+      stmt.execute("UPSERT INTO " + dFailureTable + " VALUES ('" + ROW_TO_FAIL + "', 'd')");
+      stmt.execute("UPSERT INTO " + eSuccessTable + " VALUES ('e', 'e')");
+      try {
+        conn.commit();
+        fail("Expected the commit to fail");
+      } catch (SQLException e) {
+        assertEquals(CommitException.class, e.getClass());
+        // Only the statements of the failed tables are reported, not the ones of the tables that
+        // were still in flight when the first failure happened
+        assertArrayEquals(new int[] { 1, 3 },
+          ((CommitException) e).getUncommittedStatementIndexes());
+        // The failure of the other table is chained
+        assertEquals(CommitException.class, e.getNextException().getClass());
+      }
+      assertCount(conn, aSuccessTable, 1);
+      assertCount(conn, cSuccessTable, 1);
+      assertCount(conn, eSuccessTable, 1);
+      assertCount(conn, bFailureTable, 0);
+      assertCount(conn, dFailureTable, 0);
+    }
+  }
+}
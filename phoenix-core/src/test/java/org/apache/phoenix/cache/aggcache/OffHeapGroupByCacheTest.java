@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.NonSizeTrackingServerAggregators;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class OffHeapGroupByCacheTest {
+
+  private static final int NUM_GROUPS = 5000;
+  private static final int NUM_ROWS = 20000;
+
+  private Configuration conf;
+  private ServerAggregators aggregators;
+
+  @Before
+  public void setup() throws Exception {
+    conf = new Configuration(false);
+    conf.setBoolean(QueryServices.GROUPBY_SPILLABLE_ATTRIB, true);
+    CountAggregateFunction count = new CountAggregateFunction(
+      Collections.<Expression> singletonList(LiteralExpression.newConstant(1)));
+    aggregators = new NonSizeTrackingServerAggregators(new SingleAggregateFunction[] { count },
+      new Aggregator[] { count.newServerAggregator(conf) },
+      new Expression[] { count.getAggregatorExpression() }, 1);
+  }
+
+  private static ImmutableBytesPtr groupKey(int row) {
+    return new ImmutableBytesPtr(Bytes.toBytes("group" + (row % NUM_GROUPS)));
+  }
+
+  private static ImmutableBytesPtr rowKey(int row) {
+    return new ImmutableBytesPtr(Bytes.toBytes(String.format("row%08d", row)));
+  }
+
+  private void aggregate(OffHeapGroupByCache cache, boolean cacheRowKey) {
+    for (int row = 0; row < NUM_ROWS; row++) {
+      ImmutableBytesPtr key = groupKey(row);
+      Aggregator[] rowAggregators = cache.cache(key);
+      if (cacheRowKey) {
+        cache.cacheAggregateRowKey(key, rowKey(row));
+      }
+      rowAggregators[0].aggregate(null, null);
+    }
+  }
+
+  private static List<Cell> scanAll(OffHeapGroupByCache cache) throws Exception {
+    RegionScanner scanner = cache.getScanner(Mockito.mock(RegionScanner.class));
+    List<Cell> results = new ArrayList<>();
+    boolean hasMore;
+    do {
+      hasMore = scanner.next(results);
+    } while (hasMore);
+    scanner.close();
+    return results;
+  }
+
+  private void assertCounts(List<Cell> results) {
+    assertEquals(NUM_GROUPS, results.size());
+    Map<String, Long> counts = new HashMap<>();
+    for (Cell cell : results) {
+      long count = PLong.INSTANCE.getCodec().decodeLong(cell.getValueArray(),
+        cell.getValueOffset(), SortOrder.getDefault());
+      counts.put(Bytes.toString(CellUtil.cloneRow(cell)), count);
+    }
+    for (int group = 0; group < NUM_GROUPS; group++) {
+      assertEquals(Long.valueOf(NUM_ROWS / NUM_GROUPS), counts.get("group" + group));
+    }
+  }
+
+  @Test
+  public void testAggregateInMemory() throws Exception {
+    GlobalMemoryManager memoryManager = new GlobalMemoryManager(Long.MAX_VALUE);
+    OffHeapGroupByCache cache =
+      new OffHeapGroupByCache(memoryManager, conf, aggregators, 100, true);
+    aggregate(cache, false);
+    assertEquals(NUM_GROUPS, cache.size());
+    assertTrue(memoryManager.getAvailableMemory() < Long.MAX_VALUE);
+    assertCounts(scanAll(cache));
+    assertEquals(Long.MAX_VALUE, memoryManager.getAvailableMemory());
+  }
+
+  @Test
+  public void testAggregateWithSpill() throws Exception {
+    conf.setInt(QueryServices.GROUPBY_OFF_HEAP_SLAB_SIZE_ATTRIB, 1024);
+    GlobalMemoryManager memoryManager = new GlobalMemoryManager(16 * 1024);
+    OffHeapGroupByCache cache =
+      new OffHeapGroupByCache(memoryManager, conf, aggregators, 100, true);
+    aggregate(cache, false);
+    assertEquals(NUM_GROUPS, cache.size());
+    assertCounts(scanAll(cache));
+    assertEquals(16 * 1024, memoryManager.getAvailableMemory());
+  }
+
+  @Test
+  public void testLastScannedRowKey() throws Exception {
+    conf.setInt(QueryServices.GROUPBY_OFF_HEAP_SLAB_SIZE_ATTRIB, 1024);
+    GlobalMemoryManager memoryManager = new GlobalMemoryManager(16 * 1024);
+    OffHeapGroupByCache cache =
+      new OffHeapGroupByCache(memoryManager, conf, aggregators, 100, false);
+    aggregate(cache, true);
+    List<Cell> results = scanAll(cache);
+    assertEquals(NUM_GROUPS, results.size());
+    for (Cell cell : results) {
+      // Value is the length of the group key, the group key and the aggregators
+      byte[] value = CellUtil.cloneValue(cell);
+      int keyLength = PInteger.INSTANCE.getCodec().decodeInt(value, 0, SortOrder.getDefault());
+      int group = Integer
+        .parseInt(Bytes.toString(value, Bytes.SIZEOF_INT, keyLength).substring("group".length()));
+      long count = PLong.INSTANCE.getCodec().decodeLong(value, Bytes.SIZEOF_INT + keyLength,
+        SortOrder.getDefault());
+      assertEquals(NUM_ROWS / NUM_GROUPS, count);
+      // The last row of each group is the last one aggregated into it
+      int lastRow = NUM_ROWS - NUM_GROUPS + group;
+      assertEquals(String.format("row%08d", lastRow), Bytes.toString(CellUtil.cloneRow(cell)));
+    }
+  }
+
+  private static long evaluateLong(Aggregator aggregator) {
+    ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    assertTrue(aggregator.evaluate(null, ptr));
+    return PLong.INSTANCE.getCodec().decodeLong(ptr, SortOrder.getDefault());
+  }
+
+  @Test
+  public void testAggregatorStateKeptOffHeap() throws Exception {
+    GlobalMemoryManager memoryManager = new GlobalMemoryManager(Long.MAX_VALUE);
+    OffHeapGroupByCache cache =
+      new OffHeapGroupByCache(memoryManager, conf, aggregators, 100, false);
+    ImmutableBytesPtr key = groupKey(0);
+    Aggregator[] rowAggregators = cache.cache(key);
+    cache.cacheAggregateRowKey(key, rowKey(0));
+    rowAggregators[0].aggregate(null, null);
+    // The same aggregators are handed out for every group, with the state of the group loaded
+    ImmutableBytesPtr otherKey = groupKey(1);
+    Aggregator[] otherAggregators = cache.cache(otherKey);
+    assertSame(rowAggregators, otherAggregators);
+    assertEquals(0, evaluateLong(otherAggregators[0]));
+    otherAggregators[0].aggregate(null, null);
+    cache.cacheAggregateRowKey(otherKey, rowKey(1));
+    Aggregator[] cached = cache.cache(new ImmutableBytesPtr(key.copyBytesIfNecessary()));
+    assertEquals(1, evaluateLong(cached[0]));
+    cached[0].aggregate(null, null);
+    for (Cell cell : scanAll(cache)) {
+      byte[] value = CellUtil.cloneValue(cell);
+      int keyLength = PInteger.INSTANCE.getCodec().decodeInt(value, 0, SortOrder.getDefault());
+      String group = Bytes.toString(value, Bytes.SIZEOF_INT, keyLength);
+      long count = PLong.INSTANCE.getCodec().decodeLong(value, Bytes.SIZEOF_INT + keyLength,
+        SortOrder.getDefault());
+      assertEquals("group0".equals(group) ? 2 : 1, count);
+    }
+  }
+
+  @Test
+  public void testVariableWidthAggregatorsOnHeap() throws Exception {
+    CountAggregateFunction count = new CountAggregateFunction(
+      Collections.<Expression> singletonList(LiteralExpression.newConstant(1)));
+    MinAggregateFunction min = new MinAggregateFunction(
+      Collections.<Expression> singletonList(LiteralExpression.newConstant(0L, PLong.INSTANCE)));
+    ServerAggregators countAndMin = new NonSizeTrackingServerAggregators(
+      new SingleAggregateFunction[] { count, min },
+      new Aggregator[] { count.newServerAggregator(conf), min.newServerAggregator(conf) },
+      new Expression[] { count.getAggregatorExpression(), min.getAggregatorExpression() }, 1);
+    conf.setInt(QueryServices.GROUPBY_OFF_HEAP_SLAB_SIZE_ATTRIB, 1024);
+    GlobalMemoryManager memoryManager = new GlobalMemoryManager(32 * 1024);
+    OffHeapGroupByCache cache =
+      new OffHeapGroupByCache(memoryManager, conf, countAndMin, 100, false);
+    for (int row = NUM_ROWS - 1; row >= 0; row--) {
+      ImmutableBytesPtr key = groupKey(row);
+      Aggregator[] rowAggregators = cache.cache(key);
+      cache.cacheAggregateRowKey(key, rowKey(row));
+      rowAggregators[0].aggregate(null, null);
+      rowAggregators[1].aggregate(null, new ImmutableBytesWritable(PLong.INSTANCE.toBytes(row)));
+    }
+    assertEquals(NUM_GROUPS, cache.size());
+    // The MIN of each group is its first row, whether or not the group was spilled
+    for (int group = 0; group < NUM_GROUPS; group++) {
+      Aggregator[] rowAggregators = cache.cache(groupKey(group));
+      assertEquals(NUM_ROWS / NUM_GROUPS, evaluateLong(rowAggregators[0]));
+      assertEquals(group, evaluateLong(rowAggregators[1]));
+    }
+    cache.close();
+    assertEquals(32 * 1024, memoryManager.getAvailableMemory());
+  }
+}
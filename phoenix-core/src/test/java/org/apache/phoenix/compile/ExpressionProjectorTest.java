@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Arrays;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDate;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class ExpressionProjectorTest {
+
+  private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+  private static ColumnProjector projector(Object value, PDataType type, SortOrder sortOrder)
+    throws SQLException {
+    return new ExpressionProjector("V", "V", "T",
+      LiteralExpression.newConstant(value, type, sortOrder), false);
+  }
+
+  private void assertSameAsBoxed(ColumnProjector projector) throws SQLException {
+    assertEquals(projector.getValue(null, PLong.INSTANCE, ptr), projector.getLong(null, ptr));
+    assertEquals(projector.getValue(null, PInteger.INSTANCE, ptr), projector.getInt(null, ptr));
+    assertEquals(projector.getValue(null, PSmallint.INSTANCE, ptr),
+      projector.getShort(null, ptr));
+    assertEquals(projector.getValue(null, PFloat.INSTANCE, ptr), projector.getFloat(null, ptr));
+    assertEquals(projector.getValue(null, PDouble.INSTANCE, ptr), projector.getDouble(null, ptr));
+  }
+
+  @Test
+  public void testFixedWidthNumbers() throws Exception {
+    for (SortOrder sortOrder : SortOrder.values()) {
+      assertSameAsBoxed(projector(-12345L, PLong.INSTANCE, sortOrder));
+      assertSameAsBoxed(projector(12345L, PUnsignedLong.INSTANCE, sortOrder));
+      assertSameAsBoxed(projector(-42, PInteger.INSTANCE, sortOrder));
+      assertSameAsBoxed(projector((short) 7, PSmallint.INSTANCE, sortOrder));
+      assertSameAsBoxed(projector((byte) -3, PTinyint.INSTANCE, sortOrder));
+      assertSameAsBoxed(projector(1.5f, PFloat.INSTANCE, sortOrder));
+      assertSameAsBoxed(projector(-2.75d, PDouble.INSTANCE, sortOrder));
+    }
+    ColumnProjector projector = projector(-12345L, PLong.INSTANCE, SortOrder.DESC);
+    assertEquals(-12345L, projector.getLong(null, ptr));
+    assertTrue(ptr.getLength() > 0);
+  }
+
+  @Test
+  public void testDates() throws Exception {
+    long time = 1700000000000L;
+    ColumnProjector projector = projector(new Date(time), PDate.INSTANCE, SortOrder.ASC);
+    assertEquals(time, projector.getLong(null, ptr));
+    try {
+      projector.getInt(null, ptr);
+      fail();
+    } catch (SQLException e) {
+      assertEquals(SQLExceptionCode.TYPE_MISMATCH.getErrorCode(), e.getErrorCode());
+    }
+  }
+
+  @Test
+  public void testOtherTypes() throws Exception {
+    assertSameAsBoxed(projector(new BigDecimal("123"), PDecimal.INSTANCE, SortOrder.ASC));
+    ColumnProjector projector = projector("abc", PVarchar.INSTANCE, SortOrder.ASC);
+    try {
+      projector.getLong(null, ptr);
+      fail();
+    } catch (SQLException e) {
+      assertEquals(SQLExceptionCode.TYPE_MISMATCH.getErrorCode(), e.getErrorCode());
+    }
+  }
+
+  @Test
+  public void testNull() throws Exception {
+    ColumnProjector projector = projector(null, PLong.INSTANCE, SortOrder.ASC);
+    ptr.set(PLong.INSTANCE.toBytes(1L));
+    assertEquals(0L, projector.getLong(null, ptr));
+    assertEquals(0, ptr.getLength());
+    assertEquals(0d, projector.getDouble(null, ptr), 0);
+    assertEquals(0, ptr.getLength());
+  }
+
+  @Test
+  public void testColumnsOfRow() throws Exception {
+    byte[] family = Bytes.toBytes("0");
+    byte[] row = Bytes.toBytes("r");
+    Tuple tuple = new MultiKeyValueTuple(Arrays.asList(
+      new KeyValue(row, family, Bytes.toBytes("A"), PLong.INSTANCE.toBytes(-7L)),
+      new KeyValue(row, family, Bytes.toBytes("B"), PDouble.INSTANCE.toBytes(2.5d))));
+    // The literals only give the type of the columns
+    ColumnProjector a = new ExpressionProjector("A", "A", "T", new KeyValueColumnExpression(
+      LiteralExpression.newConstant(0L, PLong.INSTANCE), family, Bytes.toBytes("A")), false);
+    ColumnProjector b = new ExpressionProjector("B", "B", "T", new KeyValueColumnExpression(
+      LiteralExpression.newConstant(0d, PDouble.INSTANCE), family, Bytes.toBytes("B")), false);
+    ColumnProjector c = new ExpressionProjector("C", "C", "T", new KeyValueColumnExpression(
+      LiteralExpression.newConstant(0L, PLong.INSTANCE), family, Bytes.toBytes("C")), false);
+    assertEquals(-7L, a.getLong(tuple, ptr));
+    assertEquals(a.getValue(tuple, PInteger.INSTANCE, ptr), a.getInt(tuple, ptr));
+    assertEquals(2.5d, b.getDouble(tuple, ptr), 0);
+    assertEquals(b.getValue(tuple, PLong.INSTANCE, ptr), b.getLong(tuple, ptr));
+    // A column missing from the row reads as 0, like a null
+    assertEquals(0L, c.getLong(tuple, ptr));
+    assertEquals(0, ptr.getLength());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.coprocessor;
+
+import static org.apache.phoenix.query.QueryConstants.UNVERIFIED_BYTES;
+import static org.apache.phoenix.query.QueryConstants.VERIFIED_BYTES;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.index.IndexMaintainer;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GlobalIndexCompactionSweeperTest {
+  private static final byte[] FAMILY = Bytes.toBytes("0");
+  private static final byte[] EMPTY_CQ = Bytes.toBytes("_0");
+  private static final byte[] COLUMN = Bytes.toBytes("V");
+  private static final long SWEEP_TIMESTAMP = 1000;
+  private static final long MAX_LOOKBACK_WINDOW_START = 2000;
+
+  private IndexMaintainer indexMaintainer;
+  private Table dataHTable;
+  private GlobalIndexCompactionSweeper sweeper;
+
+  @Before
+  public void setUp() {
+    indexMaintainer = mock(IndexMaintainer.class);
+    dataHTable = mock(Table.class);
+    when(indexMaintainer.buildDataRowKey(any(), any()))
+      .thenAnswer(invocation -> Bytes.toBytes("d"));
+    sweeper = new GlobalIndexCompactionSweeper("IDX", indexMaintainer, dataHTable, FAMILY,
+      EMPTY_CQ, SWEEP_TIMESTAMP, MAX_LOOKBACK_WINDOW_START, 10, 0);
+  }
+
+  private static List<Cell> indexRow(String key, byte[] status, long ts) {
+    List<Cell> row = new ArrayList<>();
+    row.add(new KeyValue(Bytes.toBytes(key), FAMILY, EMPTY_CQ, ts, status));
+    return row;
+  }
+
+  private static Result dataRow(long ts) {
+    return Result.create(Collections.singletonList(
+      (Cell) new KeyValue(Bytes.toBytes("d"), FAMILY, COLUMN, ts, Bytes.toBytes("v"))));
+  }
+
+  @Test
+  public void testCandidates() {
+    assertTrue(sweeper.isCandidate(indexRow("a", UNVERIFIED_BYTES, SWEEP_TIMESTAMP - 1)));
+    assertFalse(sweeper.isCandidate(indexRow("a", VERIFIED_BYTES, SWEEP_TIMESTAMP - 1)));
+    assertFalse(sweeper.isCandidate(indexRow("a", UNVERIFIED_BYTES, SWEEP_TIMESTAMP)));
+    // Only the latest version of the empty column counts
+    List<Cell> row = new ArrayList<>();
+    row.add(new KeyValue(Bytes.toBytes("a"), FAMILY, EMPTY_CQ, 20, VERIFIED_BYTES));
+    row.add(new KeyValue(Bytes.toBytes("a"), FAMILY, EMPTY_CQ, 10, UNVERIFIED_BYTES));
+    assertFalse(sweeper.isCandidate(row));
+    // Rows with delete markers are left to the compaction
+    row = indexRow("a", UNVERIFIED_BYTES, 10);
+    row.add(0, new KeyValue(Bytes.toBytes("a"), FAMILY, null, 10, KeyValue.Type.DeleteFamily));
+    assertFalse(sweeper.isCandidate(row));
+  }
+
+  @Test
+  public void testSweep() throws Exception {
+    List<Cell> missingDataRow = indexRow("a", UNVERIFIED_BYTES, 10);
+    List<Cell> orphan = indexRow("b", UNVERIFIED_BYTES, 10);
+    List<Cell> pointedTo = indexRow("c", UNVERIFIED_BYTES, 10);
+    List<Cell> recentDataRow = indexRow("d", UNVERIFIED_BYTES, 10);
+    when(indexMaintainer.checkIndexRow(eq(Bytes.toBytes("b")), any(Put.class))).thenReturn(false);
+    when(indexMaintainer.checkIndexRow(eq(Bytes.toBytes("c")), any(Put.class))).thenReturn(true);
+    when(indexMaintainer.checkIndexRow(eq(Bytes.toBytes("d")), any(Put.class))).thenReturn(false);
+    when(dataHTable.get(anyList())).thenReturn(new Result[] { Result.EMPTY_RESULT, dataRow(100),
+      dataRow(100), dataRow(MAX_LOOKBACK_WINDOW_START) });
+    sweeper.sweep(Arrays.asList(missingDataRow, orphan, pointedTo, recentDataRow));
+    assertTrue(missingDataRow.isEmpty());
+    assertTrue(orphan.isEmpty());
+    assertFalse(pointedTo.isEmpty());
+    assertFalse(recentDataRow.isEmpty());
+  }
+
+  @Test
+  public void testRowsAreKeptOnFailure() throws Exception {
+    List<Cell> row = indexRow("a", UNVERIFIED_BYTES, 10);
+    when(dataHTable.get(anyList())).thenThrow(new IOException());
+    sweeper.sweep(Collections.singletonList(row));
+    assertFalse(row.isEmpty());
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Test;
+
+public class BatchAggregatorsTest {
+
+  private static final byte[] CF = Bytes.toBytes("0");
+  private static final byte[] LONG_CQ = Bytes.toBytes("L");
+  private static final byte[] INT_CQ = Bytes.toBytes("I");
+  private static final byte[] DOUBLE_CQ = Bytes.toBytes("D");
+  private static final byte[] DECIMAL_CQ = Bytes.toBytes("M");
+  private static final int NUM_ROWS = 1000;
+
+  private static Expression column(final PDataType type, byte[] cq) {
+    PDatum datum = new PDatum() {
+      @Override
+      public boolean isNullable() {
+        return true;
+      }
+
+      @Override
+      public PDataType getDataType() {
+        return type;
+      }
+
+      @Override
+      public Integer getMaxLength() {
+        return null;
+      }
+
+      @Override
+      public Integer getScale() {
+        return null;
+      }
+
+      @Override
+      public SortOrder getSortOrder() {
+        return SortOrder.getDefault();
+      }
+    };
+    return new KeyValueColumnExpression(datum, CF, cq);
+  }
+
+  private static ServerAggregators newAggregators(Configuration conf) {
+    List<Expression> longColumn = Collections.singletonList(column(PLong.INSTANCE, LONG_CQ));
+    List<Expression> intColumn = Collections.singletonList(column(PInteger.INSTANCE, INT_CQ));
+    List<Expression> doubleColumn =
+      Collections.singletonList(column(PDouble.INSTANCE, DOUBLE_CQ));
+    List<Expression> decimalColumn =
+      Collections.singletonList(column(PDecimal.INSTANCE, DECIMAL_CQ));
+    SingleAggregateFunction[] functions =
+      new SingleAggregateFunction[] { new CountAggregateFunction(longColumn),
+        new SumAggregateFunction(longColumn, null), new SumAggregateFunction(doubleColumn, null),
+        new SumAggregateFunction(decimalColumn, null), new MinAggregateFunction(intColumn, null),
+        new MaxAggregateFunction(intColumn, null), new MinAggregateFunction(longColumn, null),
+        new MaxAggregateFunction(longColumn, null) };
+    Aggregator[] aggregators = new Aggregator[functions.length];
+    Expression[] expressions = new Expression[functions.length];
+    for (int i = 0; i < functions.length; i++) {
+      aggregators[i] = functions[i].newServerAggregator(conf);
+      expressions[i] = functions[i].getAggregatorExpression();
+    }
+    return new NonSizeTrackingServerAggregators(functions, aggregators, expressions, 0);
+  }
+
+  private static List<Tuple> newRows() {
+    List<Tuple> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      byte[] row = Bytes.toBytes(i);
+      List<Cell> cells = new ArrayList<>();
+      // Leave out some of the values so that null handling is covered
+      if (i % 7 != 0) {
+        cells.add(new KeyValue(row, CF, DECIMAL_CQ,
+          PDecimal.INSTANCE.toBytes(BigDecimal.valueOf(i * 0.25))));
+      }
+      if (i % 5 != 0) {
+        cells.add(new KeyValue(row, CF, DOUBLE_CQ, PDouble.INSTANCE.toBytes(i * 1.5 - 100)));
+      }
+      if (i % 3 != 0) {
+        cells.add(new KeyValue(row, CF, INT_CQ, PInteger.INSTANCE.toBytes(500 - i)));
+      }
+      if (i % 2 != 0) {
+        cells.add(new KeyValue(row, CF, LONG_CQ, PLong.INSTANCE.toBytes(i * 1000L - 250000L)));
+      }
+      rows.add(new MultiKeyValueTuple(cells));
+    }
+    return rows;
+  }
+
+  private static byte[] aggregateByRow(List<Tuple> rows) {
+    ServerAggregators aggregators = newAggregators(null);
+    Aggregator[] rowAggregators = aggregators.getAggregators();
+    for (Tuple row : rows) {
+      aggregators.aggregate(rowAggregators, row);
+    }
+    return aggregators.toBytes(rowAggregators);
+  }
+
+  private static byte[] aggregateByBatch(List<Tuple> rows, int batchSize) {
+    ServerAggregators aggregators = newAggregators(null);
+    BatchAggregators batchAggregators =
+      BatchAggregators.newBatchAggregators(aggregators, batchSize);
+    assertNotNull(batchAggregators);
+    Aggregator[] rowAggregators = aggregators.getAggregators();
+    for (Tuple row : rows) {
+      batchAggregators.aggregate(rowAggregators, row);
+    }
+    batchAggregators.flush();
+    return aggregators.toBytes(rowAggregators);
+  }
+
+  @Test
+  public void testBatchMatchesRowAtATime() {
+    List<Tuple> rows = newRows();
+    byte[] expected = aggregateByRow(rows);
+    // Batch sizes that do and do not divide the number of rows
+    assertArrayEquals(expected, aggregateByBatch(rows, 7));
+    assertArrayEquals(expected, aggregateByBatch(rows, 100));
+    assertArrayEquals(expected, aggregateByBatch(rows, NUM_ROWS * 2));
+  }
+
+  @Test
+  public void testFlushBetweenGroups() {
+    List<Tuple> rows = newRows();
+    ServerAggregators aggregators = newAggregators(null);
+    BatchAggregators batchAggregators = BatchAggregators.newBatchAggregators(aggregators, 64);
+    Aggregator[] first = aggregators.getAggregators();
+    Aggregator[] second = aggregators.newAggregators(null);
+    // Switching the aggregators folds the pending values into the previous ones
+    for (int i = 0; i < rows.size(); i++) {
+      batchAggregators.aggregate(i < rows.size() / 2 ? first : second, rows.get(i));
+    }
+    batchAggregators.flush();
+    ServerAggregators expected = newAggregators(null);
+    Aggregator[] expectedFirst = expected.getAggregators();
+    Aggregator[] expectedSecond = expected.newAggregators(null);
+    for (int i = 0; i < rows.size(); i++) {
+      expected.aggregate(i < rows.size() / 2 ? expectedFirst : expectedSecond, rows.get(i));
+    }
+    assertArrayEquals(expected.toBytes(expectedFirst), aggregators.toBytes(first));
+    assertArrayEquals(expected.toBytes(expectedSecond), aggregators.toBytes(second));
+  }
+
+  @Test
+  public void testNotBatchable() {
+    ServerAggregators aggregators = newAggregators(null);
+    assertNull(BatchAggregators.newBatchAggregators(aggregators, 1));
+    SumAggregateFunction sum = new SumAggregateFunction(
+      Collections.singletonList(column(PDecimal.INSTANCE, DECIMAL_CQ)), null);
+    ServerAggregators decimalOnly =
+      new NonSizeTrackingServerAggregators(new SingleAggregateFunction[] { sum },
+        new Aggregator[] { sum.newServerAggregator(null) },
+        new Expression[] { sum.getAggregatorExpression() }, 0);
+    assertNull(BatchAggregators.newBatchAggregators(decimalOnly, 1024));
+    ServerAggregators sizeTracking = new SizeTrackingServerAggregators(
+      new SingleAggregateFunction[] { sum }, new Aggregator[] { sum.newServerAggregator(null) },
+      new Expression[] { sum.getAggregatorExpression() }, 0,
+      new GlobalMemoryManager(Long.MAX_VALUE).allocate(0), 1024);
+    assertNull(BatchAggregators.newBatchAggregators(sizeTracking, 1024));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.join.HashJoinRuntimeFilter;
+import org.apache.phoenix.schema.RowKeyValueAccessor;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Test;
+
+public class HashJoinRowKeyFilterTest {
+
+  private static final byte[] FAMILY = Bytes.toBytes("0");
+
+  /**
+   * Creates a filter on the second column of a row key of two BIGINT columns
+   */
+  private static HashJoinRowKeyFilter createFilter(long... buildKeys) throws Exception {
+    LiteralExpression k1 = LiteralExpression.newConstant(null, PLong.INSTANCE);
+    LiteralExpression k2 = LiteralExpression.newConstant(null, PLong.INSTANCE);
+    List<Expression> joinExpressions = Collections.<Expression> singletonList(
+      new RowKeyColumnExpression(k2, new RowKeyValueAccessor(Arrays.asList(k1, k2), 1)));
+    HashJoinRuntimeFilter.Builder builder = new HashJoinRuntimeFilter.Builder(1024);
+    for (long key : buildKeys) {
+      builder.addKey(new ImmutableBytesWritable(PLong.INSTANCE.toBytes(key)));
+    }
+    HashJoinRowKeyFilter filter =
+      new HashJoinRowKeyFilter(joinExpressions, builder.build(), FAMILY);
+    return HashJoinRowKeyFilter.parseFrom(filter.toByteArray());
+  }
+
+  private static boolean isRowKept(HashJoinRowKeyFilter filter, long k1, long k2) {
+    byte[] row = Bytes.add(PLong.INSTANCE.toBytes(k1), PLong.INSTANCE.toBytes(k2));
+    filter.reset();
+    ReturnCode code =
+      filter.filterCell(new KeyValue(row, FAMILY, Bytes.toBytes("a"), Bytes.toBytes("v")));
+    // The key is evaluated once per row
+    assertEquals(code,
+      filter.filterCell(new KeyValue(row, FAMILY, Bytes.toBytes("b"), Bytes.toBytes("v"))));
+    assertEquals(code == ReturnCode.NEXT_ROW, filter.filterRow());
+    return code == ReturnCode.INCLUDE_AND_NEXT_COL;
+  }
+
+  @Test
+  public void testRowsFilteredByRowKey() throws Exception {
+    HashJoinRowKeyFilter filter = createFilter(10, 20, 30);
+    assertTrue(isRowKept(filter, 1, 10));
+    assertTrue(isRowKept(filter, 2, 20));
+    assertTrue(isRowKept(filter, 3, 30));
+    assertFalse(isRowKept(filter, 10, 5));
+    assertFalse(isRowKept(filter, 10, 35));
+    assertFalse(isRowKept(filter, 20, 25));
+  }
+
+  @Test
+  public void testEmptyBuildSide() throws Exception {
+    HashJoinRowKeyFilter filter = createFilter();
+    assertFalse(isRowKept(filter, 1, 10));
+  }
+
+  @Test
+  public void testEssentialFamily() throws Exception {
+    HashJoinRowKeyFilter filter = createFilter(10);
+    assertTrue(filter.isFamilyEssential(FAMILY));
+    assertFalse(filter.isFamilyEssential(Bytes.toBytes("1")));
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.Test;
+
+public class PointLookupKeysTest {
+
+  private static final byte[] PREFIX = Bytes.toBytes("tenant1.entity");
+
+  private static byte[] key(int i) {
+    return Bytes.add(PREFIX, Bytes.toBytes(i));
+  }
+
+  // Every third key, including some duplicates
+  private static List<KeyRange> newKeys(int count) {
+    List<KeyRange> keys = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      keys.add(KeyRange.getKeyRange(key(i * 3)));
+      if (i % 50 == 0) {
+        keys.add(KeyRange.getKeyRange(key(i * 3)));
+      }
+    }
+    return keys;
+  }
+
+  private static int bruteForceSearch(List<KeyRange> keys, byte[] b, int fromIndex) {
+    for (int i = fromIndex; i < keys.size(); i++) {
+      if (Bytes.compareTo(keys.get(i).getLowerRange(), b) >= 0) {
+        return i;
+      }
+    }
+    return keys.size();
+  }
+
+  @Test
+  public void testGetAndSearch() throws Exception {
+    List<KeyRange> keys = newKeys(500);
+    PointLookupKeys compact = PointLookupKeys.create(keys);
+    assertEquals(keys.size(), compact.size());
+    assertEquals(PREFIX.length + Bytes.SIZEOF_INT, compact.getMaxKeyLength());
+    int encodedLength = 0;
+    for (KeyRange key : keys) {
+      encodedLength += key.getLowerRange().length;
+    }
+    assertTrue(compact.getEncodedLength() < encodedLength / 2);
+    // Backwards too, so that decoding does not depend on the order of the accesses
+    for (int i = keys.size() - 1; i >= 0; i--) {
+      assertArrayEquals(keys.get(i).getLowerRange(), compact.getKey(i));
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      assertArrayEquals(keys.get(i).getLowerRange(), compact.getKey(i));
+    }
+    assertEquals(keys, compact.asKeyRanges());
+    for (int j = -1; j < 1510; j++) {
+      byte[] b = j < 0 ? new byte[0] : key(j);
+      for (int fromIndex : new int[] { 0, 7, 16, 17, 300, keys.size() }) {
+        assertEquals(bruteForceSearch(keys, b, fromIndex),
+          compact.search(b, 0, b.length, fromIndex));
+      }
+    }
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    List<KeyRange> keys = newKeys(100);
+    PointLookupKeys compact = PointLookupKeys.create(keys);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    compact.write(new DataOutputStream(bytes));
+    PointLookupKeys read =
+      PointLookupKeys.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(keys, read.asKeyRanges());
+    assertEquals(keys, read.duplicate().asKeyRanges());
+  }
+
+  private static ReturnCode filterRow(SkipScanFilter filter, byte[] row, List<byte[]> hints) {
+    KeyValue kv = new KeyValue(row, Bytes.toBytes("0"), Bytes.toBytes("q"), row);
+    ReturnCode code = filter.filterCell(kv);
+    if (code == ReturnCode.SEEK_NEXT_USING_HINT) {
+      Cell hint = filter.getNextCellHint(kv);
+      hints.add(Bytes.copy(hint.getRowArray(), hint.getRowOffset(), hint.getRowLength()));
+    }
+    return code;
+  }
+
+  @Test
+  public void testSkipScanFilterWithCompactKeys() throws Exception {
+    List<KeyRange> keys = newKeys(200);
+    SkipScanFilter filter = new SkipScanFilter(
+      Collections.singletonList(keys), SchemaUtil.VAR_BINARY_SCHEMA, true);
+    filter.setUseCompactPointLookupKeys(true);
+    byte[] compactBytes = filter.toByteArray();
+    filter.setUseCompactPointLookupKeys(false);
+    byte[] bytes = filter.toByteArray();
+    assertTrue(compactBytes.length < bytes.length / 2);
+
+    SkipScanFilter expected = SkipScanFilter.parseFrom(bytes);
+    SkipScanFilter actual = SkipScanFilter.parseFrom(compactBytes);
+    assertTrue(actual.isMultiKeyPointLookup());
+    assertTrue(actual.useCompactPointLookupKeys());
+    assertEquals(keys.size(), actual.getPointLookupKeyCount());
+    assertEquals(keys, actual.getPointLookupKeyRanges());
+    for (int i = 0; i < keys.size(); i++) {
+      assertArrayEquals(keys.get(i).getLowerRange(), actual.getPointLookupKey(i));
+    }
+    byte[] row = key(100);
+    assertEquals(expected.findPointLookupKey(row, 0, row.length),
+      actual.findPointLookupKey(row, 0, row.length));
+
+    // Rows are every other key, some of which are looked up
+    List<byte[]> expectedHints = new ArrayList<>();
+    List<byte[]> actualHints = new ArrayList<>();
+    for (int i = 0; i < 700 && !expected.filterAllRemaining(); i += 2) {
+      ReturnCode code = filterRow(expected, key(i), expectedHints);
+      assertEquals(code, filterRow(actual, key(i), actualHints));
+      if (code == ReturnCode.INCLUDE_AND_NEXT_COL) {
+        // The next cell of an included row
+        assertEquals(filterRow(expected, key(i), expectedHints),
+          filterRow(actual, key(i), actualHints));
+      }
+      assertEquals(expected.filterAllRemaining(), actual.filterAllRemaining());
+    }
+    assertTrue(actual.filterAllRemaining());
+    assertEquals(expectedHints.size(), actualHints.size());
+    for (int i = 0; i < expectedHints.size(); i++) {
+      assertArrayEquals(expectedHints.get(i), actualHints.get(i));
+    }
+
+    // The compact form is kept when the filter is copied and serialized again
+    SkipScanFilter copy = new SkipScanFilter(actual, false);
+    assertEquals(keys, SkipScanFilter.parseFrom(copy.toByteArray()).getPointLookupKeyRanges());
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.Test;
+
+public class DataRowStateCacheTest {
+
+  private static final byte[] CF = Bytes.toBytes("0");
+  private static final byte[] CQ = Bytes.toBytes("V");
+
+  private static DataRowStateCache newCache(long maxRows) {
+    return new DataRowStateCache(Collections.singleton(new ColumnReference(CF, CQ)), maxRows);
+  }
+
+  private static ImmutableBytesPtr rowKey(int i) {
+    return new ImmutableBytesPtr(Bytes.toBytes(i));
+  }
+
+  private static Put rowState(int i, String value) {
+    Put put = new Put(Bytes.toBytes(i));
+    put.addColumn(CF, CQ, 1, Bytes.toBytes(value));
+    return put;
+  }
+
+  private static String getValue(Put put) {
+    Cell cell = put.get(CF, CQ).get(0);
+    return Bytes.toString(CellUtil.cloneValue(cell));
+  }
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    DataRowStateCache cache = newCache(100);
+    assertNull(cache.get(rowKey(1)));
+    Put put = rowState(1, "a");
+    cache.put(rowKey(1), put);
+    Put cached = cache.get(rowKey(1));
+    // Callers get their own copy to update
+    assertNotSame(put, cached);
+    assertArrayEquals(put.getRow(), cached.getRow());
+    assertEquals("a", getValue(cached));
+    cached.addColumn(CF, Bytes.toBytes("X"), 1, Bytes.toBytes("x"));
+    assertTrue(cache.get(rowKey(1)).get(CF, Bytes.toBytes("X")).isEmpty());
+
+    cache.put(rowKey(1), rowState(1, "b"));
+    assertEquals("b", getValue(cache.get(rowKey(1))));
+    // A deleted row is removed
+    cache.put(rowKey(1), null);
+    assertNull(cache.get(rowKey(1)));
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    DataRowStateCache cache = newCache(100);
+    for (int i = 0; i < 10; i++) {
+      cache.put(rowKey(i), rowState(i, "v" + i));
+    }
+    cache.invalidate(Arrays.asList(rowKey(2), rowKey(5), rowKey(20)));
+    for (int i = 0; i < 10; i++) {
+      if (i == 2 || i == 5) {
+        assertNull(cache.get(rowKey(i)));
+      } else {
+        assertEquals("v" + i, getValue(cache.get(rowKey(i))));
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidateUncomputedUpdates() throws Exception {
+    DataRowStateCache cache = newCache(100);
+    cache.put(rowKey(1), rowState(1, "a"));
+    cache.put(rowKey(2), rowState(2, "b"));
+    long generation = cache.getGeneration();
+    // Plain invalidation of the rows of a failed batch does not affect the other batches
+    cache.invalidate(Collections.singletonList(rowKey(2)));
+    assertEquals(generation, cache.getGeneration());
+    cache.invalidateUncomputedUpdates(Collections.singletonList(rowKey(1)));
+    assertNull(cache.get(rowKey(1)));
+    assertTrue(cache.getGeneration() != generation);
+  }
+
+  @Test
+  public void testMaxRows() throws Exception {
+    DataRowStateCache cache = newCache(10);
+    for (int i = 0; i < 100; i++) {
+      cache.put(rowKey(i), rowState(i, "v" + i));
+    }
+    assertTrue(cache.size() <= 10);
+    assertEquals("v99", getValue(cache.get(rowKey(99))));
+  }
+}
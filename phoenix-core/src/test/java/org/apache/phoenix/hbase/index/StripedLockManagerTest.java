@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.LockManager.RowLock;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.After;
+import org.junit.Test;
+
+public class StripedLockManagerTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static Set<ImmutableBytesPtr> rows(int from, int to) {
+    Set<ImmutableBytesPtr> rows = new TreeSet<>();
+    for (int i = from; i < to; i++) {
+      rows.add(new ImmutableBytesPtr(Bytes.toBytes(i)));
+    }
+    return rows;
+  }
+
+  private static void release(List<RowLock> rowLocks) {
+    for (RowLock rowLock : rowLocks) {
+      rowLock.release();
+    }
+    rowLocks.clear();
+  }
+
+  private boolean tryLockInOtherThread(final LockManager lockManager,
+    final Set<ImmutableBytesPtr> rows) throws Exception {
+    return executor.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        List<RowLock> rowLocks = new ArrayList<>();
+        try {
+          lockManager.lockRows(rows, 10, rowLocks);
+          return true;
+        } catch (TimeoutIOException e) {
+          return false;
+        } finally {
+          release(rowLocks);
+        }
+      }
+    }).get();
+  }
+
+  @Test
+  public void testLockRows() throws Exception {
+    StripedLockManager lockManager = new StripedLockManager(1000);
+    Set<ImmutableBytesPtr> rows = rows(0, 100);
+    List<RowLock> rowLocks = new ArrayList<>();
+    lockManager.lockRows(rows, 1000, rowLocks);
+    assertEquals(rows.size(), rowLocks.size());
+    Set<ImmutableBytesPtr> lockedRows = new HashSet<>();
+    for (RowLock rowLock : rowLocks) {
+      lockedRows.add(rowLock.getRowKey());
+    }
+    assertEquals(rows, lockedRows);
+    assertFalse(tryLockInOtherThread(lockManager, rows(50, 51)));
+    release(rowLocks);
+    assertTrue(tryLockInOtherThread(lockManager, rows(50, 51)));
+  }
+
+  @Test
+  public void testRowsSharingStripe() throws Exception {
+    // All rows map to the same stripe, which is reentered for each of them
+    StripedLockManager lockManager = new StripedLockManager(1);
+    List<RowLock> rowLocks = new ArrayList<>();
+    lockManager.lockRows(rows(0, 10), 1000, rowLocks);
+    RowLock extra = lockManager.lockRow(new ImmutableBytesPtr(Bytes.toBytes(20)), 1000);
+    // Releasing some of the rows keeps the stripe locked
+    rowLocks.remove(0).release();
+    extra.release();
+    assertFalse(tryLockInOtherThread(lockManager, rows(100, 101)));
+    release(rowLocks);
+    assertTrue(tryLockInOtherThread(lockManager, rows(100, 101)));
+  }
+
+  @Test
+  public void testConcurrentBatches() throws Exception {
+    final StripedLockManager lockManager = new StripedLockManager(8);
+    final AtomicInteger inCriticalSection = new AtomicInteger();
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int offset = t;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          List<RowLock> rowLocks = new ArrayList<>();
+          for (int i = 0; i < 200; i++) {
+            // Overlapping batches wait for each other without deadlocking
+            lockManager.lockRows(rows(offset, offset + 20), 10000, rowLocks);
+            if (inCriticalSection.incrementAndGet() != 1) {
+              fail("Rows locked by more than one thread");
+            }
+            inCriticalSection.decrementAndGet();
+            release(rowLocks);
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.phoenix.hbase.index.parallel;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -26,9 +27,12 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.hadoop.hbase.util.Pair;
 import org.junit.Test;
 
+import org.apache.phoenix.thirdparty.com.google.common.util.concurrent.ListenableFuture;
+
 public class TestTaskRunner {
 
   @Test
@@ -57,6 +61,28 @@ public class TestTaskRunner {
     }
   }
 
+  @Test
+  public void testSubmitAsync() throws Exception {
+    TaskRunner tr = new WaitForCompletionTaskRunner(Executors.newFixedThreadPool(4));
+    TaskBatch<Boolean> tasks = new TaskBatch<Boolean>(4);
+    for (int i = 0; i < 4; i++) {
+      tasks.add(new EvenNumberFailingTask(i));
+    }
+    Pair<ListenableFuture<List<Boolean>>, List<Future<Boolean>>> resultAndFutures =
+      tr.submitAsync(tasks);
+    List<Boolean> results = resultAndFutures.getFirst().get(10, TimeUnit.SECONDS);
+    List<Future<Boolean>> futures = resultAndFutures.getSecond();
+    assertEquals(4, futures.size());
+    for (int j = 0; j < 4; j++) {
+      assertTrue(futures.get(j).isDone());
+      if (j % 2 == 0) {
+        assertNull(results.get(j));
+      } else {
+        assertTrue(results.get(j));
+      }
+    }
+  }
+
   private static class EvenNumberFailingTask extends Task<Boolean> {
     private int num;
 
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.phoenix.monitoring.HTableThreadPoolMetricsManager;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegionServerScanSchedulerTest {
+  private static final String SERVER = "rs1:16020";
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(8);
+    HTableThreadPoolMetricsManager.clearHTableThreadPoolHistograms();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    HTableThreadPoolMetricsManager.clearHTableThreadPoolHistograms();
+    EnvironmentEdgeManager.reset();
+  }
+
+  @Test
+  public void testConcurrentScansPerServerAreLimited() throws Exception {
+    RegionServerScanScheduler scheduler = new RegionServerScanScheduler(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      final int scan = i;
+      futures.add(scheduler.submit(SERVER, executor, this, null, 6, () -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        release.await();
+        running.decrementAndGet();
+        return scan;
+      }));
+    }
+    Thread.sleep(100);
+    assertEquals(2, running.get());
+    release.countDown();
+    for (int i = 0; i < futures.size(); i++) {
+      assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS).intValue());
+    }
+    assertEquals(2, maxRunning.get());
+    assertTrue(HTableThreadPoolMetricsManager.getHistogramsForAllThreadPools()
+      .containsKey(RegionServerScanScheduler.HISTOGRAM_KEY_PREFIX + SERVER));
+  }
+
+  @Test
+  public void testConcurrencyBoundedAcrossQueries() throws Exception {
+    RegionServerScanScheduler scheduler = new RegionServerScanScheduler(3);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    // Scans of queries of different sizes, submitted while earlier ones are being opened
+    for (int i = 0; i < 60; i++) {
+      final long openMs = i % 5;
+      int queryScanCount = 1 + i % 3 * 10;
+      futures.add(
+        scheduler.submit(SERVER, executor, this, null, queryScanCount, () -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          Thread.sleep(openMs);
+          running.decrementAndGet();
+          return null;
+        }));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertTrue("Opened " + maxRunning.get() + " scans concurrently", maxRunning.get() <= 3);
+    assertEquals(0, running.get());
+  }
+
+  @Test
+  public void testSmallerQueriesStartFirst() throws Exception {
+    RegionServerScanScheduler scheduler = new RegionServerScanScheduler(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Future<?> blocker =
+      scheduler.submit(SERVER, executor, this, null, 1, () -> {
+        release.await();
+        return null;
+      });
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    List<Future<?>> futures = new ArrayList<>();
+    for (int scanCount : new int[] { 100, 1, 10 }) {
+      futures.add(scheduler.submit(SERVER, executor, this, null, scanCount,
+        () -> order.add(scanCount)));
+    }
+    release.countDown();
+    blocker.get(10, TimeUnit.SECONDS);
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertEquals(Arrays.asList(1, 10, 100), order);
+  }
+
+  @Test
+  public void testCancelledScansReleaseTheirSlot() throws Exception {
+    RegionServerScanScheduler scheduler = new RegionServerScanScheduler(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    scheduler.submit(SERVER, executor, this, null, 2, () -> {
+      release.await();
+      return null;
+    });
+    Future<?> waiting =
+      scheduler.submit(SERVER, executor, this, null, 2, () -> null);
+    waiting.cancel(false);
+    release.countDown();
+    Future<Integer> next =
+      scheduler.submit(SERVER, executor, this, null, 2, () -> 1);
+    assertEquals(1, next.get(10, TimeUnit.SECONDS).intValue());
+  }
+
+  @Test
+  public void testLimitIsPerScheduler() throws Exception {
+    RegionServerScanScheduler scheduler1 = new RegionServerScanScheduler(1);
+    RegionServerScanScheduler scheduler2 = new RegionServerScanScheduler(4);
+    scheduler1.submit(SERVER, executor, this, null, 1, () -> null).get(10, TimeUnit.SECONDS);
+    scheduler2.submit(SERVER, executor, this, null, 1, () -> null).get(10, TimeUnit.SECONDS);
+    scheduler1.submit(SERVER, executor, this, null, 1, () -> null).get(10, TimeUnit.SECONDS);
+    assertEquals(1, scheduler1.getConcurrencyLimit(SERVER));
+    assertEquals(4, scheduler2.getConcurrencyLimit(SERVER));
+  }
+
+  @Test
+  public void testIdleServersExpire() throws Exception {
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(1000);
+    EnvironmentEdgeManager.injectEdge(edge);
+    RegionServerScanScheduler scheduler = new RegionServerScanScheduler(2);
+    scheduler.submit(SERVER, executor, this, null, 1, () -> null).get(10, TimeUnit.SECONDS);
+    final CountDownLatch release = new CountDownLatch(1);
+    Future<?> running = scheduler.submit("rs2:16020", executor, this, null, 1, () -> {
+      release.await();
+      return null;
+    });
+    assertEquals(2, scheduler.getServerCount());
+
+    edge.incrementValue(RegionServerScanScheduler.IDLE_SERVER_EXPIRY_MS);
+    scheduler.submit("rs3:16020", executor, this, null, 1, () -> null).get(10, TimeUnit.SECONDS);
+    // The idle server is dropped, not the one with a scan being opened
+    assertEquals(0, scheduler.getConcurrencyLimit(SERVER));
+    assertEquals(2, scheduler.getConcurrencyLimit("rs2:16020"));
+    assertEquals(2, scheduler.getServerCount());
+    release.countDown();
+    running.get(10, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.expression.RowKeyExpression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class TopNSortKeyTest {
+
+  private static Tuple row(String key) {
+    return new SingleKeyValueTuple(
+      new KeyValue(Bytes.toBytes(key), SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1)));
+  }
+
+  private static byte[] sortKey(byte[]... values) throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(stream)) {
+      for (byte[] value : values) {
+        WritableUtils.writeVInt(output, value.length);
+        output.write(value);
+      }
+    }
+    return stream.toByteArray();
+  }
+
+  private static List<OrderByExpression> orderBy(boolean isNullsLast, boolean isAscending)
+    throws SQLException {
+    return Collections.singletonList(
+      OrderByExpression.createByCheckIfExpressionSortOrderDesc(LiteralExpression.newConstant("x",
+        PVarchar.INSTANCE, SortOrder.ASC), isNullsLast, isAscending));
+  }
+
+  @Test
+  public void testRowKeyOrder() throws Exception {
+    List<OrderByExpression> ascending = Collections.singletonList(
+      OrderByExpression.createByCheckIfExpressionSortOrderDesc(RowKeyExpression.INSTANCE, false,
+        true));
+    byte[] a = TopNSortKey.toBytes(row("a"), ascending);
+    byte[] ab = TopNSortKey.toBytes(row("ab"), ascending);
+    byte[] b = TopNSortKey.toBytes(row("b"), ascending);
+    assertArrayEquals(sortKey(Bytes.toBytes("ab")), ab);
+    assertTrue(TopNSortKey.compare(a, ab, ascending) < 0);
+    assertTrue(TopNSortKey.compare(ab, b, ascending) < 0);
+    assertEquals(0, TopNSortKey.compare(b, TopNSortKey.toBytes(row("b"), ascending), ascending));
+
+    List<OrderByExpression> descending = Collections.singletonList(
+      OrderByExpression.createByCheckIfExpressionSortOrderDesc(RowKeyExpression.INSTANCE, false,
+        false));
+    assertTrue(TopNSortKey.compare(a, b, descending) > 0);
+  }
+
+  @Test
+  public void testNulls() throws Exception {
+    byte[] nullKey = sortKey(new byte[0]);
+    byte[] valueKey = sortKey(Bytes.toBytes("a"));
+    assertTrue(TopNSortKey.compare(nullKey, valueKey, orderBy(false, true)) < 0);
+    assertTrue(TopNSortKey.compare(nullKey, valueKey, orderBy(true, true)) > 0);
+    // Nulls stay first or last whatever the direction of the values
+    assertTrue(TopNSortKey.compare(nullKey, valueKey, orderBy(false, false)) < 0);
+    assertTrue(TopNSortKey.compare(nullKey, valueKey, orderBy(true, false)) > 0);
+    assertEquals(0, TopNSortKey.compare(nullKey, sortKey(new byte[0]), orderBy(true, true)));
+  }
+
+  @Test
+  public void testLaterExpressionsBreakTies() throws Exception {
+    List<OrderByExpression> orderBy =
+      Arrays.asList(orderBy(false, true).get(0), orderBy(false, false).get(0));
+    byte[] key1 = sortKey(Bytes.toBytes("a"), Bytes.toBytes("x"));
+    byte[] key2 = sortKey(Bytes.toBytes("a"), Bytes.toBytes("y"));
+    byte[] key3 = sortKey(Bytes.toBytes("b"), Bytes.toBytes("z"));
+    assertTrue(TopNSortKey.compare(key1, key2, orderBy) > 0);
+    assertTrue(TopNSortKey.compare(key2, key3, orderBy) < 0);
+  }
+
+  @Test
+  public void testDescVarLengthValues() throws Exception {
+    // ORDER BY the values of a DESC column in ascending order
+    List<OrderByExpression> orderBy =
+      Collections.singletonList(OrderByExpression.createByCheckIfExpressionSortOrderDesc(
+        LiteralExpression.newConstant("x", PVarchar.INSTANCE, SortOrder.DESC), false, true));
+    byte[] a = sortKey(SortOrder.invert(Bytes.toBytes("a"), 0, 1));
+    byte[] ab = sortKey(SortOrder.invert(Bytes.toBytes("ab"), 0, 2));
+    assertTrue(TopNSortKey.compare(a, ab, orderBy) < 0);
+  }
+
+  @Test
+  public void testRangeSerialization() throws Exception {
+    byte[] lowerKey = sortKey(Bytes.toBytes("a"), new byte[0]);
+    byte[] upperKey = sortKey(Bytes.toBytes("bc"));
+    byte[][] range = TopNSortKey.deserializeRange(TopNSortKey.serializeRange(lowerKey, upperKey));
+    assertArrayEquals(lowerKey, range[0]);
+    assertArrayEquals(upperKey, range[1]);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.phoenix.jdbc.PhoenixStatement.CompilableStatement;
+import org.apache.phoenix.jdbc.PhoenixStatement.ExecutableNodeFactory;
+import org.apache.phoenix.jdbc.PhoenixStatement.PhoenixStatementParser;
+import org.junit.Test;
+
+public class ParsedStatementCacheTest {
+
+  private static CompilableStatement parse(String sql) throws Exception {
+    return new PhoenixStatementParser(sql, new ExecutableNodeFactory()).parseStatement();
+  }
+
+  @Test
+  public void testQueriesAreCached() throws Exception {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    String sql = "SELECT a, b FROM t WHERE k = ? AND v > 10";
+    assertNull(cache.get(sql));
+    CompilableStatement statement = parse(sql);
+    cache.put(sql, statement, 1000);
+    assertSame(statement, cache.get(sql));
+    assertEquals(1, statement.getBindCount());
+    // The SQL text is the key as is
+    assertNull(cache.get("select a, b from t where k = ? and v > 10"));
+  }
+
+  @Test
+  public void testOtherStatementsAreNotCached() throws Exception {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    String[] sqls = { "UPSERT INTO t VALUES (1, 2)", "DELETE FROM t WHERE k = 1",
+      "CREATE TABLE t (k INTEGER PRIMARY KEY, v INTEGER)", "EXPLAIN SELECT * FROM t" };
+    for (String sql : sqls) {
+      cache.put(sql, parse(sql), 1000);
+      assertNull(cache.get(sql));
+    }
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testSavedTimeInMillis() throws Exception {
+    ParsedStatementCache cache = new ParsedStatementCache(10);
+    String sql = "SELECT * FROM t";
+    cache.put(sql, parse(sql), 600_000);
+    long savedTime = GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME.getMetric().getValue();
+    cache.get(sql);
+    assertEquals(savedTime, GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME.getMetric().getValue());
+    cache.get(sql);
+    assertEquals(savedTime + 1, GLOBAL_PARSED_STATEMENT_CACHE_SAVED_TIME.getMetric().getValue());
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    ParsedStatementCache cache = new ParsedStatementCache(5);
+    for (int i = 0; i < 50; i++) {
+      String sql = "SELECT * FROM t WHERE k = " + i;
+      cache.put(sql, parse(sql), 1000);
+    }
+    assertTrue(cache.size() <= 5);
+  }
+}
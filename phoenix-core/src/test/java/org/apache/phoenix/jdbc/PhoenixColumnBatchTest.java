@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.jdbc;
+
+import static org.apache.phoenix.util.PhoenixRuntime.CONNECTIONLESS;
+import static org.apache.phoenix.util.PhoenixRuntime.JDBC_PROTOCOL;
+import static org.apache.phoenix.util.PhoenixRuntime.JDBC_PROTOCOL_SEPARATOR;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.ColumnProjector;
+import org.apache.phoenix.compile.ExpressionProjector;
+import org.apache.phoenix.compile.FromCompiler;
+import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.compile.SequenceManager;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.iterate.MaterializedResultIterator;
+import org.apache.phoenix.jdbc.PhoenixColumnBatch.ColumnVector;
+import org.apache.phoenix.jdbc.PhoenixColumnBatch.VectorType;
+import org.apache.phoenix.parse.SelectStatement;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDate;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class PhoenixColumnBatchTest {
+
+  private static final byte[] CF = Bytes.toBytes("0");
+  private static final PDataType[] TYPES = new PDataType[] { PLong.INSTANCE, PInteger.INSTANCE,
+    PDouble.INSTANCE, PVarchar.INSTANCE, PBoolean.INSTANCE, PDecimal.INSTANCE, PDate.INSTANCE };
+  private static final int NUM_ROWS = 10;
+
+  private static ColumnProjector projector(final PDataType type, int i) {
+    PDatum datum = new PDatum() {
+      @Override
+      public boolean isNullable() {
+        return true;
+      }
+
+      @Override
+      public PDataType getDataType() {
+        return type;
+      }
+
+      @Override
+      public Integer getMaxLength() {
+        return null;
+      }
+
+      @Override
+      public Integer getScale() {
+        return null;
+      }
+
+      @Override
+      public SortOrder getSortOrder() {
+        return SortOrder.getDefault();
+      }
+    };
+    return new ExpressionProjector("C" + i, "C" + i, "T",
+      new KeyValueColumnExpression(datum, CF, Bytes.toBytes(i)), false);
+  }
+
+  private static Object value(PDataType type, int row) {
+    if (type == PLong.INSTANCE) {
+      return row * 1000L - 3000L;
+    } else if (type == PInteger.INSTANCE) {
+      return row - 5;
+    } else if (type == PDouble.INSTANCE) {
+      return row * 0.5;
+    } else if (type == PVarchar.INSTANCE) {
+      return row % 4 == 0 ? "" : "v" + row;
+    } else if (type == PBoolean.INSTANCE) {
+      return row % 2 == 0;
+    } else if (type == PDecimal.INSTANCE) {
+      return BigDecimal.valueOf(row * 25, 2);
+    }
+    return new Date(1700000000000L + row * 86400000L);
+  }
+
+  private static List<Tuple> newRows() {
+    List<Tuple> rows = new ArrayList<>();
+    for (int r = 0; r < NUM_ROWS; r++) {
+      List<Cell> cells = new ArrayList<>();
+      for (int i = 0; i < TYPES.length; i++) {
+        // Leave out some of the values so that nulls are covered
+        if ((r + i) % 3 != 0) {
+          cells.add(new KeyValue(Bytes.toBytes(r), CF, Bytes.toBytes(i),
+            TYPES[i].toBytes(value(TYPES[i], r))));
+        }
+      }
+      rows.add(new MultiKeyValueTuple(cells));
+    }
+    return rows;
+  }
+
+  private static PhoenixResultSet newResultSet(RowProjector projector) throws SQLException {
+    PhoenixConnection connection =
+      DriverManager.getConnection(JDBC_PROTOCOL + JDBC_PROTOCOL_SEPARATOR + CONNECTIONLESS)
+        .unwrap(PhoenixConnection.class);
+    PhoenixStatement statement = new PhoenixStatement(connection);
+    StatementContext context = new StatementContext(statement,
+      FromCompiler.getResolverForQuery(SelectStatement.SELECT_ONE, connection), new Scan(),
+      new SequenceManager(statement));
+    return new PhoenixResultSet(new MaterializedResultIterator(newRows()), projector, context);
+  }
+
+  private static RowProjector newRowProjector() {
+    List<ColumnProjector> projectors = new ArrayList<>();
+    for (int i = 0; i < TYPES.length; i++) {
+      projectors.add(projector(TYPES[i], i));
+    }
+    return new RowProjector(projectors, 0, false);
+  }
+
+  private static Object getValue(ColumnVector column, int row) {
+    if (column.isNull(row)) {
+      return null;
+    }
+    switch (column.getType()) {
+      case BOOLEAN:
+        return column.getBooleans()[row];
+      case INT:
+        return column.getInts()[row];
+      case LONG:
+        return column.getDataType() == PDate.INSTANCE
+          ? new Date(column.getLongs()[row])
+          : column.getLongs()[row];
+      case DOUBLE:
+        return column.getDoubles()[row];
+      case BINARY:
+        int offset = column.getOffsets()[row];
+        return Bytes.toString(column.getData(), offset, column.getOffsets()[row + 1] - offset);
+      default:
+        return column.getObjects()[row];
+    }
+  }
+
+  @Test
+  public void testBatchMatchesGetObject() throws Exception {
+    RowProjector projector = newRowProjector();
+    List<Object[]> expected = new ArrayList<>();
+    try (PhoenixResultSet rs = newResultSet(projector)) {
+      while (rs.next()) {
+        Object[] row = new Object[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+          row[i] = rs.getObject(i + 1);
+        }
+        expected.add(row);
+      }
+    }
+    List<Object[]> actual = new ArrayList<>();
+    try (PhoenixResultSet rs = newResultSet(projector)) {
+      PhoenixColumnBatch batch = rs.newColumnBatch(4);
+      assertEquals(VectorType.LONG, batch.getColumn(1).getType());
+      assertEquals(VectorType.INT, batch.getColumn(2).getType());
+      assertEquals(VectorType.DOUBLE, batch.getColumn(3).getType());
+      assertEquals(VectorType.BINARY, batch.getColumn(4).getType());
+      assertEquals(VectorType.BOOLEAN, batch.getColumn(5).getType());
+      assertEquals(VectorType.OBJECT, batch.getColumn(6).getType());
+      assertEquals(VectorType.LONG, batch.getColumn(7).getType());
+      List<Integer> rowCounts = new ArrayList<>();
+      int rowCount;
+      while ((rowCount = rs.nextBatch(batch)) > 0) {
+        rowCounts.add(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+          Object[] row = new Object[TYPES.length];
+          for (int i = 0; i < TYPES.length; i++) {
+            row[i] = getValue(batch.getColumn(i + 1), r);
+          }
+          actual.add(row);
+        }
+      }
+      assertEquals(Arrays.asList(4, 4, 2), rowCounts);
+      assertEquals(0, rs.nextBatch(batch));
+    }
+    assertEquals(NUM_ROWS, expected.size());
+    assertEquals(expected.size(), actual.size());
+    for (int r = 0; r < expected.size(); r++) {
+      assertArrayEquals(expected.get(r), actual.get(r));
+    }
+  }
+
+  @Test
+  public void testNulls() throws Exception {
+    try (PhoenixResultSet rs = newResultSet(newRowProjector())) {
+      PhoenixColumnBatch batch = rs.newColumnBatch(NUM_ROWS);
+      assertEquals(NUM_ROWS, rs.nextBatch(batch));
+      for (int i = 0; i < TYPES.length; i++) {
+        ColumnVector column = batch.getColumn(i + 1);
+        for (int r = 0; r < NUM_ROWS; r++) {
+          // An empty VARCHAR is null too
+          boolean isNull = (r + i) % 3 == 0 || (TYPES[i] == PVarchar.INSTANCE && r % 4 == 0);
+          assertEquals(isNull, column.isNull(r));
+        }
+      }
+      assertEquals(0L, batch.getColumn(1).getLongs()[0]);
+      assertFalse(batch.getColumn(5).getBooleans()[2]);
+      assertNull(batch.getColumn(6).getObjects()[1]);
+      assertEquals(0, batch.getColumn(4).getOffsets()[0]);
+    }
+  }
+
+  @Test
+  public void testBatchOfOtherResultSet() throws Exception {
+    try (PhoenixResultSet rs = newResultSet(newRowProjector());
+      PhoenixResultSet other = newResultSet(newRowProjector())) {
+      PhoenixColumnBatch batch = other.newColumnBatch(NUM_ROWS);
+      try {
+        rs.nextBatch(batch);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import org.apache.phoenix.job.FairShareJobQueue.Priority;
+import org.junit.Test;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.ImmutableMap;
+
+public class FairShareJobQueueTest {
+
+  private static class TestJob implements FairShareJobQueue.Job {
+    private final String tenant;
+    private final Priority priority;
+
+    TestJob(String tenant, Priority priority) {
+      this.tenant = tenant;
+      this.priority = priority;
+    }
+
+    @Override
+    public Object getTenantKey() {
+      return tenant;
+    }
+
+    @Override
+    public Priority getPriority() {
+      return priority;
+    }
+  }
+
+  private static class Task {
+    private final TestJob job;
+    private final String name;
+
+    Task(TestJob job, String name) {
+      this.job = job;
+      this.name = name;
+    }
+  }
+
+  private static FairShareJobQueue<Task> newQueue(int maxSize, ImmutableMap<String, Integer> w) {
+    return new FairShareJobQueue<Task>(maxSize, w) {
+      @Override
+      protected Object extractJob(Task o) {
+        return o.job;
+      }
+    };
+  }
+
+  private static String take(FairShareJobQueue<Task> queue, int count) {
+    StringBuilder taken = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      taken.append(queue.poll().name);
+    }
+    return taken.toString();
+  }
+
+  @Test
+  public void testPriorityClassesShareByWeight() {
+    FairShareJobQueue<Task> queue = newQueue(100, null);
+    TestJob low = new TestJob("t", Priority.LOW);
+    TestJob high = new TestJob("t", Priority.HIGH);
+    for (int i = 0; i < 10; i++) {
+      queue.offer(new Task(low, "L"));
+      queue.offer(new Task(high, "H"));
+    }
+    // HIGH has four times the weight of LOW, and LOW is not starved
+    String taken = take(queue, 10);
+    assertEquals(8, taken.chars().filter(c -> c == 'H').count());
+    assertEquals(2, taken.chars().filter(c -> c == 'L').count());
+  }
+
+  @Test
+  public void testTenantsShareByWeight() {
+    FairShareJobQueue<Task> queue = newQueue(100, ImmutableMap.of("a", 3));
+    TestJob a = new TestJob("a", Priority.NORMAL);
+    TestJob b = new TestJob("b", Priority.NORMAL);
+    // Tenant b queues all of its tasks first, tenant a still gets its share
+    for (int i = 0; i < 20; i++) {
+      queue.offer(new Task(b, "b"));
+    }
+    for (int i = 0; i < 20; i++) {
+      queue.offer(new Task(a, "a"));
+    }
+    String taken = take(queue, 12);
+    assertEquals(9, taken.chars().filter(c -> c == 'a').count());
+    assertEquals(3, taken.chars().filter(c -> c == 'b').count());
+  }
+
+  @Test
+  public void testJobsOfTenantAreRoundRobin() {
+    FairShareJobQueue<Task> queue = newQueue(100, null);
+    TestJob job1 = new TestJob("t", Priority.NORMAL);
+    TestJob job2 = new TestJob("t", Priority.NORMAL);
+    for (int i = 0; i < 3; i++) {
+      queue.offer(new Task(job1, "1"));
+    }
+    for (int i = 0; i < 3; i++) {
+      queue.offer(new Task(job2, "2"));
+    }
+    String taken = take(queue, 6);
+    assertTrue(taken, taken.startsWith("12") || taken.startsWith("21"));
+    assertEquals(3, taken.chars().filter(c -> c == '1').count());
+  }
+
+  @Test
+  public void testBoundedQueue() throws Exception {
+    FairShareJobQueue<Task> queue = newQueue(2, null);
+    TestJob job = new TestJob("t", Priority.NORMAL);
+    assertTrue(queue.offer(new Task(job, "1")));
+    assertTrue(queue.offer(new Task(job, "2")));
+    assertFalse(queue.offer(new Task(job, "3")));
+    assertEquals(2, queue.size());
+    assertEquals(2, queue.drainTo(new ArrayList<Task>()));
+    assertNull(queue.poll());
+    assertFalse(queue.iterator().hasNext());
+  }
+}
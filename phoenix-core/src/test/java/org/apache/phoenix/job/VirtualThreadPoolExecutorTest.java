@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Runs {@link VirtualThreadPoolExecutor} with a factory of platform threads in place of the factory
+ * of virtual threads, which is what decides how the tasks are run, so that it is tested on any JVM.
+ */
+public class VirtualThreadPoolExecutorTest {
+
+  private VirtualThreadPoolExecutor executor;
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static class CountingExecutor extends VirtualThreadPoolExecutor {
+    private final AtomicInteger beforeCount = new AtomicInteger();
+    private final AtomicInteger afterCount = new AtomicInteger();
+
+    CountingExecutor(int maxConcurrency, int queueSize) {
+      super(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(queueSize), Executors.defaultThreadFactory(),
+        Executors.defaultThreadFactory());
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+      beforeCount.incrementAndGet();
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+      afterCount.incrementAndGet();
+    }
+  }
+
+  @Test
+  public void testConcurrencyIsLimitedBySemaphore() throws Exception {
+    CountingExecutor executor = new CountingExecutor(2, 10);
+    this.executor = executor;
+    assertTrue(executor.isUsingVirtualThreads());
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final AtomicInteger completed = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(executor.submit(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        completed.incrementAndGet();
+        running.decrementAndGet();
+      }));
+    }
+    Thread.sleep(100);
+    assertEquals(2, executor.getActiveCount());
+    assertEquals(6, executor.getQueue().size());
+    release.countDown();
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertEquals(2, maxRunning.get());
+    assertEquals(8, completed.get());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(8, executor.beforeCount.get());
+    assertEquals(8, executor.afterCount.get());
+  }
+
+  @Test
+  public void testTasksBeyondQueueAreRejected() throws Exception {
+    executor = new CountingExecutor(1, 1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Runnable blocking = () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    executor.execute(blocking);
+    executor.execute(blocking);
+    try {
+      executor.execute(blocking);
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    release.countDown();
+  }
+
+  @Test
+  public void testShutdownNowInterruptsRunningTasks() throws Exception {
+    executor = new CountingExecutor(1, 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    executor.execute(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    executor.execute(() -> {
+    });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(1, executor.shutdownNow().size());
+    assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertFalse(executor.getQueue().iterator().hasNext());
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.cache.HashCache;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.TrustedByteArrayOutputStream;
+import org.apache.phoenix.util.TupleUtil;
+import org.iq80.snappy.Snappy;
+import org.junit.Test;
+
+public class HashCacheFactoryTest {
+
+  private static final byte[] CF = Bytes.toBytes("0");
+  private static final byte[] KEY_CQ = Bytes.toBytes("K");
+  private static final byte[] VALUE_CQ = Bytes.toBytes("V");
+
+  private static Expression column(final PDataType type, byte[] cq) {
+    return new KeyValueColumnExpression(new PDatum() {
+      @Override
+      public boolean isNullable() {
+        return true;
+      }
+
+      @Override
+      public PDataType getDataType() {
+        return type;
+      }
+
+      @Override
+      public Integer getMaxLength() {
+        return null;
+      }
+
+      @Override
+      public Integer getScale() {
+        return null;
+      }
+
+      @Override
+      public SortOrder getSortOrder() {
+        return SortOrder.getDefault();
+      }
+    }, CF, cq);
+  }
+
+  private static Tuple row(int row, byte[] key, int value) {
+    List<Cell> cells = new ArrayList<>();
+    byte[] rowKey = Bytes.toBytes(row);
+    if (key != null) {
+      cells.add(new KeyValue(rowKey, CF, KEY_CQ, key));
+    }
+    cells.add(new KeyValue(rowKey, CF, VALUE_CQ, PInteger.INSTANCE.toBytes(value)));
+    return new MultiKeyValueTuple(cells);
+  }
+
+  /**
+   * Serialize the rows the same way as {@link HashCacheClient}
+   */
+  private static HashCache newCache(List<Expression> onExpressions, List<Tuple> rows,
+    boolean singleValueOnly) throws Exception {
+    return newCache(onExpressions, rows, singleValueOnly,
+      new GlobalMemoryManager(Long.MAX_VALUE).allocate(0));
+  }
+
+  private static HashCache newCache(List<Expression> onExpressions, List<Tuple> rows,
+    boolean singleValueOnly, MemoryChunk chunk) throws Exception {
+    TrustedByteArrayOutputStream baOut = new TrustedByteArrayOutputStream(1024);
+    DataOutputStream out = new DataOutputStream(baOut);
+    out.writeInt(onExpressions.size());
+    for (Expression expression : onExpressions) {
+      WritableUtils.writeVInt(out, ExpressionType.valueOf(expression).ordinal());
+      expression.write(out);
+    }
+    int exprSize = baOut.size() + Bytes.SIZEOF_INT;
+    out.writeInt(exprSize * (singleValueOnly ? -1 : 1));
+    out.writeInt(rows.size());
+    for (Tuple row : rows) {
+      TupleUtil.write(row, out);
+    }
+    out.close();
+    byte[] compressed = new byte[Snappy.maxCompressedLength(baOut.size())];
+    int compressedSize = Snappy.compress(baOut.getBuffer(), 0, baOut.size(), compressed, 0);
+    return (HashCache) new HashCacheFactory().newCache(
+      new ImmutableBytesWritable(compressed, 0, compressedSize), null, chunk, false, 0);
+  }
+
+  private static Set<Integer> getValues(HashCache cache, byte[] key) throws IOException {
+    List<Tuple> tuples = cache.get(new ImmutableBytesPtr(key));
+    if (tuples == null) {
+      return null;
+    }
+    Set<Integer> values = new HashSet<>();
+    ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    for (Tuple tuple : tuples) {
+      assertTrue(tuple.getValue(CF, VALUE_CQ, ptr));
+      values.add((Integer) PInteger.INSTANCE.toObject(ptr));
+    }
+    return values;
+  }
+
+  @Test
+  public void testLongKeys() throws Exception {
+    List<Tuple> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(row(i, PLong.INSTANCE.toBytes((long) (i % 100)), i));
+    }
+    rows.add(row(1000, null, 1000));
+    try (HashCache cache = newCache(
+      Collections.singletonList(column(PLong.INSTANCE, KEY_CQ)), rows, false)) {
+      for (long key = 0; key < 100; key++) {
+        Set<Integer> values = getValues(cache, PLong.INSTANCE.toBytes(key));
+        assertEquals(10, values.size());
+        for (int value : values) {
+          assertEquals(key, value % 100);
+        }
+      }
+      assertNull(getValues(cache, PLong.INSTANCE.toBytes(100L)));
+      assertNull(getValues(cache, PInteger.INSTANCE.toBytes(1)));
+      assertEquals(Collections.singleton(1000), getValues(cache, new byte[0]));
+    }
+  }
+
+  @Test
+  public void testIntegerKeys() throws Exception {
+    List<Tuple> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(row(i, PInteger.INSTANCE.toBytes(-i), i));
+    }
+    try (HashCache cache = newCache(
+      Collections.singletonList(column(PInteger.INSTANCE, KEY_CQ)), rows, false)) {
+      for (int i = 0; i < 100; i++) {
+        assertEquals(Collections.singleton(i), getValues(cache, PInteger.INSTANCE.toBytes(-i)));
+      }
+      assertNull(getValues(cache, PInteger.INSTANCE.toBytes(1)));
+      assertNull(getValues(cache, new byte[0]));
+    }
+  }
+
+  @Test
+  public void testBytesKeys() throws Exception {
+    List<Tuple> rows = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      rows.add(row(i, PVarchar.INSTANCE.toBytes("key" + (i % 50)), i));
+    }
+    List<Expression> onExpressions =
+      Arrays.asList(column(PVarchar.INSTANCE, KEY_CQ), column(PInteger.INSTANCE, VALUE_CQ));
+    try (HashCache cache = newCache(onExpressions.subList(0, 1), rows, false)) {
+      for (int i = 0; i < 50; i++) {
+        Set<Integer> values = getValues(cache, PVarchar.INSTANCE.toBytes("key" + i));
+        assertEquals(10, values.size());
+        for (int value : values) {
+          assertEquals(i, value % 50);
+        }
+      }
+      assertNull(getValues(cache, PVarchar.INSTANCE.toBytes("key50")));
+    }
+    // Multiple join keys are concatenated
+    try (HashCache cache = newCache(onExpressions, rows, false)) {
+      for (int i = 0; i < 500; i++) {
+        ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(rows.get(i), onExpressions);
+        assertEquals(Collections.singleton(i), getValues(cache, key.copyBytes()));
+      }
+    }
+  }
+
+  @Test
+  public void testSingleValueOnly() throws Exception {
+    List<Tuple> rows = Arrays.asList(row(0, PLong.INSTANCE.toBytes(1L), 0),
+      row(1, PLong.INSTANCE.toBytes(1L), 1), row(2, PLong.INSTANCE.toBytes(2L), 2));
+    try (HashCache cache = newCache(
+      Collections.singletonList(column(PLong.INSTANCE, KEY_CQ)), rows, true)) {
+      assertEquals(Collections.singleton(2), getValues(cache, PLong.INSTANCE.toBytes(2L)));
+      try {
+        cache.get(new ImmutableBytesPtr(PLong.INSTANCE.toBytes(1L)));
+        fail();
+      } catch (IOException e) {
+        // Expected since the subquery returns multiple rows for the key
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedProbesReuseTuples() throws Exception {
+    List<Tuple> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(row(i, PLong.INSTANCE.toBytes((long) (i % 10)), i));
+    }
+    try (HashCache cache = newCache(
+      Collections.singletonList(column(PLong.INSTANCE, KEY_CQ)), rows, false)) {
+      ImmutableBytesPtr key = new ImmutableBytesPtr(PLong.INSTANCE.toBytes(3L));
+      List<Tuple> tuples = cache.get(key);
+      assertEquals(10, tuples.size());
+      for (int i = 0; i < 10; i++) {
+        assertSame(tuples, cache.get(new ImmutableBytesPtr(PLong.INSTANCE.toBytes(3L))));
+      }
+      try {
+        tuples.clear();
+        fail();
+      } catch (UnsupportedOperationException e) {
+        // Expected since the tuples are shared by all probes of the key
+      }
+      assertEquals(10, getValues(cache, PLong.INSTANCE.toBytes(3L)).size());
+    }
+  }
+
+  @Test
+  public void testCachedTuplesBounded() throws Exception {
+    List<Tuple> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(row(i, PLong.INSTANCE.toBytes((long) i), i));
+    }
+    MemoryChunk chunk = new GlobalMemoryManager(Long.MAX_VALUE).allocate(0);
+    try (HashCache cache = newCache(
+      Collections.singletonList(column(PLong.INSTANCE, KEY_CQ)), rows, false, chunk)) {
+      long indexSize = chunk.getSize();
+      for (long key = 0; key < 1000; key++) {
+        assertEquals(1, cache.get(new ImmutableBytesPtr(PLong.INSTANCE.toBytes(key))).size());
+      }
+      // The tuples of the keys probed first are cached and charged to the chunk, up to the size
+      // of the rows, which is less than the index and the rows together
+      long tuplesSize = chunk.getSize() - indexSize;
+      assertTrue(tuplesSize > 0);
+      assertTrue(tuplesSize < indexSize);
+      ImmutableBytesPtr first = new ImmutableBytesPtr(PLong.INSTANCE.toBytes(0L));
+      assertSame(cache.get(first), cache.get(first));
+      // Past the bound, the tuples are materialized on every probe without being charged
+      ImmutableBytesPtr last = new ImmutableBytesPtr(PLong.INSTANCE.toBytes(999L));
+      assertNotSame(cache.get(last), cache.get(last));
+      assertEquals(Collections.singleton(999), getValues(cache, PLong.INSTANCE.toBytes(999L)));
+      assertEquals(indexSize + tuplesSize, chunk.getSize());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+public class HashJoinRuntimeFilterTest {
+
+  private static ImmutableBytesWritable longKey(long value) {
+    return new ImmutableBytesWritable(PLong.INSTANCE.toBytes(value));
+  }
+
+  private static HashJoinRuntimeFilter roundTrip(HashJoinRuntimeFilter filter) throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(stream)) {
+      filter.write(output);
+    }
+    HashJoinRuntimeFilter copy = new HashJoinRuntimeFilter();
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    return copy;
+  }
+
+  @Test
+  public void testNoFalseNegatives() throws Exception {
+    HashJoinRuntimeFilter.Builder builder = new HashJoinRuntimeFilter.Builder(1024 * 1024);
+    for (long i = 0; i < 10000; i++) {
+      builder.addKey(longKey(i * 3));
+    }
+    HashJoinRuntimeFilter filter = roundTrip(builder.build());
+    int falsePositives = 0;
+    for (long i = 0; i < 30000; i++) {
+      boolean mightContain = filter.mightContain(longKey(i));
+      if (i % 3 == 0) {
+        assertTrue(mightContain);
+      } else if (mightContain) {
+        falsePositives++;
+      }
+    }
+    // About 1% with 10 bits per key
+    assertTrue("False positives: " + falsePositives, falsePositives < 600);
+  }
+
+  @Test
+  public void testMinMax() throws Exception {
+    HashJoinRuntimeFilter.Builder builder = new HashJoinRuntimeFilter.Builder(0);
+    for (long i = 100; i < 200; i++) {
+      builder.addKey(longKey(i));
+    }
+    // No room for a bloom filter, so only the key range is checked
+    HashJoinRuntimeFilter filter = roundTrip(builder.build());
+    assertFalse(filter.mightContain(longKey(99)));
+    assertFalse(filter.mightContain(longKey(200)));
+    for (long i = 100; i < 200; i++) {
+      assertTrue(filter.mightContain(longKey(i)));
+    }
+  }
+
+  @Test
+  public void testEmptyAndNullKeys() throws Exception {
+    HashJoinRuntimeFilter empty = roundTrip(new HashJoinRuntimeFilter.Builder(1024).build());
+    assertFalse(empty.mightContain(longKey(0)));
+    assertFalse(empty.mightContain(new ImmutableBytesWritable(new byte[0])));
+    assertEquals(0, empty.getEstimatedSize());
+
+    HashJoinRuntimeFilter.Builder builder = new HashJoinRuntimeFilter.Builder(1024);
+    builder.addKey(new ImmutableBytesWritable(new byte[0]));
+    builder.addKey(new ImmutableBytesWritable(PVarchar.INSTANCE.toBytes("b")));
+    HashJoinRuntimeFilter filter = roundTrip(builder.build());
+    assertTrue(filter.mightContain(new ImmutableBytesWritable(new byte[0])));
+    assertTrue(filter.mightContain(new ImmutableBytesWritable(PVarchar.INSTANCE.toBytes("b"))));
+    assertFalse(filter.mightContain(new ImmutableBytesWritable(PVarchar.INSTANCE.toBytes("c"))));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.optimize;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Arrays;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.parse.SQLParser;
+import org.apache.phoenix.parse.SelectStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.schema.PIndexState;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableImpl;
+import org.junit.Test;
+
+public class PlanChoiceCacheTest extends BaseConnectionlessQueryTest {
+
+  private static PTable withTimestamps(PTable table, long tableTimestamp, PTable... indexes)
+    throws Exception {
+    return PTableImpl.builderFromExisting(table).setLastDDLTimestamp(tableTimestamp)
+      .setIndexes(Arrays.asList(indexes)).build();
+  }
+
+  private static PTable withTimestamp(PTable index, long timestamp, PIndexState state)
+    throws Exception {
+    return PTableImpl.builderFromExisting(index).setLastDDLTimestamp(timestamp).setState(state)
+      .build();
+  }
+
+  @Test
+  public void testKeyChangesWithTableAndIndexes() throws Exception {
+    try (Connection conn = DriverManager.getConnection(getUrl())) {
+      conn.createStatement()
+        .execute("CREATE TABLE T (k VARCHAR NOT NULL PRIMARY KEY, v1 VARCHAR, v2 VARCHAR)");
+      conn.createStatement().execute("CREATE INDEX IDX ON T(v1)");
+      PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+      PTable table = pconn.getTable("T");
+      PTable index = pconn.getTable("IDX");
+      SelectStatement select = new SQLParser("SELECT v2 FROM T WHERE v1 = ?").parseQuery();
+
+      PTable current = withTimestamps(table, 1, withTimestamp(index, 1, PIndexState.ACTIVE));
+      String key = PlanChoiceCache.getKey(null, select, current);
+      assertNotNull(key);
+      assertEquals(key, PlanChoiceCache.getKey(null, select,
+        withTimestamps(table, 1, withTimestamp(index, 1, PIndexState.ACTIVE))));
+      // Altered table or index
+      assertNotEquals(key, PlanChoiceCache.getKey(null, select,
+        withTimestamps(table, 2, withTimestamp(index, 1, PIndexState.ACTIVE))));
+      assertNotEquals(key, PlanChoiceCache.getKey(null, select,
+        withTimestamps(table, 1, withTimestamp(index, 2, PIndexState.ACTIVE))));
+      // Disabled or dropped index
+      assertNotEquals(key, PlanChoiceCache.getKey(null, select,
+        withTimestamps(table, 1, withTimestamp(index, 1, PIndexState.DISABLE))));
+      assertNotEquals(key, PlanChoiceCache.getKey(null, select, withTimestamps(table, 1)));
+      // Other tenant or query
+      assertNotEquals(key,
+        PlanChoiceCache.getKey(PNameFactory.newName("tenant1"), select, current));
+      assertNotEquals(key, PlanChoiceCache.getKey(null,
+        new SQLParser("SELECT v1 FROM T WHERE v1 = ?").parseQuery(), current));
+      // Unknown timestamps
+      assertNull(PlanChoiceCache.getKey(null, select, table));
+      assertNull(PlanChoiceCache.getKey(null, select, withTimestamps(table, 1, index)));
+    }
+  }
+
+  @Test
+  public void testSavedTimeInMillis() throws Exception {
+    PlanChoiceCache cache = new PlanChoiceCache(10);
+    assertNull(cache.get("q1"));
+    cache.put("q1", "IDX", 700_000);
+    cache.put("q2", null, 700_000);
+    PlanChoiceCache.Entry entry = cache.get("q1");
+    assertEquals("IDX", entry.getIndexName());
+    assertNull(cache.get("q2").getIndexName());
+
+    long savedTime = GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME.getMetric().getValue();
+    cache.updateSavedTime(entry, 200_000);
+    // 0.5 ms saved so far
+    assertEquals(savedTime, GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME.getMetric().getValue());
+    cache.updateSavedTime(entry, 200_000);
+    assertEquals(savedTime + 1, GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME.getMetric().getValue());
+    // A hit slower than the miss saves nothing
+    cache.updateSavedTime(entry, 900_000);
+    assertEquals(savedTime + 1, GLOBAL_PLAN_CHOICE_CACHE_SAVED_TIME.getMetric().getValue());
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    PlanChoiceCache cache = new PlanChoiceCache(5);
+    for (int i = 0; i < 50; i++) {
+      cache.put("q" + i, null, 1000);
+    }
+    assertTrue(cache.size() <= 5);
+  }
+}
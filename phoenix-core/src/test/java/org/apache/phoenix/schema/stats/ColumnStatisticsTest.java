@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.phoenix.schema.types.PInteger;
+import org.junit.Test;
+
+public class ColumnStatisticsTest {
+
+  private static ColumnStatistics build(int from, int to, int distinct) {
+    ColumnStatistics.Builder builder = new ColumnStatistics.Builder();
+    for (int i = from; i < to; i++) {
+      byte[] value = PInteger.INSTANCE.toBytes(from + (i - from) % distinct);
+      builder.addValue(value, 0, value.length);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testDistinctCount() {
+    ColumnStatistics stats = build(0, 10000, 100);
+    assertEquals(10000, stats.getValueCount());
+    assertEquals(100, stats.getDistinctCount(), 5);
+    assertEquals(0.01, stats.getEqualitySelectivity(), 0.001);
+  }
+
+  @Test
+  public void testRangeSelectivity() {
+    ColumnStatistics stats = build(0, 10000, 10000);
+    assertEquals(0.25, stats.getLessThanSelectivity(PInteger.INSTANCE.toBytes(2500), false), 0.05);
+    assertEquals(0.0, stats.getLessThanSelectivity(PInteger.INSTANCE.toBytes(-1), true), 0.0);
+    assertEquals(1.0, stats.getLessThanSelectivity(PInteger.INSTANCE.toBytes(20000), false), 0.0);
+  }
+
+  @Test
+  public void testTooFewValuesForHistogram() {
+    ColumnStatistics stats = build(0, 3, 3);
+    assertTrue(stats.getHistogram().isEmpty());
+    assertNull(stats.getLessThanSelectivity(PInteger.INSTANCE.toBytes(1), false));
+    assertEquals(3, stats.getDistinctCount());
+  }
+
+  @Test
+  public void testMergeAndSerialization() throws Exception {
+    ColumnStatistics stats1 = build(0, 5000, 5000);
+    ColumnStatistics stats2 = build(5000, 10000, 5000);
+    byte[] bytes = stats2.toBytes();
+    ColumnStatistics merged =
+      stats1.merge(ColumnStatistics.fromBytes(bytes, 0, bytes.length));
+    assertEquals(10000, merged.getValueCount());
+    assertEquals(10000, merged.getDistinctCount(), 300);
+    assertEquals(0.5, merged.getLessThanSelectivity(PInteger.INSTANCE.toBytes(5000), false),
+      0.05);
+  }
+}
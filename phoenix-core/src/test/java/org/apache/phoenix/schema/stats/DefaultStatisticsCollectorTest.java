@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PrefixByteDecoder;
+import org.junit.Test;
+
+public class DefaultStatisticsCollectorTest {
+
+  private static final byte[] CF = Bytes.toBytes("0");
+  private static final byte[] CQ = Bytes.toBytes("V");
+  private static final int NUM_ROWS = 25;
+
+  private static DefaultStatisticsCollector newCollector(boolean incremental) throws Exception {
+    return newCollector(new Configuration(false), incremental);
+  }
+
+  private static DefaultStatisticsCollector newCollector(Configuration conf, boolean incremental)
+    throws Exception {
+    DefaultStatisticsCollector collector = new DefaultStatisticsCollector(conf,
+      mock(Region.class), "T", CF, PLong.INSTANCE.toBytes(200L), null, null, null, incremental);
+    collector.init();
+    return collector;
+  }
+
+  private static List<byte[]> getGuidePostKeys(GuidePostsInfo gps) throws Exception {
+    List<byte[]> keys = new ArrayList<>();
+    ImmutableBytesWritable ptr = gps.getGuidePosts();
+    try (ByteArrayInputStream stream =
+      new ByteArrayInputStream(ptr.get(), ptr.getOffset(), ptr.getLength())) {
+      DataInputStream input = new DataInputStream(stream);
+      PrefixByteDecoder decoder = new PrefixByteDecoder(gps.getMaxLength());
+      while (true) {
+        keys.add(decoder.decode(input).copyBytes());
+      }
+    } catch (EOFException e) {
+      // done
+    }
+    return keys;
+  }
+
+  private static long sum(long[] values) {
+    return Arrays.stream(values).sum();
+  }
+
+  @Test
+  public void testIncrementalCollectsAllNewData() throws Exception {
+    DefaultStatisticsCollector collector = newCollector(true);
+    long putBytes = 0;
+    byte[] lastRow = null;
+    for (int i = 0; i < NUM_ROWS; i++) {
+      byte[] row = Bytes.toBytes(String.format("row%03d", i));
+      KeyValue put = new KeyValue(row, CF, CQ, 1, Bytes.toBytes("value" + i));
+      // Delete markers of new data are not counted
+      KeyValue delete = new KeyValue(row, CF, CQ, 1, KeyValue.Type.DeleteColumn);
+      collector.collectStatistics(Arrays.<Cell> asList(put, delete));
+      putBytes += KeyValueUtil.getSerializedSize(put, true);
+      lastRow = row;
+    }
+    // A row with delete markers only
+    collector.collectStatistics(Collections.<Cell> singletonList(
+      new KeyValue(Bytes.toBytes("row999"), CF, CQ, 1, KeyValue.Type.DeleteColumn)));
+
+    GuidePostsInfo gps = collector.getGuidePosts(new ImmutableBytesPtr(CF));
+    List<byte[]> keys = getGuidePostKeys(gps);
+    assertTrue(keys.size() > 1);
+    // The data after the last full guide post ends at the last row with data
+    assertArrayEquals(lastRow, keys.get(keys.size() - 1));
+    assertEquals(putBytes, sum(gps.getByteCounts()));
+    assertEquals(NUM_ROWS, sum(gps.getRowCounts()));
+  }
+
+  @Test
+  public void testFullCollectionSkipsTrailingData() throws Exception {
+    DefaultStatisticsCollector collector = newCollector(false);
+    long bytes = 0;
+    for (int i = 0; i < NUM_ROWS; i++) {
+      KeyValue put = new KeyValue(Bytes.toBytes(String.format("row%03d", i)), CF, CQ, 1,
+        Bytes.toBytes("value" + i));
+      collector.collectStatistics(Collections.<Cell> singletonList(put));
+      bytes += KeyValueUtil.getSerializedSize(put, true);
+    }
+    GuidePostsInfo gps = collector.getGuidePosts(new ImmutableBytesPtr(CF));
+    assertTrue(sum(gps.getByteCounts()) < bytes);
+  }
+
+  @Test
+  public void testColumnStatistics() throws Exception {
+    Configuration conf = new Configuration(false);
+    conf.setBoolean(QueryServices.STATS_COLUMN_STATISTICS_ENABLED, true);
+    DefaultStatisticsCollector collector = newCollector(conf, false);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      byte[] row = Bytes.toBytes(String.format("row%03d", i));
+      // Only the latest version of a column is counted
+      collector.collectStatistics(Arrays.<Cell> asList(
+        new KeyValue(row, CF, QueryConstants.EMPTY_COLUMN_BYTES, 2, new byte[0]),
+        new KeyValue(row, CF, CQ, 2, Bytes.toBytes("value" + i % 5)),
+        new KeyValue(row, CF, CQ, 1, Bytes.toBytes("old" + i))));
+    }
+    Map<ImmutableBytesPtr, ColumnStatistics> columnStats =
+      collector.getColumnStatistics(new ImmutableBytesPtr(CF));
+    assertEquals(1, columnStats.size());
+    ColumnStatistics stats = columnStats.get(new ImmutableBytesPtr(CQ));
+    assertEquals(NUM_ROWS, stats.getValueCount());
+    assertEquals(5, stats.getDistinctCount());
+
+    // Not collected over new data only
+    collector = newCollector(conf, true);
+    collector.collectStatistics(Collections.<Cell> singletonList(
+      new KeyValue(Bytes.toBytes("row"), CF, CQ, 1, Bytes.toBytes("value"))));
+    assertTrue(collector.getColumnStatistics(new ImmutableBytesPtr(CF)).isEmpty());
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
+import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.schema.stats.StatisticsScanner.StatisticsScannerCallable;
 import org.junit.Before;
 import org.junit.Test;
@@ -116,6 +117,37 @@ public class StatisticsScannerTest {
     verify(runTracker, never()).runTask(callable);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testIncrementalStatsAreMerged() throws Exception {
+    StatisticsScannerCallable realCallable = mockScanner.new StatisticsScannerCallable();
+    when(mockScanner.isIncremental()).thenReturn(true);
+
+    realCallable.call();
+
+    // The guide post depth of the table is read after the flush, and the merge commits the stats
+    verify(tracker).init();
+    verify(statsWriter).mergeStats(region, tracker, null);
+    verify(statsWriter, never()).commitStats(any(), any());
+    verify(statsWriter, never()).deleteStatsForRegion(any(), any(), any(), any());
+    verify(runTracker, never()).removeCompactingRegion(any());
+    // The scanner of the flush is closed before the stats are committed
+    verify(delegate, never()).close();
+  }
+
+  @Test
+  public void testIncrementalStatsAreMergedAsynchronously() throws Exception {
+    config.setBoolean(QueryServices.COMMIT_STATS_ASYNC, false);
+    when(mockScanner.isIncremental()).thenReturn(true);
+    when(conn.isClosed()).thenReturn(false);
+    when(conn.isAborted()).thenReturn(false);
+
+    mockScanner.close();
+
+    verify(callable, never()).call();
+    verify(runTracker).runTask(callable);
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void testCheckRegionServerStoppingOnException() throws Exception {
@@ -18,11 +18,21 @@
 package org.apache.phoenix.util;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.filter.SkipScanFilter;
 import org.apache.phoenix.query.KeyRange;
 import org.apache.phoenix.query.KeyRange.Bound;
 import org.apache.phoenix.query.QueryConstants;
@@ -348,6 +358,34 @@ public class ScanUtilTest {
 
   public static class NonParameterizedScanUtilTest {
 
+    @Test
+    public void testIntersectSkipScanFilterWithRegion() throws Exception {
+      List<KeyRange> keys = Lists.newArrayList();
+      for (int i = 0; i < 100; i++) {
+        keys.add(KeyRange.getKeyRange(Bytes.toBytes(String.format("k%03d", i))));
+      }
+      SkipScanFilter filter = new SkipScanFilter(Collections.singletonList(keys),
+        SchemaUtil.VAR_BINARY_SCHEMA, true);
+      Scan scan = new Scan();
+      scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filter,
+        new FirstKeyOnlyFilter()));
+      scan.withStartRow(Bytes.toBytes("k010"));
+      scan.withStopRow(Bytes.toBytes("k020"));
+      assertTrue(ScanUtil.intersectSkipScanFilter(scan));
+      List<Filter> filters = ((FilterList) scan.getFilter()).getFilters();
+      SkipScanFilter newFilter = (SkipScanFilter) filters.get(0);
+      assertEquals(10, newFilter.getPointLookupKeyCount());
+      assertArrayEquals(Bytes.toBytes("k010"), newFilter.getPointLookupKey(0));
+      assertArrayEquals(Bytes.toBytes("k019"), newFilter.getPointLookupKey(9));
+      assertTrue(filters.get(1) instanceof FirstKeyOnlyFilter);
+
+      scan = new Scan();
+      scan.setFilter(filter);
+      scan.withStartRow(Bytes.toBytes("k099a"));
+      assertFalse(ScanUtil.intersectSkipScanFilter(scan));
+      assertSame(filter, scan.getFilter());
+    }
+
     @Test
     public void testSlotsSaltedVarbinaryPk() {
       byte[] key = new byte[1024];
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+
+/**
+ * The memstore of a store and the time ranges of its segments are not visible outside of this
+ * package, so the memstore time range is read here.
+ */
+public final class CompatMemStoreUtil {
+
+  private CompatMemStoreUtil() {
+    // Not to be instantiated
+  }
+
+  /**
+   * Returns the range of the timestamps of the cells in the non empty memstore segments of the
+   * given store, which is empty if all the segments are, or null if it is not known.
+   */
+  public static TimeRangeTracker getMemStoreTimeRange(HStore store) throws IOException {
+    if (!(store.memstore instanceof AbstractMemStore)) {
+      return null;
+    }
+    TimeRangeTracker timeRange = TimeRangeTracker.create(TimeRangeTracker.Type.NON_SYNC);
+    for (Segment segment : ((AbstractMemStore) store.memstore).getSegments()) {
+      if (!segment.isEmpty()) {
+        timeRange.includeTimestamp(segment.getTimeRangeTracker().getMin());
+        timeRange.includeTimestamp(segment.getTimeRangeTracker().getMax());
+      }
+    }
+    return timeRange;
+  }
+}